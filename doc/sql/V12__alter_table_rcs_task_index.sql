@@ -0,0 +1,37 @@
+/*
+ 任务表二级索引
+
+ Target Server Type    : MySQL
+ Target Server Version : 50719
+ File Encoding         : 65001
+
+ Date: 07/03/2026 09:30:00
+*/
+
+SET NAMES utf8mb4;
+
+-- ----------------------------
+-- Indexes for rcs_task
+-- ----------------------------
+-- 增量读取：WHERE update_time >= ? ORDER BY update_time, id
+ALTER TABLE `rcs_task`
+    ADD INDEX `idx_update_time` (`update_time`, `id`) USING BTREE;
+-- 全量校准：WHERE executive_system = ? AND interrupt_state = ? AND task_state > ?
+ALTER TABLE `rcs_task`
+    ADD INDEX `idx_dispatch` (`executive_system`, `interrupt_state`, `task_state`) USING BTREE;
+-- 按任务编号读写单个任务
+ALTER TABLE `rcs_task`
+    ADD INDEX `idx_task_code` (`task_code`) USING BTREE;
+-- 起点需求统计：WHERE task_type = ? AND create_time >= ?
+ALTER TABLE `rcs_task`
+    ADD INDEX `idx_type_create_time` (`task_type`, `create_time`) USING BTREE;
+
+-- ----------------------------
+-- Indexes for rcs_task_agv
+-- ----------------------------
+ALTER TABLE `rcs_task_agv`
+    ADD INDEX `idx_update_time` (`update_time`, `id`) USING BTREE;
+ALTER TABLE `rcs_task_agv`
+    ADD INDEX `idx_dispatch` (`executive_system`, `interrupt_state`, `task_state`) USING BTREE;
+ALTER TABLE `rcs_task_agv`
+    ADD INDEX `idx_task_code` (`task_code`) USING BTREE;
@@ -0,0 +1,25 @@
+/*
+ 调度统计表：滚动 KPI 字段
+
+ Target Server Type    : MySQL
+ Target Server Version : 50719
+ File Encoding         : 65001
+
+ Date: 17/03/2026 10:30:00
+*/
+
+SET NAMES utf8mb4;
+
+-- ----------------------------
+-- KPI columns for rcs_statistics
+-- ----------------------------
+-- 原有数据为班次统计，period_type 默认 0
+ALTER TABLE `rcs_statistics`
+    ADD COLUMN `period_type` tinyint(2) NULL DEFAULT 0 COMMENT '统计周期 0班次 1小时 2天' AFTER `finish`,
+    ADD COLUMN `empty_itinerary` int(10) NULL DEFAULT 0 COMMENT '空驶行程' AFTER `total_itinerary_offset`,
+    ADD COLUMN `empty_rate` double(5, 2) NULL DEFAULT 0.00 COMMENT '空驶率' AFTER `empty_itinerary`,
+    ADD COLUMN `avg_wait_time` int(10) NULL DEFAULT 0 COMMENT '任务平均等待时间' AFTER `empty_rate`;
+-- 每个周期只有一行，写入时按唯一键覆盖 (INSERT ... ON DUPLICATE KEY UPDATE)，重试不会产生重复行；
+-- 同时用于按周期与时间范围查询：WHERE period_type = ? AND begin >= ?
+ALTER TABLE `rcs_statistics`
+    ADD UNIQUE INDEX `uk_period_begin` (`period_type`, `begin`) USING BTREE;
@@ -59,11 +59,13 @@ public class TcpClientHandler implements ClientHandler {
                 RcsAgv rcsAgv = agvManager.getRcsAgvByCode(clientId);
                 rcsAgv.setAgvState(-1);
                 rcsAgv.setLight(1);
+                agvManager.refreshEligibility(rcsAgv);
                 RcsLog.consoleLog.error("{} AGV连接失败次数过多，设置为离线状态", StrUtil.format("{}_{}", equipmentType.getEquipmentType(), clientId));
                 break;
             case CHARGE_PILE:
                 RcsChargePile rcsChargePile = chargePileManager.getRcsChargePileByCode(clientId);
                 rcsChargePile.setState(0);
+                chargePileManager.refreshIndex(rcsChargePile);
                 RcsLog.consoleLog.error("{} 充电桩连接失败次数过多，设置为离线状态", StrUtil.format("{}_{}", equipmentType.getEquipmentType(), clientId));
                 break;
             case TRANSFER:
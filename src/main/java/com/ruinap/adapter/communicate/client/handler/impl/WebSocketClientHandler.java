@@ -78,6 +78,7 @@ public class WebSocketClientHandler implements ClientHandler {
             case CHARGE_PILE:
                 RcsChargePile rcsChargePile = chargePileManager.getRcsChargePileByCode(clientId);
                 rcsChargePile.setState(0);
+                chargePileManager.refreshIndex(rcsChargePile);
                 RcsLog.consoleLog.error("{} 充电桩连接失败次数过多，设置为离线状态", StrUtil.format("{}_{}", equipmentType.getEquipmentType(), clientId));
                 break;
             case TRANSFER:
@@ -167,6 +168,7 @@ public class WebSocketClientHandler implements ClientHandler {
         if (rcsAgv != null) {
             rcsAgv.setAgvState(-1);
             rcsAgv.setLight(1);
+            agvManager.refreshEligibility(rcsAgv);
             RcsLog.consoleLog.error("{} AGV与调度断开连接，设置为离线状态", clientId);
         }
     }
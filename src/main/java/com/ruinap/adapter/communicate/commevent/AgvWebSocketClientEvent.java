@@ -5,7 +5,12 @@ import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
 import com.ruinap.adapter.communicate.base.ClientAttribute;
 import com.ruinap.adapter.communicate.base.event.AbstractClientEvent;
+import com.ruinap.core.algorithm.BatteryModelManager;
+import com.ruinap.core.algorithm.EtaManager;
+import com.ruinap.core.algorithm.TravelTimeManager;
 import com.ruinap.core.business.AlarmManager;
+import com.ruinap.core.business.StatisticsManager;
+import com.ruinap.core.business.TelemetryManager;
 import com.ruinap.core.equipment.manager.AgvManager;
 import com.ruinap.core.equipment.pojo.AgvTask;
 import com.ruinap.core.equipment.pojo.RcsAgv;
@@ -32,6 +37,16 @@ public class AgvWebSocketClientEvent extends AbstractClientEvent<TextWebSocketFr
     private AgvManager agvManager;
     @Autowired
     private AlarmManager alarmManager;
+    @Autowired
+    private TravelTimeManager travelTimeManager;
+    @Autowired
+    private EtaManager etaManager;
+    @Autowired
+    private BatteryModelManager batteryModelManager;
+    @Autowired
+    private StatisticsManager statisticsManager;
+    @Autowired
+    private TelemetryManager telemetryManager;
 
     /**
      * 接收消息
@@ -197,6 +212,8 @@ public class AgvWebSocketClientEvent extends AbstractClientEvent<TextWebSocketFr
             rcsAgv.setPalletState(palletState);
             rcsAgv.setLiftHeight(liftHeight);
             rcsAgv.setAlarmSignal(alarmSignal);
+            //通知依赖AGV状态的模块
+            afterStateReport(rcsAgv);
         }
 
         agvManager.getAgvTaskCache().compute(clientId, (key, oldTask) -> {
@@ -351,9 +368,34 @@ public class AgvWebSocketClientEvent extends AbstractClientEvent<TextWebSocketFr
             rcsAgv.setAgvErrMsg(agvErrMsg);
             rcsAgv.setPalletState(palletState);
             rcsAgv.setLiftHeight(liftHeight);
+            //通知依赖AGV状态的模块
+            afterStateReport(rcsAgv);
         }
     }
 
+    /**
+     * AGV状态数据更新到缓存后，通知依赖AGV状态的模块
+     *
+     * @param rcsAgv AGV对象
+     */
+    private void afterStateReport(RcsAgv rcsAgv) {
+        String agvId = rcsAgv.getAgvId();
+        Integer mapId = rcsAgv.getMapId();
+        Integer pointId = rcsAgv.getPointId();
+        //学习边通行耗时
+        travelTimeManager.onPositionReport(agvId, mapId, pointId, rcsAgv.getVX(), rcsAgv.getVY());
+        //学习电量消耗
+        batteryModelManager.onStateReport(rcsAgv);
+        //累计KPI统计
+        statisticsManager.onStateReport(rcsAgv);
+        //记录遥测历史
+        telemetryManager.onStateReport(rcsAgv);
+        //增量更新预计到达时间
+        etaManager.onProgress(agvId, mapId, pointId);
+        //刷新AGV资格索引
+        agvManager.refreshEligibility(rcsAgv);
+    }
+
     /**
      * 请求地图事件
      *
@@ -382,9 +424,11 @@ public class AgvWebSocketClientEvent extends AbstractClientEvent<TextWebSocketFr
             alarmManager.triggerAlarm(agvId, AlarmCodeEnum.E10001, "rcs");
             RcsAgv rcsAgv = agvManager.getRcsAgvByCode(agvId);
             rcsAgv.setMapChecked(false);
+            agvManager.refreshEligibility(rcsAgv);
         } else {
             RcsAgv rcsAgv = agvManager.getRcsAgvByCode(agvId);
             rcsAgv.setMapChecked(true);
+            agvManager.refreshEligibility(rcsAgv);
             RcsLog.consoleLog.info("{} AGV地图数据校验通过", agvId);
         }
     }
@@ -417,9 +461,11 @@ public class AgvWebSocketClientEvent extends AbstractClientEvent<TextWebSocketFr
             alarmManager.triggerAlarm(agvId, AlarmCodeEnum.E10001, "rcs");
             RcsAgv rcsAgv = agvManager.getRcsAgvByCode(agvId);
             rcsAgv.setMapChecked(false);
+            agvManager.refreshEligibility(rcsAgv);
         } else {
             RcsAgv rcsAgv = agvManager.getRcsAgvByCode(agvId);
             rcsAgv.setMapChecked(true);
+            agvManager.refreshEligibility(rcsAgv);
             RcsLog.consoleLog.info("{} AGV地图数据校验通过", agvId);
         }
     }
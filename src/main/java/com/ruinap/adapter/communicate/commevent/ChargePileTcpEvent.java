@@ -78,6 +78,7 @@ public class ChargePileTcpEvent extends AbstractClientEvent<byte[]> {
             rcsChargePile.setIdleState(idleState);
             rcsChargePile.setVoltage(Integer.parseInt(voltage));
             rcsChargePile.setCurrent(Integer.parseInt(current));
+            chargePileManager.refreshIndex(rcsChargePile);
         }
     }
 }
@@ -1,9 +1,17 @@
 package com.ruinap.api.controller;
 
+import com.ruinap.core.algorithm.EtaManager;
+import com.ruinap.core.algorithm.domain.EtaResult;
+import com.ruinap.core.business.StatisticsManager;
+import com.ruinap.core.business.TelemetryManager;
+import com.ruinap.core.business.domain.KpiSnapshot;
 import com.ruinap.infra.config.GlobalConfigManager;
 import com.ruinap.infra.framework.annotation.Autowired;
 import com.ruinap.infra.framework.web.bind.annotation.*;
+import com.ruinap.persistence.telemetry.TelemetrySample;
+import com.ruinap.persistence.telemetry.TelemetryTier;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -18,6 +26,12 @@ public class HttpController {
 
     @Autowired
     private GlobalConfigManager globalConfigManager;
+    @Autowired
+    private EtaManager etaManager;
+    @Autowired
+    private StatisticsManager statisticsManager;
+    @Autowired
+    private TelemetryManager telemetryManager;
 
     // 场景1: 正常请求，带日志，有 Body，有返回值
     @AccessLog
@@ -47,4 +61,76 @@ public class HttpController {
         // do nothing
         globalConfigManager.reloadAll();
     }
+
+    /**
+     * 查询 AGV 预计到达时间
+     *
+     * @param agvCode AGV编号
+     * @return ETA，无任务时为空
+     */
+    @GetMapping("eta/agv")
+    public EtaResult agvEta(@RequestParam("agvCode") String agvCode) {
+        return etaManager.getAgvEta(agvCode);
+    }
+
+    /**
+     * 查询任务预计到达时间
+     *
+     * @param taskCode 任务编号
+     * @return ETA，任务未分配时为空
+     */
+    @GetMapping("eta/task")
+    public EtaResult taskEta(@RequestParam("taskCode") String taskCode) {
+        return etaManager.getTaskEta(taskCode);
+    }
+
+    /**
+     * 查询全部 AGV 预计到达时间
+     *
+     * @return AGV编号 -> ETA
+     */
+    @GetMapping("eta/all")
+    public Map<String, EtaResult> allEta() {
+        return etaManager.getAllAgvEta();
+    }
+
+    /**
+     * 查询 KPI 看板指标 (内存聚合，不访问数据库)
+     *
+     * @return last_hour 最近 60 分钟，hour 当前小时，day 今天
+     */
+    @GetMapping("statistics/kpi")
+    public Map<String, KpiSnapshot> kpi() {
+        return statisticsManager.getKpi();
+    }
+
+    /**
+     * 查询今天每个小时的 KPI 指标 (内存聚合，不访问数据库)
+     *
+     * @return 按小时排列的指标
+     */
+    @GetMapping("statistics/hourly")
+    public List<KpiSnapshot> hourlyKpi() {
+        return statisticsManager.getHourly();
+    }
+
+    /**
+     * 查询 AGV 遥测历史 (本地时序存储，不访问数据库)
+     *
+     * @param agvCode AGV编号
+     * @param tier    分层 raw 原始 1s 1秒 1m 1分钟，默认 1s
+     * @param from    开始时间戳 (毫秒，包含)，默认结束时间前 10 分钟
+     * @param to      结束时间戳 (毫秒，不包含)，默认当前时间
+     * @return 按时间排序的采样
+     */
+    @GetMapping("telemetry/range")
+    public List<TelemetrySample> telemetry(@RequestParam("agvCode") String agvCode,
+                                           @RequestParam(value = "tier", required = false) String tier,
+                                           @RequestParam(value = "from", required = false) Long from,
+                                           @RequestParam(value = "to", required = false) Long to) {
+        TelemetryTier telemetryTier = tier == null ? TelemetryTier.SECOND : TelemetryTier.getByDir(tier);
+        long toMs = to == null ? System.currentTimeMillis() : to;
+        long fromMs = from == null ? toMs - 600_000L : from;
+        return telemetryManager.query(agvCode, telemetryTier, fromMs, toMs);
+    }
 }
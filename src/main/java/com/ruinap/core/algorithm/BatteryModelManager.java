@@ -0,0 +1,137 @@
+package com.ruinap.core.algorithm;
+
+import com.ruinap.core.algorithm.domain.BatteryConsumption;
+import com.ruinap.core.equipment.pojo.RcsAgv;
+import com.ruinap.infra.config.CoreYaml;
+import com.ruinap.infra.config.event.RcsCoreConfigRefreshEvent;
+import com.ruinap.infra.framework.annotation.Autowired;
+import com.ruinap.infra.framework.annotation.Component;
+import com.ruinap.infra.framework.annotation.PostConstruct;
+import com.ruinap.infra.framework.core.event.ApplicationListener;
+import com.ruinap.infra.log.RcsLog;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <h1>电量消耗模型管理器</h1>
+ * <p>
+ * 根据 AGV 状态上报中的电量、开机运行里程与载货状态，学习每台 AGV 空车/载货行驶每米的耗电量，
+ * 为拍卖引擎提供“完成任务后的预计电量”，为机会充电提供耗电预测。
+ * </p>
+ * <p>
+ * 未学习到样本前使用配置的默认耗电量；地图距离与运行里程的单位均为毫米。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-14 10:00
+ */
+@Component
+public class BatteryModelManager implements ApplicationListener<RcsCoreConfigRefreshEvent> {
+    @Autowired
+    private CoreYaml coreYaml;
+
+    /**
+     * AGV 电量消耗模型
+     * Key: AGV编号
+     */
+    private final Map<String, BatteryConsumption> models = new ConcurrentHashMap<>();
+
+    // --- 核心配置缓存区 (Volatile 保证可见性) ---
+    /**
+     * 默认空车每米耗电 (百分比，默认 0.01，即每公里 10%)
+     */
+    private volatile double defaultUnloadedRate = 0.01;
+    /**
+     * 默认载货每米耗电 (百分比，默认 0.015，即每公里 15%)
+     */
+    private volatile double defaultLoadedRate = 0.015;
+    /**
+     * 学习率 (百分比，默认 20)
+     */
+    private volatile double alpha = 0.2;
+    /**
+     * 有效样本的最小区间里程 (毫米，默认 5000)
+     */
+    private volatile long minDistanceMm = 5000;
+
+    @PostConstruct
+    public void init() {
+        refreshConfig();
+    }
+
+    @Override
+    public void onApplicationEvent(RcsCoreConfigRefreshEvent event) {
+        // 已学习的系数继续使用，默认值只影响新建的模型
+        refreshConfig();
+    }
+
+    /**
+     * 统一刷新配置逻辑
+     */
+    private void refreshConfig() {
+        this.defaultUnloadedRate = Math.max(1, coreYaml.getAlgorithmInt("battery_unloaded_percent_per_km", 10)) / 1000.0;
+        this.defaultLoadedRate = Math.max(1, coreYaml.getAlgorithmInt("battery_loaded_percent_per_km", 15)) / 1000.0;
+        this.alpha = Math.min(100, Math.max(1, coreYaml.getAlgorithmInt("battery_learn_percent", 20))) / 100.0;
+        this.minDistanceMm = Math.max(0, coreYaml.getAlgorithmInt("battery_min_sample_meters", 5)) * 1000L;
+        RcsLog.consoleLog.info("电量消耗学习参数已更新: unloaded_per_m={}, loaded_per_m={}, alpha={}, min_distance_mm={}", defaultUnloadedRate, defaultLoadedRate, alpha, minDistanceMm);
+    }
+
+    /**
+     * 处理 AGV 状态上报
+     *
+     * @param rcsAgv AGV
+     */
+    public void onStateReport(RcsAgv rcsAgv) {
+        if (rcsAgv == null || rcsAgv.getAgvId() == null || rcsAgv.getBattery() == null || rcsAgv.getRunLength() == null) {
+            return;
+        }
+        //载货状态 0无货 1单左货 2单右货 3左右货 Null为无货物信号
+        Integer goodsState = rcsAgv.getGoodsState();
+        boolean loaded = goodsState != null && goodsState > 0;
+        BatteryConsumption model = getModel(rcsAgv.getAgvId());
+        synchronized (model) {
+            if (model.observe(rcsAgv.getBattery(), rcsAgv.getRunLength(), loaded, minDistanceMm, alpha)) {
+                RcsLog.algorithmLog.debug("{} 电量消耗模型已更新: unloaded_per_m={}, loaded_per_m={}, samples={}", rcsAgv.getAgvId(), model.getUnloadedRate(), model.getLoadedRate(), model.getSamples());
+            }
+        }
+    }
+
+    /**
+     * 获取 AGV 的电量消耗模型，不存在时按默认耗电量创建
+     *
+     * @param agvId AGV编号
+     * @return 电量消耗模型
+     */
+    public BatteryConsumption getModel(String agvId) {
+        return models.computeIfAbsent(agvId, key -> new BatteryConsumption(defaultUnloadedRate, defaultLoadedRate));
+    }
+
+    /**
+     * 估算 AGV 行驶指定里程消耗的电量
+     *
+     * @param agvId      AGV编号
+     * @param unloadedMm 空车里程 (毫米)
+     * @param loadedMm   载货里程 (毫米)
+     * @return 消耗电量 (百分比)
+     */
+    public double estimate(String agvId, double unloadedMm, double loadedMm) {
+        BatteryConsumption model = getModel(agvId);
+        synchronized (model) {
+            return model.estimate(unloadedMm, loadedMm);
+        }
+    }
+
+    /**
+     * 预计 AGV 行驶指定里程后的剩余电量
+     *
+     * @param rcsAgv     AGV
+     * @param unloadedMm 空车里程 (毫米)
+     * @param loadedMm   载货里程 (毫米)
+     * @return 剩余电量 (百分比)，可能为负
+     */
+    public double predictRemaining(RcsAgv rcsAgv, double unloadedMm, double loadedMm) {
+        int battery = rcsAgv.getBattery() == null ? 0 : rcsAgv.getBattery();
+        return battery - estimate(rcsAgv.getAgvId(), unloadedMm, loadedMm);
+    }
+}
@@ -0,0 +1,111 @@
+package com.ruinap.core.algorithm;
+
+import com.ruinap.core.algorithm.domain.DistanceField;
+import com.ruinap.core.map.MapManager;
+import com.ruinap.core.map.pojo.MapSnapshot;
+import com.ruinap.core.map.pojo.RcsPoint;
+import com.ruinap.infra.config.CoreYaml;
+import com.ruinap.infra.framework.annotation.Autowired;
+import com.ruinap.infra.framework.annotation.Component;
+import com.ruinap.infra.log.RcsLog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * <h1>距离场管理器</h1>
+ * <p>
+ * 按地图快照缓存待机点、充电点的多源反向距离场，供待机点/充电桩选择时按真实路网距离取最近目标。
+ * </p>
+ * <p>
+ * 待机点、充电点集合都属于快照的一部分，快照整体替换时 (地图或点位配置变更) 距离场在首次访问时惰性重建，
+ * 重建成本约为 O(K × 边数 × log)，只在地图重载后发生一次。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-05 10:10
+ */
+@Component
+public class DistanceFieldManager {
+    @Autowired
+    private CoreYaml coreYaml;
+    @Autowired
+    private MapManager mapManager;
+
+    /**
+     * 待机点距离场
+     */
+    private volatile FieldHolder standbyField;
+    /**
+     * 充电点距离场
+     */
+    private volatile FieldHolder chargeField;
+
+    /**
+     * 获取待机点距离场
+     *
+     * @return 距离场
+     */
+    public DistanceField getStandbyField() {
+        MapSnapshot snapshot = mapManager.getSnapshot();
+        FieldHolder local = this.standbyField;
+        if (local == null || local.snapshot != snapshot) {
+            synchronized (this) {
+                local = this.standbyField;
+                if (local == null || local.snapshot != snapshot) {
+                    local = build("待机点", snapshot, MapSnapshot::standbyPoints);
+                    this.standbyField = local;
+                }
+            }
+        }
+        return local.field;
+    }
+
+    /**
+     * 获取充电点距离场
+     *
+     * @return 距离场
+     */
+    public DistanceField getChargeField() {
+        MapSnapshot snapshot = mapManager.getSnapshot();
+        FieldHolder local = this.chargeField;
+        if (local == null || local.snapshot != snapshot) {
+            synchronized (this) {
+                local = this.chargeField;
+                if (local == null || local.snapshot != snapshot) {
+                    local = build("充电点", snapshot, MapSnapshot::chargePoints);
+                    this.chargeField = local;
+                }
+            }
+        }
+        return local.field;
+    }
+
+    /**
+     * 构建距离场
+     */
+    private FieldHolder build(String name, MapSnapshot snapshot, Function<MapSnapshot, Map<Integer, List<RcsPoint>>> pointsOf) {
+        long start = System.currentTimeMillis();
+        List<RcsPoint> targets = new ArrayList<>();
+        Map<Integer, List<RcsPoint>> pointMap = snapshot == null ? null : pointsOf.apply(snapshot);
+        if (pointMap != null) {
+            pointMap.values().forEach(points -> {
+                if (points != null) {
+                    targets.addAll(points);
+                }
+            });
+        }
+        int k = Math.max(1, coreYaml.getAlgorithmInt("distance_field_k", 8));
+        DistanceField field = new DistanceField(snapshot == null ? null : snapshot.graph(), targets, k);
+        RcsLog.algorithmLog.info("{}距离场已按新地图重建，目标数量: {}，K: {}，耗时: {}ms", name, field.getTargetCount(), field.getK(), System.currentTimeMillis() - start);
+        return new FieldHolder(snapshot, field);
+    }
+
+    /**
+     * 快照与距离场绑定
+     */
+    private record FieldHolder(MapSnapshot snapshot, DistanceField field) {
+    }
+}
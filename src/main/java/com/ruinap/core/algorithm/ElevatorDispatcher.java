@@ -0,0 +1,268 @@
+package com.ruinap.core.algorithm;
+
+import com.ruinap.core.algorithm.domain.ElevatorSchedule;
+import com.ruinap.core.map.MapManager;
+import com.ruinap.core.map.pojo.RcsPoint;
+import com.ruinap.core.task.TaskPathManager;
+import com.ruinap.core.task.domain.DockDevice;
+import com.ruinap.core.task.domain.TaskPath;
+import com.ruinap.infra.config.CoreYaml;
+import com.ruinap.infra.config.InteractionYaml;
+import com.ruinap.infra.config.pojo.interactions.ElevatorEntity;
+import com.ruinap.infra.enums.task.DockTaskTypeEnum;
+import com.ruinap.infra.framework.annotation.Autowired;
+import com.ruinap.infra.framework.annotation.Component;
+import com.ruinap.infra.log.RcsLog;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <h1>电梯批量调度器</h1>
+ * <p>
+ * 跨楼层任务原先每台 AGV 单独占用一次电梯，高峰期电梯口排起长队。调度器为每台电梯维护换层请求队列：
+ * <ol>
+ * <li>AGV 进入电梯对接分段时提交请求 (起始楼层、目标楼层)；</li>
+ * <li>同方向的 AGV 在批量窗口内按轿厢容量拼车，停靠顺序按扫描方向排列，详见 {@link ElevatorSchedule}；</li>
+ * <li>AGV 被分到电梯正在执行的批次后才进入对接设备状态 ({@link #requestBoarding})，同一批次的 AGV 一起进梯；</li>
+ * <li>对外提供预计电梯耗时 (等待 + 乘梯)，供 ETA 与拍卖代价使用。</li>
+ * </ol>
+ * 电梯对接分段结束 (AGV 的首条任务路径不再是该电梯的对接分段) 时自动移除请求；
+ * 批次中的 AGV 全部移除后电梯才空闲，超出预计时间的批次继续占用电梯，不会与下一批次同时进梯。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-16 11:05
+ */
+@Component
+public class ElevatorDispatcher {
+    @Autowired
+    private CoreYaml coreYaml;
+    @Autowired
+    private InteractionYaml interactionYaml;
+    @Autowired
+    private MapManager mapManager;
+    @Autowired
+    private TaskPathManager taskPathManager;
+
+    /**
+     * 电梯调度队列
+     * Key: 电梯编号
+     */
+    private final Map<String, ElevatorSchedule> schedules = new ConcurrentHashMap<>();
+    /**
+     * AGV 正在排队或乘坐的电梯
+     * Key: AGV编号，Value: 电梯编号
+     */
+    private final Map<String, String> agvElevators = new ConcurrentHashMap<>();
+
+    /**
+     * 按电梯对接分段提交换层请求 (重复提交无副作用)
+     *
+     * @param taskPath 任务路径
+     * @return true=新加入队列
+     */
+    public boolean request(TaskPath taskPath) {
+        DockDevice dockDevice = taskPath == null ? null : taskPath.getDockDevice();
+        if (!isElevatorDock(dockDevice) || dockDevice.getStartPoint() == null || dockDevice.getEndPoint() == null) {
+            return false;
+        }
+        return request(dockDevice.getEquipmentId(), taskPath.getAgvId(), dockDevice.getStartPoint().getFloor(), dockDevice.getEndPoint().getFloor());
+    }
+
+    /**
+     * 提交换层请求 (重复提交无副作用)
+     *
+     * @param elevatorCode 电梯编号
+     * @param agvId        AGV编号
+     * @param fromFloor    起始楼层
+     * @param toFloor      目标楼层
+     * @return true=新加入队列
+     */
+    public boolean request(String elevatorCode, String agvId, int fromFloor, int toFloor) {
+        if (elevatorCode == null || agvId == null) {
+            return false;
+        }
+        String previous = agvElevators.get(agvId);
+        if (previous != null && !previous.equals(elevatorCode)) {
+            release(agvId);
+        }
+        boolean added = schedules.computeIfAbsent(elevatorCode, k -> new ElevatorSchedule())
+                .request(agvId, fromFloor, toFloor, System.currentTimeMillis());
+        if (added) {
+            agvElevators.put(agvId, elevatorCode);
+            RcsLog.algorithmLog.info("{} 电梯[{}]换层请求排队：{}楼 -> {}楼", agvId, elevatorCode, fromFloor, toFloor);
+        }
+        return added;
+    }
+
+    /**
+     * 移除 AGV 的换层请求 (取消或已出梯)
+     *
+     * @param agvId AGV编号
+     */
+    public void release(String agvId) {
+        String elevatorCode = agvId == null ? null : agvElevators.remove(agvId);
+        if (elevatorCode == null) {
+            return;
+        }
+        ElevatorSchedule schedule = schedules.get(elevatorCode);
+        if (schedule != null) {
+            schedule.remove(agvId);
+        }
+    }
+
+    /**
+     * 电梯对接分段申请进梯
+     * <p>
+     * 登记换层请求 (重复提交无副作用)，AGV 被分到电梯正在执行的批次时才允许进入对接；
+     * 非电梯对接、楼层未知或同层的分段不需要排队，直接放行
+     *
+     * @param taskPath 任务路径
+     * @return true=可以进入对接
+     */
+    public boolean requestBoarding(TaskPath taskPath) {
+        DockDevice dockDevice = taskPath == null ? null : taskPath.getDockDevice();
+        if (!isElevatorDock(dockDevice) || dockDevice.getStartPoint() == null || dockDevice.getEndPoint() == null
+                || dockDevice.getStartPoint().getFloor() == dockDevice.getEndPoint().getFloor()) {
+            return true;
+        }
+        request(taskPath);
+        return isBoarding(taskPath.getAgvId());
+    }
+
+    /**
+     * 判断 AGV 是否已被分配到电梯正在执行的批次 (可以进梯)
+     *
+     * @param agvId AGV编号
+     * @return true=可以进梯
+     */
+    public boolean isBoarding(String agvId) {
+        String elevatorCode = agvId == null ? null : agvElevators.get(agvId);
+        ElevatorSchedule schedule = elevatorCode == null ? null : schedules.get(elevatorCode);
+        return schedule != null && schedule.inTrip(agvId);
+    }
+
+    /**
+     * 调度
+     * <p>
+     * 由定时任务调用：清理已离开电梯对接分段的 AGV，并为空闲的电梯发出下一批次
+     */
+    public void dispatch() {
+        try {
+            for (Map.Entry<String, String> entry : agvElevators.entrySet()) {
+                TaskPath first = taskPathManager.getFirst(entry.getKey());
+                DockDevice dockDevice = first == null ? null : first.getDockDevice();
+                if (!isElevatorDock(dockDevice) || !entry.getValue().equals(dockDevice.getEquipmentId())) {
+                    release(entry.getKey());
+                }
+            }
+
+            long now = System.currentTimeMillis();
+            schedules.forEach((elevatorCode, schedule) -> {
+                if (schedule.getTrip() != null) {
+                    // 批次以实际出梯为准，全部 AGV 离开电梯对接分段后才发出下一批次
+                    return;
+                }
+                ElevatorSchedule.ElevatorTrip trip = schedule.dispatch(now, getParams(elevatorCode));
+                if (trip != null) {
+                    RcsLog.algorithmLog.info("电梯[{}]发出批次：AGV {}，停靠楼层 {}，预计耗时 {} ms，剩余排队 {}",
+                            elevatorCode, trip.requests().stream().map(ElevatorSchedule.ElevatorRequest::agvId).toList(),
+                            trip.stops(), trip.endMs() - trip.startMs(), schedule.size());
+                }
+            });
+        } catch (Exception e) {
+            RcsLog.algorithmLog.error("电梯批量调度异常", e);
+        }
+    }
+
+    /**
+     * 预测已排队 AGV 的电梯耗时 (等待 + 乘梯)
+     *
+     * @param agvId AGV编号
+     * @return 预计耗时 (毫秒)，AGV 未排队时返回 -1
+     */
+    public long predictWaitMs(String agvId) {
+        String elevatorCode = agvId == null ? null : agvElevators.get(agvId);
+        ElevatorSchedule schedule = elevatorCode == null ? null : schedules.get(elevatorCode);
+        if (schedule == null) {
+            return -1;
+        }
+        return schedule.predictWaitMs(agvId, System.currentTimeMillis(), getParams(elevatorCode));
+    }
+
+    /**
+     * 预测现在提交换层请求的电梯耗时 (等待 + 乘梯)
+     *
+     * @param elevatorCode 电梯编号
+     * @param fromFloor    起始楼层
+     * @param toFloor      目标楼层
+     * @return 预计耗时 (毫秒)
+     */
+    public long predictWaitMs(String elevatorCode, int fromFloor, int toFloor) {
+        if (elevatorCode == null) {
+            return 0;
+        }
+        ElevatorSchedule schedule = schedules.get(elevatorCode);
+        ElevatorSchedule.Params params = getParams(elevatorCode);
+        if (schedule == null) {
+            // 电梯空闲：只有乘梯时间
+            schedule = new ElevatorSchedule();
+        }
+        return schedule.predictWaitMs(fromFloor, toFloor, System.currentTimeMillis(), params);
+    }
+
+    /**
+     * 预测一条路线经过的所有电梯的耗时之和 (等待 + 乘梯)
+     * <p>
+     * 供拍卖阶段评估跨楼层候选路线
+     *
+     * @param paths 路线点位
+     * @return 预计耗时 (毫秒)，不跨楼层时返回 0
+     */
+    public long predictRouteWaitMs(List<RcsPoint> paths) {
+        List<LinkedHashMap<String, String>> bridges = mapManager.getTargetBridgePoint(paths);
+        if (bridges == null || bridges.isEmpty()) {
+            return 0;
+        }
+        long total = 0;
+        for (LinkedHashMap<String, String> bridge : bridges) {
+            RcsPoint origin = mapManager.getPointByAlias(bridge.get("origin"));
+            RcsPoint destin = mapManager.getPointByAlias(bridge.get("destin"));
+            if (origin != null && destin != null) {
+                total += predictWaitMs(bridge.get("equipment_code"), origin.getFloor(), destin.getFloor());
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 获取电梯排队数量 (不含已上梯)
+     *
+     * @param elevatorCode 电梯编号
+     * @return 排队数量
+     */
+    public int getQueueSize(String elevatorCode) {
+        ElevatorSchedule schedule = elevatorCode == null ? null : schedules.get(elevatorCode);
+        return schedule == null ? 0 : schedule.size();
+    }
+
+    /**
+     * 获取电梯调度参数：容量优先读取电梯配置，其余读取算法配置
+     */
+    private ElevatorSchedule.Params getParams(String elevatorCode) {
+        ElevatorEntity elevator = interactionYaml.getElevatorByCode(elevatorCode);
+        int capacity = elevator != null && elevator.getCapacity() != null && elevator.getCapacity() > 0
+                ? elevator.getCapacity() : Math.max(1, coreYaml.getAlgorithmInt("elevator_capacity", 1));
+        return new ElevatorSchedule.Params(capacity,
+                Math.max(0, coreYaml.getAlgorithmInt("elevator_batch_window_ms", 5000)),
+                Math.max(0, coreYaml.getAlgorithmInt("elevator_floor_travel_ms", 5000)),
+                Math.max(0, coreYaml.getAlgorithmInt("elevator_stop_ms", 15000)));
+    }
+
+    private static boolean isElevatorDock(DockDevice dockDevice) {
+        return dockDevice != null && DockTaskTypeEnum.isEnumByCode(DockTaskTypeEnum.ELEVATOR, dockDevice.getDockType());
+    }
+}
@@ -0,0 +1,618 @@
+package com.ruinap.core.algorithm;
+
+import com.ruinap.core.algorithm.domain.EdgeTravelTable;
+import com.ruinap.core.algorithm.domain.EtaResult;
+import com.ruinap.core.equipment.manager.AgvManager;
+import com.ruinap.core.equipment.pojo.RcsAgv;
+import com.ruinap.core.map.MapManager;
+import com.ruinap.core.map.pojo.MapSnapshot;
+import com.ruinap.core.map.pojo.RcsPoint;
+import com.ruinap.core.map.pojo.RcsPointOccupy;
+import com.ruinap.core.map.util.GeometryUtils;
+import com.ruinap.core.task.TaskPathManager;
+import com.ruinap.core.task.domain.DockDevice;
+import com.ruinap.core.task.domain.TaskPath;
+import com.ruinap.core.task.structure.TaskSectionManager;
+import com.ruinap.infra.config.CoreYaml;
+import com.ruinap.infra.enums.task.DockTaskTypeEnum;
+import com.ruinap.infra.enums.task.SubTaskTypeEnum;
+import com.ruinap.infra.framework.annotation.Autowired;
+import com.ruinap.infra.framework.annotation.Component;
+import com.ruinap.infra.log.RcsLog;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <h1>预计到达时间(ETA)管理器</h1>
+ * <p>
+ * 为每台执行任务的 AGV 与每个已分配的任务提供预计到达起点/终点的时间，供拍卖、任务分发与 Web 接口 O(1) 读取。
+ * </p>
+ * <p>
+ * 计算方式：
+ * <ol>
+ * <li>任务路径变化时(新任务、二次规划)，把剩余分段拼接成一条路线，按 {@link TravelTimeManager} 学习到的边耗时求前缀和，形成“路线画像”。</li>
+ * <li>AGV 上报进度时，只需在画像上向前移动游标：剩余耗时 = 总耗时 - 前缀和[游标]，不需要重新规划；路线与游标都未变化时不重新发布。</li>
+ * <li>叠加动态等待：剩余路线经过的管制区若被其他 AGV 占用，加上管制等待；经过的电梯按 {@link ElevatorDispatcher} 的批量调度推演加上电梯耗时。
+ * 管制区占用与电梯排队由定时全量刷新统一采集，进度上报只做查表。</li>
+ * </ol>
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-03 09:35
+ */
+@Component
+public class EtaManager {
+    @Autowired
+    private CoreYaml coreYaml;
+    @Autowired
+    private MapManager mapManager;
+    @Autowired
+    private AgvManager agvManager;
+    @Autowired
+    private TaskPathManager taskPathManager;
+    @Autowired
+    private TaskSectionManager taskSectionManager;
+    @Autowired
+    private TravelTimeManager travelTimeManager;
+    @Autowired
+    private ElevatorDispatcher elevatorDispatcher;
+
+    /**
+     * AGV 路线画像
+     * Key: AGV编号
+     */
+    private final Map<String, RouteProfile> profileMap = new ConcurrentHashMap<>();
+    /**
+     * AGV ETA
+     * Key: AGV编号
+     */
+    private final Map<String, EtaResult> agvEtaMap = new ConcurrentHashMap<>();
+    /**
+     * 任务 ETA
+     * Key: 任务编号
+     */
+    private final Map<String, EtaResult> taskEtaMap = new ConcurrentHashMap<>();
+    /**
+     * 电梯排队的 AGV (每次全量刷新时重算)
+     * Key: 电梯编号，Value: 首条任务路径为该电梯对接分段的 AGV编号
+     */
+    private volatile Map<String, Set<String>> elevatorQueues = Collections.emptyMap();
+    /**
+     * 管制区占用者 (每次全量刷新时重算)
+     * Key: 管制区编号，Value: 物理占用区内点位的设备编号
+     */
+    private volatile Map<String, Set<String>> areaOccupants = Collections.emptyMap();
+    /**
+     * 管制区点位索引 (按快照缓存)
+     */
+    private volatile ControlAreaIndex controlAreaIndex;
+
+    /**
+     * 获取 AGV 的 ETA
+     *
+     * @param agvCode AGV编号
+     * @return ETA，无任务时返回 null
+     */
+    public EtaResult getAgvEta(String agvCode) {
+        return agvCode == null ? null : agvEtaMap.get(agvCode);
+    }
+
+    /**
+     * 获取任务的 ETA
+     *
+     * @param taskCode 任务编号
+     * @return ETA，任务未分配时返回 null
+     */
+    public EtaResult getTaskEta(String taskCode) {
+        return taskCode == null ? null : taskEtaMap.get(taskCode);
+    }
+
+    /**
+     * 获取全部 AGV 的 ETA
+     *
+     * @return 不可变视图
+     */
+    public Map<String, EtaResult> getAllAgvEta() {
+        return Collections.unmodifiableMap(agvEtaMap);
+    }
+
+    /**
+     * 估算一条路线的行驶耗时 (不含等待)
+     * <p>
+     * 供拍卖阶段对候选路线快速估时
+     *
+     * @param paths 路线点位
+     * @return 预计耗时(毫秒)
+     */
+    public long estimateRouteMs(List<RcsPoint> paths) {
+        if (paths == null || paths.size() < 2) {
+            return 0;
+        }
+        EdgeTravelTable table = travelTimeManager.getTable();
+        int bucket = travelTimeManager.currentBucket();
+        double total = 0;
+        for (int i = 1; i < paths.size(); i++) {
+            total += edgeMs(table, bucket, paths.get(i - 1), paths.get(i));
+        }
+        return Math.round(total);
+    }
+
+    /**
+     * 任务分配后立即发布任务 ETA
+     * <p>
+     * 优先按已生成的分段任务构建画像；分段尚未生成时，以竞标路线的估时兜底，随后由进度上报修正
+     *
+     * @param taskCode 任务编号
+     * @param rcsAgv   中标 AGV
+     * @param bidEtaMs 竞标估时(毫秒)，未知时为 -1
+     */
+    public void onTaskAssigned(String taskCode, RcsAgv rcsAgv, long bidEtaMs) {
+        if (taskCode == null || rcsAgv == null) {
+            return;
+        }
+        onProgress(rcsAgv.getAgvId(), rcsAgv.getMapId(), rcsAgv.getPointId());
+        if (!taskEtaMap.containsKey(taskCode) && bidEtaMs >= 0) {
+            long now = System.currentTimeMillis();
+            EtaResult eta = new EtaResult(rcsAgv.getAgvId(), taskCode, bidEtaMs, now + bidEtaMs, 0, 0, 0, now);
+            taskEtaMap.put(taskCode, eta);
+            agvEtaMap.put(rcsAgv.getAgvId(), eta);
+        }
+    }
+
+    /**
+     * 全量刷新
+     * <p>
+     * 由定时任务调用：重算电梯排队与管制区占用，并刷新所有 AGV 的 ETA
+     */
+    public void refreshAll() {
+        try {
+            Map<String, Set<String>> queues = new HashMap<>();
+            for (RcsAgv rcsAgv : agvManager.getRcsAgvMap().values()) {
+                TaskPath first = taskPathManager.getFirst(rcsAgv.getAgvId());
+                if (first == null) {
+                    continue;
+                }
+                DockDevice dockDevice = first.getDockDevice();
+                if (dockDevice != null && DockTaskTypeEnum.isEnumByCode(DockTaskTypeEnum.ELEVATOR, dockDevice.getDockType())) {
+                    queues.computeIfAbsent(dockDevice.getEquipmentId(), k -> new HashSet<>()).add(rcsAgv.getAgvId());
+                }
+            }
+            this.elevatorQueues = queues;
+            this.areaOccupants = getControlAreaIndex().occupants(mapManager);
+
+            for (RcsAgv rcsAgv : agvManager.getRcsAgvMap().values()) {
+                refresh(rcsAgv.getAgvId(), rcsAgv.getMapId(), rcsAgv.getPointId(), true);
+            }
+        } catch (Exception e) {
+            RcsLog.algorithmLog.error("ETA 全量刷新异常", e);
+        }
+    }
+
+    /**
+     * AGV 进度上报 (增量更新)
+     * <p>
+     * 在通信线程中随每次状态上报调用：只在路线或游标变化时重新发布，动态等待由全量刷新更新
+     *
+     * @param agvCode AGV编号
+     * @param mapId   地图编号
+     * @param pointId 点位编号
+     */
+    public void onProgress(String agvCode, Integer mapId, Integer pointId) {
+        refresh(agvCode, mapId, pointId, false);
+    }
+
+    /**
+     * 刷新 AGV 的 ETA
+     *
+     * @param agvCode AGV编号
+     * @param mapId   地图编号
+     * @param pointId 点位编号
+     * @param force   true=无论路线与游标是否变化都重新发布
+     */
+    private void refresh(String agvCode, Integer mapId, Integer pointId, boolean force) {
+        if (agvCode == null) {
+            return;
+        }
+        List<TaskPath> sections = currentSections(agvCode);
+        if (sections.isEmpty()) {
+            clear(agvCode);
+            return;
+        }
+
+        // 1. 路线画像：任务路径未变化时直接复用
+        long signature = signatureOf(sections);
+        RouteProfile profile = profileMap.get(agvCode);
+        boolean changed = false;
+        if (profile == null || profile.signature != signature) {
+            changed = true;
+            profile = buildProfile(agvCode, sections, signature);
+            RouteProfile old = profileMap.put(agvCode, profile);
+            if (old != null && old.taskCode != null && !old.taskCode.equals(profile.taskCode)) {
+                taskEtaMap.remove(old.taskCode);
+            }
+        }
+
+        // 2. 游标前移 (AGV 只会沿路线前进，从上次位置向后查找)
+        RcsPoint current = mapManager.getRcsPoint(mapId, pointId);
+        if (current != null) {
+            changed |= profile.advance(current.getGraphIndex());
+        }
+
+        // 3. 计算剩余耗时与动态等待
+        if (changed || force || !agvEtaMap.containsKey(agvCode)) {
+            publish(agvCode, profile);
+        }
+    }
+
+    /**
+     * 清理 AGV 的 ETA
+     *
+     * @param agvCode AGV编号
+     */
+    public void clear(String agvCode) {
+        RouteProfile old = profileMap.remove(agvCode);
+        if (old != null && old.taskCode != null) {
+            taskEtaMap.remove(old.taskCode);
+        }
+        agvEtaMap.remove(agvCode);
+    }
+
+    /**
+     * 获取 AGV 剩余的分段任务
+     */
+    private List<TaskPath> currentSections(String agvCode) {
+        List<TaskPath> sections = taskSectionManager.getTaskSections(agvCode);
+        if (sections != null && !sections.isEmpty()) {
+            return new ArrayList<>(sections);
+        }
+        TaskPath first = taskPathManager.getFirst(agvCode);
+        return first == null ? Collections.emptyList() : List.of(first);
+    }
+
+    /**
+     * 计算任务路径签名 (分段对象或其预期路径被替换时签名变化)
+     */
+    private static long signatureOf(List<TaskPath> sections) {
+        long signature = sections.size();
+        for (TaskPath section : sections) {
+            signature = signature * 31 + System.identityHashCode(section);
+            signature = signature * 31 + System.identityHashCode(section.getExpectRoutes());
+            if (section.getExpectRoutes() == null || section.getExpectRoutes().isEmpty()) {
+                // 无预期路径时以运行中路径估算，运行中路径增长也视为路线变化
+                signature = signature * 31 + section.getRunningRoutes().size();
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * 构建路线画像
+     */
+    private RouteProfile buildProfile(String agvCode, List<TaskPath> sections, long signature) {
+        EdgeTravelTable table = travelTimeManager.getTable();
+        int bucket = travelTimeManager.currentBucket();
+        ControlAreaIndex areaIndex = getControlAreaIndex();
+
+        List<RcsPoint> points = new ArrayList<>();
+        List<Integer> elevatorIdx = new ArrayList<>();
+        List<String> elevatorCodes = new ArrayList<>();
+        List<Integer> elevatorFloors = new ArrayList<>();
+        int originEnd = -1;
+
+        for (TaskPath section : sections) {
+            List<RcsPoint> route = routeOf(section);
+            if (route.isEmpty()) {
+                continue;
+            }
+            // 拼接：与上一段末点相同时去重
+            int from = (!points.isEmpty() && points.getLast().equals(route.getFirst())) ? 1 : 0;
+            DockDevice dockDevice = section.getDockDevice();
+            if (dockDevice != null && DockTaskTypeEnum.isEnumByCode(DockTaskTypeEnum.ELEVATOR, dockDevice.getDockType())) {
+                elevatorIdx.add(Math.max(0, points.size() - 1));
+                elevatorCodes.add(dockDevice.getEquipmentId());
+                // 起止楼层未知时记为同层，由排队深度兜底估算
+                int fromFloor = dockDevice.getStartPoint() != null ? dockDevice.getStartPoint().getFloor() : 0;
+                int toFloor = dockDevice.getEndPoint() != null ? dockDevice.getEndPoint().getFloor() : fromFloor;
+                elevatorFloors.add(fromFloor);
+                elevatorFloors.add(toFloor);
+            }
+            points.addAll(route.subList(from, route.size()));
+            if (SubTaskTypeEnum.isEnumByCode(SubTaskTypeEnum.ORIGIN, section.getSubTaskType())) {
+                originEnd = points.size() - 1;
+            }
+        }
+
+        int n = points.size();
+        int[] graphIndexes = new int[n];
+        double[] prefixMs = new double[n];
+        List<Integer> areaIdx = new ArrayList<>();
+        List<String> areaCodes = new ArrayList<>();
+        String lastArea = null;
+        for (int i = 0; i < n; i++) {
+            RcsPoint point = points.get(i);
+            graphIndexes[i] = point.getGraphIndex();
+            if (i > 0) {
+                prefixMs[i] = prefixMs[i - 1] + edgeMs(table, bucket, points.get(i - 1), point);
+            }
+            // 记录进入管制区的位置 (连续在同一区内只记一次)
+            String area = areaIndex.areaOf(point.getGraphIndex());
+            if (area != null && !area.equals(lastArea)) {
+                areaIdx.add(i);
+                areaCodes.add(area);
+            }
+            lastArea = area;
+        }
+
+        String taskCode = sections.getFirst().getTaskCode();
+        return new RouteProfile(signature, taskCode, graphIndexes, prefixMs, originEnd,
+                toArray(areaIdx), areaCodes.toArray(new String[0]),
+                toArray(elevatorIdx), elevatorCodes.toArray(new String[0]), toArray(elevatorFloors));
+    }
+
+    /**
+     * 获取分段的路线点位
+     * <p>
+     * 优先使用预期完整路径，其次为运行中路径，都没有时用起终点直线估算
+     */
+    private static List<RcsPoint> routeOf(TaskPath section) {
+        List<RcsPoint> expect = section.getExpectRoutes();
+        if (expect != null && !expect.isEmpty()) {
+            return expect;
+        }
+        List<RcsPoint> running = section.getRunningRoutes();
+        if (running != null && !running.isEmpty()) {
+            return running;
+        }
+        List<RcsPoint> straight = new ArrayList<>(2);
+        if (section.getTaskOrigin() != null) {
+            straight.add(section.getTaskOrigin());
+        }
+        if (section.getTaskDestin() != null) {
+            straight.add(section.getTaskDestin());
+        }
+        return straight;
+    }
+
+    /**
+     * 发布 ETA
+     */
+    private void publish(String agvCode, RouteProfile profile) {
+        int cursor = profile.cursor;
+        double remaining = profile.prefixMs[profile.prefixMs.length - 1] - profile.prefixMs[cursor];
+
+        // 管制区等待：剩余路线将进入的管制区被其他 AGV 占用
+        long controlWaitMs = 0;
+        int controlWait = coreYaml.getAlgorithmInt("eta_control_area_wait_ms", 10000);
+        Map<String, Set<String>> occupants = this.areaOccupants;
+        for (int i = 0; i < profile.areaIdx.length; i++) {
+            if (profile.areaIdx[i] > cursor && occupiedByOthers(occupants.get(profile.areaCodes[i]), agvCode)) {
+                controlWaitMs += controlWait;
+            }
+        }
+
+        // 电梯等待：已排队时按批量调度推演，未排队时按假设现在提交请求推演；楼层未知时退回 (其他排队 AGV 数 + 1) × 单次电梯周期
+        long elevatorWaitMs = 0;
+        int elevatorCycle = coreYaml.getAlgorithmInt("eta_elevator_cycle_ms", 60000);
+        Map<String, Set<String>> queues = this.elevatorQueues;
+        boolean first = true;
+        for (int i = 0; i < profile.elevatorIdx.length; i++) {
+            if (profile.elevatorIdx[i] >= cursor) {
+                int fromFloor = profile.elevatorFloors[2 * i];
+                int toFloor = profile.elevatorFloors[2 * i + 1];
+                long predicted = first ? elevatorDispatcher.predictWaitMs(agvCode) : -1;
+                if (predicted < 0 && fromFloor != toFloor) {
+                    predicted = elevatorDispatcher.predictWaitMs(profile.elevatorCodes[i], fromFloor, toFloor);
+                }
+                if (predicted < 0 || fromFloor == toFloor) {
+                    // 排队中的 AGV 已包含自身时不重复计入
+                    Set<String> queued = queues.getOrDefault(profile.elevatorCodes[i], Set.of());
+                    int others = queued.size() - (queued.contains(agvCode) ? 1 : 0);
+                    predicted = (long) elevatorCycle * (others + 1);
+                }
+                elevatorWaitMs += predicted;
+                first = false;
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        long originEta = 0;
+        if (profile.originEnd > cursor) {
+            originEta = now + Math.round(profile.prefixMs[profile.originEnd] - profile.prefixMs[cursor])
+                    + waitBefore(profile, profile.originEnd, cursor, controlWaitMs, elevatorWaitMs);
+        }
+        long totalMs = Math.round(remaining) + controlWaitMs + elevatorWaitMs;
+        long destinEta = now + totalMs;
+
+        EtaResult eta = new EtaResult(agvCode, profile.taskCode, totalMs, originEta, destinEta, controlWaitMs, elevatorWaitMs, now);
+        agvEtaMap.put(agvCode, eta);
+        if (profile.taskCode != null) {
+            taskEtaMap.put(profile.taskCode, eta);
+        }
+    }
+
+    /**
+     * 管制区是否被其他设备占用
+     */
+    private static boolean occupiedByOthers(Set<String> occupants, String agvCode) {
+        if (occupants == null || occupants.isEmpty()) {
+            return false;
+        }
+        return occupants.size() > 1 || !occupants.contains(agvCode);
+    }
+
+    /**
+     * 按比例估算到达指定位置前的等待 (等待点位分布未知时的近似)
+     */
+    private static long waitBefore(RouteProfile profile, int target, int cursor, long controlWaitMs, long elevatorWaitMs) {
+        int last = profile.prefixMs.length - 1;
+        if (last <= cursor) {
+            return 0;
+        }
+        double ratio = (double) (target - cursor) / (last - cursor);
+        return Math.round((controlWaitMs + elevatorWaitMs) * ratio);
+    }
+
+    /**
+     * 边预计耗时 (毫秒)
+     * <p>
+     * 优先使用学习到的边耗时；非相邻点或无数据时按距离 / 默认速度估算
+     */
+    private double edgeMs(EdgeTravelTable table, int bucket, RcsPoint from, RcsPoint to) {
+        double ms = travelTimeManager.expectedMs(table, from.getGraphIndex(), to.getGraphIndex(), bucket);
+        if (ms >= 0) {
+            return ms;
+        }
+        double distance = table.edgeDistance(from.getGraphIndex(), to.getGraphIndex());
+        if (distance <= 0) {
+            distance = GeometryUtils.calculateDistance(from, to);
+        }
+        double msPerMm = table.getGlobalMsPerMm();
+        if (msPerMm <= 0) {
+            // 默认速度 (毫米/秒)
+            msPerMm = 1000.0 / Math.max(1, coreYaml.getAlgorithmInt("eta_default_speed", 1000));
+        }
+        return distance * msPerMm;
+    }
+
+    /**
+     * 获取管制区索引 (快照切换后重建)
+     */
+    private ControlAreaIndex getControlAreaIndex() {
+        MapSnapshot snapshot = mapManager.getSnapshot();
+        ControlAreaIndex local = this.controlAreaIndex;
+        if (local == null || local.snapshot != snapshot) {
+            local = new ControlAreaIndex(snapshot);
+            this.controlAreaIndex = local;
+        }
+        return local;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * 路线画像
+     */
+    private static final class RouteProfile {
+        private final long signature;
+        private final String taskCode;
+        /**
+         * 路线点位 graphIndex
+         */
+        private final int[] graphIndexes;
+        /**
+         * 行驶耗时前缀和 (毫秒)
+         */
+        private final double[] prefixMs;
+        /**
+         * 起点段结束位置，-1 表示无起点段
+         */
+        private final int originEnd;
+        /**
+         * 进入管制区的位置与区编号
+         */
+        private final int[] areaIdx;
+        private final String[] areaCodes;
+        /**
+         * 电梯对接位置与电梯编号
+         */
+        private final int[] elevatorIdx;
+        private final String[] elevatorCodes;
+        /**
+         * 电梯起止楼层，依次为 [起始楼层, 目标楼层]
+         */
+        private final int[] elevatorFloors;
+        /**
+         * 当前游标
+         */
+        private volatile int cursor;
+
+        private RouteProfile(long signature, String taskCode, int[] graphIndexes, double[] prefixMs, int originEnd,
+                             int[] areaIdx, String[] areaCodes, int[] elevatorIdx, String[] elevatorCodes, int[] elevatorFloors) {
+            this.signature = signature;
+            this.taskCode = taskCode;
+            this.graphIndexes = graphIndexes;
+            this.prefixMs = prefixMs.length == 0 ? new double[]{0} : prefixMs;
+            this.originEnd = originEnd;
+            this.areaIdx = areaIdx;
+            this.areaCodes = areaCodes;
+            this.elevatorIdx = elevatorIdx;
+            this.elevatorCodes = elevatorCodes;
+            this.elevatorFloors = elevatorFloors;
+        }
+
+        /**
+         * 游标前移到当前点位 (找不到时保持原位)
+         *
+         * @return true=游标发生移动
+         */
+        private boolean advance(int graphIndex) {
+            for (int i = cursor; i < graphIndexes.length; i++) {
+                if (graphIndexes[i] == graphIndex) {
+                    boolean moved = i != cursor;
+                    cursor = i;
+                    return moved;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 管制区点位索引
+     */
+    private static final class ControlAreaIndex {
+        private final MapSnapshot snapshot;
+        /**
+         * graphIndex -> 管制区编号 (地图编号_区编号)
+         */
+        private final Map<Integer, String> pointToArea = new HashMap<>();
+        /**
+         * 管制区编号 -> 点位
+         */
+        private final Map<String, List<RcsPoint>> areaPoints = new HashMap<>();
+
+        private ControlAreaIndex(MapSnapshot snapshot) {
+            this.snapshot = snapshot;
+            Map<Integer, Map<String, List<RcsPoint>>> controlAreas = snapshot == null ? null : snapshot.controlAreas();
+            if (controlAreas == null) {
+                return;
+            }
+            controlAreas.forEach((mapId, areas) -> areas.forEach((code, points) -> {
+                String key = mapId + "_" + code;
+                areaPoints.put(key, points);
+                for (RcsPoint point : points) {
+                    pointToArea.put(point.getGraphIndex(), key);
+                }
+            }));
+        }
+
+        private String areaOf(int graphIndex) {
+            return pointToArea.get(graphIndex);
+        }
+
+        /**
+         * 采集所有管制区的占用者
+         *
+         * @return Key: 管制区编号，Value: 物理占用区内点位的设备编号 (无占用的管制区不出现)
+         */
+        private Map<String, Set<String>> occupants(MapManager mapManager) {
+            Map<String, Set<String>> result = new HashMap<>();
+            areaPoints.forEach((area, points) -> {
+                for (RcsPoint point : points) {
+                    RcsPointOccupy occupy = mapManager.getRcsOccupy(point);
+                    if (occupy != null && occupy.isPhysicalBlocked()) {
+                        result.computeIfAbsent(area, k -> new HashSet<>()).addAll(occupy.getOccupants().keySet());
+                    }
+                }
+            });
+            return result;
+        }
+    }
+}
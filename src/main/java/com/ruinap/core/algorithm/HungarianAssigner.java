@@ -0,0 +1,152 @@
+package com.ruinap.core.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * <h1>匈牙利算法 (Kuhn-Munkres) 最小代价指派</h1>
+ * <p>
+ * <b>核心功能：</b><br>
+ * 给定 “任务 × AGV” 代价矩阵，求总代价最小的一对一匹配。
+ * 用于批量任务分配，替代“逐个任务各自拍卖”的贪心匹配。
+ * </p>
+ *
+ * <p>
+ * <b>实现要点：</b><br>
+ * 1. <b>矩形矩阵</b>: 行数 ≤ 列数时直接求解；行数 &gt; 列数时按转置求解，保证每次都是“短边全部匹配”。<br>
+ * 2. <b>不可行组合</b>: 代价为 {@link #INFEASIBLE} (或 NaN/无穷大) 的格子视为不可匹配，内部以极大值参与运算，
+ * 因此结果会优先保证可行匹配数量最多，其次总代价最小；最终落在不可行格子上的行返回 -1。<br>
+ * 3. <b>复杂度</b>: 基于势函数的 O(n² × m) 实现 (n 为短边, m 为长边)，数十任务 × 数十 AGV 为微秒~毫秒级。<br>
+ * 4. <b>无状态设计</b>: 所有中间数组均在方法栈中分配，线程安全。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-04 10:05
+ */
+public class HungarianAssigner {
+
+    /**
+     * 不可行组合的代价
+     */
+    public static final double INFEASIBLE = Double.POSITIVE_INFINITY;
+
+    /**
+     * 不可行组合参与运算时的替代值 (远大于任何真实代价)
+     */
+    private static final double BIG = 1e12;
+
+    /**
+     * 求解最小代价指派
+     *
+     * @param cost 代价矩阵 cost[行][列]，各行长度必须一致
+     * @return 每一行匹配到的列下标，未匹配 (或只能匹配到不可行格子) 时为 -1
+     */
+    public int[] assign(double[][] cost) {
+        int rows = cost == null ? 0 : cost.length;
+        int[] result = new int[rows];
+        Arrays.fill(result, -1);
+        if (rows == 0 || cost[0].length == 0) {
+            return result;
+        }
+        int cols = cost[0].length;
+
+        // 算法要求 n ≤ m，行多于列时转置
+        boolean transpose = rows > cols;
+        int n = transpose ? cols : rows;
+        int m = transpose ? rows : cols;
+
+        // 势函数 u(行) / v(列)，p[j] 为列 j 匹配的行 (1 起始，0 表示未匹配)
+        double[] u = new double[n + 1];
+        double[] v = new double[m + 1];
+        int[] p = new int[m + 1];
+        int[] way = new int[m + 1];
+        double[] minv = new double[m + 1];
+        boolean[] used = new boolean[m + 1];
+
+        for (int i = 1; i <= n; i++) {
+            p[0] = i;
+            int j0 = 0;
+            Arrays.fill(minv, Double.MAX_VALUE);
+            Arrays.fill(used, false);
+            // 沿最短增广路寻找未匹配列
+            do {
+                used[j0] = true;
+                int i0 = p[j0];
+                double delta = Double.MAX_VALUE;
+                int j1 = 0;
+                for (int j = 1; j <= m; j++) {
+                    if (used[j]) {
+                        continue;
+                    }
+                    double cur = cell(cost, transpose, i0 - 1, j - 1) - u[i0] - v[j];
+                    if (cur < minv[j]) {
+                        minv[j] = cur;
+                        way[j] = j0;
+                    }
+                    if (minv[j] < delta) {
+                        delta = minv[j];
+                        j1 = j;
+                    }
+                }
+                for (int j = 0; j <= m; j++) {
+                    if (used[j]) {
+                        u[p[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (p[j0] != 0);
+            // 沿增广路翻转匹配
+            do {
+                int j1 = way[j0];
+                p[j0] = p[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+
+        for (int j = 1; j <= m; j++) {
+            if (p[j] == 0) {
+                continue;
+            }
+            int row = transpose ? j - 1 : p[j] - 1;
+            int col = transpose ? p[j] - 1 : j - 1;
+            if (isFeasible(cost[row][col])) {
+                result[row] = col;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 计算指派结果的总代价 (忽略未匹配的行)
+     *
+     * @param cost       代价矩阵
+     * @param assignment {@link #assign(double[][])} 的返回值
+     * @return 总代价
+     */
+    public static double totalCost(double[][] cost, int[] assignment) {
+        double total = 0;
+        for (int i = 0; i < assignment.length; i++) {
+            if (assignment[i] >= 0) {
+                total += cost[i][assignment[i]];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 判断代价是否可行
+     */
+    public static boolean isFeasible(double value) {
+        return !Double.isNaN(value) && value < BIG;
+    }
+
+    /**
+     * 读取格子 (按需转置，不可行格子替换为极大值)
+     */
+    private static double cell(double[][] cost, boolean transpose, int i, int j) {
+        double value = transpose ? cost[j][i] : cost[i][j];
+        return isFeasible(value) ? value : BIG;
+    }
+}
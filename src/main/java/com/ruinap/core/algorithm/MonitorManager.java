@@ -1,6 +1,5 @@
 package com.ruinap.core.algorithm;
 
-import cn.hutool.db.Entity;
 import com.ruinap.core.business.AgvSuggestionManager;
 import com.ruinap.core.business.AlarmManager;
 import com.ruinap.core.equipment.manager.AgvManager;
@@ -22,9 +21,9 @@ import com.ruinap.infra.enums.task.TaskActionEnum;
 import com.ruinap.infra.framework.annotation.Autowired;
 import com.ruinap.infra.framework.annotation.Service;
 import com.ruinap.infra.log.RcsLog;
+import com.ruinap.persistence.gateway.PersistenceGateway;
 import com.ruinap.persistence.repository.TaskDB;
 
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -56,6 +55,8 @@ public class MonitorManager {
     @Autowired
     private TaskDB taskDB;
     @Autowired
+    private PersistenceGateway persistenceGateway;
+    @Autowired
     private CoreYaml coreYaml;
 
     /**
@@ -430,11 +431,8 @@ public class MonitorManager {
         taskPath.setCurrentPlanOrigin(mapManager.getRcsPoint(rcsAgv.getMapId(), agvTask.getPathStartId()));
         taskPath.setCurrentPlanDestin(mapManager.getRcsPoint(rcsAgv.getMapId(), agvTask.getPathEndId()));
 //        CancelState.sendAgvCancel(taskPath);
-        try {
-            taskDB.updateTask(new Entity().set("task_state", AgvTaskStateEnum.CANCEL.code), new Entity().set("task_id", taskId));
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+        // 交给持久化网关，监控循环不等待数据库
+        persistenceGateway.execute("UPDATE " + taskDB.TABLE_NAME + " SET task_state = ? WHERE task_id = ?", AgvTaskStateEnum.CANCEL.code, taskId);
     }
 
     /**
@@ -601,6 +599,7 @@ public class MonitorManager {
         if (nearestPoint != null) {
             //设置AGV点位
             rcsAgv.setPointId(nearestPoint.getId());
+            agvManager.refreshEligibility(rcsAgv);
         } else {
             alarmManager.triggerAlarm(rcsAgv.getAgvId(), AlarmCodeEnum.E10003, "rcs");
             agvSuggestionManager.addSuggestion(rcsAgv.getAgvId(), "AGV当前不在点位，请将AGV开到点位");
@@ -0,0 +1,295 @@
+package com.ruinap.core.algorithm;
+
+import com.ruinap.core.algorithm.domain.EdgeTravelTable;
+import com.ruinap.core.map.MapManager;
+import com.ruinap.core.map.pojo.RcsPoint;
+import com.ruinap.core.map.pojo.RcsPointTarget;
+import com.ruinap.infra.config.CoreYaml;
+import com.ruinap.infra.config.event.RcsMapConfigRefreshEvent;
+import com.ruinap.infra.framework.annotation.Autowired;
+import com.ruinap.infra.framework.annotation.Component;
+import com.ruinap.infra.framework.annotation.PostConstruct;
+import com.ruinap.infra.framework.core.event.ApplicationListener;
+import com.ruinap.infra.log.RcsLog;
+import org.graph4j.Digraph;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <h1>时变通行耗时管理器</h1>
+ * <p>
+ * 根据 AGV 状态上报中的点位变化，学习每条边在一天中不同时间段的实际通行耗时，
+ * 并向 A* 与拍卖引擎提供“按预计到达时间”而非“按物理距离”的代价。
+ * </p>
+ * <p>
+ * 学习方式：AGV 在点 A 最后一次静止(速度为 0)或首次到达 A 的时间记为出发时间，
+ * 上报点位变为相邻点 B 时，以 (当前时间 - 出发时间) 作为 A→B 的一个样本。
+ * 非相邻跳点、异常耗时(过短或过长)的样本直接丢弃。
+ * </p>
+ * <p>
+ * 地图热更新后，拓扑已变化，直方表会在首次访问时按新快照惰性重建。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-02 10:40
+ */
+@Component
+public class TravelTimeManager implements ApplicationListener<RcsMapConfigRefreshEvent> {
+    @Autowired
+    private CoreYaml coreYaml;
+    @Autowired
+    private MapManager mapManager;
+
+    /**
+     * 当前直方表 (与地图快照中的图一一对应)
+     */
+    private volatile EdgeTravelTable table;
+
+    /**
+     * AGV 出发游标
+     * Key: AGV编号
+     * Value: 出发点 graphIndex 与出发时间
+     */
+    private final Map<String, DepartCursor> cursorMap = new ConcurrentHashMap<>();
+
+    // --- 核心配置缓存区 (Volatile 保证可见性) ---
+    /**
+     * 时间段长度 (分钟，默认 30)
+     */
+    private volatile int bucketMinutes = 30;
+    /**
+     * 滑动平均系数 (百分比，默认 20)
+     */
+    private volatile double alpha = 0.2;
+    /**
+     * 可信样本数量下限 (默认 3)
+     */
+    private volatile int minSamples = 3;
+    /**
+     * 代价系数上限 (默认 5)
+     */
+    private volatile double maxFactor = 5;
+    /**
+     * 有效样本最小耗时 (毫秒，默认 100)
+     */
+    private volatile long minSampleMs = 100;
+    /**
+     * 有效样本最大耗时 (毫秒，默认 120000)
+     */
+    private volatile long maxSampleMs = 120000;
+
+    @PostConstruct
+    public void init() {
+        refreshConfig();
+    }
+
+    @Override
+    public void onApplicationEvent(RcsMapConfigRefreshEvent event) {
+        // 地图重载是异步的，这里只刷新配置并清空游标，直方表在访问时按快照惰性重建
+        cursorMap.clear();
+        refreshConfig();
+    }
+
+    /**
+     * 统一刷新配置逻辑
+     */
+    private void refreshConfig() {
+        int minutes = Math.max(1, coreYaml.getAlgorithmInt("travel_time_bucket_minutes", 30));
+        this.alpha = Math.min(100, Math.max(1, coreYaml.getAlgorithmInt("travel_time_ewma_percent", 20))) / 100.0;
+        this.minSamples = Math.max(1, coreYaml.getAlgorithmInt("travel_time_min_samples", 3));
+        this.maxFactor = Math.max(1, coreYaml.getAlgorithmInt("travel_time_max_factor", 5));
+        this.minSampleMs = coreYaml.getAlgorithmInt("travel_time_min_sample_ms", 100);
+        this.maxSampleMs = coreYaml.getAlgorithmInt("travel_time_max_sample_ms", 120000);
+        if (minutes != this.bucketMinutes) {
+            this.bucketMinutes = minutes;
+            // 桶数量变化，旧统计无法复用
+            this.table = null;
+        }
+        RcsLog.consoleLog.info("通行耗时学习参数已更新: bucket_minutes={}, alpha={}, min_samples={}, max_factor={}", bucketMinutes, alpha, minSamples, maxFactor);
+    }
+
+    /**
+     * 获取当前地图快照对应的直方表
+     * <p>
+     * 快照切换后惰性重建，重建成本 O(边数)。
+     * </p>
+     *
+     * @return 直方表
+     */
+    public EdgeTravelTable getTable() {
+        Digraph<RcsPoint, RcsPointTarget> graph = mapManager.getGraph();
+        EdgeTravelTable local = this.table;
+        if (local != null && local.getGraph() == graph) {
+            return local;
+        }
+        synchronized (this) {
+            local = this.table;
+            if (local == null || local.getGraph() != graph) {
+                local = new EdgeTravelTable(graph, 24 * 60 / bucketMinutes + (24 * 60 % bucketMinutes == 0 ? 0 : 1));
+                this.table = local;
+                RcsLog.algorithmLog.info("通行耗时直方表已按新地图重建，边数量: {}", local.edgeCount());
+            }
+        }
+        return local;
+    }
+
+    /**
+     * 获取当前时间所属的时间段
+     */
+    public int currentBucket() {
+        return bucketOf(LocalTime.now());
+    }
+
+    /**
+     * 获取指定时间所属的时间段
+     */
+    public int bucketOf(LocalTime time) {
+        return time.toSecondOfDay() / 60 / bucketMinutes;
+    }
+
+    /**
+     * 处理 AGV 位置上报
+     *
+     * @param agvCode AGV编号
+     * @param mapId   地图编号
+     * @param pointId 点位编号
+     * @param vX      X方向速度
+     * @param vY      Y方向速度
+     */
+    public void onPositionReport(String agvCode, Integer mapId, Integer pointId, Integer vX, Integer vY) {
+        onPositionReport(agvCode, mapId, pointId, vX, vY, System.currentTimeMillis());
+    }
+
+    /**
+     * 处理 AGV 位置上报
+     *
+     * @param agvCode AGV编号
+     * @param mapId   地图编号
+     * @param pointId 点位编号
+     * @param vX      X方向速度
+     * @param vY      Y方向速度
+     * @param nowMs   上报时间
+     */
+    public void onPositionReport(String agvCode, Integer mapId, Integer pointId, Integer vX, Integer vY, long nowMs) {
+        if (agvCode == null || mapId == null || pointId == null) {
+            return;
+        }
+        RcsPoint point = mapManager.getRcsPoint(mapId, pointId);
+        if (point == null) {
+            // 不在点位上(或点位非法)，保留原游标
+            return;
+        }
+        int graphIndex = point.getGraphIndex();
+        boolean stopped = (vX == null || vX == 0) && (vY == null || vY == 0);
+
+        DepartCursor cursor = cursorMap.get(agvCode);
+        if (cursor == null) {
+            cursorMap.put(agvCode, new DepartCursor(graphIndex, nowMs));
+            return;
+        }
+        if (cursor.graphIndex == graphIndex) {
+            // 仍在原点位，若处于静止状态则刷新出发时间，排除停车等待时长
+            if (stopped) {
+                cursor.departMs = nowMs;
+            }
+            return;
+        }
+
+        long elapsed = nowMs - cursor.departMs;
+        if (elapsed >= minSampleMs && elapsed <= maxSampleMs) {
+            LocalTime departTime = LocalTime.ofInstant(Instant.ofEpochMilli(cursor.departMs), ZoneId.systemDefault());
+            getTable().record(cursor.graphIndex, graphIndex, bucketOf(departTime), elapsed, alpha);
+        }
+        cursor.graphIndex = graphIndex;
+        cursor.departMs = nowMs;
+    }
+
+    /**
+     * 获取边代价系数 (供 A* 松弛使用)
+     *
+     * @param table  直方表 (单次搜索内复用)
+     * @param from   起点 graphIndex
+     * @param to     终点 graphIndex
+     * @param bucket 时间段
+     * @return 代价系数 ≥ 1
+     */
+    public double costFactor(EdgeTravelTable table, int from, int to, int bucket) {
+        if (table == null) {
+            return 1.0;
+        }
+        return table.costFactor(from, to, bucket, minSamples, maxFactor);
+    }
+
+    /**
+     * 计算路径的时变附加代价
+     * <p>
+     * 附加代价 = Σ 边距离 × (代价系数 - 1)，即因拥堵/弯道/限速导致的“等效多走的距离”，
+     * 与纯距离代价互补，避免重复计算。
+     * </p>
+     *
+     * @param paths 路径点
+     * @return 附加代价
+     */
+    public double extraCost(List<RcsPoint> paths) {
+        if (paths == null || paths.size() < 2) {
+            return 0;
+        }
+        EdgeTravelTable local = getTable();
+        int bucket = currentBucket();
+        double extra = 0;
+        for (int i = 1; i < paths.size(); i++) {
+            int from = paths.get(i - 1).getGraphIndex();
+            int to = paths.get(i).getGraphIndex();
+            double factor = local.costFactor(from, to, bucket, minSamples, maxFactor);
+            if (factor > 1.0) {
+                extra += local.edgeDistance(from, to) * (factor - 1.0);
+            }
+        }
+        return extra;
+    }
+
+    /**
+     * 获取边的预计通行耗时 (批量计算时复用直方表与时间段)
+     *
+     * @param table  直方表
+     * @param from   起点 graphIndex
+     * @param to     终点 graphIndex
+     * @param bucket 时间段
+     * @return 预计耗时(毫秒)，无数据返回 -1
+     */
+    public double expectedMs(EdgeTravelTable table, int from, int to, int bucket) {
+        if (table == null) {
+            return -1;
+        }
+        return table.expectedMs(from, to, bucket, minSamples);
+    }
+
+    /**
+     * 获取边的预计通行耗时
+     *
+     * @param from 起点 graphIndex
+     * @param to   终点 graphIndex
+     * @return 预计耗时(毫秒)，无数据返回 -1
+     */
+    public double expectedMs(int from, int to) {
+        return getTable().expectedMs(from, to, currentBucket(), minSamples);
+    }
+
+    /**
+     * AGV 出发游标
+     */
+    private static final class DepartCursor {
+        private volatile int graphIndex;
+        private volatile long departMs;
+
+        private DepartCursor(int graphIndex, long departMs) {
+            this.graphIndex = graphIndex;
+            this.departMs = departMs;
+        }
+    }
+}
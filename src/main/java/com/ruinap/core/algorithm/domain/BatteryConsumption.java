@@ -0,0 +1,171 @@
+package com.ruinap.core.algorithm.domain;
+
+/**
+ * <h1>单台 AGV 的电量消耗模型</h1>
+ * <p>
+ * 分别学习空车与载货行驶每米消耗的电量 (百分比/米)。
+ * AGV 上报的电量是整数百分比，每下降一次才形成一个样本：
+ * 样本 = (下降的电量, 期间空车里程, 期间载货里程)，
+ * 用归一化最小均方 (NLMS) 同时修正两个系数，混合了空车与载货的区间也能正确分摊。
+ * </p>
+ * <p>
+ * 以下情况丢弃当前区间重新开始：电量上升 (充电中)、里程回退 (重新开机)、
+ * 电量下降但区间里程过短 (静止耗电，不属于行驶消耗)。
+ * </p>
+ * <p>
+ * 非线程安全，由调用方按 AGV 串行访问。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-14 09:30
+ */
+public class BatteryConsumption {
+
+    /**
+     * 系数上限为默认值的倍数，避免异常样本把系数带偏
+     */
+    private static final double MAX_RATE_FACTOR = 10;
+
+    /**
+     * 空车每米耗电 (百分比)
+     */
+    private double unloadedRate;
+    /**
+     * 载货每米耗电 (百分比)
+     */
+    private double loadedRate;
+    /**
+     * 默认空车每米耗电，用于限制系数范围
+     */
+    private final double defaultUnloadedRate;
+    /**
+     * 默认载货每米耗电，用于限制系数范围
+     */
+    private final double defaultLoadedRate;
+    /**
+     * 已学习的样本数量
+     */
+    private long samples = 0;
+
+    /**
+     * 区间起始电量，-1 表示尚未开始
+     */
+    private int lastBattery = -1;
+    /**
+     * 上一次上报的里程 (毫米)
+     */
+    private long lastRunLength = -1;
+    /**
+     * 区间内空车里程 (毫米)
+     */
+    private long unloadedMm = 0;
+    /**
+     * 区间内载货里程 (毫米)
+     */
+    private long loadedMm = 0;
+
+    /**
+     * 构造函数
+     *
+     * @param unloadedRate 默认空车每米耗电 (百分比)
+     * @param loadedRate   默认载货每米耗电 (百分比)
+     */
+    public BatteryConsumption(double unloadedRate, double loadedRate) {
+        this.unloadedRate = unloadedRate;
+        this.loadedRate = loadedRate;
+        this.defaultUnloadedRate = unloadedRate;
+        this.defaultLoadedRate = loadedRate;
+    }
+
+    /**
+     * 处理一次状态上报
+     *
+     * @param battery       当前电量 (百分比)
+     * @param runLengthMm   开机运行里程 (毫米)
+     * @param loaded        是否载货
+     * @param minDistanceMm 有效样本的最小区间里程 (毫米)
+     * @param alpha         学习率 (0~1)
+     * @return true=本次上报形成了一个样本
+     */
+    public boolean observe(int battery, long runLengthMm, boolean loaded, long minDistanceMm, double alpha) {
+        if (lastBattery < 0 || lastRunLength < 0 || runLengthMm < lastRunLength || battery > lastBattery) {
+            restart(battery, runLengthMm);
+            return false;
+        }
+
+        long delta = runLengthMm - lastRunLength;
+        lastRunLength = runLengthMm;
+        if (loaded) {
+            loadedMm += delta;
+        } else {
+            unloadedMm += delta;
+        }
+        if (battery == lastBattery) {
+            return false;
+        }
+
+        int drop = lastBattery - battery;
+        boolean learned = false;
+        if (unloadedMm + loadedMm >= minDistanceMm) {
+            learn(drop, unloadedMm / 1000.0, loadedMm / 1000.0, alpha);
+            learned = true;
+        }
+        lastBattery = battery;
+        unloadedMm = 0;
+        loadedMm = 0;
+        return learned;
+    }
+
+    /**
+     * 以一个样本修正两个系数 (NLMS)
+     *
+     * @param drop      下降的电量 (百分比)
+     * @param unloadedM 空车里程 (米)
+     * @param loadedM   载货里程 (米)
+     * @param alpha     学习率 (0~1)
+     */
+    void learn(double drop, double unloadedM, double loadedM, double alpha) {
+        double norm = unloadedM * unloadedM + loadedM * loadedM;
+        if (norm <= 0) {
+            return;
+        }
+        double error = drop - (unloadedRate * unloadedM + loadedRate * loadedM);
+        unloadedRate = clamp(unloadedRate + alpha * error * unloadedM / norm, defaultUnloadedRate);
+        loadedRate = clamp(loadedRate + alpha * error * loadedM / norm, defaultLoadedRate);
+        samples++;
+    }
+
+    /**
+     * 估算行驶指定里程消耗的电量
+     *
+     * @param unloadedMm 空车里程 (毫米)
+     * @param loadedMm   载货里程 (毫米)
+     * @return 消耗电量 (百分比)
+     */
+    public double estimate(double unloadedMm, double loadedMm) {
+        return unloadedRate * Math.max(0, unloadedMm) / 1000.0 + loadedRate * Math.max(0, loadedMm) / 1000.0;
+    }
+
+    public double getUnloadedRate() {
+        return unloadedRate;
+    }
+
+    public double getLoadedRate() {
+        return loadedRate;
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    private void restart(int battery, long runLengthMm) {
+        lastBattery = battery;
+        lastRunLength = runLengthMm;
+        unloadedMm = 0;
+        loadedMm = 0;
+    }
+
+    private static double clamp(double rate, double defaultRate) {
+        return Math.min(defaultRate * MAX_RATE_FACTOR, Math.max(0, rate));
+    }
+}
@@ -0,0 +1,348 @@
+package com.ruinap.core.algorithm.domain;
+
+import com.ruinap.core.map.pojo.RcsPoint;
+import com.ruinap.core.map.pojo.RcsPointTarget;
+import lombok.Getter;
+import org.graph4j.Digraph;
+import org.graph4j.Edge;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.IntPredicate;
+
+/**
+ * <h1>多源反向距离场</h1>
+ * <p>
+ * 以一组目标点 (待机点/充电点) 为源，在反向图上做一次多源 Dijkstra，
+ * 为每个顶点记录<b>按路网距离由近到远</b>的前 K 个目标点及其距离。
+ * </p>
+ * <p>
+ * 与直线距离相比，距离场考虑了墙体、单向线路和跨楼层桥接，不会把“隔墙最近”的点当成最近点。
+ * </p>
+ * <p>
+ * 存储结构 (原始类型数组，按 graphIndex 下标)：
+ * <ul>
+ * <li>labelTargets[v * k + rank]：顶点 v 第 rank 近的目标点 graphIndex，-1 表示无</li>
+ * <li>labelDistances[v * k + rank]：对应的路网距离</li>
+ * <li>targetFlags[v]：v 是否为目标点</li>
+ * </ul>
+ * 查询只需读取 v 的 K 个槽位，再由调用方对这几个候选做占用检查。
+ * </p>
+ * <p>
+ * 构建完成后只读，线程安全。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-05 09:30
+ */
+public final class DistanceField {
+
+    /**
+     * 无目标点
+     */
+    public static final int NONE = -1;
+
+    /**
+     * 每个顶点记录的近邻目标数量
+     */
+    @Getter
+    private final int k;
+    /**
+     * 目标点数量
+     */
+    @Getter
+    private final int targetCount;
+    /**
+     * 顶点数量
+     */
+    private final int vertexCount;
+    /**
+     * 近邻目标 graphIndex
+     */
+    private final int[] labelTargets;
+    /**
+     * 近邻目标距离
+     */
+    private final float[] labelDistances;
+    /**
+     * 目标点标记
+     */
+    private final boolean[] targetFlags;
+
+    /**
+     * 构建距离场
+     *
+     * @param graph   地图快照中的图
+     * @param targets 目标点集合
+     * @param k       每个顶点记录的近邻目标数量
+     */
+    public DistanceField(Digraph<RcsPoint, RcsPointTarget> graph, Collection<RcsPoint> targets, int k) {
+        this.vertexCount = graph == null ? 0 : graph.numVertices();
+        this.targetFlags = new boolean[vertexCount];
+        int count = 0;
+        if (targets != null) {
+            for (RcsPoint target : targets) {
+                int index = target == null ? NONE : target.getGraphIndex();
+                if (index >= 0 && index < vertexCount && !targetFlags[index]) {
+                    targetFlags[index] = true;
+                    count++;
+                }
+            }
+        }
+        this.targetCount = count;
+        // 目标数量少于 K 时不需要多余的槽位
+        this.k = Math.max(1, Math.min(k, count));
+        this.labelTargets = new int[vertexCount * this.k];
+        this.labelDistances = new float[vertexCount * this.k];
+        Arrays.fill(labelTargets, NONE);
+        Arrays.fill(labelDistances, Float.POSITIVE_INFINITY);
+
+        if (count > 0) {
+            build(graph);
+        }
+    }
+
+    /**
+     * 反向多源 Dijkstra
+     * <p>
+     * 每个顶点最多接受 K 个不同来源的标签。若目标 s 是 u 的前 K 近目标，则 u→s 最短路上的任意顶点 v 也必然以 s 为前 K 近目标，
+     * 因此标签满 K 个后即可剪枝，结果仍然精确。
+     * </p>
+     */
+    private void build(Digraph<RcsPoint, RcsPointTarget> graph) {
+        // 1. 构建反向 CSR：revOffsets[v] ~ revOffsets[v+1] 为所有指向 v 的边
+        int[] revOffsets = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++) {
+            Edge<?>[] edges = graph.edgesOf(v);
+            if (edges == null) {
+                continue;
+            }
+            for (Edge<?> edge : edges) {
+                if (edge.source() == v && edge.target() >= 0 && edge.target() < vertexCount) {
+                    revOffsets[edge.target() + 1]++;
+                }
+            }
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            revOffsets[v + 1] += revOffsets[v];
+        }
+        int[] revSources = new int[revOffsets[vertexCount]];
+        float[] revWeights = new float[revOffsets[vertexCount]];
+        int[] fill = Arrays.copyOf(revOffsets, vertexCount);
+        for (int v = 0; v < vertexCount; v++) {
+            Edge<?>[] edges = graph.edgesOf(v);
+            if (edges == null) {
+                continue;
+            }
+            for (Edge<?> edge : edges) {
+                if (edge.source() == v && edge.target() >= 0 && edge.target() < vertexCount) {
+                    int slot = fill[edge.target()]++;
+                    revSources[slot] = v;
+                    revWeights[slot] = (float) Math.max(0, edge.weight());
+                }
+            }
+        }
+
+        // 2. 多源 Dijkstra
+        int[] labelCount = new int[vertexCount];
+        LabelHeap heap = new LabelHeap(Math.max(16, targetCount * 4));
+        for (int t = 0; t < vertexCount; t++) {
+            if (targetFlags[t]) {
+                heap.push(0f, t, t);
+            }
+        }
+        while (!heap.isEmpty()) {
+            float dist = heap.peekDistance();
+            int v = heap.peekVertex();
+            int source = heap.peekSource();
+            heap.pop();
+            if (labelCount[v] >= k || hasLabel(v, labelCount[v], source)) {
+                continue;
+            }
+            int slot = v * k + labelCount[v]++;
+            labelTargets[slot] = source;
+            labelDistances[slot] = dist;
+
+            for (int e = revOffsets[v], end = revOffsets[v + 1]; e < end; e++) {
+                int u = revSources[e];
+                if (labelCount[u] < k && !hasLabel(u, labelCount[u], source)) {
+                    heap.push(dist + revWeights[e], u, source);
+                }
+            }
+        }
+    }
+
+    private boolean hasLabel(int v, int count, int source) {
+        for (int i = v * k, end = v * k + count; i < end; i++) {
+            if (labelTargets[i] == source) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 获取顶点第 rank 近的目标点
+     *
+     * @param graphIndex 顶点
+     * @param rank       名次 (从 0 开始，小于 K)
+     * @return 目标点 graphIndex，不存在返回 {@link #NONE}
+     */
+    public int target(int graphIndex, int rank) {
+        if (graphIndex < 0 || graphIndex >= vertexCount || rank < 0 || rank >= k) {
+            return NONE;
+        }
+        return labelTargets[graphIndex * k + rank];
+    }
+
+    /**
+     * 获取顶点到第 rank 近的目标点的路网距离
+     *
+     * @param graphIndex 顶点
+     * @param rank       名次 (从 0 开始，小于 K)
+     * @return 距离，不存在返回正无穷
+     */
+    public double distance(int graphIndex, int rank) {
+        if (graphIndex < 0 || graphIndex >= vertexCount || rank < 0 || rank >= k) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return labelDistances[graphIndex * k + rank];
+    }
+
+    /**
+     * 获取顶点到指定目标点的路网距离
+     *
+     * @param graphIndex 顶点
+     * @param target     目标点 graphIndex
+     * @return 距离，目标不在该顶点的前 K 近目标中时返回 -1
+     */
+    public double distanceTo(int graphIndex, int target) {
+        for (int rank = 0; rank < k; rank++) {
+            int t = target(graphIndex, rank);
+            if (t == NONE) {
+                break;
+            }
+            if (t == target) {
+                return labelDistances[graphIndex * k + rank];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 按路网距离由近到远查找第一个满足条件的目标点
+     *
+     * @param graphIndex 起始顶点
+     * @param accept     目标点校验 (如：未被占用)
+     * @return 目标点 graphIndex，前 K 近目标都不满足时返回 {@link #NONE}
+     */
+    public int nearest(int graphIndex, IntPredicate accept) {
+        for (int rank = 0; rank < k; rank++) {
+            int t = target(graphIndex, rank);
+            if (t == NONE) {
+                return NONE;
+            }
+            if (accept == null || accept.test(t)) {
+                return t;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * 判断顶点是否为目标点
+     *
+     * @param graphIndex 顶点
+     * @return true=是目标点
+     */
+    public boolean isTarget(int graphIndex) {
+        return graphIndex >= 0 && graphIndex < vertexCount && targetFlags[graphIndex];
+    }
+
+    /**
+     * 标签小顶堆 (按距离排序，并行原始类型数组，避免装箱)
+     */
+    private static final class LabelHeap {
+        private float[] distances;
+        private int[] vertices;
+        private int[] sources;
+        private int size;
+
+        private LabelHeap(int capacity) {
+            distances = new float[capacity];
+            vertices = new int[capacity];
+            sources = new int[capacity];
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private float peekDistance() {
+            return distances[0];
+        }
+
+        private int peekVertex() {
+            return vertices[0];
+        }
+
+        private int peekSource() {
+            return sources[0];
+        }
+
+        private void push(float distance, int vertex, int source) {
+            if (size == distances.length) {
+                int capacity = size * 2;
+                distances = Arrays.copyOf(distances, capacity);
+                vertices = Arrays.copyOf(vertices, capacity);
+                sources = Arrays.copyOf(sources, capacity);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (distances[parent] <= distance) {
+                    break;
+                }
+                move(parent, i);
+                i = parent;
+            }
+            distances[i] = distance;
+            vertices[i] = vertex;
+            sources[i] = source;
+        }
+
+        private void pop() {
+            int last = --size;
+            if (last == 0) {
+                return;
+            }
+            float distance = distances[last];
+            int vertex = vertices[last];
+            int source = sources[last];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= last) {
+                    break;
+                }
+                if (child + 1 < last && distances[child + 1] < distances[child]) {
+                    child++;
+                }
+                if (distances[child] >= distance) {
+                    break;
+                }
+                move(child, i);
+                i = child;
+            }
+            distances[i] = distance;
+            vertices[i] = vertex;
+            sources[i] = source;
+        }
+
+        private void move(int from, int to) {
+            distances[to] = distances[from];
+            vertices[to] = vertices[from];
+            sources[to] = sources[from];
+        }
+    }
+}
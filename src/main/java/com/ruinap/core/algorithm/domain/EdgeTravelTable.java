@@ -0,0 +1,292 @@
+package com.ruinap.core.algorithm.domain;
+
+import com.ruinap.core.map.pojo.RcsPoint;
+import com.ruinap.core.map.pojo.RcsPointTarget;
+import lombok.Getter;
+import org.graph4j.Digraph;
+import org.graph4j.Edge;
+
+import java.util.Arrays;
+
+/**
+ * <h1>边通行耗时直方表</h1>
+ * <p>
+ * 为某一个地图快照的每一条有向边，按一天内的时间段(桶)记录实际通行耗时的指数滑动平均值。
+ * </p>
+ * <p>
+ * 存储结构 (CSR 压缩邻接表 + 原始类型数组)：
+ * <ul>
+ * <li>edgeOffsets[v] ~ edgeOffsets[v+1]：顶点 v 的出边槽位区间</li>
+ * <li>edgeTargets[slot]：出边终点的 graphIndex</li>
+ * <li>meanMs[slot * bucketCount + bucket]：该边在该时间段内的平均耗时(毫秒/毫米)</li>
+ * </ul>
+ * 内存占用 = 边数 × 桶数 × 6 字节，与历史样本数量无关；查询只需扫描顶点出度(通常 ≤ 4)，视为 O(1)。
+ * </p>
+ * <p>
+ * 并发说明：写入来自各 AGV 的上报线程，读取来自 A* 计算线程。统计值允许轻微的写竞争(丢失个别样本不影响结果)，
+ * 因此不加锁，保证寻路松弛阶段零开销。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-02 10:12
+ */
+public final class EdgeTravelTable {
+
+    /**
+     * 样本计数上限 (饱和计数，防止 short 溢出)
+     */
+    private static final short MAX_SAMPLES = Short.MAX_VALUE;
+
+    /**
+     * 所属的图 (用于判断快照是否已切换)
+     */
+    @Getter
+    private final Digraph<RcsPoint, RcsPointTarget> graph;
+    /**
+     * 每天的时间段数量
+     */
+    @Getter
+    private final int bucketCount;
+    /**
+     * 顶点出边槽位起始下标
+     */
+    private final int[] edgeOffsets;
+    /**
+     * 出边终点 graphIndex
+     */
+    private final int[] edgeTargets;
+    /**
+     * 出边距离 (毫米)
+     */
+    private final float[] edgeDistances;
+    /**
+     * 单位距离平均耗时 (毫秒/毫米)
+     */
+    private final float[] meanMs;
+    /**
+     * 样本数量
+     */
+    private final short[] samples;
+
+    /**
+     * 全局单位距离平均耗时 (毫秒/毫米)，作为“基准速度”
+     */
+    private volatile double globalMsPerMm = 0;
+    /**
+     * 全局样本数量
+     */
+    private volatile long globalSamples = 0;
+
+    /**
+     * 根据图构建直方表
+     *
+     * @param graph       地图快照中的图
+     * @param bucketCount 每天的时间段数量
+     */
+    public EdgeTravelTable(Digraph<RcsPoint, RcsPointTarget> graph, int bucketCount) {
+        this.graph = graph;
+        this.bucketCount = Math.max(1, bucketCount);
+
+        int n = graph == null ? 0 : graph.numVertices();
+        this.edgeOffsets = new int[n + 1];
+
+        // 第一遍：统计每个顶点的出度
+        for (int v = 0; v < n; v++) {
+            edgeOffsets[v + 1] = edgeOffsets[v] + outDegree(graph, v);
+        }
+
+        int m = edgeOffsets[n];
+        this.edgeTargets = new int[m];
+        this.edgeDistances = new float[m];
+        this.meanMs = new float[m * this.bucketCount];
+        this.samples = new short[m * this.bucketCount];
+
+        // 第二遍：填充出边终点与距离
+        for (int v = 0; v < n; v++) {
+            int slot = edgeOffsets[v];
+            Edge<?>[] edges = graph.edgesOf(v);
+            if (edges == null) {
+                continue;
+            }
+            for (Edge<?> edge : edges) {
+                if (edge.source() != v) {
+                    continue;
+                }
+                edgeTargets[slot] = edge.target();
+                double weight = edge.weight();
+                edgeDistances[slot] = (float) (weight > 0 ? weight : 1.0);
+                slot++;
+            }
+        }
+    }
+
+    /**
+     * 统计出度
+     */
+    private static int outDegree(Digraph<RcsPoint, RcsPointTarget> graph, int v) {
+        Edge<?>[] edges = graph.edgesOf(v);
+        if (edges == null) {
+            return 0;
+        }
+        int count = 0;
+        for (Edge<?> edge : edges) {
+            if (edge.source() == v) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 查找边槽位
+     *
+     * @param from 起点 graphIndex
+     * @param to   终点 graphIndex
+     * @return 槽位下标，不存在返回 -1
+     */
+    public int slotOf(int from, int to) {
+        if (from < 0 || from + 1 >= edgeOffsets.length) {
+            return -1;
+        }
+        for (int slot = edgeOffsets[from], end = edgeOffsets[from + 1]; slot < end; slot++) {
+            if (edgeTargets[slot] == to) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 记录一次通行样本
+     *
+     * @param from      起点 graphIndex
+     * @param to        终点 graphIndex
+     * @param bucket    时间段
+     * @param elapsedMs 实际通行耗时(毫秒)
+     * @param alpha     滑动平均系数 (0~1)
+     * @return true=记录成功; false=边不存在
+     */
+    public boolean record(int from, int to, int bucket, long elapsedMs, double alpha) {
+        int slot = slotOf(from, to);
+        if (slot < 0 || elapsedMs <= 0) {
+            return false;
+        }
+        double msPerMm = elapsedMs / (double) edgeDistances[slot];
+        int cell = slot * bucketCount + Math.floorMod(bucket, bucketCount);
+
+        // 前几个样本使用算术平均，之后切换为指数滑动平均，兼顾冷启动与时效性
+        short count = samples[cell];
+        double old = meanMs[cell];
+        double weight = Math.max(alpha, 1.0 / (count + 1));
+        meanMs[cell] = (float) (count == 0 ? msPerMm : old + (msPerMm - old) * weight);
+        if (count < MAX_SAMPLES) {
+            samples[cell] = (short) (count + 1);
+        }
+
+        // 更新全局基准
+        long total = globalSamples;
+        double globalOld = globalMsPerMm;
+        double globalWeight = Math.max(alpha / 10, 1.0 / (total + 1));
+        globalMsPerMm = total == 0 ? msPerMm : globalOld + (msPerMm - globalOld) * globalWeight;
+        globalSamples = total + 1;
+        return true;
+    }
+
+    /**
+     * 获取边在指定时间段内的代价系数
+     * <p>
+     * 系数 = 该边单位距离耗时 / 全局单位距离耗时，并限制在 [1, maxFactor] 区间内。
+     * 下限为 1 是为了保证欧式距离启发函数仍然可采纳 (不会高估剩余代价)。
+     * </p>
+     *
+     * @param from       起点 graphIndex
+     * @param to         终点 graphIndex
+     * @param bucket     时间段
+     * @param minSamples 可信样本数量下限，低于该值视为无历史数据
+     * @param maxFactor  系数上限
+     * @return 代价系数，无数据时返回 1.0
+     */
+    public double costFactor(int from, int to, int bucket, int minSamples, double maxFactor) {
+        double base = globalMsPerMm;
+        if (base <= 0) {
+            return 1.0;
+        }
+        int slot = slotOf(from, to);
+        if (slot < 0) {
+            return 1.0;
+        }
+        int cell = slot * bucketCount + Math.floorMod(bucket, bucketCount);
+        if (samples[cell] < minSamples) {
+            return 1.0;
+        }
+        double factor = meanMs[cell] / base;
+        return Math.min(Math.max(factor, 1.0), maxFactor);
+    }
+
+    /**
+     * 获取边在指定时间段内的预计通行耗时
+     *
+     * @param from       起点 graphIndex
+     * @param to         终点 graphIndex
+     * @param bucket     时间段
+     * @param minSamples 可信样本数量下限
+     * @return 预计耗时(毫秒)，边不存在或无任何历史数据时返回 -1
+     */
+    public double expectedMs(int from, int to, int bucket, int minSamples) {
+        int slot = slotOf(from, to);
+        if (slot < 0) {
+            return -1;
+        }
+        int cell = slot * bucketCount + Math.floorMod(bucket, bucketCount);
+        if (samples[cell] >= minSamples) {
+            return meanMs[cell] * edgeDistances[slot];
+        }
+        // 无该时段数据时，用全局基准速度估算
+        double base = globalMsPerMm;
+        return base > 0 ? base * edgeDistances[slot] : -1;
+    }
+
+    /**
+     * 获取边距离
+     *
+     * @param from 起点 graphIndex
+     * @param to   终点 graphIndex
+     * @return 距离，边不存在返回 0
+     */
+    public double edgeDistance(int from, int to) {
+        int slot = slotOf(from, to);
+        return slot < 0 ? 0 : edgeDistances[slot];
+    }
+
+    /**
+     * 获取样本数量
+     */
+    public int sampleCount(int from, int to, int bucket) {
+        int slot = slotOf(from, to);
+        return slot < 0 ? 0 : samples[slot * bucketCount + Math.floorMod(bucket, bucketCount)];
+    }
+
+    /**
+     * 获取边数量
+     */
+    public int edgeCount() {
+        return edgeTargets.length;
+    }
+
+    /**
+     * 获取全局基准 (毫秒/毫米)
+     */
+    public double getGlobalMsPerMm() {
+        return globalMsPerMm;
+    }
+
+    /**
+     * 清空统计数据
+     */
+    public void clear() {
+        Arrays.fill(meanMs, 0f);
+        Arrays.fill(samples, (short) 0);
+        globalMsPerMm = 0;
+        globalSamples = 0;
+    }
+}
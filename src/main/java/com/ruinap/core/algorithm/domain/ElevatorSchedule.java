@@ -0,0 +1,303 @@
+package com.ruinap.core.algorithm.domain;
+
+import java.util.*;
+
+/**
+ * 电梯批量调度队列
+ * <p>
+ * 维护单台电梯的换层请求队列与正在执行的运送批次：
+ * <ol>
+ * <li>请求按到达顺序排队，同一台 AGV 重复请求只保留第一次；</li>
+ * <li>批次以队首请求的方向为准，按先后顺序挑选同方向的请求直到装满，队首总是被服务，不会饿死；</li>
+ * <li>批次未装满时，自队首请求起最多等待一个批量窗口，让随后到达的同方向 AGV 拼车；</li>
+ * <li>同方向批次按扫描顺序停靠 (上行由低到高、下行由高到低)，每个楼层只停一次，行程最短。</li>
+ * </ol>
+ * 时间全部由调用方传入，便于仿真与单元测试。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-16 10:20
+ */
+public class ElevatorSchedule {
+
+    /**
+     * 调度参数
+     *
+     * @param capacity 每批次最多运送的 AGV 数量
+     * @param windowMs 批量窗口 (毫秒)
+     * @param floorMs  每跨一层的运行时间 (毫秒)
+     * @param stopMs   每次停靠的开关门与进出时间 (毫秒)
+     */
+    public record Params(int capacity, long windowMs, long floorMs, long stopMs) {
+    }
+
+    /**
+     * 换层请求
+     *
+     * @param agvId     AGV编号
+     * @param fromFloor 起始楼层
+     * @param toFloor   目标楼层
+     * @param requestMs 请求时间
+     */
+    public record ElevatorRequest(String agvId, int fromFloor, int toFloor, long requestMs) {
+        /**
+         * 运行方向 1上行 -1下行
+         */
+        public int direction() {
+            return Integer.signum(toFloor - fromFloor);
+        }
+    }
+
+    /**
+     * 运送批次
+     *
+     * @param requests 本批次的请求
+     * @param stops    停靠楼层顺序
+     * @param startMs  开始时间
+     * @param endMs    预计结束时间
+     * @param leaveMs  Key: AGV编号，Value: 预计离开轿厢的时间
+     */
+    public record ElevatorTrip(List<ElevatorRequest> requests, List<Integer> stops, long startMs, long endMs,
+                               Map<String, Long> leaveMs) {
+    }
+
+    /**
+     * 请求队列 (按到达顺序)
+     * Key: AGV编号
+     */
+    private final LinkedHashMap<String, ElevatorRequest> queue = new LinkedHashMap<>();
+    /**
+     * 正在执行的批次
+     */
+    private ElevatorTrip trip;
+    /**
+     * 电梯所在楼层 (上一批次的最后停靠楼层)，未知时为 null
+     */
+    private Integer floor;
+
+    /**
+     * 提交换层请求
+     *
+     * @param agvId     AGV编号
+     * @param fromFloor 起始楼层
+     * @param toFloor   目标楼层
+     * @param nowMs     当前时间
+     * @return true=新加入队列
+     */
+    public synchronized boolean request(String agvId, int fromFloor, int toFloor, long nowMs) {
+        if (agvId == null || fromFloor == toFloor || queue.containsKey(agvId) || inTrip(agvId)) {
+            return false;
+        }
+        queue.put(agvId, new ElevatorRequest(agvId, fromFloor, toFloor, nowMs));
+        return true;
+    }
+
+    /**
+     * 移除 AGV 的请求 (取消或已出梯)
+     * <p>
+     * 批次内的 AGV 全部出梯后电梯立即空闲
+     *
+     * @param agvId AGV编号
+     * @return true=存在并已移除
+     */
+    public synchronized boolean remove(String agvId) {
+        if (queue.remove(agvId) != null) {
+            return true;
+        }
+        if (!inTrip(agvId)) {
+            return false;
+        }
+        List<ElevatorRequest> rest = trip.requests().stream().filter(r -> !r.agvId().equals(agvId)).toList();
+        if (rest.isEmpty()) {
+            floor = trip.stops().getLast();
+            trip = null;
+        } else {
+            trip = new ElevatorTrip(rest, trip.stops(), trip.startMs(), trip.endMs(), trip.leaveMs());
+        }
+        return true;
+    }
+
+    /**
+     * 调度：电梯空闲且批次已就绪时发出下一批次
+     *
+     * @param nowMs  当前时间
+     * @param params 调度参数
+     * @return 新发出的批次，没有时返回 null
+     */
+    public synchronized ElevatorTrip dispatch(long nowMs, Params params) {
+        if (trip != null) {
+            if (nowMs < trip.endMs()) {
+                return null;
+            }
+            floor = trip.stops().getLast();
+            trip = null;
+        }
+        if (queue.isEmpty()) {
+            return null;
+        }
+        List<ElevatorRequest> pending = new ArrayList<>(queue.values());
+        List<ElevatorRequest> batch = selectBatch(pending, params.capacity());
+        if (nowMs < readyMs(pending.getFirst(), batch.size(), params)) {
+            return null;
+        }
+        trip = buildTrip(batch, floor, nowMs, params);
+        batch.forEach(request -> queue.remove(request.agvId()));
+        return trip;
+    }
+
+    /**
+     * 预测已排队或已上梯的 AGV 的电梯耗时 (等待 + 乘梯)
+     *
+     * @param agvId  AGV编号
+     * @param nowMs  当前时间
+     * @param params 调度参数
+     * @return 距离出梯的预计时间 (毫秒)，AGV 不在该电梯时返回 -1
+     */
+    public synchronized long predictWaitMs(String agvId, long nowMs, Params params) {
+        if (inTrip(agvId)) {
+            return Math.max(0, trip.leaveMs().get(agvId) - nowMs);
+        }
+        if (!queue.containsKey(agvId)) {
+            return -1;
+        }
+        return simulate(new ArrayList<>(queue.values()), agvId, nowMs, params);
+    }
+
+    /**
+     * 预测假设现在提交一个换层请求的电梯耗时 (等待 + 乘梯)
+     *
+     * @param fromFloor 起始楼层
+     * @param toFloor   目标楼层
+     * @param nowMs     当前时间
+     * @param params    调度参数
+     * @return 距离出梯的预计时间 (毫秒)，同层时返回 0
+     */
+    public synchronized long predictWaitMs(int fromFloor, int toFloor, long nowMs, Params params) {
+        if (fromFloor == toFloor) {
+            return 0;
+        }
+        List<ElevatorRequest> pending = new ArrayList<>(queue.values());
+        // 假设请求的编号不会与真实 AGV 冲突
+        String probe = "\0probe";
+        pending.add(new ElevatorRequest(probe, fromFloor, toFloor, nowMs));
+        return simulate(pending, probe, nowMs, params);
+    }
+
+    /**
+     * 获取排队数量 (不含已上梯)
+     */
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    /**
+     * 获取正在执行的批次
+     */
+    public synchronized ElevatorTrip getTrip() {
+        return trip;
+    }
+
+    /**
+     * 获取排队中的 AGV编号 (按到达顺序)
+     */
+    public synchronized List<String> getQueued() {
+        return new ArrayList<>(queue.keySet());
+    }
+
+    /**
+     * 判断 AGV 是否在正在执行的批次中
+     */
+    public synchronized boolean inTrip(String agvId) {
+        return trip != null && trip.requests().stream().anyMatch(r -> r.agvId().equals(agvId));
+    }
+
+    /**
+     * 按当前队列推演后续批次，直到目标请求出梯
+     */
+    private long simulate(List<ElevatorRequest> pending, String target, long nowMs, Params params) {
+        long freeMs = trip != null ? Math.max(nowMs, trip.endMs()) : nowMs;
+        Integer position = trip != null ? trip.stops().getLast() : floor;
+        while (!pending.isEmpty()) {
+            List<ElevatorRequest> batch = selectBatch(pending, params.capacity());
+            long startMs = Math.max(freeMs, readyMs(pending.getFirst(), batch.size(), params));
+            ElevatorTrip next = buildTrip(batch, position, startMs, params);
+            Long leaveMs = next.leaveMs().get(target);
+            if (leaveMs != null) {
+                return Math.max(0, leaveMs - nowMs);
+            }
+            freeMs = next.endMs();
+            position = next.stops().getLast();
+            pending.removeAll(batch);
+        }
+        return -1;
+    }
+
+    /**
+     * 计算批次的就绪时间：装满立即出发，否则等到队首请求的批量窗口结束
+     */
+    static long readyMs(ElevatorRequest head, int batchSize, Params params) {
+        return batchSize >= params.capacity() ? head.requestMs() : head.requestMs() + params.windowMs();
+    }
+
+    /**
+     * 挑选批次：以队首方向为准，按先后顺序挑选同方向的请求直到装满
+     *
+     * @param pending  排队请求 (按到达顺序)
+     * @param capacity 每批次最多运送的 AGV 数量
+     * @return 批次请求
+     */
+    static List<ElevatorRequest> selectBatch(List<ElevatorRequest> pending, int capacity) {
+        List<ElevatorRequest> batch = new ArrayList<>(Math.max(1, capacity));
+        int direction = pending.getFirst().direction();
+        for (ElevatorRequest request : pending) {
+            if (batch.size() >= Math.max(1, capacity)) {
+                break;
+            }
+            if (request.direction() == direction) {
+                batch.add(request);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * 规划停靠顺序：同方向批次按扫描顺序停靠所有上下梯楼层，每个楼层只停一次
+     *
+     * @param batch 同方向的批次请求
+     * @return 停靠楼层顺序
+     */
+    static List<Integer> planStops(List<ElevatorRequest> batch) {
+        TreeSet<Integer> floors = new TreeSet<>();
+        for (ElevatorRequest request : batch) {
+            floors.add(request.fromFloor());
+            floors.add(request.toFloor());
+        }
+        return batch.getFirst().direction() >= 0 ? new ArrayList<>(floors) : new ArrayList<>(floors.descendingSet());
+    }
+
+    /**
+     * 构建批次并计算每台 AGV 的出梯时间
+     *
+     * @param batch    批次请求
+     * @param position 电梯所在楼层，未知时视为已在第一个停靠楼层
+     * @param startMs  开始时间
+     * @param params   调度参数
+     * @return 批次
+     */
+    static ElevatorTrip buildTrip(List<ElevatorRequest> batch, Integer position, long startMs, Params params) {
+        List<Integer> stops = planStops(batch);
+        Map<Integer, Long> doorCloseMs = new HashMap<>(stops.size());
+        int current = position != null ? position : stops.getFirst();
+        long clock = startMs;
+        for (int stop : stops) {
+            clock += Math.abs(stop - current) * params.floorMs() + params.stopMs();
+            doorCloseMs.put(stop, clock);
+            current = stop;
+        }
+        Map<String, Long> leaveMs = new HashMap<>(batch.size());
+        for (ElevatorRequest request : batch) {
+            leaveMs.put(request.agvId(), doorCloseMs.get(request.toFloor()));
+        }
+        return new ElevatorTrip(List.copyOf(batch), List.copyOf(stops), startMs, clock, leaveMs);
+    }
+}
@@ -0,0 +1,49 @@
+package com.ruinap.core.algorithm.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 预计到达时间(ETA)结果
+ * <p>
+ * 不可变对象，由 EtaManager 整体替换发布，读取方无需加锁
+ *
+ * @author qianye
+ * @create 2026-03-03 09:20
+ */
+@Getter
+@AllArgsConstructor
+public class EtaResult {
+    /**
+     * AGV编号
+     */
+    private final String agvCode;
+    /**
+     * 任务编号
+     */
+    private final String taskCode;
+    /**
+     * 剩余总耗时 (毫秒，含等待)
+     */
+    private final long remainingMs;
+    /**
+     * 预计到达任务起点的时间戳 (毫秒)，已到达或无起点段时为 0
+     */
+    private final long originEta;
+    /**
+     * 预计到达任务终点的时间戳 (毫秒)，无终点段时为 0
+     */
+    private final long destinEta;
+    /**
+     * 其中管制区预计等待 (毫秒)
+     */
+    private final long controlWaitMs;
+    /**
+     * 其中电梯预计等待 (毫秒)
+     */
+    private final long elevatorWaitMs;
+    /**
+     * 计算时间戳 (毫秒)
+     */
+    private final long updateTime;
+}
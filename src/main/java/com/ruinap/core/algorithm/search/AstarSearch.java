@@ -1,6 +1,8 @@
 package com.ruinap.core.algorithm.search;
 
 import com.ruinap.core.algorithm.SlideTimeWindow;
+import com.ruinap.core.algorithm.TravelTimeManager;
+import com.ruinap.core.algorithm.domain.EdgeTravelTable;
 import com.ruinap.core.map.MapManager;
 import com.ruinap.core.map.pojo.RcsPoint;
 import com.ruinap.core.map.pojo.RcsPointOccupy;
@@ -12,6 +14,7 @@ import org.graph4j.shortestpath.AStarEstimator;
 import org.graph4j.util.VertexHeap;
 
 import java.util.Arrays;
+import java.util.concurrent.CancellationException;
 
 /**
  * Graph4J的A*算法
@@ -24,6 +27,10 @@ public class AstarSearch extends AStarAlgorithm {
     private final MapManager mapManager;
     private final SlideTimeWindow slideTimeWindow;
     private final int hardPenalty;
+    /**
+     * 时变通行耗时管理器，可为空 (为空时按纯距离计算)
+     */
+    private final TravelTimeManager travelTimeManager;
 
     /**
      * AStarAlgorithm内部属性，因为父类中属性是private，所以只能重新定义
@@ -36,6 +43,15 @@ public class AstarSearch extends AStarAlgorithm {
      */
     private final String agvCode;
 
+    /**
+     * 是否允许协作式取消
+     */
+    private boolean cancellable;
+    /**
+     * 是否按静态路网代价搜索 (不计占用、拥堵与时段耗时)
+     */
+    private boolean trafficFree;
+
     /**
      * 构造函数
      *
@@ -48,12 +64,54 @@ public class AstarSearch extends AStarAlgorithm {
     public AstarSearch(String agvCode, Graph graph, RcsPoint start, RcsPoint goal,
                        AStarEstimator heuristic,
                        MapManager mapManager, SlideTimeWindow slideTimeWindow, int hardPenalty) {
+        this(agvCode, graph, start, goal, heuristic, mapManager, slideTimeWindow, hardPenalty, null);
+    }
+
+    /**
+     * 构造函数 (时变代价)
+     *
+     * @param agvCode           AGV编码
+     * @param graph             图
+     * @param start             开始顶点
+     * @param goal              目标顶点
+     * @param heuristic         启发式函数
+     * @param travelTimeManager 时变通行耗时管理器
+     */
+    public AstarSearch(String agvCode, Graph<?, ?> graph, RcsPoint start, RcsPoint goal,
+                       AStarEstimator heuristic,
+                       MapManager mapManager, SlideTimeWindow slideTimeWindow, int hardPenalty,
+                       TravelTimeManager travelTimeManager) {
         super(graph, start.getGraphIndex(), goal.getGraphIndex(), heuristic);
         this.agvCode = agvCode;
         this.heuristic = heuristic;
         this.mapManager = mapManager;
         this.slideTimeWindow = slideTimeWindow;
         this.hardPenalty = hardPenalty;
+        this.travelTimeManager = travelTimeManager;
+    }
+
+    /**
+     * 允许协作式取消：搜索线程被中断后抛出 {@link CancellationException} 尽快退出
+     * <p>
+     * 只有会处理取消的调用方 (拍卖竞标) 开启，其余调用方即使线程被中断也完整搜索
+     *
+     * @return 当前对象
+     */
+    public AstarSearch cancellable() {
+        this.cancellable = true;
+        return this;
+    }
+
+    /**
+     * 按静态路网代价搜索：只使用边长，不计占用硬惩罚、滑动时间窗拥堵与时段通行耗时
+     * <p>
+     * 结果只取决于地图，可以按地图快照缓存
+     *
+     * @return 当前对象
+     */
+    public AstarSearch trafficFree() {
+        this.trafficFree = true;
+        return this;
     }
 
     @Override
@@ -67,9 +125,16 @@ public class AstarSearch extends AStarAlgorithm {
         Arrays.fill(this.cost, Double.POSITIVE_INFINITY);
         Arrays.fill(this.before, -1);
         this.cost[this.graph.indexOf(this.source)] = (double) 0.0F;
+        // 时变代价：单次搜索内固定直方表与时间段，松弛阶段只做数组查找
+        EdgeTravelTable travelTable = travelTimeManager != null && !trafficFree ? travelTimeManager.getTable() : null;
+        int bucket = travelTimeManager != null ? travelTimeManager.currentBucket() : 0;
         this.heap = new VertexHeap(this.graph, (i, j) -> (int) Math.signum(this.cost[i] + this.heuristic.estimate(i, this.target) - this.cost[j] - this.heuristic.estimate(j, this.target)));
 
         while (true) {
+            // 协作式取消：调用方 (如拍卖截止时间到达) 中断线程后尽快退出，每 64 次出堆检查一次
+            if (cancellable && (this.numSolved & 0x3F) == 0 && Thread.currentThread().isInterrupted()) {
+                throw new CancellationException(agvCode + " A* 搜索被中断");
+            }
             int vi = this.heap.poll();
             this.solved[vi] = true;
             ++this.numSolved;
@@ -90,8 +155,8 @@ public class AstarSearch extends AStarAlgorithm {
                 // --- 动态获取当前邻居节点的 MapId ---
                 // 因为 u 可能是另一层楼(另一个Map)的点，必须动态获取
                 RcsPoint neighborPoint = (RcsPoint) this.graph.getVertexLabel(u);
-                // 获取路径占用信息
-                RcsPointOccupy pointOccupy = mapManager.getPointOccupy(neighborPoint.getMapId(), neighborPoint.getId());
+                // 获取路径占用信息 (静态搜索不计占用)
+                RcsPointOccupy pointOccupy = trafficFree ? null : mapManager.getPointOccupy(neighborPoint.getMapId(), neighborPoint.getId());
                 // 检查路径是否被占用且占用者不是当前 AGV
                 if (pointOccupy != null && pointOccupy.isPhysicalBlocked()) {
                     if (!pointOccupy.getDeviceOccupyState(agvCode)) {
@@ -112,8 +177,13 @@ public class AstarSearch extends AStarAlgorithm {
                     double vertexWeight = this.graph.getVertexWeight(u);
 
                     // --- 自定义逻辑开始 ---
+                    // 按历史通行耗时修正边长 (弯道/限速/时段拥堵)，系数 ≥ 1
+                    if (travelTable != null) {
+                        weight = weight * travelTimeManager.costFactor(travelTable, vi, ui, bucket);
+                    }
                     // 累加计算路径代价 = 历史代价 + 拥堵软权重(SlideTimeWindow) + 物理避让硬惩罚(extraPenalty)
-                    double tentativeCost = this.cost[vi] + slideTimeWindow.costCalculation(weight, vertexWeight) + extraPenalty;
+                    double tentativeCost = trafficFree ? this.cost[vi] + weight
+                            : this.cost[vi] + slideTimeWindow.costCalculation(weight, vertexWeight) + extraPenalty;
                     // --- 自定义逻辑结束 ---
 
                     if (this.cost[ui] > tentativeCost) {
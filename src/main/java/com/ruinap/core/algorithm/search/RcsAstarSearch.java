@@ -3,6 +3,7 @@ package com.ruinap.core.algorithm.search;
 import cn.hutool.core.util.StrUtil;
 import com.ruinap.core.algorithm.SlideTimeWindow;
 import com.ruinap.core.algorithm.TrafficManager;
+import com.ruinap.core.algorithm.TravelTimeManager;
 import com.ruinap.core.algorithm.domain.RouteResult;
 import com.ruinap.core.equipment.manager.AgvManager;
 import com.ruinap.core.equipment.pojo.RcsAgv;
@@ -20,7 +21,6 @@ import com.ruinap.infra.framework.annotation.PostConstruct;
 import com.ruinap.infra.framework.annotation.Service;
 import com.ruinap.infra.log.RcsLog;
 import org.graph4j.Digraph;
-import org.graph4j.shortestpath.AStarAlgorithm;
 import org.graph4j.shortestpath.AStarEstimator;
 import org.graph4j.util.Path;
 
@@ -49,6 +49,8 @@ public class RcsAstarSearch {
     private TrafficManager trafficManager;
     @Autowired
     private SlideTimeWindow slideTimeWindow;
+    @Autowired
+    private TravelTimeManager travelTimeManager;
 
     /**
      * 定义路径长度不能超过原始路径长度的距离
@@ -184,6 +186,47 @@ public class RcsAstarSearch {
      * @return 返回结果，包括是否到达终点、路径代价和路径
      */
     public RouteResult aStarSearch(String agvCode, RcsPoint start, RcsPoint goal) {
+        return aStarSearch(agvCode, start, goal, false);
+    }
+
+    /**
+     * 使用A*算法进行从起点到终点的路径搜索
+     * 如果考虑路径被占用，则可能会返回绕路路径列表
+     *
+     * @param agvCode     AGV编号
+     * @param start       起点
+     * @param goal        终点
+     * @param cancellable 是否允许协作式取消，为 true 时线程被中断会抛出 {@link java.util.concurrent.CancellationException}，调用方必须处理
+     * @return 返回结果，包括是否到达终点、路径代价和路径
+     */
+    public RouteResult aStarSearch(String agvCode, RcsPoint start, RcsPoint goal, boolean cancellable) {
+        return search(agvCode, start, goal, cancellable, false);
+    }
+
+    /**
+     * 按静态路网代价进行从起点到终点的路径搜索
+     * <p>
+     * 只使用边长，不计占用、拥堵与时段通行耗时，结果只取决于地图，可以按地图快照缓存
+     *
+     * @param start 起点
+     * @param goal  终点
+     * @return 返回结果，包括是否到达终点、路径代价和路径
+     */
+    public RouteResult staticSearch(RcsPoint start, RcsPoint goal) {
+        return search("static", start, goal, false, true);
+    }
+
+    /**
+     * A*路径搜索
+     *
+     * @param agvCode     AGV编号
+     * @param start       起点
+     * @param goal        终点
+     * @param cancellable 是否允许协作式取消
+     * @param trafficFree 是否按静态路网代价搜索
+     * @return 返回结果，包括是否到达终点、路径代价和路径
+     */
+    private RouteResult search(String agvCode, RcsPoint start, RcsPoint goal, boolean cancellable, boolean trafficFree) {
         List<RcsPoint> resultPoints = new ArrayList<>();
         boolean isArrive = false;
 
@@ -201,7 +244,7 @@ public class RcsAstarSearch {
         // 创建自定义的 RcsPointEuclideanEstimator 实例
         AStarEstimator estimator = new AstarEstimator(graph);
         // 创建 AStarAlgorithm 实例
-        AStarAlgorithm astar = new AstarSearch(
+        AstarSearch astar = new AstarSearch(
                 agvCode,
                 graph,
                 start,
@@ -209,8 +252,15 @@ public class RcsAstarSearch {
                 estimator,
                 mapManager,
                 slideTimeWindow,
-                PATH_LENGTH_DISTANCE
+                PATH_LENGTH_DISTANCE,
+                travelTimeManager
         );
+        if (cancellable) {
+            astar.cancellable();
+        }
+        if (trafficFree) {
+            astar.trafficFree();
+        }
 
         // 执行算法
         Path pathResult = astar.findPath();
@@ -1,5 +1,6 @@
 package com.ruinap.core.algorithm.strategy;
 
+import com.ruinap.core.algorithm.ElevatorDispatcher;
 import com.ruinap.core.algorithm.domain.PathContext;
 import com.ruinap.core.algorithm.domain.PathState;
 import com.ruinap.core.equipment.manager.AgvManager;
@@ -40,6 +41,8 @@ public class PathCheckState implements PathState {
     private TaskManager taskManager;
     @Autowired
     private TaskSectionManager taskSectionManager;
+    @Autowired
+    private ElevatorDispatcher elevatorDispatcher;
 
     /**
      * 处理器
@@ -108,6 +111,8 @@ public class PathCheckState implements PathState {
 
             // 4.1 判断是否对接设备
             if (taskPath.getDockDevice() != null) {
+                // 车体已在执行对接任务 (重启恢复)：登记电梯请求，由调度器排入批次，重复提交无副作用
+                elevatorDispatcher.request(taskPath);
                 taskPath.setState(PlanStateEnum.DOCK_DEVICE.code);
                 RcsLog.algorithmLog.info(RcsLog.getTemplate(3), RcsLog.randomInt(), taskPath.getAgvId(), "设置任务状态为对接设备中");
                 return;
@@ -167,6 +172,11 @@ public class PathCheckState implements PathState {
                 && !AgvTaskStateEnum.isEnumByCode(AgvTaskStateEnum.HAVE, taskState)) {
 
             if (taskPath.getDockDevice() != null) {
+                // 电梯对接按批次进梯：未分到电梯正在执行的批次时留在 CHECK 等待拼车，同一批次的 AGV 一起进入对接
+                if (!elevatorDispatcher.requestBoarding(taskPath)) {
+                    RcsLog.algorithmLog.debug(RcsLog.getTemplate(3), RcsLog.randomInt(), taskPath.getAgvId(), "电梯换层请求排队中，等待电梯批次");
+                    return;
+                }
                 RcsLog.algorithmLog.info(RcsLog.getTemplate(3), RcsLog.randomInt(), taskPath.getAgvId(), "监测到AGV存在设备对接数据，设置任务状态：" + PlanStateEnum.DOCK_DEVICE);
                 taskPath.setState(PlanStateEnum.DOCK_DEVICE.code);
             } else if (SubTaskTypeEnum.isEnumByCode(SubTaskTypeEnum.ORIGIN, subTaskType) || SubTaskTypeEnum.isEnumByCode(SubTaskTypeEnum.DESTIN, subTaskType)) {
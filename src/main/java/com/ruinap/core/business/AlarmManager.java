@@ -4,6 +4,7 @@ import cn.hutool.cache.CacheUtil;
 import cn.hutool.cache.impl.TimedCache;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.db.Entity;
+import com.ruinap.core.business.domain.AlarmBuffer;
 import com.ruinap.infra.enums.alarm.AlarmCodeEnum;
 import com.ruinap.infra.framework.annotation.Autowired;
 import com.ruinap.infra.framework.annotation.PostConstruct;
@@ -11,15 +12,22 @@ import com.ruinap.infra.framework.annotation.PreDestroy;
 import com.ruinap.infra.framework.annotation.Service;
 import com.ruinap.infra.log.RcsLog;
 import com.ruinap.infra.thread.VthreadPool;
+import com.ruinap.persistence.gateway.PersistenceGateway;
 import com.ruinap.persistence.repository.AlarmDB;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 /**
  * 告警信息管理器
  * <p>
  * 核心逻辑：
  * 1. 唯一性：EquipmentCode + AlarmCode 唯一。多源触发只视为同一个告警的持续刷新。
  * 2. 自动恢复：利用 TimedCache 监听器，超时未上报自动更新数据库为结束。
- * 3. 异步IO：所有数据库操作由虚拟线程异步执行。
+ * 3. 批量IO：新增与结束都放入有界缓冲区，由单个写入线程按数量或时间批量写库，上报线程永不阻塞。
+ * 4. 数据库不可用：写库失败或持久化网关有积压时，告警交给持久化网关排队重试，不丢弃。
  *
  * @author AGV System Engineer
  */
@@ -30,6 +38,8 @@ public class AlarmManager {
     private VthreadPool vthreadPool;
     @Autowired
     private AlarmDB alarmDB;
+    @Autowired
+    private PersistenceGateway persistenceGateway;
     //关闭标志位
     private volatile boolean isShutdown = false;
 
@@ -40,6 +50,18 @@ public class AlarmManager {
      * 当超过 5000ms 未收到该告警上报时，认为故障已消除，触发 onRemove 监听器自动更新 DB 状态。
      */
     private static final long ALARM_TIMEOUT_MS = 5000L;
+    /**
+     * 告警缓冲区容量，满时合并重复告警并丢弃新告警
+     */
+    private static final int ALARM_BUFFER_CAPACITY = 4096;
+    /**
+     * 每批最大写入数量，缓冲达到该数量时立即写入
+     */
+    private static final int ALARM_BATCH_SIZE = 200;
+    /**
+     * 最长写入间隔 (毫秒)
+     */
+    private static final long ALARM_FLUSH_MS = 500L;
 
     /**
      * 活跃告警缓存
@@ -51,6 +73,19 @@ public class AlarmManager {
      */
     private volatile TimedCache<AlertKey, Boolean> alarmCache;
 
+    /**
+     * 告警写入缓冲区
+     */
+    private volatile AlarmBuffer<AlertKey> alarmBuffer;
+    /**
+     * 写入线程
+     */
+    private Future<?> writerFuture;
+    /**
+     * 已记录日志的丢弃数量
+     */
+    private long loggedDropped = 0;
+
     /**
      * 系统初始化
      * 利用 容器 生命周期，确保在对外服务前缓存已就绪。
@@ -59,19 +94,19 @@ public class AlarmManager {
     public void init() {
         // 创建带超时机制的缓存
         this.alarmCache = CacheUtil.newTimedCache(ALARM_TIMEOUT_MS);
+        this.alarmBuffer = new AlarmBuffer<>(ALARM_BUFFER_CAPACITY, ALARM_BATCH_SIZE);
 
         // 设置监听器：核心逻辑 -> 告警自动恢复
         // 当缓存过期（timeout）或被显式移除（remove）时触发
-        this.alarmCache.setListener((key, cachedObject) -> {
-            // 提交给虚拟线程池异步执行，防止阻塞 Timer 线程
-            vthreadPool.execute(() -> {
-                updateAlarmStatus(key.equipmentCode(), key.code());
-            });
-        });
+        // 只放入缓冲区，不阻塞 Timer 线程
+        this.alarmCache.setListener((key, cachedObject) -> alarmBuffer.end(key));
 
         // 启动定时清理任务（每秒检查一次过期元素）
         // 注意：不调用此方法，过期元素只会在下次访问时被移除，导致 Listener 延迟触发。
         this.alarmCache.schedulePrune(1000);
+
+        // 启动单写入线程
+        this.writerFuture = vthreadPool.submit(this::runWriter);
         RcsLog.consoleLog.info("AlarmManager 初始化完成 (JDK21 Virtual Threads Mode)");
     }
 
@@ -97,7 +132,18 @@ public class AlarmManager {
             // 3. 清空内存缓存
             alarmCache.clear();
 
-            // 4. 执行全局状态更新：将所有未结告警标记为 "系统关闭"(state=2)
+            // 4. 停止写入线程，把缓冲区剩余告警写库
+            alarmBuffer.wakeUp();
+            if (writerFuture != null) {
+                try {
+                    writerFuture.get(3, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    writerFuture.cancel(true);
+                }
+            }
+            flush();
+
+            // 5. 执行全局状态更新：将所有未结告警标记为 "系统关闭"(state=2)
             // 使用虚拟线程执行，但注意：在 Spring 销毁阶段，需确保线程池未被关闭。
             // 生产环境建议此处使用 CountDownLatch 同步等待更新完成，防止 JVM 进程直接退出。
             updateAllActiveAlarmsToSystemClosed();
@@ -157,9 +203,9 @@ public class AlarmManager {
 
         // 4. 新告警入库
         if (!isExisting) {
-            // 只有当这是第一条告警时，才发起数据库 IO
-            // 利用虚拟线程异步执行，主线程立即返回，不阻塞 AGV 心跳响应
-            vthreadPool.execute(() -> saveAlarmToDb(equipmentCode, taskGroup, taskCode, alarmEnum, param, source));
+            // 只有当这是第一条告警时，才放入写入缓冲区
+            // 缓冲区满时合并或丢弃，主线程立即返回，不阻塞 AGV 心跳响应
+            alarmBuffer.offer(key, buildAlarmRow(equipmentCode, taskGroup, taskCode, alarmEnum, param, source));
         }
     }
 
@@ -197,57 +243,108 @@ public class AlarmManager {
         if (StrUtil.isBlank(equipmentCode) || alarmCache == null || alarmEnum == null) {
             return;
         }
-        // 从缓存移除 -> 触发 Listener.onRemove -> 异步更新 DB state=1
+        // 从缓存移除 -> 触发 Listener.onRemove -> 缓冲区批量更新 DB state=1
         alarmCache.remove(new AlertKey(equipmentCode, alarmEnum.code));
     }
 
-    // ==================== 数据库原子操作 ====================
-    // 均由虚拟线程执行，允许阻塞
+    // ==================== 批量写入 ====================
 
-    private Integer saveAlarmToDb(String equipmentCode, String taskGroup, String taskCode, AlarmCodeEnum alarm, String param, String source) {
+    /**
+     * 写入线程：缓冲达到批量大小或超过写入间隔时取出一批写库
+     */
+    private void runWriter() {
         try {
-            Entity entity = Entity.create("rcs_alarm");
-            entity.set("task_group", taskGroup);
-            entity.set("task_code", taskCode);
-            entity.set("name", equipmentCode);
-            entity.set("level", alarm.level);
-            entity.set("code", alarm.code);
-            entity.set("msg", alarm.msg);
-            entity.set("param", param);
-            entity.set("type", alarm.type);
-            entity.set("report_state", alarm.report);
-            entity.set("source", source);
-            entity.set("create_time", System.currentTimeMillis());
-            entity.set("state", 0);
-
-            // 建议：此处可以捕获 DuplicateKeyException (如果设置了唯一索引)，忽略重复插入
-            return alarmDB.createAlarm(entity);
-        } catch (Exception e) {
-            // 记录日志，但不抛出异常中断业务流
-            RcsLog.sysLog.error("告警入库失败 [{} - {}]", equipmentCode, alarm.code, e);
+            while (!isShutdown) {
+                writeBatch(alarmBuffer.await(ALARM_FLUSH_MS, TimeUnit.MILLISECONDS));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        return 0;
     }
 
-    private void updateAlarmStatus(String equipmentCode, Integer alarmCode) {
-        try {
-            // 1: 已结束
-            Entity body = Entity.create().set("state", 1);
+    /**
+     * 把缓冲区中的告警全部写库
+     * <p>
+     * 关闭时在写入线程停止后调用
+     */
+    void flush() {
+        AlarmBuffer.Batch<AlertKey> batch = alarmBuffer.drain();
+        while (!batch.isEmpty()) {
+            writeBatch(batch);
+            batch = alarmBuffer.drain();
+        }
+    }
 
-            // 乐观锁更新：只更新当前还处于 state=0 的记录
-            Entity where = Entity.create()
-                    .set("name", equipmentCode)
-                    .set("state", 0);
+    // ==================== 数据库原子操作 ====================
+    // 均由写入线程执行，允许阻塞
 
-            if (alarmCode != null) {
-                where.set("code", alarmCode);
+    /**
+     * 写入一批告警：先结束、后新增
+     *
+     * @param batch 一批告警
+     */
+    private void writeBatch(AlarmBuffer.Batch<AlertKey> batch) {
+        // 持久化网关有积压 (内存队列、正在写入或溢出文件) 时一律交给网关，保证结束与新增按顺序写入：
+        // 否则排队中的新增还未写入，直接执行的结束更新匹配不到记录，告警会一直停留在 state=0
+        boolean direct = persistenceGateway.isDrained();
+        if (!batch.ends().isEmpty()) {
+            List<Object[]> keys = new ArrayList<>(batch.ends().size());
+            for (AlertKey key : batch.ends()) {
+                keys.add(new Object[]{key.equipmentCode(), key.code()});
+            }
+            try {
+                if (direct) {
+                    // 乐观锁更新：只更新当前还处于 state=0 的记录
+                    alarmDB.endAlarmBatch(keys);
+                }
+            } catch (Exception e) {
+                RcsLog.sysLog.error("告警状态批量更新失败，共 {} 条，转交持久化网关重试", batch.ends().size(), e);
+                direct = false;
+            }
+            if (!direct) {
+                for (Object[] key : keys) {
+                    persistenceGateway.execute(AlarmDB.END_ALARM_SQL, key);
+                }
             }
-
-            // 注意：Hutool DB 这里的 update 可能返回影响行数，可用于统计
-            alarmDB.updateAlarm(body, where);
-        } catch (Exception e) {
-            RcsLog.sysLog.error("告警状态自动更新失败 [{} - {}]", equipmentCode, alarmCode, e);
         }
+        if (!batch.inserts().isEmpty()) {
+            try {
+                if (direct) {
+                    alarmDB.createAlarmBatch(batch.inserts());
+                }
+            } catch (Exception e) {
+                // 记录日志，但不抛出异常中断写入线程
+                RcsLog.sysLog.error("告警批量入库失败，共 {} 条，转交持久化网关重试", batch.inserts().size(), e);
+                direct = false;
+            }
+            if (!direct) {
+                for (Entity row : batch.inserts()) {
+                    persistenceGateway.insert(row.getTableName(), row);
+                }
+            }
+        }
+        long dropped = alarmBuffer.getDropped();
+        if (dropped > loggedDropped) {
+            RcsLog.sysLog.warn("告警缓冲区已满，累计丢弃 {} 条 (本次新增 {} 条)", dropped, dropped - loggedDropped);
+            loggedDropped = dropped;
+        }
+    }
+
+    private Entity buildAlarmRow(String equipmentCode, String taskGroup, String taskCode, AlarmCodeEnum alarm, String param, String source) {
+        Entity entity = Entity.create("rcs_alarm");
+        entity.set("task_group", taskGroup);
+        entity.set("task_code", taskCode);
+        entity.set("name", equipmentCode);
+        entity.set("level", alarm.level);
+        entity.set("code", alarm.code);
+        entity.set("msg", alarm.msg);
+        entity.set("param", param);
+        entity.set("type", alarm.type);
+        entity.set("report_state", alarm.report);
+        entity.set("source", source);
+        entity.set("create_time", System.currentTimeMillis());
+        entity.set("state", 0);
+        return entity;
     }
 
     private void updateAllActiveAlarmsToSystemClosed() {
@@ -0,0 +1,297 @@
+package com.ruinap.core.business;
+
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.db.Entity;
+import com.ruinap.core.business.domain.KpiRing;
+import com.ruinap.core.business.domain.KpiSnapshot;
+import com.ruinap.core.equipment.pojo.RcsAgv;
+import com.ruinap.core.task.domain.RcsTask;
+import com.ruinap.core.task.event.TaskStateChangeEvent;
+import com.ruinap.infra.enums.agv.AgvStateEnum;
+import com.ruinap.infra.enums.agv.AgvTaskStateEnum;
+import com.ruinap.infra.enums.task.TaskStateEnum;
+import com.ruinap.infra.framework.annotation.Autowired;
+import com.ruinap.infra.framework.annotation.EventListener;
+import com.ruinap.infra.framework.annotation.PostConstruct;
+import com.ruinap.infra.framework.annotation.Service;
+import com.ruinap.infra.log.RcsLog;
+import com.ruinap.persistence.repository.StatisticsDB;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 滚动 KPI 统计管理器
+ * <p>
+ * 在进程内流式聚合调度 KPI，看板查询不再访问业务数据库：
+ * <ol>
+ * <li>消费任务状态变更事件 (完成数、等待时间) 与 AGV 状态上报 (执行/空闲/充电/异常时间、载货/空驶里程)，写入分钟级环形桶；</li>
+ * <li>小时、天的指标由分钟桶实时求和，直接从内存提供给界面；</li>
+ * <li>每个小时结束后把该小时 (跨天时再加上当天) 的聚合结果批量写入 rcs_statistics，写入失败时保留到下次重试。</li>
+ * </ol>
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-17 10:40
+ */
+@Service
+public class StatisticsManager {
+    @Autowired
+    private StatisticsDB statisticsDB;
+
+    /**
+     * 环形桶容量：两天的分钟数，保证跨天时仍能聚合前一整天
+     */
+    private static final int RING_MINUTES = 2 * 1440;
+    /**
+     * 相邻两次上报间隔超过该值视为断线，不计入状态时间
+     */
+    private static final long MAX_SAMPLE_GAP_MS = 10_000L;
+    /**
+     * 相邻两次上报的里程差超过该值视为里程计重置，不计入里程 (毫米)
+     */
+    private static final long MAX_SAMPLE_DISTANCE_MM = 100_000L;
+    /**
+     * 写入失败时最多保留的待写入行数
+     */
+    private static final int MAX_PENDING_ROWS = 24 * 14;
+    /**
+     * 统计周期 1小时 2天
+     */
+    static final int PERIOD_HOUR = 1;
+    static final int PERIOD_DAY = 2;
+
+    /**
+     * 分钟级环形桶
+     */
+    private final KpiRing ring = new KpiRing(RING_MINUTES);
+    /**
+     * AGV 上一次的上报采样
+     * Key: AGV编号
+     */
+    private final Map<String, AgvSample> samples = new ConcurrentHashMap<>();
+    /**
+     * 待写入数据库的统计行 (仅在 flush 中访问)
+     */
+    private final List<Entity> pendingRows = new ArrayList<>();
+    /**
+     * 下一个待写入小时的开始分钟 (epoch 分钟)
+     */
+    private long nextHourMinute;
+
+    /**
+     * AGV 上报采样
+     *
+     * @param timeMs     上报时间
+     * @param kind       状态分类
+     * @param runLength  开机运行里程 (毫米)
+     * @param loaded     是否载货
+     */
+    private record AgvSample(long timeMs, KpiRing.StateKind kind, Integer runLength, boolean loaded) {
+    }
+
+    @PostConstruct
+    public void init() {
+        // 启动前的小时没有数据，从当前小时开始写入
+        nextHourMinute = hourStartMinute(System.currentTimeMillis());
+    }
+
+    /**
+     * 任务状态变化：记录完成的任务与等待时间
+     *
+     * @param event 任务状态变更事件
+     */
+    @EventListener
+    public void onTaskStateChange(TaskStateChangeEvent event) {
+        if (!TaskStateEnum.FINISH.equals(event.getNewState())) {
+            return;
+        }
+        RcsTask task = event.getTask();
+        long waitMs = -1;
+        if (task.getCreateTime() != null && task.getStartTime() != null) {
+            waitMs = Math.max(0, task.getStartTime().getTime() - task.getCreateTime().getTime());
+        }
+        ring.addTask(minuteOf(System.currentTimeMillis()), waitMs);
+    }
+
+    /**
+     * AGV 状态上报：按上一次采样的状态累计时间与里程
+     *
+     * @param rcsAgv AGV
+     */
+    public void onStateReport(RcsAgv rcsAgv) {
+        if (rcsAgv == null || rcsAgv.getAgvId() == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        KpiRing.StateKind kind = classify(rcsAgv);
+        if (kind == null) {
+            // 离线不计入在线时间
+            samples.remove(rcsAgv.getAgvId());
+            return;
+        }
+        //载货状态 0无货 1单左货 2单右货 3左右货 Null为无货物信号
+        boolean loaded = rcsAgv.getGoodsState() != null && rcsAgv.getGoodsState() > 0;
+        AgvSample last = samples.put(rcsAgv.getAgvId(), new AgvSample(now, kind, rcsAgv.getRunLength(), loaded));
+        if (last == null) {
+            return;
+        }
+        long minute = minuteOf(now);
+        long elapsed = now - last.timeMs();
+        if (elapsed > 0 && elapsed <= MAX_SAMPLE_GAP_MS) {
+            ring.addState(minute, last.kind(), elapsed);
+        }
+        if (last.runLength() != null && rcsAgv.getRunLength() != null) {
+            long distance = (long) rcsAgv.getRunLength() - last.runLength();
+            if (distance > 0 && distance <= MAX_SAMPLE_DISTANCE_MM) {
+                ring.addTravel(minute, distance, last.loaded());
+            }
+        }
+    }
+
+    /**
+     * 获取看板指标
+     *
+     * @return Key: last_hour 最近 60 分钟，hour 当前小时，day 今天
+     */
+    public Map<String, KpiSnapshot> getKpi() {
+        long now = System.currentTimeMillis();
+        long end = minuteOf(now) + 1;
+        Map<String, KpiSnapshot> kpi = new LinkedHashMap<>(4);
+        kpi.put("last_hour", ring.aggregate(end - 60, end));
+        kpi.put("hour", ring.aggregate(hourStartMinute(now), end));
+        kpi.put("day", ring.aggregate(dayStartMinute(now), end));
+        return kpi;
+    }
+
+    /**
+     * 获取今天每个小时的指标
+     *
+     * @return 按小时排列，当前小时为最后一项
+     */
+    public List<KpiSnapshot> getHourly() {
+        long now = System.currentTimeMillis();
+        long end = minuteOf(now) + 1;
+        List<KpiSnapshot> hourly = new ArrayList<>(24);
+        for (long from = dayStartMinute(now); from < end; from += 60) {
+            hourly.add(ring.aggregate(from, Math.min(from + 60, end)));
+        }
+        return hourly;
+    }
+
+    /**
+     * 写入已结束的小时与天的聚合结果
+     * <p>
+     * 由定时任务调用
+     */
+    public synchronized void flush() {
+        long now = System.currentTimeMillis();
+        long currentHour = hourStartMinute(now);
+        // 停机或休眠过久时，环中只保留最近的数据
+        nextHourMinute = Math.max(nextHourMinute, currentHour - RING_MINUTES + 60);
+        while (nextHourMinute + 60 <= currentHour) {
+            long from = nextHourMinute;
+            nextHourMinute += 60;
+            KpiSnapshot hour = ring.aggregate(from, nextHourMinute);
+            if (!hour.isEmpty()) {
+                pendingRows.add(toEntity(hour, PERIOD_HOUR));
+            }
+            // 小时结束于零点：当天结束
+            long dayStart = dayStartMinute(nextHourMinute * 60_000L);
+            if (dayStart == nextHourMinute) {
+                KpiSnapshot day = ring.aggregate(dayStartMinute(from * 60_000L), nextHourMinute);
+                if (!day.isEmpty()) {
+                    pendingRows.add(toEntity(day, PERIOD_DAY));
+                }
+            }
+        }
+        if (pendingRows.isEmpty()) {
+            return;
+        }
+        try {
+            // 按周期唯一键覆盖写入：上次写入实际已成功但返回异常时，重试不会产生重复行
+            statisticsDB.saveStatisticsBatch(new ArrayList<>(pendingRows));
+            RcsLog.sysLog.info("KPI 统计写入 {} 条", pendingRows.size());
+            pendingRows.clear();
+        } catch (Exception e) {
+            RcsLog.sysLog.error("KPI 统计写入失败，待下次重试，待写入 {} 条", pendingRows.size(), e);
+            while (pendingRows.size() > MAX_PENDING_ROWS) {
+                pendingRows.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * AGV 状态分类
+     *
+     * @param rcsAgv AGV
+     * @return 状态分类，离线时返回 null
+     */
+    static KpiRing.StateKind classify(RcsAgv rcsAgv) {
+        Integer agvState = rcsAgv.getAgvState();
+        //AGV状态 -1离线 0待命 1自动行走 2自动动作 3充电中 10暂停 11等待中 12地图切换中
+        if (agvState == null || AgvStateEnum.isEnumByCode(AgvStateEnum.OFFLINE, agvState)) {
+            return null;
+        }
+        if (AgvStateEnum.isEnumByCode(AgvStateEnum.CHARGE, agvState)) {
+            return KpiRing.StateKind.CHARGE;
+        }
+        //急停状态 0未急停 1急停中
+        if (Integer.valueOf(1).equals(rcsAgv.getEstopState()) || AgvStateEnum.isEnumByCode(AgvStateEnum.PAUSE, agvState)) {
+            return KpiRing.StateKind.ABNORMAL;
+        }
+        //任务状态 0无任务 1有任务 2已完成 3已取消
+        if (AgvTaskStateEnum.isEnumByCode(AgvTaskStateEnum.HAVE, rcsAgv.getTaskState())) {
+            return KpiRing.StateKind.BUSY;
+        }
+        return KpiRing.StateKind.IDLE;
+    }
+
+    /**
+     * 聚合结果转换为 rcs_statistics 行 (时间单位秒，里程单位米，比例单位百分比)
+     *
+     * @param snapshot   聚合结果
+     * @param periodType 统计周期 1小时 2天
+     * @return 数据行
+     */
+    static Entity toEntity(KpiSnapshot snapshot, int periodType) {
+        return Entity.create()
+                .set("begin", new Date(snapshot.getBeginMs()))
+                .set("finish", new Date(snapshot.getEndMs() - 1000))
+                .set("period_type", periodType)
+                .set("run_time", snapshot.getBusyMs() / 1000)
+                .set("task_count", snapshot.getTaskCount())
+                .set("idle_time", snapshot.getIdleMs() / 1000)
+                .set("abnormal_time", snapshot.getAbnormalMs() / 1000)
+                .set("charge_time", snapshot.getChargeMs() / 1000)
+                .set("total_itinerary", (snapshot.getLoadedMm() + snapshot.getEmptyMm()) / 1000)
+                .set("empty_itinerary", snapshot.getEmptyMm() / 1000)
+                .set("empty_rate", NumberUtil.round(snapshot.getEmptyTravelRatio() * 100, 2).doubleValue())
+                .set("avg_wait_time", Math.round(snapshot.getAvgWaitMs() / 1000))
+                .set("utilization_rate", NumberUtil.round(snapshot.getUtilization() * 100, 2).doubleValue());
+    }
+
+    private static long minuteOf(long timeMs) {
+        return Math.floorDiv(timeMs, 60_000L);
+    }
+
+    /**
+     * 当前时区下所在小时的开始分钟
+     */
+    private static long hourStartMinute(long timeMs) {
+        return minuteOf(ZonedDateTime.ofInstant(Instant.ofEpochMilli(timeMs), ZoneId.systemDefault())
+                .truncatedTo(ChronoUnit.HOURS).toInstant().toEpochMilli());
+    }
+
+    /**
+     * 当前时区下所在天的开始分钟
+     */
+    private static long dayStartMinute(long timeMs) {
+        return minuteOf(ZonedDateTime.ofInstant(Instant.ofEpochMilli(timeMs), ZoneId.systemDefault())
+                .truncatedTo(ChronoUnit.DAYS).toInstant().toEpochMilli());
+    }
+}
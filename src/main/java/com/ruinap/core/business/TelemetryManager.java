@@ -0,0 +1,165 @@
+package com.ruinap.core.business;
+
+import com.ruinap.core.equipment.pojo.RcsAgv;
+import com.ruinap.infra.config.CoreYaml;
+import com.ruinap.infra.config.common.PathUtils;
+import com.ruinap.infra.framework.annotation.Autowired;
+import com.ruinap.infra.framework.annotation.PreDestroy;
+import com.ruinap.infra.framework.annotation.Service;
+import com.ruinap.infra.log.RcsLog;
+import com.ruinap.persistence.telemetry.TelemetrySample;
+import com.ruinap.persistence.telemetry.TelemetryStore;
+import com.ruinap.persistence.telemetry.TelemetryTier;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * AGV 遥测历史管理器
+ * <p>
+ * 把 AGV 状态上报 (位置、电量、速度、状态、异常) 写入本地的列式时序存储，供事故回放与通行耗时等模型分析使用，
+ * 不访问业务数据库：
+ * <ol>
+ * <li>上报线程只写内存，原始数据同时降采样为 1 秒、1 分钟两层；</li>
+ * <li>定时落盘，并按配置的保留时长删除各层的过期文件；</li>
+ * <li>按 AGV、分层与时间范围查询。</li>
+ * </ol>
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-20 11:20
+ */
+@Service
+public class TelemetryManager {
+    @Autowired
+    private CoreYaml coreYaml;
+
+    /**
+     * 单次查询最多返回的行数
+     */
+    static final int MAX_QUERY_ROWS = 100_000;
+
+    private final TelemetryStore store = new TelemetryStore(PathUtils.TELEMETRY_DIR);
+    /**
+     * 防止定时任务重叠执行
+     */
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+    /**
+     * 上一次清理过期文件的时间
+     */
+    private volatile long lastPurgeMs;
+
+    /**
+     * AGV 状态上报：写入原始采样
+     *
+     * @param rcsAgv AGV
+     */
+    public void onStateReport(RcsAgv rcsAgv) {
+        if (rcsAgv == null || rcsAgv.getAgvId() == null || coreYaml.getAlgorithmInt("telemetry_enable", 1) != 1) {
+            return;
+        }
+        store.append(rcsAgv.getAgvId(), toSample(System.currentTimeMillis(), rcsAgv));
+    }
+
+    /**
+     * 范围查询
+     *
+     * @param agvId  AGV编号
+     * @param tier   分层
+     * @param fromMs 开始时间 (包含)
+     * @param toMs   结束时间 (不包含)
+     * @return 按时间排序的采样，超过 {@link #MAX_QUERY_ROWS} 时只返回最早的部分
+     */
+    public List<TelemetrySample> query(String agvId, TelemetryTier tier, long fromMs, long toMs) {
+        if (agvId == null || tier == null) {
+            return List.of();
+        }
+        try {
+            List<TelemetrySample> samples = store.query(agvId, tier, fromMs, toMs);
+            return samples.size() > MAX_QUERY_ROWS ? samples.subList(0, MAX_QUERY_ROWS) : samples;
+        } catch (Exception e) {
+            RcsLog.sysLog.error("{} 遥测数据查询失败", agvId, e);
+            return List.of();
+        }
+    }
+
+    /**
+     * 落盘，每分钟清理一次过期文件
+     * <p>
+     * 由定时任务调用
+     */
+    public void flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            store.flush(now);
+            if (now - lastPurgeMs >= 60_000L) {
+                lastPurgeMs = now;
+                int deleted = store.purge(now, retention());
+                if (deleted > 0) {
+                    RcsLog.sysLog.info("遥测数据清理过期文件 {} 个", deleted);
+                }
+            }
+        } catch (Exception e) {
+            RcsLog.sysLog.error("遥测数据落盘失败，待下次重试，已丢弃数据块 {} 个", store.getDroppedChunks(), e);
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            // 关闭时把未结束的时间桶与全部数据块写入文件
+            store.flush(Long.MAX_VALUE / 2);
+        } catch (Exception e) {
+            RcsLog.sysLog.error("遥测数据关闭时落盘失败", e);
+        }
+    }
+
+    /**
+     * AGV 状态转换为采样
+     *
+     * @param timeMs 采样时间
+     * @param rcsAgv AGV
+     * @return 采样
+     */
+    static TelemetrySample toSample(long timeMs, RcsAgv rcsAgv) {
+        int speed = TelemetrySample.UNKNOWN;
+        if (rcsAgv.getVX() != null || rcsAgv.getVY() != null) {
+            int vX = rcsAgv.getVX() == null ? 0 : rcsAgv.getVX();
+            int vY = rcsAgv.getVY() == null ? 0 : rcsAgv.getVY();
+            speed = (int) Math.round(Math.hypot(vX, vY));
+        }
+        //异常状态 1急停 2故障
+        int error = 0;
+        if (Integer.valueOf(1).equals(rcsAgv.getEstopState())) {
+            error |= 1;
+        }
+        if (rcsAgv.getAgvErrMsg() != null && !rcsAgv.getAgvErrMsg().isEmpty()) {
+            error |= 2;
+        }
+        return new TelemetrySample(timeMs, orUnknown(rcsAgv.getMapId()), orUnknown(rcsAgv.getPointId()),
+                orUnknown(rcsAgv.getSlamX()), orUnknown(rcsAgv.getSlamY()), orUnknown(rcsAgv.getSlamAngle()),
+                orUnknown(rcsAgv.getBattery()), speed, orUnknown(rcsAgv.getAgvState()), error);
+    }
+
+    /**
+     * 各层的保留时长
+     */
+    private Map<TelemetryTier, Long> retention() {
+        Map<TelemetryTier, Long> retention = new EnumMap<>(TelemetryTier.class);
+        retention.put(TelemetryTier.RAW, Math.max(1, coreYaml.getAlgorithmInt("telemetry_raw_retention_hours", 6)) * 3_600_000L);
+        retention.put(TelemetryTier.SECOND, Math.max(1, coreYaml.getAlgorithmInt("telemetry_second_retention_days", 7)) * 86_400_000L);
+        retention.put(TelemetryTier.MINUTE, Math.max(1, coreYaml.getAlgorithmInt("telemetry_minute_retention_days", 90)) * 86_400_000L);
+        return retention;
+    }
+
+    private static int orUnknown(Integer value) {
+        return value == null ? TelemetrySample.UNKNOWN : value;
+    }
+}
@@ -0,0 +1,245 @@
+package com.ruinap.core.business.domain;
+
+import cn.hutool.db.Entity;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 告警写入缓冲区
+ * <p>
+ * 有界缓冲，由单个写入线程批量取出写库，上报线程永不阻塞：
+ * <ul>
+ * <li>新告警：同一告警已在缓冲中 (尚未写库) 时合并，缓冲已满时丢弃并计数；</li>
+ * <li>告警结束：告警仍在缓冲中时直接把待写入行改为已结束，不再产生 UPDATE；
+ * 已写库的告警记录为待结束，同一告警重复结束时合并；</li>
+ * <li>写入顺序：同一批中先结束、后新增，保证 "结束后又触发" 的新告警不会被一起结束。</li>
+ * </ul>
+ * </p>
+ *
+ * @param <K> 告警唯一键
+ * @author qianye
+ * @create 2026-03-18 14:20
+ */
+public class AlarmBuffer<K> {
+
+    /**
+     * 取出的一批待写入数据
+     *
+     * @param ends    待结束的告警 (已写库)
+     * @param inserts 待新增的告警行
+     */
+    public record Batch<K>(List<K> ends, List<Entity> inserts) {
+        public boolean isEmpty() {
+            return ends.isEmpty() && inserts.isEmpty();
+        }
+    }
+
+    /**
+     * 容量 (待新增行 + 待结束告警)
+     */
+    private final int capacity;
+    /**
+     * 达到该数量时唤醒写入线程
+     */
+    private final int batchSize;
+    /**
+     * 仍在持续的待新增告警，按上报顺序
+     */
+    private final LinkedHashMap<K, Entity> active = new LinkedHashMap<>();
+    /**
+     * 写库前已结束的待新增告警行
+     */
+    private final List<Entity> resolved = new ArrayList<>();
+    /**
+     * 已写库、待结束的告警
+     */
+    private final LinkedHashSet<K> ends = new LinkedHashSet<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition ready = lock.newCondition();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * 构造方法
+     *
+     * @param capacity  容量
+     * @param batchSize 每批最大数量
+     */
+    public AlarmBuffer(int capacity, int batchSize) {
+        this.capacity = Math.max(1, capacity);
+        this.batchSize = Math.max(1, Math.min(batchSize, this.capacity));
+    }
+
+    /**
+     * 放入新告警
+     *
+     * @param key 告警唯一键
+     * @param row 告警行
+     * @return true 已放入，false 已合并或已丢弃
+     */
+    public boolean offer(K key, Entity row) {
+        lock.lock();
+        try {
+            if (active.containsKey(key)) {
+                coalesced.increment();
+                return false;
+            }
+            if (sizeLocked() >= capacity) {
+                dropped.increment();
+                return false;
+            }
+            active.put(key, row);
+            signalIfFull();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 结束告警
+     *
+     * @param key 告警唯一键
+     * @return true 已记录，false 已合并或已丢弃
+     */
+    public boolean end(K key) {
+        lock.lock();
+        try {
+            Entity row = active.remove(key);
+            if (row != null) {
+                // 尚未写库，直接以已结束状态写入
+                row.set("state", 1);
+                resolved.add(row);
+                coalesced.increment();
+                return false;
+            }
+            if (ends.contains(key)) {
+                coalesced.increment();
+                return false;
+            }
+            if (sizeLocked() >= capacity) {
+                dropped.increment();
+                return false;
+            }
+            ends.add(key);
+            signalIfFull();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 等待并取出一批数据
+     * <p>
+     * 缓冲达到批量大小、超时或被 {@link #wakeUp()} 唤醒时返回
+     *
+     * @param timeout 最长等待时间
+     * @param unit    时间单位
+     * @return 一批数据，可能为空
+     * @throws InterruptedException 等待时被中断
+     */
+    public Batch<K> await(long timeout, TimeUnit unit) throws InterruptedException {
+        lock.lock();
+        try {
+            if (sizeLocked() < batchSize) {
+                ready.await(timeout, unit);
+            }
+            return drainLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 立即取出一批数据
+     *
+     * @return 一批数据，可能为空
+     */
+    public Batch<K> drain() {
+        lock.lock();
+        try {
+            return drainLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 唤醒等待中的写入线程
+     */
+    public void wakeUp() {
+        lock.lock();
+        try {
+            ready.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取缓冲中的数量
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return sizeLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取累计丢弃数量
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * 获取累计合并数量
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    private Batch<K> drainLocked() {
+        List<K> endBatch = new ArrayList<>(Math.min(ends.size(), batchSize));
+        Iterator<K> endIt = ends.iterator();
+        while (endIt.hasNext() && endBatch.size() < batchSize) {
+            endBatch.add(endIt.next());
+            endIt.remove();
+        }
+        if (!ends.isEmpty()) {
+            // 还有更早的结束未写入，新增行留到下一批，避免被这些结束误更新
+            return new Batch<>(endBatch, List.of());
+        }
+        List<Entity> insertBatch = new ArrayList<>(Math.min(resolved.size() + active.size(), batchSize));
+        Iterator<Entity> resolvedIt = resolved.iterator();
+        while (resolvedIt.hasNext() && insertBatch.size() < batchSize) {
+            insertBatch.add(resolvedIt.next());
+            resolvedIt.remove();
+        }
+        Iterator<Entity> activeIt = active.values().iterator();
+        while (activeIt.hasNext() && insertBatch.size() < batchSize) {
+            insertBatch.add(activeIt.next());
+            activeIt.remove();
+        }
+        return new Batch<>(endBatch, insertBatch);
+    }
+
+    private int sizeLocked() {
+        return active.size() + resolved.size() + ends.size();
+    }
+
+    private void signalIfFull() {
+        if (sizeLocked() >= batchSize) {
+            ready.signal();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.ruinap.core.business.domain;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分钟级 KPI 环形桶
+ * <p>
+ * 每分钟一个桶，按 分钟 % 容量 定位槽位，写入与读取都不加锁：
+ * <ul>
+ * <li>槽位中的桶不是当前分钟时，用 CAS 替换为新桶，旧桶自然淘汰；</li>
+ * <li>桶内计数使用 {@link LongAdder}，多个上报线程并发累加不会互相阻塞；</li>
+ * <li>晚于容量范围才到达的数据 (超过一个环的时间) 直接丢弃。</li>
+ * </ul>
+ * 小时、天的聚合由 {@link #aggregate(long, long)} 对区间内的分钟桶求和得到。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-17 09:40
+ */
+public class KpiRing {
+
+    /**
+     * AGV 状态时间分类
+     */
+    public enum StateKind {
+        /**
+         * 执行任务
+         */
+        BUSY,
+        /**
+         * 空闲待命
+         */
+        IDLE,
+        /**
+         * 充电
+         */
+        CHARGE,
+        /**
+         * 异常 (急停、故障、暂停)
+         */
+        ABNORMAL
+    }
+
+    /**
+     * 分钟桶
+     */
+    private static final class Bucket {
+        /**
+         * 桶所属的分钟 (epoch 分钟)
+         */
+        private final long minute;
+        private final LongAdder taskCount = new LongAdder();
+        private final LongAdder waitCount = new LongAdder();
+        private final LongAdder waitMs = new LongAdder();
+        private final LongAdder[] stateMs = new LongAdder[StateKind.values().length];
+        private final LongAdder loadedMm = new LongAdder();
+        private final LongAdder emptyMm = new LongAdder();
+
+        private Bucket(long minute) {
+            this.minute = minute;
+            for (int i = 0; i < stateMs.length; i++) {
+                stateMs[i] = new LongAdder();
+            }
+        }
+    }
+
+    /**
+     * 槽位
+     */
+    private final AtomicReferenceArray<Bucket> slots;
+
+    /**
+     * 构造方法
+     *
+     * @param capacity 容量 (分钟数)
+     */
+    public KpiRing(int capacity) {
+        this.slots = new AtomicReferenceArray<>(Math.max(1, capacity));
+    }
+
+    /**
+     * 获取容量 (分钟数)
+     */
+    public int capacity() {
+        return slots.length();
+    }
+
+    /**
+     * 记录完成的任务
+     *
+     * @param minute epoch 分钟
+     * @param waitMs 任务从创建到开始执行的等待时间 (毫秒)，未知时传 -1
+     */
+    public void addTask(long minute, long waitMs) {
+        Bucket bucket = bucket(minute);
+        if (bucket == null) {
+            return;
+        }
+        bucket.taskCount.increment();
+        if (waitMs >= 0) {
+            bucket.waitCount.increment();
+            bucket.waitMs.add(waitMs);
+        }
+    }
+
+    /**
+     * 记录 AGV 状态时间
+     *
+     * @param minute epoch 分钟
+     * @param kind   状态分类
+     * @param ms     时长 (毫秒)
+     */
+    public void addState(long minute, StateKind kind, long ms) {
+        Bucket bucket = ms > 0 ? bucket(minute) : null;
+        if (bucket != null) {
+            bucket.stateMs[kind.ordinal()].add(ms);
+        }
+    }
+
+    /**
+     * 记录行驶里程
+     *
+     * @param minute   epoch 分钟
+     * @param distance 里程 (毫米)
+     * @param loaded   是否载货
+     */
+    public void addTravel(long minute, long distance, boolean loaded) {
+        Bucket bucket = distance > 0 ? bucket(minute) : null;
+        if (bucket != null) {
+            (loaded ? bucket.loadedMm : bucket.emptyMm).add(distance);
+        }
+    }
+
+    /**
+     * 聚合区间内的分钟桶
+     *
+     * @param fromMinute 开始分钟 (含)
+     * @param toMinute   结束分钟 (不含)
+     * @return 聚合结果
+     */
+    public KpiSnapshot aggregate(long fromMinute, long toMinute) {
+        long taskCount = 0, waitCount = 0, waitMs = 0, loadedMm = 0, emptyMm = 0;
+        long[] stateMs = new long[StateKind.values().length];
+        // 超出环容量的部分已被淘汰
+        long from = Math.max(fromMinute, toMinute - slots.length());
+        for (long minute = from; minute < toMinute; minute++) {
+            Bucket bucket = slots.get(slotOf(minute));
+            if (bucket == null || bucket.minute != minute) {
+                continue;
+            }
+            taskCount += bucket.taskCount.sum();
+            waitCount += bucket.waitCount.sum();
+            waitMs += bucket.waitMs.sum();
+            for (int i = 0; i < stateMs.length; i++) {
+                stateMs[i] += bucket.stateMs[i].sum();
+            }
+            loadedMm += bucket.loadedMm.sum();
+            emptyMm += bucket.emptyMm.sum();
+        }
+        return new KpiSnapshot(fromMinute * 60_000L, toMinute * 60_000L, taskCount, waitCount, waitMs,
+                stateMs[StateKind.BUSY.ordinal()], stateMs[StateKind.IDLE.ordinal()],
+                stateMs[StateKind.CHARGE.ordinal()], stateMs[StateKind.ABNORMAL.ordinal()], loadedMm, emptyMm);
+    }
+
+    /**
+     * 获取分钟对应的桶，槽位中是旧桶时 CAS 替换
+     *
+     * @param minute epoch 分钟
+     * @return 桶，数据过旧时返回 null
+     */
+    private Bucket bucket(long minute) {
+        int slot = slotOf(minute);
+        while (true) {
+            Bucket current = slots.get(slot);
+            if (current != null) {
+                if (current.minute == minute) {
+                    return current;
+                }
+                if (current.minute > minute) {
+                    // 槽位已被更新的分钟占用
+                    return null;
+                }
+            }
+            Bucket created = new Bucket(minute);
+            if (slots.compareAndSet(slot, current, created)) {
+                return created;
+            }
+        }
+    }
+
+    private int slotOf(long minute) {
+        return (int) Math.floorMod(minute, (long) slots.length());
+    }
+}
@@ -0,0 +1,104 @@
+package com.ruinap.core.business.domain;
+
+import lombok.Getter;
+
+/**
+ * KPI 聚合结果
+ * <p>
+ * 不可变对象，派生指标在构造时计算，读取方无需加锁
+ *
+ * @author qianye
+ * @create 2026-03-17 09:55
+ */
+@Getter
+public class KpiSnapshot {
+    /**
+     * 开始时间戳 (毫秒，含)
+     */
+    private final long beginMs;
+    /**
+     * 结束时间戳 (毫秒，不含)
+     */
+    private final long endMs;
+    /**
+     * 完成任务数
+     */
+    private final long taskCount;
+    /**
+     * 有等待时间的任务数
+     */
+    private final long waitCount;
+    /**
+     * 任务等待时间之和 (毫秒)
+     */
+    private final long waitMs;
+    /**
+     * AGV 执行任务时间之和 (毫秒)
+     */
+    private final long busyMs;
+    /**
+     * AGV 空闲时间之和 (毫秒)
+     */
+    private final long idleMs;
+    /**
+     * AGV 充电时间之和 (毫秒)
+     */
+    private final long chargeMs;
+    /**
+     * AGV 异常时间之和 (毫秒)
+     */
+    private final long abnormalMs;
+    /**
+     * 载货里程 (毫米)
+     */
+    private final long loadedMm;
+    /**
+     * 空驶里程 (毫米)
+     */
+    private final long emptyMm;
+    /**
+     * 每小时完成任务数
+     */
+    private final double tasksPerHour;
+    /**
+     * 空驶率 (空驶里程 / 总里程)
+     */
+    private final double emptyTravelRatio;
+    /**
+     * 平均等待时间 (毫秒)
+     */
+    private final double avgWaitMs;
+    /**
+     * 稼动率 (执行任务时间 / 在线时间)
+     */
+    private final double utilization;
+
+    public KpiSnapshot(long beginMs, long endMs, long taskCount, long waitCount, long waitMs, long busyMs, long idleMs,
+                       long chargeMs, long abnormalMs, long loadedMm, long emptyMm) {
+        this.beginMs = beginMs;
+        this.endMs = endMs;
+        this.taskCount = taskCount;
+        this.waitCount = waitCount;
+        this.waitMs = waitMs;
+        this.busyMs = busyMs;
+        this.idleMs = idleMs;
+        this.chargeMs = chargeMs;
+        this.abnormalMs = abnormalMs;
+        this.loadedMm = loadedMm;
+        this.emptyMm = emptyMm;
+        long spanMs = endMs - beginMs;
+        this.tasksPerHour = spanMs > 0 ? taskCount * 3_600_000.0 / spanMs : 0;
+        long travel = loadedMm + emptyMm;
+        this.emptyTravelRatio = travel > 0 ? (double) emptyMm / travel : 0;
+        this.avgWaitMs = waitCount > 0 ? (double) waitMs / waitCount : 0;
+        long online = busyMs + idleMs + chargeMs + abnormalMs;
+        this.utilization = online > 0 ? (double) busyMs / online : 0;
+    }
+
+    /**
+     * 判断区间内是否有数据
+     */
+    public boolean isEmpty() {
+        return taskCount == 0 && busyMs + idleMs + chargeMs + abnormalMs == 0 && loadedMm + emptyMm == 0;
+    }
+}
@@ -0,0 +1,670 @@
+package com.ruinap.core.equipment.manager;
+
+import cn.hutool.core.util.StrUtil;
+import com.ruinap.core.equipment.pojo.RcsAgv;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * <h1>AGV 资格位图索引</h1>
+ * <p>
+ * 每台 AGV 分配一个槽位，每个谓词值维护一个 long[] 位图：
+ * <ul>
+ * <li>组合状态标记 ({@link Flag})：空闲、充电中、有任务等，判定逻辑由 {@link AgvManager} 提供；</li>
+ * <li>属性值：楼层 (地图号)、AGV状态、当前点位、AGV类型、载货状态、标签、电量档位 (每 10% 一档)。</li>
+ * </ul>
+ * AGV 数据变化时调用 {@link #refresh(RcsAgv)}，只有索引字段发生变化才改动对应位图；
+ * 查询通过 {@link #select()} 得到全量位图副本后逐个谓词按字 (64 台 AGV) 求交集，
+ * 500 台 AGV 每个谓词只需 8 次按位与，代替逐台逐字段的全量扫描。
+ * </p>
+ * <p>
+ * 单个条件的高频查询 (如空闲AGV、某楼层AGV、某点位上的AGV) 使用 {@link #view(Flag)} 等视图方法：
+ * 结果为不可修改的 Map，首次查询时生成并缓存，只有该条件的成员发生变化时才失效，重复查询不做任何遍历。
+ * </p>
+ * <p>
+ * 索引是 AGV 字段的快照，查询结果为弱一致性，调用方在真正占用 AGV 前仍应按需复核。
+ * 所有方法在同一把锁内执行，线程安全。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-10 09:30
+ */
+public class AgvEligibilityIndex {
+
+    /**
+     * 组合状态标记
+     */
+    public enum Flag {
+        /**
+         * 空闲可接任务 (在线、已校验地图、未隔离、调度控制、自动无急停、空闲无任务无载货)
+         */
+        IDLE,
+        /**
+         * AGV 上报状态为空闲
+         */
+        IDLE_STATE,
+        /**
+         * 充电中 (已校验地图、未隔离)
+         */
+        CHARGING,
+        /**
+         * 有任务 (已校验地图、未隔离)
+         */
+        HAS_TASK
+    }
+
+    /**
+     * 电量档位宽度 (%)
+     */
+    private static final int BATTERY_BAND = 10;
+    /**
+     * 电量档位数量 (0~9, 10~19 ... 90~99, 100)
+     */
+    private static final int BATTERY_BANDS = 100 / BATTERY_BAND + 1;
+
+    /**
+     * 标记判定逻辑
+     */
+    private final Map<Flag, Predicate<RcsAgv>> flagPredicates;
+
+    /**
+     * AGV编号 → 槽位
+     */
+    private final Map<String, Integer> slotOf = new HashMap<>();
+    /**
+     * 空闲槽位 (AGV 移除后复用)
+     */
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    /**
+     * 槽位 → AGV
+     */
+    private RcsAgv[] agvs = new RcsAgv[64];
+    /**
+     * 槽位 → 已索引的字段快照
+     */
+    private Snapshot[] snapshots = new Snapshot[64];
+    /**
+     * 已分配的槽位数量 (含空闲槽位)
+     */
+    private int slotCount = 0;
+
+    /**
+     * 全部 AGV
+     */
+    private long[] all = new long[1];
+    private final EnumMap<Flag, long[]> flags = new EnumMap<>(Flag.class);
+    private final Map<Integer, long[]> floors = new HashMap<>();
+    private final Map<Integer, long[]> states = new HashMap<>();
+    /**
+     * 当前点位，Key: {@link #pointKey(Integer, Integer)}
+     */
+    private final Map<Long, long[]> points = new HashMap<>();
+    private final Map<Integer, long[]> types = new HashMap<>();
+    private final Map<Integer, long[]> goods = new HashMap<>();
+    private final Map<String, long[]> labels = new HashMap<>();
+    private final long[][] batteryBands = new long[BATTERY_BANDS][];
+
+    /**
+     * 已生成的视图
+     * Key: 标记 或 {@link ViewKey}，Value: 不可修改的 AGV 集合
+     */
+    private final Map<Object, Map<String, RcsAgv>> views = new HashMap<>();
+
+    /**
+     * 构造函数
+     *
+     * @param flagPredicates 标记判定逻辑，未提供的标记视为恒为 false
+     */
+    public AgvEligibilityIndex(Map<Flag, Predicate<RcsAgv>> flagPredicates) {
+        this.flagPredicates = new EnumMap<>(Flag.class);
+        this.flagPredicates.putAll(flagPredicates);
+    }
+
+    /**
+     * 插入或刷新 AGV
+     * <p>
+     * 索引字段未变化时不做任何调整
+     *
+     * @param agv AGV
+     */
+    public synchronized void refresh(RcsAgv agv) {
+        if (agv == null || agv.getAgvId() == null) {
+            return;
+        }
+        Integer slot = slotOf.get(agv.getAgvId());
+        if (slot == null) {
+            slot = allocate(agv);
+        }
+        if (agvs[slot] != null && agvs[slot] != agv) {
+            // 同一编号换成了新对象，视图中的旧对象全部失效
+            views.clear();
+        }
+        agvs[slot] = agv;
+        Snapshot snapshot = snapshot(agv);
+        Snapshot old = snapshots[slot];
+        if (snapshot.equals(old)) {
+            return;
+        }
+        if (old != null) {
+            unindex(slot, old);
+        }
+        index(slot, snapshot);
+        snapshots[slot] = snapshot;
+        invalidate(old, snapshot);
+    }
+
+    /**
+     * 移除 AGV
+     *
+     * @param agvId AGV编号
+     */
+    public synchronized void remove(String agvId) {
+        Integer slot = slotOf.remove(agvId);
+        if (slot == null) {
+            return;
+        }
+        unindex(slot, snapshots[slot]);
+        invalidate(snapshots[slot], null);
+        clear(all, slot);
+        agvs[slot] = null;
+        snapshots[slot] = null;
+        freeSlots.push(slot);
+    }
+
+    /**
+     * 是否包含 AGV
+     *
+     * @param agvId AGV编号
+     * @return true=包含
+     */
+    public synchronized boolean contains(String agvId) {
+        return slotOf.containsKey(agvId);
+    }
+
+    /**
+     * AGV 数量
+     *
+     * @return 数量
+     */
+    public synchronized int size() {
+        return slotOf.size();
+    }
+
+    /**
+     * 已索引的 AGV 编号 (快照)
+     *
+     * @return AGV编号集合
+     */
+    public synchronized Set<String> agvIds() {
+        return new HashSet<>(slotOf.keySet());
+    }
+
+    /**
+     * 开始一次查询 (初始为全部 AGV)
+     *
+     * @return 查询
+     */
+    public synchronized Selection select() {
+        return new Selection(all.clone());
+    }
+
+    /**
+     * 具有指定标记的 AGV
+     *
+     * @param flag 标记
+     * @return 不可修改的 AGV 集合，Key: AGV编号
+     */
+    public synchronized Map<String, RcsAgv> view(Flag flag) {
+        return views.computeIfAbsent(flag, key -> toView(flags.get(flag)));
+    }
+
+    /**
+     * 位于指定楼层的 AGV
+     *
+     * @param mapId 地图号
+     * @return 不可修改的 AGV 集合，Key: AGV编号
+     */
+    public synchronized Map<String, RcsAgv> floorView(Integer mapId) {
+        return views.computeIfAbsent(new ViewKey(ViewKind.FLOOR, mapId), key -> toView(floors.get(mapId)));
+    }
+
+    /**
+     * 指定状态的 AGV
+     *
+     * @param agvState AGV状态
+     * @return 不可修改的 AGV 集合，Key: AGV编号
+     */
+    public synchronized Map<String, RcsAgv> stateView(Integer agvState) {
+        return views.computeIfAbsent(new ViewKey(ViewKind.STATE, agvState), key -> toView(states.get(agvState)));
+    }
+
+    /**
+     * 当前位于指定点位的 AGV
+     *
+     * @param mapId   地图号
+     * @param pointId 点位编号
+     * @return 不可修改的 AGV 集合，Key: AGV编号
+     */
+    public synchronized Map<String, RcsAgv> pointView(Integer mapId, Integer pointId) {
+        Long point = pointKey(mapId, pointId);
+        return views.computeIfAbsent(new ViewKey(ViewKind.POINT, point), key -> toView(point == null ? null : points.get(point)));
+    }
+
+    private int allocate(RcsAgv agv) {
+        int slot;
+        if (freeSlots.isEmpty()) {
+            slot = slotCount++;
+            if (slot >= agvs.length) {
+                agvs = Arrays.copyOf(agvs, agvs.length * 2);
+                snapshots = Arrays.copyOf(snapshots, snapshots.length * 2);
+            }
+        } else {
+            slot = freeSlots.pop();
+        }
+        slotOf.put(agv.getAgvId(), slot);
+        all = set(all, slot);
+        return slot;
+    }
+
+    private Snapshot snapshot(RcsAgv agv) {
+        int flagMask = 0;
+        for (Map.Entry<Flag, Predicate<RcsAgv>> entry : flagPredicates.entrySet()) {
+            if (entry.getValue().test(agv)) {
+                flagMask |= 1 << entry.getKey().ordinal();
+            }
+        }
+        List<String> labelList = StrUtil.isBlank(agv.getAgvLabel()) ? List.of() : StrUtil.split(agv.getAgvLabel(), ',');
+        return new Snapshot(flagMask, agv.getMapId(), agv.getAgvState(), pointKey(agv.getMapId(), agv.getPointId()),
+                agv.getAgvType(), agv.getGoodsState(), labelList, agv.getBattery());
+    }
+
+    /**
+     * 点位键：点位编号只在同一地图内唯一
+     *
+     * @return 地图号与点位编号组合的键，没有有效点位时返回 null
+     */
+    private static Long pointKey(Integer mapId, Integer pointId) {
+        if (mapId == null || pointId == null || pointId < 0) {
+            return null;
+        }
+        return ((long) mapId << 32) | (pointId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 清除成员发生变化的视图
+     *
+     * @param old 变化前的快照，新增时为 null
+     * @param now 变化后的快照，移除时为 null
+     */
+    private void invalidate(Snapshot old, Snapshot now) {
+        int oldMask = old == null ? 0 : old.flagMask();
+        int newMask = now == null ? 0 : now.flagMask();
+        for (Flag flag : Flag.values()) {
+            if (((oldMask ^ newMask) & (1 << flag.ordinal())) != 0) {
+                views.remove(flag);
+            }
+        }
+        invalidate(ViewKind.FLOOR, old == null ? null : old.floor(), now == null ? null : now.floor(), old == null || now == null);
+        invalidate(ViewKind.STATE, old == null ? null : old.state(), now == null ? null : now.state(), old == null || now == null);
+        invalidate(ViewKind.POINT, old == null ? null : old.point(), now == null ? null : now.point(), old == null || now == null);
+    }
+
+    private void invalidate(ViewKind kind, Object oldValue, Object newValue, boolean membershipChanged) {
+        if (membershipChanged || !Objects.equals(oldValue, newValue)) {
+            views.remove(new ViewKey(kind, oldValue));
+            views.remove(new ViewKey(kind, newValue));
+        }
+    }
+
+    /**
+     * 位图转为不可修改的 AGV 集合 (按槽位顺序)
+     */
+    private Map<String, RcsAgv> toView(long[] bits) {
+        if (bits == null) {
+            return Map.of();
+        }
+        Map<String, RcsAgv> result = new LinkedHashMap<>();
+        for (int i = 0; i < bits.length; i++) {
+            long word = bits[i];
+            while (word != 0) {
+                int slot = (i << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                if (agvs[slot] != null) {
+                    result.put(agvs[slot].getAgvId(), agvs[slot]);
+                }
+            }
+        }
+        return result.isEmpty() ? Map.of() : Collections.unmodifiableMap(result);
+    }
+
+    private void index(int slot, Snapshot snapshot) {
+        for (Flag flag : Flag.values()) {
+            if ((snapshot.flagMask() & (1 << flag.ordinal())) != 0) {
+                flags.put(flag, set(flags.get(flag), slot));
+            }
+        }
+        setValue(floors, snapshot.floor(), slot);
+        setValue(states, snapshot.state(), slot);
+        setValue(points, snapshot.point(), slot);
+        setValue(types, snapshot.type(), slot);
+        setValue(goods, snapshot.goods(), slot);
+        for (String label : snapshot.labels()) {
+            setValue(labels, label, slot);
+        }
+        int band = batteryBand(snapshot.battery());
+        if (band >= 0) {
+            batteryBands[band] = set(batteryBands[band], slot);
+        }
+    }
+
+    private void unindex(int slot, Snapshot snapshot) {
+        for (Flag flag : Flag.values()) {
+            if ((snapshot.flagMask() & (1 << flag.ordinal())) != 0) {
+                clear(flags.get(flag), slot);
+            }
+        }
+        clearValue(floors, snapshot.floor(), slot);
+        clearValue(states, snapshot.state(), slot);
+        clearValue(points, snapshot.point(), slot);
+        clearValue(types, snapshot.type(), slot);
+        clearValue(goods, snapshot.goods(), slot);
+        for (String label : snapshot.labels()) {
+            clearValue(labels, label, slot);
+        }
+        int band = batteryBand(snapshot.battery());
+        if (band >= 0) {
+            clear(batteryBands[band], slot);
+        }
+    }
+
+    private static int batteryBand(Integer battery) {
+        if (battery == null) {
+            return -1;
+        }
+        return Math.min(Math.max(battery, 0), 100) / BATTERY_BAND;
+    }
+
+    private static <T> void setValue(Map<T, long[]> index, T value, int slot) {
+        if (value != null) {
+            index.put(value, set(index.get(value), slot));
+        }
+    }
+
+    private static <T> void clearValue(Map<T, long[]> index, T value, int slot) {
+        if (value == null) {
+            return;
+        }
+        long[] bits = index.get(value);
+        clear(bits, slot);
+        if (bits != null && isEmpty(bits)) {
+            index.remove(value);
+        }
+    }
+
+    /**
+     * 置位，位图不够长时扩容
+     *
+     * @return 置位后的位图 (可能是新数组)
+     */
+    private static long[] set(long[] bits, int slot) {
+        int word = slot >>> 6;
+        if (bits == null) {
+            bits = new long[word + 1];
+        } else if (word >= bits.length) {
+            bits = Arrays.copyOf(bits, Math.max(word + 1, bits.length * 2));
+        }
+        bits[word] |= 1L << slot;
+        return bits;
+    }
+
+    private static void clear(long[] bits, int slot) {
+        int word = slot >>> 6;
+        if (bits != null && word < bits.length) {
+            bits[word] &= ~(1L << slot);
+        }
+    }
+
+    private static boolean isEmpty(long[] bits) {
+        for (long word : bits) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按位与 (target 长度不变，mask 不足的部分视为 0)
+     */
+    private static void and(long[] target, long[] mask) {
+        int length = mask == null ? 0 : Math.min(target.length, mask.length);
+        for (int i = 0; i < length; i++) {
+            target[i] &= mask[i];
+        }
+        Arrays.fill(target, length, target.length, 0L);
+    }
+
+    /**
+     * 按位或 (结果长度与 target 一致)
+     */
+    private static void or(long[] target, long[] mask) {
+        if (mask == null) {
+            return;
+        }
+        int length = Math.min(target.length, mask.length);
+        for (int i = 0; i < length; i++) {
+            target[i] |= mask[i];
+        }
+    }
+
+    /**
+     * 查询
+     * <p>
+     * 每个条件都与当前结果按位与，条件的先后顺序不影响结果
+     */
+    public final class Selection {
+        private final long[] bits;
+
+        private Selection(long[] bits) {
+            this.bits = bits;
+        }
+
+        /**
+         * 具有指定标记
+         *
+         * @param flag 标记
+         * @return 当前查询
+         */
+        public Selection with(Flag flag) {
+            synchronized (AgvEligibilityIndex.this) {
+                and(bits, flags.get(flag));
+            }
+            return this;
+        }
+
+        /**
+         * 位于指定楼层
+         *
+         * @param mapId 地图号
+         * @return 当前查询
+         */
+        public Selection floor(Integer mapId) {
+            synchronized (AgvEligibilityIndex.this) {
+                and(bits, floors.get(mapId));
+            }
+            return this;
+        }
+
+        /**
+         * 指定 AGV 状态
+         *
+         * @param agvState AGV状态
+         * @return 当前查询
+         */
+        public Selection state(Integer agvState) {
+            synchronized (AgvEligibilityIndex.this) {
+                and(bits, states.get(agvState));
+            }
+            return this;
+        }
+
+        /**
+         * 当前位于指定点位
+         *
+         * @param mapId   地图号
+         * @param pointId 点位编号
+         * @return 当前查询
+         */
+        public Selection point(Integer mapId, Integer pointId) {
+            Long point = pointKey(mapId, pointId);
+            synchronized (AgvEligibilityIndex.this) {
+                and(bits, point == null ? null : points.get(point));
+            }
+            return this;
+        }
+
+        /**
+         * 指定 AGV 类型
+         *
+         * @param agvType AGV类型
+         * @return 当前查询
+         */
+        public Selection type(Integer agvType) {
+            synchronized (AgvEligibilityIndex.this) {
+                and(bits, types.get(agvType));
+            }
+            return this;
+        }
+
+        /**
+         * 指定载货状态
+         *
+         * @param goodsState 载货状态
+         * @return 当前查询
+         */
+        public Selection goods(Integer goodsState) {
+            synchronized (AgvEligibilityIndex.this) {
+                and(bits, AgvEligibilityIndex.this.goods.get(goodsState));
+            }
+            return this;
+        }
+
+        /**
+         * 至少拥有其中一个标签
+         *
+         * @param required 标签列表
+         * @return 当前查询
+         */
+        public Selection anyLabel(Collection<String> required) {
+            synchronized (AgvEligibilityIndex.this) {
+                long[] union = new long[bits.length];
+                for (String label : required) {
+                    or(union, labels.get(label));
+                }
+                and(bits, union);
+            }
+            return this;
+        }
+
+        /**
+         * 电量不低于指定值
+         * <p>
+         * 高于边界档位的整档直接按位或，边界档位再按快照中的电量逐台判断
+         *
+         * @param battery 最低电量
+         * @return 当前查询
+         */
+        public Selection batteryAtLeast(int battery) {
+            synchronized (AgvEligibilityIndex.this) {
+                long[] union = new long[bits.length];
+                int boundary = Math.max(batteryBand(battery), 0);
+                for (int band = boundary + 1; band < BATTERY_BANDS; band++) {
+                    or(union, batteryBands[band]);
+                }
+                long[] edge = batteryBands[boundary];
+                if (edge != null && battery <= 100) {
+                    for (int i = 0; i < Math.min(edge.length, union.length); i++) {
+                        long word = edge[i] & bits[i];
+                        while (word != 0) {
+                            int slot = (i << 6) + Long.numberOfTrailingZeros(word);
+                            word &= word - 1;
+                            Integer value = snapshots[slot].battery();
+                            if (value != null && value >= battery) {
+                                union[i] |= 1L << slot;
+                            }
+                        }
+                    }
+                }
+                and(bits, union);
+            }
+            return this;
+        }
+
+        /**
+         * 结果数量
+         *
+         * @return 数量
+         */
+        public int count() {
+            int count = 0;
+            for (long word : bits) {
+                count += Long.bitCount(word);
+            }
+            return count;
+        }
+
+        /**
+         * 结果列表 (按槽位顺序)
+         *
+         * @return AGV列表
+         */
+        public List<RcsAgv> toList() {
+            List<RcsAgv> result = new ArrayList<>(count());
+            synchronized (AgvEligibilityIndex.this) {
+                for (int i = 0; i < bits.length; i++) {
+                    long word = bits[i];
+                    while (word != 0) {
+                        int slot = (i << 6) + Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+                        if (agvs[slot] != null) {
+                            result.add(agvs[slot]);
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * 结果集合
+         *
+         * @return 不可修改的 AGV 集合，Key: AGV编号
+         */
+        public Map<String, RcsAgv> toMap() {
+            synchronized (AgvEligibilityIndex.this) {
+                return toView(bits);
+            }
+        }
+    }
+
+    /**
+     * 已索引的字段快照
+     */
+    private record Snapshot(int flagMask, Integer floor, Integer state, Long point, Integer type, Integer goods,
+                            List<String> labels, Integer battery) {
+    }
+
+    /**
+     * 视图类型
+     */
+    private enum ViewKind {
+        FLOOR, STATE, POINT
+    }
+
+    /**
+     * 视图键
+     */
+    private record ViewKey(ViewKind kind, Object value) {
+    }
+}
@@ -1,5 +1,6 @@
 package com.ruinap.core.equipment.manager;
 
+import com.ruinap.core.equipment.manager.AgvEligibilityIndex.Flag;
 import com.ruinap.core.equipment.pojo.AgvTask;
 import com.ruinap.core.equipment.pojo.RcsAgv;
 import com.ruinap.core.map.MapManager;
@@ -14,10 +15,7 @@ import com.ruinap.infra.framework.annotation.Service;
 import com.ruinap.infra.log.RcsLog;
 import lombok.Getter;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -47,6 +45,17 @@ public class AgvManager {
      */
     private final Map<String, RcsAgv> agvCache = new ConcurrentHashMap<>();
 
+    /**
+     * AGV资格位图索引
+     * <p>
+     * 空闲、充电、有任务、楼层、状态、点位等集合查询走位图求交或缓存的视图，AGV数据变化时通过 {@link #refreshEligibility(RcsAgv)} 增量维护
+     */
+    private final AgvEligibilityIndex eligibilityIndex = new AgvEligibilityIndex(Map.of(
+            Flag.IDLE, AgvManager::isIdle,
+            Flag.IDLE_STATE, agv -> AgvStateEnum.isEnumByCode(AgvStateEnum.IDLE, agv.getAgvState()),
+            Flag.CHARGING, agv -> isSchedulable(agv) && AgvStateEnum.isEnumByCode(AgvStateEnum.CHARGE, agv.getAgvState()),
+            Flag.HAS_TASK, agv -> isSchedulable(agv) && AgvTaskStateEnum.isEnumByCode(AgvTaskStateEnum.HAVE, agv.getTaskState())));
+
 
     // ********************** 基础方法 ***********************
 
@@ -191,21 +200,104 @@ public class AgvManager {
     }
 
     /**
-     * 获取空闲AGV集合
+     * 判断AGV是否空闲 (与 {@link #getRcsAgvIdle(RcsAgv)} 判定一致，不输出日志)
      *
-     * @return 空闲AGV集合
+     * @param rcsAgv AGV对象
+     * @return true：空闲
      */
-    public Map<String, RcsAgv> getIdleRcsAgvMap() {
-        Map<String, RcsAgv> tempAgvMap = new ConcurrentHashMap<>(getRcsAgvMap().size());
-        for (Map.Entry<String, RcsAgv> entry : getRcsAgvMap().entrySet()) {
-            //获取AGV
-            RcsAgv rcsAgv = entry.getValue();
-            //判断AGV是否是空闲
-            if (getRcsAgvIdle(rcsAgv) != null) {
-                tempAgvMap.put(rcsAgv.getAgvId(), rcsAgv);
+    private static boolean isIdle(RcsAgv rcsAgv) {
+        return !AgvStateEnum.isEnumByCode(AgvStateEnum.OFFLINE, rcsAgv.getAgvState())
+                && isSchedulable(rcsAgv)
+                && AgvControlEnum.isEnumByCode(AgvControlEnum.RCS, rcsAgv.getAgvControl())
+                && AgvControlModeEnum.isEnumByCode(AgvControlModeEnum.RCS, rcsAgv.getAgvControlMode())
+                && AgvModeEnum.isAuto(rcsAgv.getAgvMode())
+                && AgvEstopEnum.isNormal(rcsAgv.getEstopState())
+                && AgvStateEnum.isEnumByCode(AgvStateEnum.IDLE, rcsAgv.getAgvState())
+                && !AgvTaskStateEnum.isEnumByCode(AgvTaskStateEnum.HAVE, rcsAgv.getTaskState())
+                && AgvGoodsEnum.isEnumByCode(AgvGoodsEnum.NONE, rcsAgv.getGoodsState());
+    }
+
+    /**
+     * 判断AGV是否已校验地图且未隔离
+     *
+     * @param rcsAgv AGV对象
+     * @return true：已校验地图且未隔离
+     */
+    private static boolean isSchedulable(RcsAgv rcsAgv) {
+        Integer isolation = rcsAgv.getIsolationState();
+        return rcsAgv.isMapChecked() && isolation != null && AgvIsolationStateEnum.isEnumByCode(AgvIsolationStateEnum.NORMAL, isolation);
+    }
+
+    /**
+     * 刷新AGV在资格索引中的数据
+     * <p>
+     * AGV状态、地图校验、隔离状态等字段更新后调用
+     *
+     * @param rcsAgv AGV对象
+     */
+    public void refreshEligibility(RcsAgv rcsAgv) {
+        eligibilityIndex.refresh(rcsAgv);
+    }
+
+    /**
+     * 开始一次AGV资格查询 (初始为全部AGV)
+     * <p>
+     * 用法：selectAgv().with(Flag.IDLE).floor(mapId).toList()
+     *
+     * @return 查询
+     */
+    public AgvEligibilityIndex.Selection selectAgv() {
+        return alignedIndex().select();
+    }
+
+    /**
+     * 获取与AGV缓存成员一致的资格索引
+     *
+     * @return 资格索引
+     */
+    private AgvEligibilityIndex alignedIndex() {
+        // AGV 增减时对齐索引成员，数量相同时不做任何遍历
+        if (eligibilityIndex.size() != agvCache.size()) {
+            Set<String> stale = eligibilityIndex.agvIds();
+            for (RcsAgv rcsAgv : agvCache.values()) {
+                stale.remove(rcsAgv.getAgvId());
+                if (!eligibilityIndex.contains(rcsAgv.getAgvId())) {
+                    eligibilityIndex.refresh(rcsAgv);
+                }
             }
+            stale.forEach(eligibilityIndex::remove);
         }
-        return tempAgvMap;
+        return eligibilityIndex;
+    }
+
+    /**
+     * 获取空闲AGV集合
+     *
+     * @return 空闲AGV集合 (不可修改)
+     */
+    public Map<String, RcsAgv> getIdleRcsAgvMap() {
+        return alignedIndex().view(Flag.IDLE);
+    }
+
+    /**
+     * 获取指定状态的AGV集合
+     *
+     * @param agvState AGV状态
+     * @return AGV集合 (不可修改)
+     */
+    public Map<String, RcsAgv> getRcsAgvMapByState(Integer agvState) {
+        return alignedIndex().stateView(agvState);
+    }
+
+    /**
+     * 获取当前位于指定点位的AGV集合
+     *
+     * @param mapId   地图编号
+     * @param pointId 点位编号
+     * @return AGV集合 (不可修改)
+     */
+    public Map<String, RcsAgv> getRcsAgvMapByPoint(Integer mapId, Integer pointId) {
+        return alignedIndex().pointView(mapId, pointId);
     }
 
     /**
@@ -222,32 +314,11 @@ public class AgvManager {
     /**
      * 获取充电AGV集合
      *
-     * @return 充电AGV集合
+     * @return 充电AGV集合 (不可修改)
      */
     public Map<String, RcsAgv> getChargeRcsAgvMap() {
-        Map<String, RcsAgv> tempAgvMap = new ConcurrentHashMap<>(getRcsAgvMap().size());
-        for (Map.Entry<String, RcsAgv> entry : getRcsAgvMap().entrySet()) {
-            //获取AGV
-            RcsAgv rcsAgv = entry.getValue();
-
-            //判断AGV是否已校验地图
-            boolean mapCheck = getRcsAgvMapCheck(rcsAgv);
-            if (!mapCheck) {
-                continue;
-            }
-
-            //判断AGV是否是隔离
-            //充电状态不管是否隔离
-            Integer isolation = getRcsAgvByIsolation(rcsAgv);
-            if (isolation == null || !AgvIsolationStateEnum.isEnumByCode(AgvIsolationStateEnum.NORMAL, isolation)) {
-                continue;
-            }
-            //判断AGV是否是充电中
-            if (getRcsAgvIsCharge(rcsAgv)) {
-                tempAgvMap.put(rcsAgv.getAgvId(), rcsAgv);
-            }
-        }
-        return tempAgvMap;
+        //已校验地图、未隔离且充电中
+        return alignedIndex().view(Flag.CHARGING);
     }
 
     /**
@@ -301,50 +372,21 @@ public class AgvManager {
     /**
      * 获取允许取消充电的AGV集合
      *
-     * @return 充电AGV集合，如果找不到则返回空集合
+     * @return 充电AGV集合 (不可修改)，如果找不到则返回空集合
      */
     public Map<String, RcsAgv> getAllowCancelChargeRcsAgvMap() {
-        Map<String, RcsAgv> tempAgvMap = new ConcurrentHashMap<>(getRcsAgvMap().size());
-        for (Map.Entry<String, RcsAgv> entry : getRcsAgvMap().entrySet()) {
-            //获取AGV
-            RcsAgv rcsAgv = entry.getValue();
-            //获取允许解除充电的AGV
-            RcsAgv allowReleaseChargeRcsAgvMap = getAllowCancelChargeRcsAgv(rcsAgv);
-            if (allowReleaseChargeRcsAgvMap != null) {
-                tempAgvMap.put(rcsAgv.getAgvId(), rcsAgv);
-            }
-        }
-        return tempAgvMap;
+        //AGV最低工作电量
+        Integer lowestWorkPower = taskYaml.getChargeCommon().getLowestWorkPower();
+        return selectAgv().with(Flag.CHARGING).batteryAtLeast(lowestWorkPower == null ? 0 : lowestWorkPower).toMap();
     }
 
     /**
      * 获取有任务的AGV集合
      *
-     * @return 有任务的AGV集合
+     * @return 有任务的AGV集合 (不可修改)
      */
     public Map<String, RcsAgv> getHasTaskRcsAgvMap() {
-        Map<String, RcsAgv> tempAgvMap = new ConcurrentHashMap<>(getRcsAgvMap().size());
-        for (Map.Entry<String, RcsAgv> entry : getRcsAgvMap().entrySet()) {
-            //获取AGV
-            RcsAgv rcsAgv = entry.getValue();
-
-            //判断AGV是否已校验地图
-            boolean mapCheck = getRcsAgvMapCheck(rcsAgv);
-            if (!mapCheck) {
-                continue;
-            }
-
-            //判断AGV是否是隔离
-            Integer isolation = getRcsAgvByIsolation(rcsAgv);
-            if (isolation == null || !AgvIsolationStateEnum.isEnumByCode(AgvIsolationStateEnum.NORMAL, isolation)) {
-                continue;
-            }
-            //判断AGV是否有任务
-            if (AgvTaskStateEnum.isEnumByCode(AgvTaskStateEnum.HAVE, rcsAgv.getTaskState())) {
-                tempAgvMap.put(rcsAgv.getAgvId(), rcsAgv);
-            }
-        }
-        return tempAgvMap;
+        return alignedIndex().view(Flag.HAS_TASK);
     }
 
     /**
@@ -353,51 +395,20 @@ public class AgvManager {
      * 请注意：该方法未过滤任何数据
      *
      * @param mapId 地图编号
-     * @return AGV集合
+     * @return AGV集合 (不可修改)
      */
     public Map<String, RcsAgv> getRcsAgvMap(Integer mapId) {
-        Map<String, RcsAgv> tempAgvMap = new ConcurrentHashMap<>(getRcsAgvMap().size());
-        for (Map.Entry<String, RcsAgv> entry : getRcsAgvMap().entrySet()) {
-            //获取AGV
-            RcsAgv rcsAgv = entry.getValue();
-            //判断AGV是否在同一个楼层
-            if (mapId.equals(rcsAgv.getMapId())) {
-                tempAgvMap.put(rcsAgv.getAgvId(), rcsAgv);
-            }
-        }
-        return tempAgvMap;
+        return alignedIndex().floorView(mapId);
     }
 
     /**
      * 获取指定地图号的有任务的AGV集合
      *
      * @param mapId 地图编号
-     * @return 有任务的AGV集合
+     * @return 有任务的AGV集合 (不可修改)
      */
     public Map<String, RcsAgv> getHasTaskRcsAgvMap(Integer mapId) {
-        Map<String, RcsAgv> tempAgvMap = new ConcurrentHashMap<>(getRcsAgvMap().size());
-        for (Map.Entry<String, RcsAgv> entry : getRcsAgvMap().entrySet()) {
-            //获取AGV
-            RcsAgv rcsAgv = entry.getValue();
-            //判断AGV是否在同一个楼层
-            if (rcsAgv.getMapId().equals(mapId)) {
-                //判断AGV是否已校验地图
-                boolean mapCheck = getRcsAgvMapCheck(rcsAgv);
-                if (!mapCheck) {
-                    continue;
-                }
-                //判断AGV是否是隔离
-                Integer isolation = getRcsAgvByIsolation(rcsAgv);
-                if (isolation == null || !AgvIsolationStateEnum.isEnumByCode(AgvIsolationStateEnum.NORMAL, isolation)) {
-                    continue;
-                }
-                //判断AGV是否有任务
-                if (AgvTaskStateEnum.isEnumByCode(AgvTaskStateEnum.HAVE, rcsAgv.getTaskState())) {
-                    tempAgvMap.put(rcsAgv.getAgvId(), rcsAgv);
-                }
-            }
-        }
-        return tempAgvMap;
+        return selectAgv().with(Flag.HAS_TASK).floor(mapId).toMap();
     }
 
 
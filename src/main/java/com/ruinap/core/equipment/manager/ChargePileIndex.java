@@ -0,0 +1,232 @@
+package com.ruinap.core.equipment.manager;
+
+import com.ruinap.core.equipment.pojo.RcsChargePile;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * <h1>充电桩二级索引</h1>
+ * <p>
+ * 按空闲、状态、楼层、区域、匹配类型维护充电桩分组，每个分组是一个不可修改的 Map：
+ * <ul>
+ * <li>充电桩数据变化时调用 {@link #refresh(RcsChargePile)}，只有索引字段发生变化才替换所在分组 (写时复制)；</li>
+ * <li>查询直接返回分组本身，调度、监控每个周期的多次查询不做任何遍历。</li>
+ * </ul>
+ * 充电桩数量少、状态变化远少于查询，写时复制的代价只与所在分组的大小有关。
+ * </p>
+ * <p>
+ * 索引是充电桩字段的快照，查询结果为弱一致性，调用方在真正占用充电桩前仍应按需复核。
+ * 所有方法在同一把锁内执行，线程安全。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-22 14:10
+ */
+public class ChargePileIndex {
+
+    /**
+     * 空闲判定逻辑
+     */
+    private final Predicate<RcsChargePile> idlePredicate;
+
+    /**
+     * 充电桩编号 → 充电桩
+     */
+    private final Map<String, RcsChargePile> piles = new HashMap<>();
+    /**
+     * 充电桩编号 → 已索引的字段快照
+     */
+    private final Map<String, Snapshot> snapshots = new HashMap<>();
+
+    private final Groups<Boolean> idle = new Groups<>();
+    private final Groups<Integer> states = new Groups<>();
+    private final Groups<Integer> floors = new Groups<>();
+    private final Groups<String> areas = new Groups<>();
+    private final Groups<Integer> idleMatchTypes = new Groups<>();
+
+    /**
+     * 构造函数
+     *
+     * @param idlePredicate 空闲判定逻辑
+     */
+    public ChargePileIndex(Predicate<RcsChargePile> idlePredicate) {
+        this.idlePredicate = idlePredicate;
+    }
+
+    /**
+     * 插入或刷新充电桩
+     * <p>
+     * 索引字段未变化时不做任何调整
+     *
+     * @param pile 充电桩
+     */
+    public synchronized void refresh(RcsChargePile pile) {
+        if (pile == null || pile.getCode() == null) {
+            return;
+        }
+        String code = pile.getCode();
+        Snapshot snapshot = new Snapshot(idlePredicate.test(pile), pile.getState(), pile.getFloor(), pile.getArea(), pile.getMatchType());
+        RcsChargePile old = piles.put(code, pile);
+        Snapshot oldSnapshot = snapshots.put(code, snapshot);
+        if (old == pile && snapshot.equals(oldSnapshot)) {
+            return;
+        }
+        if (oldSnapshot != null) {
+            unindex(code, oldSnapshot);
+        }
+        index(pile, snapshot);
+    }
+
+    /**
+     * 移除充电桩
+     *
+     * @param code 充电桩编号
+     */
+    public synchronized void remove(String code) {
+        piles.remove(code);
+        Snapshot snapshot = snapshots.remove(code);
+        if (snapshot != null) {
+            unindex(code, snapshot);
+        }
+    }
+
+    /**
+     * 是否包含充电桩
+     *
+     * @param code 充电桩编号
+     * @return true=包含
+     */
+    public synchronized boolean contains(String code) {
+        return piles.containsKey(code);
+    }
+
+    /**
+     * 充电桩数量
+     *
+     * @return 数量
+     */
+    public synchronized int size() {
+        return piles.size();
+    }
+
+    /**
+     * 已索引的充电桩编号 (快照)
+     *
+     * @return 充电桩编号集合
+     */
+    public synchronized Set<String> codes() {
+        return new HashSet<>(piles.keySet());
+    }
+
+    /**
+     * 空闲充电桩
+     *
+     * @return 不可修改的充电桩集合，Key: 充电桩编号
+     */
+    public synchronized Map<String, RcsChargePile> idleView() {
+        return idle.get(Boolean.TRUE);
+    }
+
+    /**
+     * 指定匹配类型的空闲充电桩
+     *
+     * @param matchType 匹配类型
+     * @return 不可修改的充电桩集合，Key: 充电桩编号
+     */
+    public synchronized Map<String, RcsChargePile> idleMatchTypeView(Integer matchType) {
+        return idleMatchTypes.get(matchType);
+    }
+
+    /**
+     * 指定状态的充电桩
+     *
+     * @param state 状态
+     * @return 不可修改的充电桩集合，Key: 充电桩编号
+     */
+    public synchronized Map<String, RcsChargePile> stateView(Integer state) {
+        return states.get(state);
+    }
+
+    /**
+     * 指定楼层的充电桩
+     *
+     * @param floor 楼层
+     * @return 不可修改的充电桩集合，Key: 充电桩编号
+     */
+    public synchronized Map<String, RcsChargePile> floorView(Integer floor) {
+        return floors.get(floor);
+    }
+
+    /**
+     * 指定区域的充电桩
+     *
+     * @param area 区域
+     * @return 不可修改的充电桩集合，Key: 充电桩编号
+     */
+    public synchronized Map<String, RcsChargePile> areaView(String area) {
+        return areas.get(area);
+    }
+
+    private void index(RcsChargePile pile, Snapshot snapshot) {
+        idle.add(snapshot.idle(), pile);
+        states.add(snapshot.state(), pile);
+        floors.add(snapshot.floor(), pile);
+        areas.add(snapshot.area(), pile);
+        if (snapshot.idle()) {
+            idleMatchTypes.add(snapshot.matchType(), pile);
+        }
+    }
+
+    private void unindex(String code, Snapshot snapshot) {
+        idle.remove(snapshot.idle(), code);
+        states.remove(snapshot.state(), code);
+        floors.remove(snapshot.floor(), code);
+        areas.remove(snapshot.area(), code);
+        if (snapshot.idle()) {
+            idleMatchTypes.remove(snapshot.matchType(), code);
+        }
+    }
+
+    /**
+     * 按字段值分组，每个分组为不可修改的 Map，变化时整体替换
+     *
+     * @param <K> 字段值类型
+     */
+    private static final class Groups<K> {
+        private final Map<K, Map<String, RcsChargePile>> groups = new HashMap<>();
+
+        Map<String, RcsChargePile> get(K value) {
+            return value == null ? Map.of() : groups.getOrDefault(value, Map.of());
+        }
+
+        void add(K value, RcsChargePile pile) {
+            if (value == null) {
+                return;
+            }
+            Map<String, RcsChargePile> copy = new LinkedHashMap<>(groups.getOrDefault(value, Map.of()));
+            copy.put(pile.getCode(), pile);
+            groups.put(value, Collections.unmodifiableMap(copy));
+        }
+
+        void remove(K value, String code) {
+            Map<String, RcsChargePile> group = value == null ? null : groups.get(value);
+            if (group == null || !group.containsKey(code)) {
+                return;
+            }
+            if (group.size() == 1) {
+                groups.remove(value);
+                return;
+            }
+            Map<String, RcsChargePile> copy = new LinkedHashMap<>(group);
+            copy.remove(code);
+            groups.put(value, Collections.unmodifiableMap(copy));
+        }
+    }
+
+    /**
+     * 已索引的字段快照
+     */
+    private record Snapshot(boolean idle, Integer state, Integer floor, String area, Integer matchType) {
+    }
+}
@@ -7,6 +7,7 @@ import com.ruinap.infra.framework.annotation.Service;
 import com.ruinap.infra.log.RcsLog;
 
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -23,6 +24,29 @@ public class ChargePileManager {
      */
     private final Map<String, RcsChargePile> chargeCache = new ConcurrentHashMap<>();
 
+    /**
+     * 充电桩二级索引
+     * <p>
+     * 空闲、状态、楼层、区域等集合查询直接返回索引中的分组，充电桩数据变化时通过 {@link #refreshIndex(RcsChargePile)} 增量维护
+     */
+    private final ChargePileIndex chargePileIndex = new ChargePileIndex(this::isIdle);
+
+    /**
+     * 充电桩预约
+     * Key: 充电桩编号
+     * Value: 预约信息
+     */
+    private final Map<String, ChargeReservation> reservations = new ConcurrentHashMap<>();
+
+    /**
+     * 充电桩预约信息
+     *
+     * @param agvId   预约的AGV编号
+     * @param untilMs 预约截止时间
+     */
+    public record ChargeReservation(String agvId, long untilMs) {
+    }
+
     /**
      * 获取全部充电桩集合
      *
@@ -111,21 +135,169 @@ public class ChargePileManager {
         }
     }
 
+    /**
+     * 判断充电桩是否空闲 (与 {@link #getRcsChargePileByIdle(RcsChargePile)} 判定一致，不输出日志)
+     *
+     * @param chargePile 充电桩对象
+     * @return true：空闲
+     */
+    private boolean isIdle(RcsChargePile chargePile) {
+        Integer isolation = getRcsChargePileByIsolation(chargePile);
+        return getRcsChargePileByOnline(chargePile)
+                && isolation != null && isolation.equals(0)
+                && ChargeIdleEnum.isEnumByCode(ChargeIdleEnum.IDLE, chargePile.getIdleState());
+    }
+
+    /**
+     * 刷新充电桩在索引中的数据
+     * <p>
+     * 充电桩状态、空闲状态、隔离状态、楼层、区域、匹配类型等字段更新后调用
+     *
+     * @param chargePile 充电桩对象
+     */
+    public void refreshIndex(RcsChargePile chargePile) {
+        chargePileIndex.refresh(chargePile);
+    }
+
+    /**
+     * 获取与充电桩缓存成员一致的索引
+     *
+     * @return 充电桩索引
+     */
+    private ChargePileIndex alignedIndex() {
+        // 充电桩增减时对齐索引成员，数量相同时不做任何遍历
+        if (chargePileIndex.size() != chargeCache.size()) {
+            Set<String> stale = chargePileIndex.codes();
+            for (RcsChargePile chargePile : chargeCache.values()) {
+                stale.remove(chargePile.getCode());
+                if (!chargePileIndex.contains(chargePile.getCode())) {
+                    chargePileIndex.refresh(chargePile);
+                }
+            }
+            stale.forEach(chargePileIndex::remove);
+        }
+        return chargePileIndex;
+    }
+
     /**
      * 获取空闲充电桩集合
      *
-     * @return 空闲充电桩集合
+     * @return 空闲充电桩集合 (不可修改)
      */
     public Map<String, RcsChargePile> getIdleRcsChargePileMap() {
-        Map<String, RcsChargePile> tempMap = new ConcurrentHashMap<>(getRcsChargePileMap().size());
-        for (Map.Entry<String, RcsChargePile> entry : getRcsChargePileMap().entrySet()) {
-            //获取充电桩
-            RcsChargePile chargePile = entry.getValue();
-            //判断充电桩是否是空闲
-            if (getRcsChargePileByIdle(chargePile) != null) {
-                tempMap.put(chargePile.getCode(), chargePile);
+        return alignedIndex().idleView();
+    }
+
+    /**
+     * 获取指定匹配类型的空闲充电桩集合
+     *
+     * @param matchType 匹配类型
+     * @return 空闲充电桩集合 (不可修改)
+     */
+    public Map<String, RcsChargePile> getIdleRcsChargePileMapByMatchType(Integer matchType) {
+        return alignedIndex().idleMatchTypeView(matchType);
+    }
+
+    /**
+     * 获取指定状态的充电桩集合
+     *
+     * @param state 状态 0离线 1在线
+     * @return 充电桩集合 (不可修改)
+     */
+    public Map<String, RcsChargePile> getRcsChargePileMapByState(Integer state) {
+        return alignedIndex().stateView(state);
+    }
+
+    /**
+     * 获取指定楼层的充电桩集合
+     *
+     * @param floor 楼层
+     * @return 充电桩集合 (不可修改)
+     */
+    public Map<String, RcsChargePile> getRcsChargePileMapByFloor(Integer floor) {
+        return alignedIndex().floorView(floor);
+    }
+
+    /**
+     * 获取指定区域的充电桩集合
+     *
+     * @param area 区域
+     * @return 充电桩集合 (不可修改)
+     */
+    public Map<String, RcsChargePile> getRcsChargePileMapByArea(String area) {
+        return alignedIndex().areaView(area);
+    }
+
+    /**
+     * 预约充电桩
+     * <p>
+     * 充电任务创建时即占住充电桩，直到AGV充电完成或预约过期，期间其他AGV匹配充电桩时跳过。
+     * 同一台AGV只保留一个预约，新的预约会释放之前的预约
+     *
+     * @param code    充电桩编号
+     * @param agvId   AGV编号
+     * @param untilMs 预约截止时间
+     * @return true=预约成功，false=已被其他AGV预约
+     */
+    public boolean reserve(String code, String agvId, long untilMs) {
+        if (code == null || agvId == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        ChargeReservation reservation = reservations.compute(code, (key, old) -> {
+            if (old != null && old.untilMs() > now && !old.agvId().equalsIgnoreCase(agvId)) {
+                return old;
             }
+            return new ChargeReservation(agvId, untilMs);
+        });
+        if (!reservation.agvId().equalsIgnoreCase(agvId)) {
+            RcsLog.algorithmLog.warn("{} 充电桩[{}]已被[{}]预约，预约失败", agvId, code, reservation.agvId());
+            return false;
         }
-        return tempMap;
+        reservations.entrySet().removeIf(entry -> !entry.getKey().equals(code) && entry.getValue().agvId().equalsIgnoreCase(agvId));
+        return true;
+    }
+
+    /**
+     * 释放AGV的充电桩预约
+     *
+     * @param agvId AGV编号
+     */
+    public void release(String agvId) {
+        if (agvId == null) {
+            return;
+        }
+        reservations.entrySet().removeIf(entry -> entry.getValue().agvId().equalsIgnoreCase(agvId));
+    }
+
+    /**
+     * 获取充电桩的有效预约
+     *
+     * @param code 充电桩编号
+     * @return 预约信息，没有预约或已过期时返回 null
+     */
+    public ChargeReservation getReservation(String code) {
+        if (code == null) {
+            return null;
+        }
+        ChargeReservation reservation = reservations.get(code);
+        if (reservation != null && reservation.untilMs() <= System.currentTimeMillis()) {
+            // 过期预约惰性清理
+            reservations.remove(code, reservation);
+            return null;
+        }
+        return reservation;
+    }
+
+    /**
+     * 判断充电桩是否被其他AGV预约
+     *
+     * @param code  充电桩编号
+     * @param agvId AGV编号
+     * @return true=被其他AGV预约
+     */
+    public boolean isReservedByOther(String code, String agvId) {
+        ChargeReservation reservation = getReservation(code);
+        return reservation != null && !reservation.agvId().equalsIgnoreCase(agvId);
     }
 }
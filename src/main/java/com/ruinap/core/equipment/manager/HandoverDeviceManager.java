@@ -41,6 +41,7 @@ import java.util.concurrent.atomic.AtomicReference;
  * 2. 自动续期：只要有业务调用(get/set)，租约自动延长。
  * 3. 自动释放：指定时间内无交互，自动停止后台轮询，释放资源。
  * 4. 线程安全：使用 Hutool TimedCache + AtomicReference 实现无锁高并发。
+ * 5. 并行轮询：所有设备的状态请求同时发出、共用截止时间，无应答的设备熔断退避 (见 {@link HandoverDevicePoller})。
  *
  * @author qianye
  * @create 2026-01-29 16:37
@@ -81,6 +82,16 @@ public class HandoverDeviceManager {
      */
     private static final long LEASE_TIMEOUT = 60 * 1000L;
 
+    /**
+     * 一轮状态轮询共用的超时时间 (毫秒)
+     */
+    private static final long POLL_TIMEOUT = 3000L;
+
+    /**
+     * 状态轮询器，连续 3 次无应答熔断，退避 5 秒起按次翻倍，最长 60 秒
+     */
+    private final HandoverDevicePoller<RcsPoint> devicePoller = new HandoverDevicePoller<>(3, 5000L, 60 * 1000L);
+
     @PostConstruct
     public void init() {
         // 1. 初始化状态缓存
@@ -104,53 +115,48 @@ public class HandoverDeviceManager {
 
     /**
      * 内部任务：刷新活跃设备状态
+     * <p>
+     * 所有设备的状态请求一次性发出，共用一个截止时间，应答到达即更新状态；连续无应答的设备熔断退避
      */
     private void refreshActiveDevices() {
         if (handoverStateCache.isEmpty()) {
             return;
         }
 
+        //获取中转系统的类型
+        String equipmentType = linkYaml.getTransferLink().get("equipment_type");
+        //获取中转系统的编号
+        String equipmentCode = linkYaml.getTransferLink().get("code");
+        LinkEquipmentTypeEnum linkType = LinkEquipmentTypeEnum.fromEquipmentType(equipmentType);
+
         Set<RcsPoint> keys = handoverStateCache.keySet();
-        for (RcsPoint rcsPoint : keys) {
-            try {
-                // 静默读取，不续期
-                AtomicReference<HandoverStateEnum> ref = handoverStateCache.get(rcsPoint, false);
-                if (ref != null) {
-                    int state = 0;
-                    //获取指定的交接设备配置
-                    HandoverDeviceEntity handoverDevice = interactionYaml.getHandoverDeviceByRelevancyPoint(rcsPoint);
-                    if (handoverDevice != null) {
-                        //获取交接设备编号
-                        String code = handoverDevice.getCode();
-                        //获取中转系统的类型
-                        String equipmentType = linkYaml.getTransferLink().get("equipment_type");
-                        //获取中转系统的编号
-                        String equipmentCode = linkYaml.getTransferLink().get("code");
-                        //获取标记
-                        Long clientCounter = nettyManager.getClientCounter(equipmentType, equipmentCode);
-                        ByteBuf byteBuf = Unpooled.buffer();
-                        //获取交接设备状态
-                        TransferCommand.writeGetHandoverDeviceState(byteBuf, code, rcsPoint.toString(), clientCounter);
-                        //发送指令
-                        CompletableFuture<JSONObject> futureState = nettyManager.sendMessage(LinkEquipmentTypeEnum.fromEquipmentType(equipmentType), equipmentCode, clientCounter, byteBuf, JSONObject.class);
-                        try {
-                            // 获取返回结果 最多等待3秒
-                            JSONObject resultJson = futureState.get(3, TimeUnit.SECONDS);
-                            //获取状态
-                            state = resultJson.getInt("data", 0);
-                            HandoverStateEnum handoverStateEnum = HandoverStateEnum.fromEnum(state);
-                            ref.set(handoverStateEnum);
-                        } catch (Exception e) {
-                            throw new RuntimeException(e);
-                        }
-                    } else {
-                        RcsLog.consoleLog.error("[{}] 查询不到交接设备，请检查配置文件", rcsPoint);
-                        RcsLog.algorithmLog.error("[{}] 查询不到交接设备，请检查配置文件", rcsPoint);
-                    }
-                }
-            } catch (Exception e) {
-                RcsLog.algorithmLog.warn("设备点位[{}]状态刷新异常: {}", rcsPoint, e.getMessage());
+        HandoverDevicePoller.PollResult result = devicePoller.poll(keys, rcsPoint -> {
+            //获取指定的交接设备配置
+            HandoverDeviceEntity handoverDevice = interactionYaml.getHandoverDeviceByRelevancyPoint(rcsPoint);
+            if (handoverDevice == null) {
+                RcsLog.consoleLog.error("[{}] 查询不到交接设备，请检查配置文件", rcsPoint);
+                RcsLog.algorithmLog.error("[{}] 查询不到交接设备，请检查配置文件", rcsPoint);
+                return CompletableFuture.failedFuture(new IllegalStateException("查询不到交接设备"));
             }
+            //获取标记 (每台设备各自的请求标记，同一连接上的多个请求按标记匹配应答)
+            Long clientCounter = nettyManager.getClientCounter(equipmentType, equipmentCode);
+            ByteBuf byteBuf = Unpooled.buffer();
+            //获取交接设备状态
+            TransferCommand.writeGetHandoverDeviceState(byteBuf, handoverDevice.getCode(), rcsPoint.toString(), clientCounter);
+            //发送指令
+            return nettyManager.sendMessage(linkType, equipmentCode, clientCounter, byteBuf, JSONObject.class);
+        }, (rcsPoint, resultJson) -> {
+            // 静默读取，不续期
+            AtomicReference<HandoverStateEnum> ref = handoverStateCache.get(rcsPoint, false);
+            if (ref != null) {
+                ref.set(HandoverStateEnum.fromEnum(resultJson.getInt("data", 0)));
+            }
+        }, POLL_TIMEOUT);
+
+        if (result.timedOut() > 0 || result.failed() > 0) {
+            RcsLog.algorithmLog.warn("交接设备状态刷新：请求 {} 台，应答 {} 台，超时 {} 台，失败 {} 台，熔断跳过 {} 台，耗时 {} ms",
+                    result.sent(), result.replied(), result.timedOut(), result.failed(), result.skipped(),
+                    TimeUnit.NANOSECONDS.toMillis(result.elapsedNs()));
         }
     }
 
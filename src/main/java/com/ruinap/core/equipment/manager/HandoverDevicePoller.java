@@ -0,0 +1,236 @@
+package com.ruinap.core.equipment.manager;
+
+import com.ruinap.infra.log.RcsLog;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * <h1>交接设备并行轮询器</h1>
+ * <p>
+ * 一轮轮询的流程：
+ * <ul>
+ * <li>一次性向所有设备发出请求，每个请求使用各自的请求标记，同一条中转连接上可以同时存在多个未完成的请求；</li>
+ * <li>应答到达后立即回调更新该设备的状态，不等待其他设备；</li>
+ * <li>所有请求共用一个截止时间，截止时间到达后取消仍未应答的请求，迟到的应答不再更新状态。</li>
+ * </ul>
+ * 一台设备无应答只会让本轮最多等待一个截止时间，不再拖慢排在它后面的设备。
+ * </p>
+ * <p>
+ * 熔断：设备连续失败 (超时或异常) 达到阈值后进入退避，退避期间不再发送请求；
+ * 退避结束后发送一次探测请求，成功则恢复，失败则退避时长翻倍 (不超过上限)。
+ * </p>
+ * <p>
+ * {@link #poll} 只允许由同一个线程调用 (后台轮询线程)。
+ * </p>
+ *
+ * @param <K> 设备标识类型
+ * @author qianye
+ * @create 2026-03-22 16:30
+ */
+public class HandoverDevicePoller<K> {
+
+    /**
+     * 连续失败多少次后熔断
+     */
+    private final int failureThreshold;
+    /**
+     * 首次熔断的退避时长 (纳秒)
+     */
+    private final long baseBackoffNanos;
+    /**
+     * 退避时长上限 (纳秒)
+     */
+    private final long maxBackoffNanos;
+    /**
+     * 时钟 (纳秒)，用于截止时间与退避计时
+     */
+    private final LongSupplier clock;
+
+    /**
+     * 设备 → 熔断状态
+     */
+    private final Map<K, Breaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * 构造函数
+     *
+     * @param failureThreshold 连续失败多少次后熔断
+     * @param baseBackoffMs    首次熔断的退避时长 (毫秒)
+     * @param maxBackoffMs     退避时长上限 (毫秒)
+     */
+    public HandoverDevicePoller(int failureThreshold, long baseBackoffMs, long maxBackoffMs) {
+        this(failureThreshold, baseBackoffMs, maxBackoffMs, System::nanoTime);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param failureThreshold 连续失败多少次后熔断
+     * @param baseBackoffMs    首次熔断的退避时长 (毫秒)
+     * @param maxBackoffMs     退避时长上限 (毫秒)
+     * @param clock            时钟 (纳秒)
+     */
+    HandoverDevicePoller(int failureThreshold, long baseBackoffMs, long maxBackoffMs, LongSupplier clock) {
+        this.clock = clock;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.baseBackoffNanos = TimeUnit.MILLISECONDS.toNanos(baseBackoffMs);
+        this.maxBackoffNanos = Math.max(baseBackoffNanos, TimeUnit.MILLISECONDS.toNanos(maxBackoffMs));
+    }
+
+    /**
+     * 执行一轮轮询
+     *
+     * @param devices   本轮需要轮询的设备
+     * @param request   发出请求，返回应答的 Future
+     * @param onReply   应答到达时的回调 (在应答线程中执行，应尽量轻量)
+     * @param timeoutMs 本轮共用的超时时长 (毫秒)
+     * @param <T>       应答类型
+     * @return 本轮结果
+     */
+    public <T> PollResult poll(Collection<K> devices, Function<K, CompletableFuture<T>> request, BiConsumer<K, T> onReply, long timeoutMs) {
+        long begin = clock.getAsLong();
+        long deadline = begin + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        // 清理已不再轮询的设备
+        breakers.keySet().retainAll(devices instanceof Set<?> ? devices : new HashSet<>(devices));
+
+        // 1. 一次性发出全部请求
+        Map<K, CompletableFuture<T>> requests = new LinkedHashMap<>();
+        Map<K, CompletableFuture<Void>> applied = new LinkedHashMap<>();
+        int skipped = 0;
+        int failed = 0;
+        for (K device : devices) {
+            Breaker breaker = breakers.get(device);
+            if (breaker != null && breaker.openUntil - begin > 0) {
+                skipped++;
+                continue;
+            }
+            CompletableFuture<T> future;
+            try {
+                future = request.apply(device);
+            } catch (Exception e) {
+                RcsLog.algorithmLog.warn("交接设备[{}]状态请求发送异常: {}", device, e.getMessage());
+                onFailure(device);
+                failed++;
+                continue;
+            }
+            requests.put(device, future);
+            applied.put(device, future.thenAccept(reply -> onReply.accept(device, reply)));
+        }
+
+        // 2. 共用一个截止时间等待应答
+        try {
+            CompletableFuture.allOf(applied.values().toArray(CompletableFuture[]::new))
+                    .get(Math.max(0, deadline - clock.getAsLong()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException | CancellationException e) {
+            // 逐个设备统计
+        } catch (InterruptedException e) {
+            requests.values().forEach(future -> future.cancel(false));
+            Thread.currentThread().interrupt();
+            return new PollResult(requests.size(), 0, 0, failed, skipped, clock.getAsLong() - begin);
+        }
+
+        // 3. 统计结果，取消未应答的请求
+        int replied = 0;
+        int timedOut = 0;
+        for (Map.Entry<K, CompletableFuture<Void>> entry : applied.entrySet()) {
+            K device = entry.getKey();
+            CompletableFuture<Void> future = entry.getValue();
+            if (!future.isDone()) {
+                requests.get(device).cancel(false);
+                timedOut++;
+                onFailure(device);
+            } else if (future.isCompletedExceptionally()) {
+                failed++;
+                onFailure(device);
+            } else {
+                replied++;
+                onSuccess(device);
+            }
+        }
+        return new PollResult(requests.size(), replied, timedOut, failed, skipped, clock.getAsLong() - begin);
+    }
+
+    /**
+     * 设备是否处于熔断退避中
+     *
+     * @param device 设备
+     * @return true=退避中
+     */
+    public boolean isOpen(K device) {
+        Breaker breaker = breakers.get(device);
+        return breaker != null && breaker.openUntil - clock.getAsLong() > 0;
+    }
+
+    /**
+     * 设备当前连续失败次数
+     *
+     * @param device 设备
+     * @return 连续失败次数
+     */
+    public int getFailures(K device) {
+        Breaker breaker = breakers.get(device);
+        return breaker == null ? 0 : breaker.failures;
+    }
+
+    private void onSuccess(K device) {
+        Breaker breaker = breakers.remove(device);
+        if (breaker != null && breaker.opens > 0) {
+            RcsLog.consoleLog.info("交接设备[{}]恢复应答，解除熔断", device);
+            RcsLog.algorithmLog.info("交接设备[{}]恢复应答，解除熔断", device);
+        }
+    }
+
+    private void onFailure(K device) {
+        Breaker breaker = breakers.computeIfAbsent(device, k -> new Breaker(clock.getAsLong()));
+        breaker.failures++;
+        if (breaker.failures < failureThreshold) {
+            return;
+        }
+        // 达到阈值或探测失败：退避时长按熔断次数翻倍
+        long backoff = baseBackoffNanos << Math.min(breaker.opens, 20);
+        backoff = backoff <= 0 ? maxBackoffNanos : Math.min(backoff, maxBackoffNanos);
+        breaker.opens++;
+        breaker.openUntil = clock.getAsLong() + backoff;
+        RcsLog.consoleLog.warn("交接设备[{}]连续 {} 次无应答，熔断 {} ms", device, breaker.failures, TimeUnit.NANOSECONDS.toMillis(backoff));
+        RcsLog.algorithmLog.warn("交接设备[{}]连续 {} 次无应答，熔断 {} ms", device, breaker.failures, TimeUnit.NANOSECONDS.toMillis(backoff));
+    }
+
+    /**
+     * 单台设备的熔断状态
+     */
+    private static final class Breaker {
+        /**
+         * 连续失败次数
+         */
+        private int failures;
+        /**
+         * 连续熔断次数
+         */
+        private int opens;
+        /**
+         * 退避结束时间 (时钟基准)
+         */
+        private long openUntil;
+
+        private Breaker(long now) {
+            this.openUntil = now;
+        }
+    }
+
+    /**
+     * 一轮轮询的结果
+     *
+     * @param sent      发出的请求数
+     * @param replied   截止时间前应答的设备数
+     * @param timedOut  截止时间到达时仍未应答的设备数
+     * @param failed    发送失败或应答异常的设备数
+     * @param skipped   熔断退避中跳过的设备数
+     * @param elapsedNs 本轮耗时 (纳秒)
+     */
+    public record PollResult(int sent, int replied, int timedOut, int failed, int skipped, long elapsedNs) {
+    }
+}
@@ -2,10 +2,13 @@ package com.ruinap.core.job;
 
 import com.ruinap.adapter.communicate.NettyManager;
 import com.ruinap.core.algorithm.RcsPlanManager;
+import com.ruinap.core.business.StatisticsManager;
+import com.ruinap.core.business.TelemetryManager;
 import com.ruinap.core.equipment.manager.AgvManager;
 import com.ruinap.core.equipment.pojo.RcsAgv;
 import com.ruinap.core.equipment.pojo.RcsAgvAttribute;
 import com.ruinap.core.task.TaskPathManager;
+import com.ruinap.core.task.design.StandbyPlanner;
 import com.ruinap.core.task.domain.TaskPath;
 import com.ruinap.infra.command.agv.AgvCommandService;
 import com.ruinap.infra.config.LinkYaml;
@@ -54,6 +57,12 @@ public class BusinessJob {
     private RcsPlanManager rcsPlanManager;
     @Autowired
     private RcsTaskExecutor rcsTaskExecutor;
+    @Autowired
+    private StandbyPlanner standbyPlanner;
+    @Autowired
+    private StatisticsManager statisticsManager;
+    @Autowired
+    private TelemetryManager telemetryManager;
 
 
     /**
@@ -134,4 +143,34 @@ public class BusinessJob {
             rcsTaskExecutor.submitTaskLifecycle(agvId, taskRunnable, 120, TimeUnit.MILLISECONDS);
         }
     }
+
+    /**
+     * 刷新预测待机的起点需求率
+     * <p>
+     * 需求率按小时统计历史任务，变化缓慢，10分钟刷新一次即可
+     */
+    @RcsScheduled(delay = 30, period = 600, unit = TimeUnit.SECONDS)
+    public void standbyDemandRefresh() {
+        vthreadPool.execute(standbyPlanner::refreshDemand);
+    }
+
+    /**
+     * KPI 统计写入
+     * <p>
+     * 每个小时结束后批量写入该小时 (跨天时再加上当天) 的聚合结果，界面查询直接读取内存
+     */
+    @RcsScheduled(delay = 60, period = 60, unit = TimeUnit.SECONDS)
+    public void statisticsFlush() {
+        vthreadPool.execute(statisticsManager::flush);
+    }
+
+    /**
+     * 遥测数据落盘
+     * <p>
+     * 结束已过期的降采样时间桶，写入数据块，并清理过期文件
+     */
+    @RcsScheduled(delay = 10, period = 1, unit = TimeUnit.SECONDS)
+    public void telemetryFlush() {
+        vthreadPool.execute(telemetryManager::flush);
+    }
 }
@@ -1,7 +1,11 @@
 package com.ruinap.core.job;
 
 import com.ruinap.adapter.communicate.NettyManager;
+import com.ruinap.core.algorithm.ElevatorDispatcher;
+import com.ruinap.core.algorithm.EtaManager;
 import com.ruinap.core.equipment.manager.AgvManager;
+import com.ruinap.core.task.RoutePresetManager;
+import com.ruinap.core.task.journal.RuntimeRecovery;
 import com.ruinap.infra.command.agv.AgvCommandService;
 import com.ruinap.infra.config.LinkYaml;
 import com.ruinap.infra.framework.annotation.Autowired;
@@ -34,6 +38,14 @@ public class RcsJob {
     private AgvCommandService agvCommandService;
     @Autowired
     private DbManager dbManager;
+    @Autowired
+    private EtaManager etaManager;
+    @Autowired
+    private RoutePresetManager routePresetManager;
+    @Autowired
+    private ElevatorDispatcher elevatorDispatcher;
+    @Autowired
+    private RuntimeRecovery runtimeRecovery;
 
     /**
      * 数据库数据检查
@@ -71,6 +83,46 @@ public class RcsJob {
         vthreadPool.execute(dbManager::syncDataToDb);
     }
 
+    /**
+     * 预计到达时间刷新
+     * <p>
+     * 进度上报会增量更新 ETA，此处兜底刷新电梯排队深度与管制区等待
+     */
+    @RcsScheduled(delay = 15, period = 1, unit = TimeUnit.SECONDS)
+    public void etaRefresh() {
+        vthreadPool.execute(etaManager::refreshAll);
+    }
+
+    /**
+     * 电梯批量调度
+     * <p>
+     * 为空闲的电梯发出下一批次，批量窗口内到达的同方向 AGV 会被拼入同一批次
+     */
+    @RcsScheduled(delay = 15, period = 1, unit = TimeUnit.SECONDS)
+    public void elevatorDispatch() {
+        vthreadPool.execute(elevatorDispatcher::dispatch);
+    }
+
+    /**
+     * 线路预设刷新
+     * <p>
+     * 内容未变化时不会重新编译
+     */
+    @RcsScheduled(delay = 30, period = 30, unit = TimeUnit.SECONDS)
+    public void routePresetRefresh() {
+        vthreadPool.execute(routePresetManager::reload);
+    }
+
+    /**
+     * 运行状态日志维护
+     * <p>
+     * 补写任务路径的原地修改、落盘，并按配置间隔压缩为快照
+     */
+    @RcsScheduled(delay = 15, period = 1, unit = TimeUnit.SECONDS)
+    public void runtimeJournal() {
+        vthreadPool.execute(runtimeRecovery::tick);
+    }
+
     /**
      * 临时数据写入
      */
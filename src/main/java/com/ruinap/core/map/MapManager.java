@@ -458,6 +458,18 @@ public class MapManager implements CommandLineRunner, ApplicationListener<RcsMap
         return anyChanged;
     }
 
+    /**
+     * 获取占用过点位的全部设备编号
+     * <p>
+     * 反向索引中的设备，可能已释放全部点位，需要配合 {@link #getDeviceOccupiedPoints(String)} 使用
+     * </p>
+     *
+     * @return 设备编号集合副本
+     */
+    public Set<String> getOccupyDevices() {
+        return Set.copyOf(deviceOccupyIndex.keySet());
+    }
+
     /**
      * 获取指定设备当前占用的所有点位对象
      * <p>
@@ -0,0 +1,258 @@
+package com.ruinap.core.task;
+
+import com.ruinap.core.algorithm.domain.RouteResult;
+import com.ruinap.core.algorithm.search.RcsAstarSearch;
+import com.ruinap.core.map.MapManager;
+import com.ruinap.core.map.pojo.MapSnapshot;
+import com.ruinap.core.map.pojo.RcsPoint;
+import com.ruinap.core.task.domain.RcsTask;
+import com.ruinap.core.task.domain.RoutePresetLeg;
+import com.ruinap.core.task.domain.RoutePresetPlan;
+import com.ruinap.core.task.event.RoutePresetRefreshEvent;
+import com.ruinap.infra.framework.annotation.Autowired;
+import com.ruinap.infra.framework.annotation.Component;
+import com.ruinap.infra.framework.annotation.Order;
+import com.ruinap.infra.framework.boot.CommandLineRunner;
+import com.ruinap.infra.framework.core.ApplicationContext;
+import com.ruinap.infra.log.RcsLog;
+import com.ruinap.persistence.repository.RoutePresetDB;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 线路预设管理
+ * <p>
+ * 上位系统只需下发一条起终点与线路预设一致的任务，调度按预设的线路段顺序执行，
+ * 不再需要把线路拆成多条任务写入任务表。
+ * <ul>
+ * <li>启动时从 rcs_route_preset / rcs_route_preset_detail 连表一次性加载到内存，之后定时比对内容，发生变化才重建；</li>
+ * <li>每条线路的点位别名在编译时解析，并针对当前地图快照按静态路网代价 (不计占用与拥堵) 预先规划好每一段的路线，
+ * 任务拆分时直接作为各分段的预期路线，实时占用由下发时的交通审查处理；</li>
+ * <li>编译结果按地图快照缓存，地图热重载 (快照被替换) 后在下次使用时重新编译。</li>
+ * </ul>
+ * 只有全部线路段都由 AGV 执行、且首尾相连的线路才会被编译使用，其余线路记录日志后忽略。
+ *
+ * @author qianye
+ * @create 2026-03-12 14:40
+ */
+@Component
+@Order(9)
+public class RoutePresetManager implements CommandLineRunner {
+
+    @Autowired
+    private RoutePresetDB routePresetDB;
+    @Autowired
+    private MapManager mapManager;
+    @Autowired
+    private RcsAstarSearch rcsAstarSearch;
+    @Autowired
+    private ApplicationContext ctx;
+
+    /**
+     * 执行系统：AGV
+     */
+    private static final String EXECUTIVE_AGV = "0";
+
+    /**
+     * 线路预设，key为 任务类型|起点|终点，value为按顺序排列的线路段
+     */
+    private volatile Map<String, List<RoutePresetLeg>> presets = Collections.emptyMap();
+    /**
+     * 已加载内容的指纹，用于判断线路预设是否发生变化
+     */
+    private volatile Integer fingerprint = null;
+    /**
+     * 线路预设表是否可用
+     */
+    private volatile boolean available = false;
+    /**
+     * 编译结果缓存 (与地图快照绑定)
+     */
+    private volatile CompiledCache compiled = new CompiledCache(null, new ConcurrentHashMap<>());
+
+    /**
+     * 编译结果缓存
+     *
+     * @param snapshot 编译时的地图快照
+     * @param plans    key为 任务类型|起点|终点，value为编译结果 (不可用的线路为 Optional.empty)
+     */
+    private record CompiledCache(MapSnapshot snapshot, Map<String, Optional<RoutePresetPlan>> plans) {
+    }
+
+    @Override
+    public void run(String... args) {
+        try {
+            available = routePresetDB.checkTableExists();
+        } catch (Exception e) {
+            RcsLog.consoleLog.error("线路预设表检查失败，线路预设功能不可用", e);
+            return;
+        }
+        if (!available) {
+            RcsLog.consoleLog.warn("线路预设表 [{}] 或 [{}] 不存在，线路预设功能不可用", routePresetDB.TABLE_NAME, routePresetDB.DETAIL_TABLE_NAME);
+            return;
+        }
+        reload();
+    }
+
+    /**
+     * 重新加载线路预设
+     * <p>
+     * 内容未变化时不做任何处理；变化时重建索引、重新编译并发布 {@link RoutePresetRefreshEvent}
+     */
+    public void reload() {
+        if (!available) {
+            return;
+        }
+        List<RoutePresetLeg> legs;
+        try {
+            legs = routePresetDB.selectEnabledLegs();
+        } catch (Exception e) {
+            RcsLog.sysLog.error("线路预设加载失败", e);
+            return;
+        }
+        int newFingerprint = legs.hashCode();
+        if (Objects.equals(fingerprint, newFingerprint)) {
+            return;
+        }
+
+        this.presets = index(legs);
+        this.fingerprint = newFingerprint;
+        // 预先编译全部线路，分发任务时直接使用
+        CompiledCache cache = new CompiledCache(mapManager.getSnapshot(), new ConcurrentHashMap<>());
+        presets.forEach((key, value) -> cache.plans().put(key, Optional.ofNullable(compile(value, cache.snapshot()))));
+        this.compiled = cache;
+
+        long usable = cache.plans().values().stream().filter(Optional::isPresent).count();
+        RcsLog.consoleLog.info("线路预设加载完成，线路数量：{}，可用线路数量：{}", presets.size(), usable);
+        RcsLog.algorithmLog.info("线路预设加载完成，线路数量：{}，可用线路数量：{}", presets.size(), usable);
+        if (ctx != null) {
+            ctx.publishEvent(new RoutePresetRefreshEvent(this));
+        }
+    }
+
+    /**
+     * 按 任务类型|起点|终点 建立索引，同一对起终点存在多条线路时取顺序最小的
+     *
+     * @param legs 线路段 (已按线路顺序、线路编码、明细顺序排列)
+     * @return 索引
+     */
+    static Map<String, List<RoutePresetLeg>> index(List<RoutePresetLeg> legs) {
+        Map<String, List<RoutePresetLeg>> byRoute = new LinkedHashMap<>();
+        for (RoutePresetLeg leg : legs) {
+            byRoute.computeIfAbsent(leg.getRouteCode(), k -> new ArrayList<>()).add(leg);
+        }
+        Map<String, List<RoutePresetLeg>> index = new HashMap<>(byRoute.size());
+        for (List<RoutePresetLeg> routeLegs : byRoute.values()) {
+            RoutePresetLeg first = routeLegs.getFirst();
+            index.putIfAbsent(key(first.getRouteType(), first.getRouteOrigin(), first.getRouteDestin()), List.copyOf(routeLegs));
+        }
+        return Collections.unmodifiableMap(index);
+    }
+
+    /**
+     * 获取任务对应的预编译线路
+     *
+     * @param rcsTask 任务
+     * @return 预编译线路，没有对应线路或线路不可用时返回 null
+     */
+    public RoutePresetPlan getPlan(RcsTask rcsTask) {
+        if (presets.isEmpty()) {
+            return null;
+        }
+        String key = key(rcsTask.getTaskType(), rcsTask.getOrigin(), rcsTask.getDestin());
+        List<RoutePresetLeg> legs = presets.get(key);
+        if (legs == null) {
+            return null;
+        }
+
+        MapSnapshot snapshot = mapManager.getSnapshot();
+        CompiledCache cache = compiled;
+        if (cache.snapshot() != snapshot) {
+            // 地图已热重载，之前的编译结果全部作废
+            cache = new CompiledCache(snapshot, new ConcurrentHashMap<>());
+            compiled = cache;
+            RcsLog.algorithmLog.info("地图快照已变化，线路预设将重新编译");
+        }
+        MapSnapshot compileSnapshot = cache.snapshot();
+        return cache.plans().computeIfAbsent(key, k -> Optional.ofNullable(compile(legs, compileSnapshot))).orElse(null);
+    }
+
+    /**
+     * 线路数量
+     *
+     * @return 数量
+     */
+    public int size() {
+        return presets.size();
+    }
+
+    /**
+     * 编译线路：校验线路段、解析点位别名并预规划每一段的路线
+     *
+     * @param legs     线路段
+     * @param snapshot 当前地图快照
+     * @return 编译结果，线路不可用时返回 null
+     */
+    private RoutePresetPlan compile(List<RoutePresetLeg> legs, MapSnapshot snapshot) {
+        String routeCode = legs.getFirst().getRouteCode();
+        String problem = validate(legs);
+        if (problem != null) {
+            RcsLog.algorithmLog.warn("线路预设 [{}] 不可用：{}", routeCode, problem);
+            return null;
+        }
+
+        List<RoutePresetPlan.Leg> compiledLegs = new ArrayList<>(legs.size());
+        for (RoutePresetLeg leg : legs) {
+            RcsPoint origin = mapManager.getPointByAlias(leg.getOrigin());
+            RcsPoint destin = mapManager.getPointByAlias(leg.getDestin());
+            if (origin == null || destin == null) {
+                RcsLog.algorithmLog.warn("线路预设 [{}] 不可用：明细 [{}] 的点位 [{}]->[{}] 在地图中不存在", routeCode, leg.getCode(), leg.getOrigin(), leg.getDestin());
+                return null;
+            }
+            // 编译结果会被缓存，只能使用与交通状况无关的静态代价
+            RouteResult route = rcsAstarSearch.staticSearch(origin, destin);
+            if (route == null || route.getPaths() == null || route.getPaths().isEmpty()) {
+                RcsLog.algorithmLog.warn("线路预设 [{}] 不可用：明细 [{}] 的点位 [{}]->[{}] 规划不到路线", routeCode, leg.getCode(), leg.getOrigin(), leg.getDestin());
+                return null;
+            }
+            compiledLegs.add(new RoutePresetPlan.Leg(leg, origin, destin, List.copyOf(route.getPaths()), route.getPathCost()));
+        }
+        return new RoutePresetPlan(routeCode, snapshot, compiledLegs);
+    }
+
+    /**
+     * 校验线路段：全部由AGV执行，首段起点为线路起点、末段终点为线路终点，且各段首尾相连
+     *
+     * @param legs 线路段
+     * @return 不可用原因，可用时返回 null
+     */
+    static String validate(List<RoutePresetLeg> legs) {
+        RoutePresetLeg first = legs.getFirst();
+        if (!equalsAlias(first.getOrigin(), first.getRouteOrigin())) {
+            return "首段起点 [" + first.getOrigin() + "] 与线路起点 [" + first.getRouteOrigin() + "] 不一致";
+        }
+        RoutePresetLeg last = legs.getLast();
+        if (!equalsAlias(last.getDestin(), last.getRouteDestin())) {
+            return "末段终点 [" + last.getDestin() + "] 与线路终点 [" + last.getRouteDestin() + "] 不一致";
+        }
+        for (int i = 0; i < legs.size(); i++) {
+            RoutePresetLeg leg = legs.get(i);
+            if (leg.getExecutiveSystem() != null && !EXECUTIVE_AGV.equals(leg.getExecutiveSystem().trim())) {
+                return "明细 [" + leg.getCode() + "] 的执行系统不是AGV";
+            }
+            if (i > 0 && !equalsAlias(legs.get(i - 1).getDestin(), leg.getOrigin())) {
+                return "明细 [" + legs.get(i - 1).getCode() + "] 与 [" + leg.getCode() + "] 首尾不相连";
+            }
+        }
+        return null;
+    }
+
+    private static boolean equalsAlias(String a, String b) {
+        return a != null && b != null && a.trim().equalsIgnoreCase(b.trim());
+    }
+
+    private static String key(Integer type, String origin, String destin) {
+        return type + "|" + (origin == null ? "" : origin.trim().toUpperCase()) + "|" + (destin == null ? "" : destin.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,365 @@
+package com.ruinap.core.task;
+
+import com.ruinap.core.task.domain.RcsTask;
+import com.ruinap.infra.enums.task.TaskStateEnum;
+
+import java.util.*;
+
+/**
+ * <h1>任务分发队列</h1>
+ * <p>
+ * 按分发顺序维护待分发任务，并建立以下索引：
+ * <ul>
+ * <li>任务状态 → 有序任务集合</li>
+ * <li>起点楼层 → 有序任务集合</li>
+ * <li>(优先级, 任务组) → 可分发任务桶，桶内最优任务缓存在桶头</li>
+ * </ul>
+ * 插入、更新 (优先级/状态) 与移除都是 O(log n)，只改动该任务所在的索引；
+ * 查询某个 (优先级, 任务组) 的最优可分发任务为 O(1)。
+ * </p>
+ * <p>
+ * 分发顺序与任务表分组查询的 ORDER BY 一致：任务状态降序、优先级降序、置顶时间降序、创建时间升序、任务顺序升序，
+ * 全部相同时按入队顺序。可分发 = 新任务 且 未下发 且 无中断。
+ * </p>
+ * <p>
+ * 队列只保存索引字段的快照，任务对象上的字段变化后需要调用 {@link #upsert(RcsTask)} 重新入队。
+ * 所有方法在同一把锁内执行，线程安全。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-08 09:30
+ */
+public class TaskDispatchQueue {
+
+    /**
+     * 分发顺序
+     */
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparingInt(Entry::state).reversed()
+            .thenComparing(Comparator.comparingInt(Entry::priority).reversed())
+            .thenComparing(Comparator.comparingLong(Entry::priorityTime).reversed())
+            .thenComparingLong(Entry::createTime)
+            .thenComparingInt(Entry::rank)
+            .thenComparingLong(Entry::seq);
+
+    /**
+     * 任务编号 → 索引项
+     */
+    private final Map<String, Entry> entries = new HashMap<>();
+    /**
+     * 全部任务
+     */
+    private final TreeSet<Entry> ordered = new TreeSet<>(ORDER);
+    /**
+     * 可分发任务
+     */
+    private final TreeSet<Entry> eligible = new TreeSet<>(ORDER);
+    /**
+     * 任务状态索引
+     */
+    private final Map<Integer, TreeSet<Entry>> stateIndex = new HashMap<>();
+    /**
+     * 起点楼层索引
+     */
+    private final Map<Integer, TreeSet<Entry>> floorIndex = new HashMap<>();
+    /**
+     * (优先级, 任务组) 可分发任务桶
+     */
+    private final Map<BucketKey, Bucket> buckets = new HashMap<>();
+
+    /**
+     * 入队顺序
+     */
+    private long sequence = 0;
+
+    /**
+     * 插入或更新任务 (保留已记录的置顶时间)
+     *
+     * @param task 任务
+     */
+    public synchronized void upsert(RcsTask task) {
+        if (task == null || task.getTaskCode() == null) {
+            return;
+        }
+        Entry old = entries.get(task.getTaskCode());
+        reindex(task, old == null ? Long.MIN_VALUE : old.priorityTime());
+    }
+
+    /**
+     * 插入或更新任务
+     * <p>
+     * 索引字段未变化时不做任何调整
+     *
+     * @param task         任务
+     * @param priorityTime 置顶时间 (任务表 priority_time)
+     */
+    public synchronized void upsert(RcsTask task, Date priorityTime) {
+        if (task == null || task.getTaskCode() == null) {
+            return;
+        }
+        reindex(task, priorityTime == null ? Long.MIN_VALUE : priorityTime.getTime());
+    }
+
+    private void reindex(RcsTask task, long priorityTime) {
+        Entry old = entries.get(task.getTaskCode());
+        Entry entry = Entry.of(task, priorityTime, old == null ? sequence++ : old.seq());
+        if (entry.equals(old)) {
+            return;
+        }
+        if (old != null) {
+            unlink(old);
+        }
+        link(entry);
+    }
+
+    /**
+     * 更新任务优先级
+     *
+     * @param taskCode 任务编号
+     * @param priority 优先级
+     */
+    public synchronized void updatePriority(String taskCode, int priority) {
+        Entry old = entries.get(taskCode);
+        if (old == null || old.priority() == priority) {
+            return;
+        }
+        unlink(old);
+        link(new Entry(old.taskCode(), old.task(), old.state(), priority, old.priorityTime(), old.group(), old.floor(), old.createTime(), old.rank(), old.seq(),
+                isEligible(old.state(), old.sendState(), old.interruptState()), old.sendState(), old.interruptState()));
+    }
+
+    /**
+     * 更新任务状态
+     *
+     * @param taskCode 任务编号
+     * @param state    任务状态
+     */
+    public synchronized void updateState(String taskCode, int state) {
+        Entry old = entries.get(taskCode);
+        if (old == null || old.state() == state) {
+            return;
+        }
+        unlink(old);
+        link(new Entry(old.taskCode(), old.task(), state, old.priority(), old.priorityTime(), old.group(), old.floor(), old.createTime(), old.rank(), old.seq(),
+                isEligible(state, old.sendState(), old.interruptState()), old.sendState(), old.interruptState()));
+    }
+
+    /**
+     * 移除任务
+     *
+     * @param taskCode 任务编号
+     * @return 被移除的任务，不存在返回 null
+     */
+    public synchronized RcsTask remove(String taskCode) {
+        Entry old = entries.get(taskCode);
+        if (old == null) {
+            return null;
+        }
+        unlink(old);
+        return old.task();
+    }
+
+    /**
+     * 是否包含任务
+     *
+     * @param taskCode 任务编号
+     * @return true=包含
+     */
+    public synchronized boolean contains(String taskCode) {
+        return entries.containsKey(taskCode);
+    }
+
+    /**
+     * 任务数量
+     *
+     * @return 数量
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 清空队列
+     */
+    public synchronized void clear() {
+        entries.clear();
+        ordered.clear();
+        eligible.clear();
+        stateIndex.clear();
+        floorIndex.clear();
+        buckets.clear();
+    }
+
+    /**
+     * 获取指定 (优先级, 任务组) 的最优可分发任务
+     *
+     * @param priority 优先级
+     * @param group    任务组
+     * @return 任务，不存在返回 null
+     */
+    public synchronized RcsTask peek(int priority, String group) {
+        Bucket bucket = buckets.get(new BucketKey(priority, group));
+        return bucket == null ? null : bucket.head.task();
+    }
+
+    /**
+     * 获取全局最优可分发任务
+     *
+     * @return 任务，不存在返回 null
+     */
+    public synchronized RcsTask peekEligible() {
+        return eligible.isEmpty() ? null : eligible.first().task();
+    }
+
+    /**
+     * 按分发顺序获取全部任务 (快照)
+     *
+     * @return 任务列表
+     */
+    public synchronized List<RcsTask> ordered() {
+        return toTasks(ordered);
+    }
+
+    /**
+     * 按分发顺序获取可分发任务 (快照)
+     *
+     * @return 任务列表
+     */
+    public synchronized List<RcsTask> eligible() {
+        return toTasks(eligible);
+    }
+
+    /**
+     * 按分发顺序获取指定状态的任务 (快照)
+     *
+     * @param state 任务状态
+     * @return 任务列表
+     */
+    public synchronized List<RcsTask> byState(int state) {
+        return toTasks(stateIndex.get(state));
+    }
+
+    /**
+     * 按分发顺序获取指定起点楼层的任务 (快照)
+     *
+     * @param originFloor 起点楼层
+     * @return 任务列表
+     */
+    public synchronized List<RcsTask> byOriginFloor(Integer originFloor) {
+        return toTasks(floorIndex.get(originFloor));
+    }
+
+    private void link(Entry entry) {
+        entries.put(entry.taskCode(), entry);
+        ordered.add(entry);
+        stateIndex.computeIfAbsent(entry.state(), key -> new TreeSet<>(ORDER)).add(entry);
+        floorIndex.computeIfAbsent(entry.floor(), key -> new TreeSet<>(ORDER)).add(entry);
+        if (entry.eligible()) {
+            eligible.add(entry);
+            Bucket bucket = buckets.computeIfAbsent(new BucketKey(entry.priority(), entry.group()), key -> new Bucket());
+            bucket.set.add(entry);
+            bucket.head = bucket.set.first();
+        }
+    }
+
+    private void unlink(Entry entry) {
+        entries.remove(entry.taskCode());
+        ordered.remove(entry);
+        removeFromIndex(stateIndex, entry.state(), entry);
+        removeFromIndex(floorIndex, entry.floor(), entry);
+        if (entry.eligible()) {
+            eligible.remove(entry);
+            BucketKey key = new BucketKey(entry.priority(), entry.group());
+            Bucket bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.set.remove(entry);
+                if (bucket.set.isEmpty()) {
+                    buckets.remove(key);
+                } else {
+                    bucket.head = bucket.set.first();
+                }
+            }
+        }
+    }
+
+    private static void removeFromIndex(Map<Integer, TreeSet<Entry>> index, Integer key, Entry entry) {
+        TreeSet<Entry> set = index.get(key);
+        if (set != null) {
+            set.remove(entry);
+            if (set.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static List<RcsTask> toTasks(Collection<Entry> source) {
+        if (source == null) {
+            return new ArrayList<>(0);
+        }
+        List<RcsTask> tasks = new ArrayList<>(source.size());
+        source.forEach(entry -> tasks.add(entry.task()));
+        return tasks;
+    }
+
+    /**
+     * 是否可分发：新任务 且 未下发 且 无中断
+     */
+    private static boolean isEligible(int state, int sendState, int interruptState) {
+        return state == TaskStateEnum.NEW.code && sendState == 0 && interruptState == 0;
+    }
+
+    /**
+     * 索引项 (字段快照，不可变)
+     */
+    private record Entry(String taskCode, RcsTask task, int state, int priority, long priorityTime, String group, Integer floor,
+                         long createTime, int rank, long seq, boolean eligible, int sendState, int interruptState) {
+
+        private static Entry of(RcsTask task, long priorityTime, long seq) {
+            int state = valueOf(task.getTaskState());
+            int sendState = valueOf(task.getSendState());
+            int interruptState = valueOf(task.getInterruptState());
+            long createTime = task.getCreateTime() == null ? Long.MIN_VALUE : task.getCreateTime().getTime();
+            return new Entry(task.getTaskCode(), task, state, valueOf(task.getTaskPriority()), priorityTime, task.getTaskGroup(), task.getOriginFloor(),
+                    createTime, valueOf(task.getTaskRank()), seq, isEligible(state, sendState, interruptState), sendState, interruptState);
+        }
+
+        private static int valueOf(Integer value) {
+            return value == null ? 0 : value;
+        }
+
+        /**
+         * 同一任务对象、索引字段相同视为相等 (用于判断是否需要重新入队)
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Entry other)) {
+                return false;
+            }
+            return task == other.task && state == other.state && priority == other.priority && priorityTime == other.priorityTime && createTime == other.createTime
+                    && rank == other.rank && seq == other.seq && sendState == other.sendState && interruptState == other.interruptState
+                    && taskCode.equals(other.taskCode) && Objects.equals(group, other.group) && Objects.equals(floor, other.floor);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(taskCode, seq);
+        }
+    }
+
+    /**
+     * 桶键
+     */
+    private record BucketKey(int priority, String group) {
+    }
+
+    /**
+     * 可分发任务桶
+     */
+    private static final class Bucket {
+        private final TreeSet<Entry> set = new TreeSet<>(ORDER);
+        private Entry head;
+    }
+}
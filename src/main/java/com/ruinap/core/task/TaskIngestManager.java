@@ -0,0 +1,195 @@
+package com.ruinap.core.task;
+
+import cn.hutool.db.Entity;
+import com.ruinap.infra.config.TaskYaml;
+import com.ruinap.infra.framework.annotation.Autowired;
+import com.ruinap.infra.framework.annotation.Component;
+import com.ruinap.infra.log.RcsLog;
+import com.ruinap.persistence.repository.TaskAgvDB;
+import com.ruinap.persistence.repository.TaskDB;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * <h1>任务增量读取管理器</h1>
+ * <p>
+ * 维护“待分发任务”的内存视图，替代每个节拍对任务表的全表分组查询：
+ * <ul>
+ * <li>首次加载、切换任务来源、到达全量校准间隔时：记录任务表最大更新时间作为水位线，再全量读取一次；</li>
+ * <li>其余节拍：只读取 update_time 不早于水位线的行，按行更新视图 (仍满足分发条件的放入，否则移除)。</li>
+ * </ul>
+ * 每个节拍的数据库负载只与变更量相关，与历史任务总量无关。
+ * </p>
+ * <p>
+ * update_time 为秒级精度，且并发事务可能晚于水位线提交，因此增量查询向前重叠 {@link #OVERLAP_MS} 毫秒，
+ * 重叠部分重复读取的行按任务编号覆盖，结果幂等。直接删除的行无法通过增量感知，由定期全量校准修正。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-07 09:20
+ */
+@Component
+public class TaskIngestManager {
+
+    @Autowired
+    private TaskYaml taskYaml;
+    @Autowired
+    private TaskDB taskDB;
+    @Autowired
+    private TaskAgvDB taskAgvDB;
+
+    /**
+     * 增量查询向前重叠的时间 (毫秒)
+     */
+    static final long OVERLAP_MS = 2000;
+
+    /**
+     * 分发顺序，与全量分组查询的 ORDER BY 一致：
+     * task_state DESC, task_priority DESC, priority_time DESC, create_time ASC, task_rank ASC
+     * (MySQL 中 NULL 视为最小值：降序排在最后，升序排在最前)
+     */
+    static final Comparator<Entity> DISPATCH_ORDER = Comparator
+            .comparing((Entity entity) -> entity.getInt("task_state"), Comparator.nullsFirst(Comparator.<Integer>naturalOrder()).reversed())
+            .thenComparing(entity -> entity.getInt("task_priority"), Comparator.nullsFirst(Comparator.<Integer>naturalOrder()).reversed())
+            .thenComparing(entity -> entity.getDate("priority_time"), Comparator.nullsFirst(Comparator.<Date>naturalOrder()).reversed())
+            .thenComparing(entity -> entity.getDate("create_time"), Comparator.nullsFirst(Comparator.<Date>naturalOrder()))
+            .thenComparing(entity -> entity.getInt("task_rank"), Comparator.nullsFirst(Comparator.<Integer>naturalOrder()));
+
+    /**
+     * 待分发任务视图
+     * Key: 任务编号
+     */
+    private final Map<String, Entity> activeTasks = new HashMap<>();
+
+    /**
+     * 水位线 (已读取到的最大更新时间)，null 表示需要全量加载
+     */
+    private Date watermark;
+
+    /**
+     * 当前视图对应的任务来源
+     */
+    private Integer loadedSource;
+
+    /**
+     * 上一次全量加载时间
+     */
+    private long lastFullSyncTime;
+
+    /**
+     * 读取待分发任务列表
+     *
+     * @param changeListener 每一条读取到的任务行都会回调，用于同步已缓存任务中由上位系统维护的字段
+     * @param removeListener 任务离开待分发视图时回调 (参数为任务编号)
+     * @return 待分发任务列表 (按分发顺序)
+     */
+    public synchronized List<Entity> poll(Consumer<Entity> changeListener, Consumer<String> removeListener) {
+        List<String> removed = new ArrayList<>();
+        Integer taskSource = taskYaml.getTaskSource();
+        long now = System.currentTimeMillis();
+        long fullSyncMs = Math.max(1, taskYaml.getTaskFullSyncInterval()) * 1000L;
+        try {
+            List<Entity> rows;
+            if (watermark == null || !taskSource.equals(loadedSource) || now - lastFullSyncTime >= fullSyncMs) {
+                rows = fullLoad(taskSource, removed);
+                lastFullSyncTime = now;
+                loadedSource = taskSource;
+            } else {
+                rows = applyChanges(taskSource, removed);
+            }
+            if (changeListener != null) {
+                rows.forEach(changeListener);
+            }
+            if (removeListener != null) {
+                removed.forEach(removeListener);
+            }
+        } catch (SQLException e) {
+            // 捕获异常并记录日志，下一个节拍重新全量加载
+            RcsLog.sysLog.error(e);
+            watermark = null;
+            return new ArrayList<>(0);
+        }
+
+        List<Entity> taskList = new ArrayList<>(activeTasks.values());
+        taskList.sort(DISPATCH_ORDER);
+        return taskList;
+    }
+
+    /**
+     * 全量加载
+     * <p>
+     * 先取水位线再全量查询：查询期间发生的变更会在下一次增量读取中再读一次，不会遗漏
+     *
+     * @param taskSource 任务来源
+     * @param removed    收集离开视图的任务编号
+     * @return 读取到的任务行
+     */
+    private List<Entity> fullLoad(Integer taskSource, List<String> removed) throws SQLException {
+        Date maxUpdateTime = taskSource.equals(0) ? taskDB.selectMaxUpdateTime() : taskAgvDB.selectMaxUpdateTime();
+        List<Entity> rows = taskSource.equals(0) ? taskDB.selectTaskGroupList() : taskAgvDB.selectTaskGroupList();
+
+        Set<String> previous = new HashSet<>(activeTasks.keySet());
+        activeTasks.clear();
+        for (Entity row : rows) {
+            String taskCode = row.getStr("task_code");
+            if (taskCode != null) {
+                activeTasks.put(taskCode, row);
+                previous.remove(taskCode);
+            }
+        }
+        removed.addAll(previous);
+        // 空表时从头开始增量读取
+        watermark = maxUpdateTime == null ? new Date(0) : maxUpdateTime;
+        RcsLog.algorithmLog.info("任务列表全量加载完成，待分发任务数量: {}，水位线: {}", activeTasks.size(), watermark);
+        return rows;
+    }
+
+    /**
+     * 增量读取
+     *
+     * @param taskSource 任务来源
+     * @param removed    收集离开视图的任务编号
+     * @return 读取到的任务行
+     */
+    private List<Entity> applyChanges(Integer taskSource, List<String> removed) throws SQLException {
+        Date since = new Date(watermark.getTime() - OVERLAP_MS);
+        List<Entity> rows = taskSource.equals(0) ? taskDB.selectTaskChangedSince(since) : taskAgvDB.selectTaskChangedSince(since);
+
+        Date maxUpdateTime = watermark;
+        for (Entity row : rows) {
+            String taskCode = row.getStr("task_code");
+            if (taskCode == null) {
+                continue;
+            }
+            if (isDispatchable(row)) {
+                activeTasks.put(taskCode, row);
+            } else if (activeTasks.remove(taskCode) != null) {
+                removed.add(taskCode);
+            }
+            Date updateTime = row.getDate("update_time");
+            if (updateTime != null && updateTime.after(maxUpdateTime)) {
+                maxUpdateTime = updateTime;
+            }
+        }
+        watermark = maxUpdateTime;
+        return rows;
+    }
+
+    /**
+     * 是否满足分发条件，与全量分组查询的 WHERE 一致：
+     * executive_system = 0 AND task_state > 0 AND interrupt_state = 0
+     *
+     * @param row 任务行
+     * @return true=待分发
+     */
+    static boolean isDispatchable(Entity row) {
+        Integer executiveSystem = row.getInt("executive_system");
+        Integer taskState = row.getInt("task_state");
+        Integer interruptState = row.getInt("interrupt_state");
+        return Integer.valueOf(0).equals(executiveSystem)
+                && taskState != null && taskState > 0
+                && Integer.valueOf(0).equals(interruptState);
+    }
+}
@@ -2,12 +2,15 @@ package com.ruinap.core.task;
 
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.db.Entity;
+import com.ruinap.core.algorithm.EtaManager;
 import com.ruinap.core.business.AlarmManager;
 import com.ruinap.core.equipment.manager.HandoverDeviceManager;
 import com.ruinap.core.equipment.pojo.RcsAgv;
 import com.ruinap.core.task.domain.RcsTask;
 import com.ruinap.core.task.domain.TaskPath;
+import com.ruinap.core.task.event.TaskStateChangeEvent;
 import com.ruinap.core.task.structure.TaskSectionManager;
+import com.ruinap.core.task.structure.auction.AuctionEngine;
 import com.ruinap.core.task.structure.auction.BidResult;
 import com.ruinap.core.task.structure.cycle.TaskLifecycleManager;
 import com.ruinap.core.task.structure.distribution.TaskDistributionFactory;
@@ -22,14 +25,15 @@ import com.ruinap.infra.enums.task.TaskStateEnum;
 import com.ruinap.infra.enums.task.TaskTypeEnum;
 import com.ruinap.infra.framework.annotation.Autowired;
 import com.ruinap.infra.framework.annotation.Component;
+import com.ruinap.infra.framework.annotation.EventListener;
 import com.ruinap.infra.log.RcsLog;
 import com.ruinap.infra.structure.FiFoConcurrentMap;
 import com.ruinap.persistence.repository.ConfigDB;
-import com.ruinap.persistence.repository.TaskAgvDB;
-import com.ruinap.persistence.repository.TaskDB;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 任务管理类
@@ -43,10 +47,6 @@ public class TaskManager {
     @Autowired
     private TaskYaml taskYaml;
     @Autowired
-    private TaskDB taskDB;
-    @Autowired
-    private TaskAgvDB taskAgvDB;
-    @Autowired
     private ConfigDB configDB;
     @Autowired
     private TaskPathManager taskPathManager;
@@ -60,6 +60,12 @@ public class TaskManager {
     private TaskSectionManager taskSectionManager;
     @Autowired
     private TaskLifecycleManager taskLifecycleManager;
+    @Autowired
+    private EtaManager etaManager;
+    @Autowired
+    private AuctionEngine auctionEngine;
+    @Autowired
+    private TaskIngestManager taskIngestManager;
 
     /**
      * 全局任务集合
@@ -68,22 +74,21 @@ public class TaskManager {
      */
     public final FiFoConcurrentMap<String, RcsTask> taskCache = new FiFoConcurrentMap<>();
 
+    /**
+     * 任务分发队列
+     * <p>
+     * 按分发顺序索引待分发任务，任务状态、优先级变化时只调整对应索引
+     */
+    public final TaskDispatchQueue dispatchQueue = new TaskDispatchQueue();
+
     /**
      * 查询分组任务列表
      *
      * @return 任务
      */
     public List<Entity> selectTaskList() {
-        List<Entity> entityList;
-        // 获取任务来源
-        Integer taskSource = taskYaml.getTaskSource();
-        if (taskSource.equals(0)) {
-            // 从数据库获取任务列表
-            entityList = taskDB.selectTaskGroupList();
-        } else {
-            // 从数据库获取任务列表
-            entityList = taskAgvDB.selectTaskGroupList();
-        }
+        // 按水位线增量获取任务列表，同时把上位系统的修改同步到已缓存的任务
+        List<Entity> entityList = taskIngestManager.poll(this::refreshCachedTask, dispatchQueue::remove);
 
         // 如果任务列表为空，直接返回空列表
         if (entityList.isEmpty()) {
@@ -108,6 +113,9 @@ public class TaskManager {
                 taskList.remove(entity);
                 // 如果任务无效，记录原因到日志
                 RcsLog.algorithmLog.error("{} 任务不符合条件，原因: {}", rcsTask.getId(), String.join(", ", reasons));
+            } else {
+                //加入分发队列
+                dispatchQueue.upsert(rcsTask, entity.getDate("priority_time"));
             }
 
             //将任务添加到任务缓存
@@ -117,22 +125,50 @@ public class TaskManager {
         return taskList;
     }
 
+    /**
+     * 同步已缓存任务中由上位系统维护的字段
+     * <p>
+     * 这些字段不会被调度系统回写数据库 (见 DbManager.syncDataToDb)，以数据库为准
+     *
+     * @param entity 任务行
+     */
+    private void refreshCachedTask(Entity entity) {
+        RcsTask rcsTask = this.taskCache.get(entity.getStr("task_code"));
+        if (rcsTask == null) {
+            return;
+        }
+        rcsTask.setInterruptState(entity.getInt("interrupt_state"));
+        rcsTask.setTaskPriority(entity.getInt("task_priority"));
+        rcsTask.setEquipmentLabel(entity.getStr("equipment_label"));
+        //仍在待分发视图中的任务重新入队
+        if (TaskIngestManager.isDispatchable(entity)) {
+            dispatchQueue.upsert(rcsTask, entity.getDate("priority_time"));
+        }
+    }
+
+    /**
+     * 任务状态变化时调整分发队列索引
+     *
+     * @param event 任务状态变更事件
+     */
+    @EventListener
+    public void onTaskStateChange(TaskStateChangeEvent event) {
+        dispatchQueue.updateState(event.getTask().getTaskCode(), event.getNewState().code);
+    }
+
     /**
      * 任务分发
      */
     public void taskDistribution() {
-        //获取任务列表
-        List<Entity> taskList = selectTaskList();
-        // 遍历任务
-        for (Entity entity : taskList) {
-            RcsTask rcsTask = this.taskCache.get(entity.getStr("task_code"));
-            if (rcsTask == null) {
-                RcsLog.consoleLog.error("{} 获取不到任务数据", entity.getStr("task_code"));
-                continue;
-            }
-
-            //工作状态 0结束工作 1正在工作
-            if (configDB.getWorkState().equals(0)) {
+        //读取任务变更，更新分发队列
+        selectTaskList();
+        //工作状态 0结束工作 1正在工作，每个节拍只读取一次
+        boolean workEnd = configDB.getWorkState().equals(0);
+        //批量拍卖：本节拍内待分配的新任务一次性做全局匹配
+        Map<String, BidResult> batchBids = batchAuction(workEnd);
+        // 按分发顺序遍历任务
+        for (RcsTask rcsTask : dispatchQueue.ordered()) {
+            if (workEnd) {
                 if (TaskTypeEnum.isEnumByCode(TaskTypeEnum.CARRY, rcsTask.getTaskType())) {
                     RcsLog.consoleLog.error("{} 当前系统状态为【结束工作】，跳过下发搬运任务", rcsTask.getTaskCode());
                     RcsLog.algorithmLog.error("{} 当前系统状态为【结束工作】，跳过下发搬运任务", rcsTask.getTaskCode());
@@ -162,6 +198,7 @@ public class TaskManager {
                         if (flag) {
                             //任务状态 -2上位取消 -1任务取消 0任务完成 1暂停任务 2新任务 3动作中 4取货动作中 5卸货动作中 6取货完成 7放货完成 97取货运行中 98卸货运行中 99运行中
                             rcsTask.setTaskState(TaskStateEnum.CANCEL.code);
+                            dispatchQueue.updateState(rcsTask.getTaskCode(), TaskStateEnum.CANCEL.code);
                             RcsLog.consoleLog.info("{} 任务与调度任务路径数据不匹配，将任务改为取消", rcsTask.getTaskCode());
                         }
                     }
@@ -182,8 +219,9 @@ public class TaskManager {
             // 获取任务状态分发处理器
             TaskStateHandle stateHandler = TaskDistributionFactory.getFactory(taskStateEnum);
             if (stateHandler != null) {
-                //调用具体的处理器
-                BidResult bidResult = stateHandler.handle(rcsTask);
+                //批量拍卖已决标的任务直接使用匹配结果，否则调用具体的处理器
+                boolean batched = batchBids.containsKey(rcsTask.getTaskCode());
+                BidResult bidResult = batched ? batchBids.get(rcsTask.getTaskCode()) : stateHandler.handle(rcsTask);
                 if (bidResult != null) {
                     RcsAgv rcsAgv = bidResult.getRcsAgv();
                     if (StrUtil.isBlank(String.valueOf(rcsAgv.getPointId()))) {
@@ -244,9 +282,14 @@ public class TaskManager {
                     if (taskPath != null) {
                         //添加任务路径
                         addTaskPath(rcsAgv.getAgvId(), rcsTask, taskPath);
+                        //发布任务预计到达时间
+                        etaManager.onTaskAssigned(rcsTask.getTaskCode(), rcsAgv, bidResult.getEtaMs());
                     } else {
                         RcsLog.algorithmLog.error("{} 任务[{}]返回空数据，任务拆分失败", rcsAgv.getAgvId(), rcsTask.getTaskCode());
                     }
+                } else if (batched) {
+                    //批量匹配中未分到AGV，其他任务可能已分配，继续处理后续任务
+                    RcsLog.algorithmLog.warn("{} 本节拍批量拍卖未分配到AGV，等待下一节拍", rcsTask.getTaskCode());
                 } else {
                     RcsLog.consoleLog.error("{} 任务分配失败，没有空闲的AGV", rcsTask.getTaskCode());
                     RcsLog.algorithmLog.error("{} 任务分配失败，没有空闲的AGV", rcsTask.getTaskCode());
@@ -259,6 +302,36 @@ public class TaskManager {
         }
     }
 
+    /**
+     * 批量拍卖
+     * <p>
+     * 仅在拍卖模式且开启批量拍卖时生效，参与的任务为：未下发、新任务、未指定AGV。
+     * 只有一个任务时与单任务拍卖等价，不走批量流程
+     *
+     * @param workEnd 是否结束工作
+     * @return Key: 任务编号，Value: 中标标书 (未分配到AGV时为 null)；未参与批量拍卖的任务不在其中
+     */
+    private Map<String, BidResult> batchAuction(boolean workEnd) {
+        if (!taskYaml.getTaskDistributeMode().equals(7) || !taskYaml.getAuctionBatch().equals(1)) {
+            return Collections.emptyMap();
+        }
+        List<RcsTask> batchTasks = new ArrayList<>();
+        //分发队列的可分发索引即 未下发 且 新任务 的任务
+        for (RcsTask rcsTask : dispatchQueue.eligible()) {
+            if (StrUtil.isNotBlank(rcsTask.getEquipmentCode())) {
+                continue;
+            }
+            if (workEnd && TaskTypeEnum.isEnumByCode(TaskTypeEnum.CARRY, rcsTask.getTaskType())) {
+                continue;
+            }
+            batchTasks.add(rcsTask);
+        }
+        if (batchTasks.size() < 2) {
+            return Collections.emptyMap();
+        }
+        return auctionEngine.startBatchAuction(batchTasks);
+    }
+
     /**
      * 添加任务路径
      *
@@ -277,6 +350,8 @@ public class TaskManager {
             rcsTask.setEquipmentCode(agvCode);
             // 设置下发状态 0未下发 1已下发
             rcsTask.setSendState(1);
+            // 移出可分发索引
+            dispatchQueue.upsert(rcsTask);
 
             // 任务状态改成已下发
             taskLifecycleManager.stateChange(rcsTask, TaskStateEnum.ISSUED);
@@ -10,6 +10,7 @@ import com.ruinap.core.map.event.RcsPointOccupyChangeEvent;
 import com.ruinap.core.map.pojo.RcsPoint;
 import com.ruinap.core.map.util.GeometryUtils;
 import com.ruinap.core.task.domain.TaskPath;
+import com.ruinap.core.task.journal.RuntimeJournal;
 import com.ruinap.infra.framework.annotation.Async;
 import com.ruinap.infra.framework.annotation.Autowired;
 import com.ruinap.infra.framework.annotation.EventListener;
@@ -40,6 +41,8 @@ public class TaskPathManager {
     private AgvManager agvManager;
     @Autowired
     private SlideTimeWindow slideTimeWindow;
+    @Autowired
+    private RuntimeJournal runtimeJournal;
 
     /**
      * 全局任务路径
@@ -76,6 +79,7 @@ public class TaskPathManager {
 
             // 更新 TASK_PATH_MAP
             TASK_PATH_MAP.put(key, taskPaths);
+            runtimeJournal.recordPaths(key, taskPaths);
         });
     }
 
@@ -88,6 +92,7 @@ public class TaskPathManager {
         RCS_LOCK.runInWrite(() -> {
             // 更新 TASK_PATH_MAP
             TASK_PATH_MAP.putAll(map);
+            map.forEach(runtimeJournal::recordPaths);
         });
     }
 
@@ -116,6 +121,7 @@ public class TaskPathManager {
             List<TaskPath> newPaths = new ArrayList<>();
             newPaths.add(taskPath);
             TASK_PATH_MAP.put(agvCode, newPaths);
+            runtimeJournal.recordPaths(agvCode, newPaths);
 
             return true; // 返回成功
         });
@@ -127,7 +133,11 @@ public class TaskPathManager {
      * @param key 键
      */
     public List<TaskPath> remove(String key) {
-        return RCS_LOCK.supplyInWrite(() -> TASK_PATH_MAP.remove(key));
+        return RCS_LOCK.supplyInWrite(() -> {
+            List<TaskPath> removed = TASK_PATH_MAP.remove(key);
+            runtimeJournal.recordPaths(key, null);
+            return removed;
+        });
     }
 
     /**
@@ -154,11 +164,26 @@ public class TaskPathManager {
             } else {
                 TASK_PATH_MAP.put(key, newPaths);
             }
+            runtimeJournal.recordPaths(key, newPaths);
 
             return removedTask;
         });
     }
 
+    /**
+     * 把任务路径的当前内容写入运行状态日志
+     * <p>
+     * 用于任务路径被原地修改 (规划状态、已走路径等) 之后，内容未变化时不会重复写入
+     *
+     * @param key 键
+     */
+    public void journal(String key) {
+        if (!runtimeJournal.isEnabled()) {
+            return;
+        }
+        RCS_LOCK.runInWrite(() -> runtimeJournal.recordPaths(key, TASK_PATH_MAP.get(key)));
+    }
+
     /**
      * 获取任务路径（使用乐观锁）
      *
@@ -317,6 +342,8 @@ public class TaskPathManager {
 
                     // 缓存AGV路径
                     trafficManager.updateAgvBuffer(rcsAgv.getAgvId(), taskPath.getEffectiveRunningPoints(), rcsAgv.getCarRange());
+                    // 记录行驶进度
+                    journal(rcsAgv.getAgvId());
                 } else {
                     RcsLog.consoleLog.warn("{} AGV当前点位: {}，未在运行路径中找到", rcsAgv.getAgvId(), currentPoint);
                     RcsLog.algorithmLog.warn("{} AGV当前点位: {}，未在运行路径中找到", rcsAgv.getAgvId(), currentPoint);
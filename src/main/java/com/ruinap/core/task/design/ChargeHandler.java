@@ -5,6 +5,7 @@ import cn.hutool.core.date.DateUtil;
 import cn.hutool.db.Entity;
 import com.ruinap.core.business.AlarmManager;
 import com.ruinap.core.equipment.manager.AgvManager;
+import com.ruinap.core.equipment.manager.ChargePileManager;
 import com.ruinap.core.equipment.pojo.RcsAgv;
 import com.ruinap.core.equipment.pojo.RcsChargePile;
 import com.ruinap.core.map.MapManager;
@@ -33,6 +34,7 @@ import java.sql.SQLException;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 充电处理
@@ -65,6 +67,10 @@ public class ChargeHandler implements TaskFlowHandler {
     private ChargePileFilter chargePileFilter;
     @Autowired
     private TaskPathManager taskPathManager;
+    @Autowired
+    private ChargePileManager chargePileManager;
+    @Autowired
+    private ChargeOpportunityPlanner chargeOpportunityPlanner;
 
     /**
      * RCS_LOCK实例
@@ -120,6 +126,8 @@ public class ChargeHandler implements TaskFlowHandler {
 
         // 获取空闲AGV集合
         Map<String, RcsAgv> rcsAgvMap = agvManager.getIdleRcsAgvMap();
+        // 预测的空闲时段内需要机会充电的AGV
+        Set<String> opportunityAgvs = chargeOpportunityPlanner.plan(rcsAgvMap.values());
         AGV_FOR:
         for (Map.Entry<String, RcsAgv> entry : rcsAgvMap.entrySet()) {
             //获取AGV
@@ -138,6 +146,8 @@ public class ChargeHandler implements TaskFlowHandler {
                     }
                 }
             }
+            //没有进行中的充电任务，释放之前的充电桩预约 (已在充电的充电桩由其占用状态保护)
+            chargePileManager.release(rcsAgv.getAgvId());
 
             boolean flag = false;
             //优先级
@@ -201,6 +211,12 @@ public class ChargeHandler implements TaskFlowHandler {
 //                        flag = true;
 //                        RcsLog.algorithmLog.warn("AGV 触发低优先级充电任务，shouldCreateChargeTask = {}", shouldCreateChargeTask);
 //                    }
+
+                    //预测的空闲时段内机会充电，让AGV满电进入高峰期
+                    if (opportunityAgvs.contains(rcsAgv.getAgvId())) {
+                        flag = true;
+                        RcsLog.algorithmLog.warn("AGV 触发机会充电任务，currentBattery = {}", currentBattery);
+                    }
                 }
 
                 //如果不满足充电条件，则充电模式是否自定义并且AGV电量是否低于90
@@ -292,6 +308,10 @@ public class ChargeHandler implements TaskFlowHandler {
                             }
 
                             RcsLog.algorithmLog.info("{} 分配的充电桩[{}]的点位[{}]", chargePile.getCode(), chargePile.getCode(), rcsPoint);
+                            //预约充电桩，AGV到达并充电完成之前其他AGV不再匹配该充电桩
+                            if (!chargePileManager.reserve(chargePile.getCode(), rcsAgv.getAgvId(), System.currentTimeMillis() + chargeOpportunityPlanner.getReservationMs())) {
+                                return false;
+                            }
                             //创建充电任务
                             Entity entity = new Entity();
                             String taskCodeKey = configDB.taskCodeKey();
@@ -0,0 +1,158 @@
+package com.ruinap.core.task.design;
+
+import com.ruinap.core.equipment.manager.AgvManager;
+import com.ruinap.core.equipment.pojo.RcsAgv;
+import com.ruinap.core.task.TaskManager;
+import com.ruinap.core.task.domain.RcsTask;
+import com.ruinap.infra.config.CoreYaml;
+import com.ruinap.infra.enums.task.TaskTypeEnum;
+import com.ruinap.infra.framework.annotation.Autowired;
+import com.ruinap.infra.framework.annotation.Component;
+import com.ruinap.infra.log.RcsLog;
+
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * <h1>机会充电规划器</h1>
+ * <p>
+ * 固定阈值充电只在电量见底时才去充电，而电量恰好在任务高峰期被消耗，
+ * 结果是高峰期频繁出现充电往返。机会充电利用预测的空闲时段提前补电，让 AGV 满电进入高峰：
+ * <ol>
+ * <li>空闲时段：根据预测待机学习到的每小时任务需求率，需求率不超过峰值小时 charge_opportunity_idle_percent 的小时视为空闲时段；</li>
+ * <li>候选：空闲时段内无任务、电量不高于 charge_opportunity_power 的 AGV；</li>
+ * <li>名额：同时充电的 AGV 不超过车队的 charge_opportunity_max_percent，保证空闲时段的任务仍有车可用；
+ * 名额按电量由低到高分配。</li>
+ * </ol>
+ * 没有历史需求数据时不识别空闲时段，行为与原有阈值充电一致。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-14 11:00
+ */
+@Component
+public class ChargeOpportunityPlanner {
+    @Autowired
+    private CoreYaml coreYaml;
+    @Autowired
+    private StandbyPlanner standbyPlanner;
+    @Autowired
+    private AgvManager agvManager;
+    @Autowired
+    private TaskManager taskManager;
+
+    /**
+     * 一天的小时数
+     */
+    private static final int HOURS = 24;
+
+    /**
+     * 规划本轮需要机会充电的 AGV
+     *
+     * @param idleAgvs 空闲 AGV
+     * @return 需要机会充电的 AGV编号
+     */
+    public Set<String> plan(Collection<RcsAgv> idleAgvs) {
+        if (coreYaml.getAlgorithmInt("charge_opportunity_enable", 1) != 1 || idleAgvs == null || idleAgvs.isEmpty()) {
+            return Collections.emptySet();
+        }
+        int hour = LocalTime.now().getHour();
+        if (!isIdleGap(standbyPlanner.getHourlyDemand(), hour, coreYaml.getAlgorithmInt("charge_opportunity_idle_percent", 50))) {
+            return Collections.emptySet();
+        }
+
+        int slots = maxConcurrent(agvManager.getRcsAgvMap().size(), coreYaml.getAlgorithmInt("charge_opportunity_max_percent", 30)) - countCharging();
+        if (slots <= 0) {
+            return Collections.emptySet();
+        }
+        Map<String, Integer> batteries = new HashMap<>(idleAgvs.size());
+        for (RcsAgv rcsAgv : idleAgvs) {
+            if (rcsAgv.getBattery() != null) {
+                batteries.put(rcsAgv.getAgvId(), rcsAgv.getBattery());
+            }
+        }
+        List<String> selected = selectCandidates(batteries, coreYaml.getAlgorithmInt("charge_opportunity_power", 80), slots);
+        if (!selected.isEmpty()) {
+            RcsLog.algorithmLog.info("{} 点处于预测的空闲时段，机会充电名额 {}，选中AGV: {}", hour, slots, selected);
+        }
+        return new HashSet<>(selected);
+    }
+
+    /**
+     * 获取充电桩预约时长
+     *
+     * @return 预约时长 (毫秒)
+     */
+    public long getReservationMs() {
+        return Math.max(1, coreYaml.getAlgorithmInt("charge_reservation_minutes", 60)) * 60_000L;
+    }
+
+    /**
+     * 统计正在执行的充电任务数量
+     *
+     * @return 数量
+     */
+    private int countCharging() {
+        int count = 0;
+        for (RcsTask task : taskManager.taskCache.values()) {
+            //任务状态 -2上位取消 -1任务取消 0任务完成 1暂停任务 2新任务 ...
+            if (task.getTaskState() != null && task.getTaskState() > 0 && TaskTypeEnum.isEnumByCode(TaskTypeEnum.CHARGE, task.getTaskType())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 判断指定小时是否为空闲时段
+     *
+     * @param demand      每个小时的需求率
+     * @param hour        小时 (0~23)
+     * @param idlePercent 需求率不超过峰值的该百分比视为空闲
+     * @return true=空闲时段；没有需求数据时返回 false
+     */
+    static boolean isIdleGap(double[] demand, int hour, int idlePercent) {
+        if (demand == null || demand.length != HOURS) {
+            return false;
+        }
+        double peak = Arrays.stream(demand).max().orElse(0);
+        if (peak <= 0) {
+            return false;
+        }
+        return demand[Math.floorMod(hour, HOURS)] <= peak * idlePercent / 100.0;
+    }
+
+    /**
+     * 计算同时充电的 AGV 数量上限
+     *
+     * @param fleetSize  车队规模
+     * @param maxPercent 上限比例
+     * @return 上限，车队不为空时至少为 1
+     */
+    static int maxConcurrent(int fleetSize, int maxPercent) {
+        if (fleetSize <= 0) {
+            return 0;
+        }
+        return Math.max(1, fleetSize * Math.max(0, maxPercent) / 100);
+    }
+
+    /**
+     * 按电量由低到高选出机会充电的 AGV
+     *
+     * @param batteries Key: AGV编号，Value: 电量
+     * @param power     电量不高于该值才参与机会充电
+     * @param slots     名额
+     * @return 选中的 AGV编号
+     */
+    static List<String> selectCandidates(Map<String, Integer> batteries, int power, int slots) {
+        if (slots <= 0) {
+            return List.of();
+        }
+        return batteries.entrySet().stream()
+                .filter(entry -> entry.getValue() <= power)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                .limit(slots)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+}
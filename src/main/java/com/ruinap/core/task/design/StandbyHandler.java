@@ -1,12 +1,16 @@
 package com.ruinap.core.task.design;
 
+import cn.hutool.db.Entity;
 import com.ruinap.core.equipment.manager.AgvManager;
 import com.ruinap.core.equipment.pojo.RcsAgv;
 import com.ruinap.core.map.MapManager;
+import com.ruinap.core.map.enums.PointOccupyTypeEnum;
 import com.ruinap.core.map.pojo.RcsPoint;
 import com.ruinap.core.task.TaskManager;
+import com.ruinap.core.task.domain.RcsTask;
 import com.ruinap.core.task.design.filter.StandbyFilter;
 import com.ruinap.infra.config.TaskYaml;
+import com.ruinap.infra.enums.task.TaskTypeEnum;
 import com.ruinap.infra.framework.annotation.Autowired;
 import com.ruinap.infra.framework.annotation.Component;
 import com.ruinap.infra.lock.RcsLock;
@@ -14,6 +18,9 @@ import com.ruinap.infra.log.RcsLog;
 import com.ruinap.persistence.repository.ConfigDB;
 import com.ruinap.persistence.repository.TaskDB;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -39,6 +46,8 @@ public class StandbyHandler implements TaskFlowHandler {
     private TaskManager taskManager;
     @Autowired
     private StandbyFilter standbyFilter;
+    @Autowired
+    private StandbyPlanner standbyPlanner;
 
     /**
      * RCS_LOCK实例
@@ -79,7 +88,7 @@ public class StandbyHandler implements TaskFlowHandler {
      * 处理待机
      */
     private void handleStandby() {
-        //待机模式 -2不待机 -1自定义 0最近待机点 1绑定待机点
+        //待机模式 -2不待机 -1自定义 0最近待机点 1绑定待机点 2预测待机
         Integer standbyMode = taskYaml.getStandbyCommon().getStandbyMode();
         if (standbyMode.equals(-2)) {
             return;
@@ -87,6 +96,10 @@ public class StandbyHandler implements TaskFlowHandler {
 
         // 获取空闲AGV集合
         Map<String, RcsAgv> idleRcsAgvMap = agvManager.getIdleRcsAgvMap();
+        if (standbyMode.equals(2)) {
+            handlePredictiveStandby(idleRcsAgvMap);
+            return;
+        }
         AGV_FOR:
         for (Map.Entry<String, RcsAgv> entry : idleRcsAgvMap.entrySet()) {
             //获取AGV
@@ -170,6 +183,104 @@ public class StandbyHandler implements TaskFlowHandler {
         }
     }
 
+    /**
+     * 预测待机
+     * <p>
+     * 所有空闲AGV一起规划：由 {@link StandbyPlanner} 按学习到的起点需求决定哪些AGV需要前往哪个待机点，
+     * 规划未覆盖且不在待机点上的AGV退回最近待机点
+     *
+     * @param idleRcsAgvMap 空闲AGV集合
+     */
+    private void handlePredictiveStandby(Map<String, RcsAgv> idleRcsAgvMap) {
+        List<RcsAgv> candidates = new ArrayList<>();
+        for (RcsAgv rcsAgv : idleRcsAgvMap.values()) {
+            RcsPoint agvPoint = mapManager.getRcsPoint(rcsAgv.getMapId(), rcsAgv.getPointId());
+            if (agvPoint == null || hasActiveTask(rcsAgv.getAgvId())) {
+                continue;
+            }
+            //判断AGV是否在待机屏蔽点
+            if (standbyFilter.isStandbyPointShield(agvPoint, rcsAgv.getAgvId())) {
+                continue;
+            }
+            candidates.add(rcsAgv);
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        Map<String, RcsPoint> moves = standbyPlanner.plan(candidates);
+        for (RcsAgv rcsAgv : candidates) {
+            RcsPoint rcsPoint = moves.get(rcsAgv.getAgvId());
+            if (rcsPoint == null) {
+                RcsPoint agvPoint = mapManager.getRcsPoint(rcsAgv.getMapId(), rcsAgv.getPointId());
+                //已在待机点上的AGV保持不动
+                if (standbyFilter.inStandbyList(agvPoint)) {
+                    continue;
+                }
+                rcsPoint = standbyFilter.filterStandbyByDistance(rcsAgv);
+            }
+            if (rcsPoint != null) {
+                RcsLog.algorithmLog.info("{} AGV预测待机分配到待机点[{}]", rcsAgv.getAgvId(), rcsPoint);
+                createStandbyTask(rcsAgv, rcsPoint);
+            } else {
+                RcsLog.algorithmLog.error("{} AGV希望进行待机，但没有分配到可用的待机点", rcsAgv.getAgvId());
+            }
+        }
+    }
+
+    /**
+     * 判断AGV是否存在未结束的任务
+     *
+     * @param agvId AGV编号
+     * @return true=存在
+     */
+    private boolean hasActiveTask(String agvId) {
+        for (RcsTask task : taskManager.taskCache.values()) {
+            //任务状态 -2上位取消 -1任务取消 0任务完成 1暂停任务 2新任务 3动作中 4取货动作中 5卸货动作中 6取货完成 7放货完成 97取货运行中 98卸货运行中 99运行中
+            Integer taskState = task.getTaskState();
+            if (taskState != null && taskState > 0 && agvId.equals(task.getEquipmentCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 创建待机任务
+     *
+     * @param rcsAgv   AGV
+     * @param rcsPoint 待机点
+     */
+    private void createStandbyTask(RcsAgv rcsAgv, RcsPoint rcsPoint) {
+        RCS_LOCK.runInWrite(() -> {
+            try {
+                Entity entity = new Entity();
+                String taskCodeKey = configDB.taskCodeKey();
+                entity.setIgnoreNull("task_code", taskCodeKey);
+                entity.setIgnoreNull("task_type", TaskTypeEnum.DOCK.code);
+                entity.setIgnoreNull("equipment_code", rcsAgv.getAgvId());
+                entity.setIgnoreNull("origin_floor", rcsAgv.getMapId());
+                entity.setIgnoreNull("origin", taskManager.formatPoint(rcsAgv.getMapId(), rcsAgv.getPointId()));
+                entity.setIgnoreNull("destin_floor", rcsPoint.getMapId());
+                entity.setIgnoreNull("destin_area", rcsPoint.getAreaCode());
+                entity.setIgnoreNull("destin", taskManager.formatPoint(rcsPoint.getMapId(), rcsPoint.getId()));
+                entity.setIgnoreNull("task_priority", 99);
+                entity.setIgnoreNull("task_source", "rcs");
+
+                //创建待机任务
+                taskDB.createTask(entity);
+                //查询数据库创建的待机任务
+                Entity taskEntity = taskDB.queryTask(new Entity().set("task_code", taskCodeKey));
+                //将任务添加到任务缓存
+                taskManager.taskCache.putIfAbsent(taskCodeKey, taskEntity.toBean(RcsTask.class));
+                //更新点位选择占用
+                mapManager.addOccupyType(rcsAgv.getAgvId(), rcsPoint, PointOccupyTypeEnum.CHOOSE);
+            } catch (SQLException e) {
+                RcsLog.sysLog.error(e);
+            }
+        });
+    }
+
     /**
      * 获取可用待机点
      *
@@ -0,0 +1,382 @@
+package com.ruinap.core.task.design;
+
+import cn.hutool.db.Entity;
+import com.ruinap.core.algorithm.DistanceFieldManager;
+import com.ruinap.core.algorithm.HungarianAssigner;
+import com.ruinap.core.algorithm.domain.DistanceField;
+import com.ruinap.core.equipment.pojo.RcsAgv;
+import com.ruinap.core.map.MapManager;
+import com.ruinap.core.map.pojo.MapSnapshot;
+import com.ruinap.core.map.pojo.RcsPoint;
+import com.ruinap.core.map.pojo.RcsPointOccupy;
+import com.ruinap.core.map.util.GeometryUtils;
+import com.ruinap.infra.config.CoreYaml;
+import com.ruinap.infra.enums.task.TaskTypeEnum;
+import com.ruinap.infra.framework.annotation.Autowired;
+import com.ruinap.infra.framework.annotation.Component;
+import com.ruinap.infra.log.RcsLog;
+import com.ruinap.persistence.repository.TaskDB;
+
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <h1>预测待机规划器</h1>
+ * <p>
+ * 根据历史任务学习各起点在一天中每个小时的需求率，把空闲 AGV 提前分布到“预计响应距离”最小的待机点上，
+ * 缩短高峰期任务第一段 (空车前往起点) 的耗时。
+ * </p>
+ * <p>
+ * 规划步骤：
+ * <ol>
+ * <li>需求：当前小时需求率 + 下一小时需求率 × 前瞻比例。</li>
+ * <li>选址：以待机点距离场中的路网距离为代价，贪心求解 p-中位问题，得到应占用的待机点集合。</li>
+ * <li>调配：空闲 AGV → 待机点 的运输问题。待机点容量为 1，退化为指派问题，使用匈牙利算法求总行驶距离最小的调配方案。</li>
+ * </ol>
+ * </p>
+ * <p>
+ * 滞后控制 (防抖)：
+ * <ul>
+ * <li>已在待机点上的 AGV 默认保持不动，只给不在待机点上的 AGV 安排位置；</li>
+ * <li>每隔 standby_rebalance_interval_seconds 秒评估一次整体重排，只有预计响应距离降低超过 standby_rebalance_min_gain_percent 才执行；</li>
+ * <li>刚调配过的 AGV 在 standby_min_dwell_seconds 秒内不参与重排。</li>
+ * </ul>
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-06 09:40
+ */
+@Component
+public class StandbyPlanner {
+    @Autowired
+    private CoreYaml coreYaml;
+    @Autowired
+    private MapManager mapManager;
+    @Autowired
+    private TaskDB taskDB;
+    @Autowired
+    private DistanceFieldManager distanceFieldManager;
+
+    /**
+     * 一天的小时数
+     */
+    private static final int HOURS = 24;
+
+    /**
+     * 调配求解器 (无状态)
+     */
+    private final HungarianAssigner hungarianAssigner = new HungarianAssigner();
+
+    /**
+     * 起点需求率
+     * Key: 起点 (地图编号-点位编号)
+     * Value: 每个小时的平均任务数量
+     */
+    private volatile Map<String, double[]> demandRates = Collections.emptyMap();
+
+    /**
+     * AGV 最近一次被调配的时间
+     * Key: AGV编号
+     */
+    private final Map<String, Long> lastMoveTime = new ConcurrentHashMap<>();
+
+    /**
+     * 最近一次整体重排时间
+     */
+    private volatile long lastRebalanceTime = 0;
+
+    /**
+     * 从历史任务刷新起点需求率
+     */
+    public void refreshDemand() {
+        int days = Math.max(1, coreYaml.getAlgorithmInt("standby_demand_days", 14));
+        Date since = new Date(System.currentTimeMillis() - days * 24L * 3600 * 1000);
+        List<Entity> rows = taskDB.selectOriginDemand(TaskTypeEnum.CARRY.code, since);
+
+        Map<String, double[]> rates = new HashMap<>();
+        for (Entity row : rows) {
+            String origin = row.getStr("origin");
+            Integer hour = row.getInt("hour_of_day");
+            Long total = row.getLong("total");
+            if (origin == null || hour == null || total == null || hour < 0 || hour >= HOURS) {
+                continue;
+            }
+            rates.computeIfAbsent(origin, key -> new double[HOURS])[hour] += total / (double) days;
+        }
+        this.demandRates = rates;
+        RcsLog.algorithmLog.info("待机预测需求率已刷新，统计天数: {}，起点数量: {}", days, rates.size());
+    }
+
+    /**
+     * 获取起点在指定小时的需求率
+     *
+     * @param origin 起点
+     * @param hour   小时 (0~23)
+     * @return 平均任务数量
+     */
+    public double getDemandRate(String origin, int hour) {
+        double[] rates = demandRates.get(origin);
+        return rates == null ? 0 : rates[Math.floorMod(hour, HOURS)];
+    }
+
+    /**
+     * 获取全部起点在一天中每个小时的需求率之和
+     *
+     * @return 每个小时的平均任务数量，没有历史数据时全为 0
+     */
+    public double[] getHourlyDemand() {
+        double[] total = new double[HOURS];
+        for (double[] rates : demandRates.values()) {
+            for (int hour = 0; hour < HOURS; hour++) {
+                total[hour] += rates[hour];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 规划空闲 AGV 的待机位置
+     *
+     * @param idleAgvs 可参与待机调配的空闲 AGV
+     * @return Key: AGV编号，Value: 需要前往的待机点；不在结果中的 AGV 保持原状 (或由调用方按原有规则处理)
+     */
+    public synchronized Map<String, RcsPoint> plan(List<RcsAgv> idleAgvs) {
+        Map<String, RcsPoint> moves = new LinkedHashMap<>();
+        Map<String, double[]> rates = this.demandRates;
+        if (idleAgvs == null || idleAgvs.isEmpty() || rates.isEmpty()) {
+            return moves;
+        }
+        MapSnapshot snapshot = mapManager.getSnapshot();
+        List<RcsPoint> standbys = new ArrayList<>();
+        snapshot.standbyPoints().values().forEach(standbys::addAll);
+        if (standbys.isEmpty()) {
+            return moves;
+        }
+        Map<Integer, Integer> standbyIndex = new HashMap<>(standbys.size() * 2);
+        for (int s = 0; s < standbys.size(); s++) {
+            standbyIndex.putIfAbsent(standbys.get(s).getGraphIndex(), s);
+        }
+        DistanceField field = distanceFieldManager.getStandbyField();
+
+        // 1. 需求：当前小时 + 下一小时前瞻
+        int hour = LocalTime.now().getHour();
+        double lookahead = coreYaml.getAlgorithmInt("standby_lookahead_percent", 50) / 100.0;
+        List<double[]> distRows = new ArrayList<>();
+        List<Double> weightList = new ArrayList<>();
+        List<Double> penaltyList = new ArrayList<>();
+        for (Map.Entry<String, double[]> entry : rates.entrySet()) {
+            double weight = entry.getValue()[hour] + entry.getValue()[(hour + 1) % HOURS] * lookahead;
+            RcsPoint origin = weight > 0 ? mapManager.getPointByAlias(entry.getKey()) : null;
+            if (origin == null) {
+                continue;
+            }
+            // 起点到各待机点的路网距离 (路网基本双向，以起点→待机点近似待机点→起点)，只有前 K 近待机点有值
+            double[] row = new double[standbys.size()];
+            Arrays.fill(row, HungarianAssigner.INFEASIBLE);
+            double farthest = 0;
+            boolean reachable = false;
+            for (int rank = 0; rank < field.getK(); rank++) {
+                Integer s = standbyIndex.get(field.target(origin.getGraphIndex(), rank));
+                if (s == null) {
+                    break;
+                }
+                row[s] = field.distance(origin.getGraphIndex(), rank);
+                farthest = Math.max(farthest, row[s]);
+                reachable = true;
+            }
+            if (!reachable) {
+                // 无任何可达待机点的起点不参与规划
+                continue;
+            }
+            distRows.add(row);
+            weightList.add(weight);
+            // 不在前 K 近的待机点，按最远已知距离的 2 倍估算响应距离
+            penaltyList.add(Math.max(farthest * 2, 1));
+        }
+        if (distRows.isEmpty()) {
+            return moves;
+        }
+        double[][] dist = distRows.toArray(new double[0][]);
+        double[] weights = weightList.stream().mapToDouble(Double::doubleValue).toArray();
+        double[] penalty = penaltyList.stream().mapToDouble(Double::doubleValue).toArray();
+
+        // 2. AGV 分类：在待机点上 / 不在待机点上；被其他设备占用的待机点不可选
+        long now = System.currentTimeMillis();
+        long dwellMs = coreYaml.getAlgorithmInt("standby_min_dwell_seconds", 300) * 1000L;
+        Map<String, Integer> agvSlot = new HashMap<>();
+        Map<String, RcsPoint> agvPoint = new HashMap<>();
+        Set<Integer> allSeeds = new LinkedHashSet<>();
+        Set<Integer> dwellSeeds = new LinkedHashSet<>();
+        for (RcsAgv agv : idleAgvs) {
+            RcsPoint point = mapManager.getRcsPoint(agv.getMapId(), agv.getPointId());
+            if (point == null) {
+                continue;
+            }
+            agvPoint.put(agv.getAgvId(), point);
+            Integer slot = standbyIndex.get(point.getGraphIndex());
+            if (slot != null) {
+                agvSlot.put(agv.getAgvId(), slot);
+                allSeeds.add(slot);
+                if (now - lastMoveTime.getOrDefault(agv.getAgvId(), 0L) < dwellMs) {
+                    dwellSeeds.add(slot);
+                }
+            }
+        }
+        boolean[] blocked = new boolean[standbys.size()];
+        for (int s = 0; s < standbys.size(); s++) {
+            RcsPointOccupy occupy = mapManager.getRcsOccupy(standbys.get(s));
+            if (occupy == null) {
+                blocked[s] = true;
+            } else if (occupy.isPhysicalBlocked() && !allSeeds.contains(s)) {
+                blocked[s] = idleAgvs.stream().noneMatch(agv -> occupy.getDeviceOccupyState(agv.getAgvId()));
+            }
+        }
+        int count = agvPoint.size();
+
+        // 3. 选址：默认保持已在待机点上的 AGV 不动；到达重排周期时评估整体重排的收益
+        int[] chosen = selectStandbys(dist, weights, penalty, allSeeds, blocked, count);
+        Set<Integer> seeds = allSeeds;
+        long intervalMs = coreYaml.getAlgorithmInt("standby_rebalance_interval_seconds", 60) * 1000L;
+        if (now - lastRebalanceTime >= intervalMs && allSeeds.size() > dwellSeeds.size()) {
+            lastRebalanceTime = now;
+            int[] rebalanced = selectStandbys(dist, weights, penalty, dwellSeeds, blocked, count);
+            double keepCost = expectedCost(dist, weights, penalty, chosen);
+            double newCost = expectedCost(dist, weights, penalty, rebalanced);
+            double minGain = coreYaml.getAlgorithmInt("standby_rebalance_min_gain_percent", 15) / 100.0;
+            if (newCost < keepCost * (1 - minGain)) {
+                RcsLog.algorithmLog.info("待机点整体重排：预计响应距离 {} -> {}", Math.round(keepCost), Math.round(newCost));
+                chosen = rebalanced;
+                seeds = dwellSeeds;
+            }
+        }
+
+        // 4. 调配：可移动的 AGV × 新增的待机点，求总行驶距离最小
+        List<String> movable = new ArrayList<>();
+        for (String agvId : agvPoint.keySet()) {
+            Integer slot = agvSlot.get(agvId);
+            if (slot == null || !seeds.contains(slot)) {
+                movable.add(agvId);
+            }
+        }
+        List<Integer> openSlots = new ArrayList<>();
+        for (int s : chosen) {
+            if (!seeds.contains(s)) {
+                openSlots.add(s);
+            }
+        }
+        if (movable.isEmpty() || openSlots.isEmpty()) {
+            return moves;
+        }
+        double[][] travel = new double[movable.size()][openSlots.size()];
+        for (int i = 0; i < movable.size(); i++) {
+            RcsPoint from = agvPoint.get(movable.get(i));
+            for (int j = 0; j < openSlots.size(); j++) {
+                RcsPoint to = standbys.get(openSlots.get(j));
+                double distance = field.distanceTo(from.getGraphIndex(), to.getGraphIndex());
+                // 不在前 K 近的待机点用直线距离加罚估算
+                travel[i][j] = distance >= 0 ? distance : GeometryUtils.calculateDistance(from, to) * 3.0;
+            }
+        }
+        int[] assignment = hungarianAssigner.assign(travel);
+        for (int i = 0; i < assignment.length; i++) {
+            if (assignment[i] < 0) {
+                continue;
+            }
+            String agvId = movable.get(i);
+            int slot = openSlots.get(assignment[i]);
+            if (!Objects.equals(agvSlot.get(agvId), slot)) {
+                moves.put(agvId, standbys.get(slot));
+                lastMoveTime.put(agvId, now);
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * 贪心选址 (p-中位问题)
+     * <p>
+     * 以种子待机点为初始集合，每次加入使“需求加权响应距离”下降最多的待机点，直到数量达到 count。
+     * 需求已全部覆盖 (收益为 0) 时，仍按收益顺序补足，保证每台 AGV 都有位置
+     *
+     * @param dist    dist[起点][待机点] 响应距离，不可达为 {@link HungarianAssigner#INFEASIBLE}
+     * @param weights 起点需求率
+     * @param penalty 起点没有任何可达待机点被选中时的响应距离
+     * @param seeds   必须保留的待机点
+     * @param blocked 不可选的待机点
+     * @param count   需要的待机点数量
+     * @return 选中的待机点下标 (种子在前)
+     */
+    public static int[] selectStandbys(double[][] dist, double[] weights, double[] penalty, Collection<Integer> seeds, boolean[] blocked, int count) {
+        int standbyCount = blocked.length;
+        boolean[] selected = new boolean[standbyCount];
+        List<Integer> result = new ArrayList<>();
+        // 每个起点当前的响应距离
+        double[] current = penalty.clone();
+        for (Integer seed : seeds) {
+            if (seed != null && seed >= 0 && seed < standbyCount && !selected[seed]) {
+                selected[seed] = true;
+                result.add(seed);
+                cover(dist, current, seed);
+            }
+        }
+        while (result.size() < count) {
+            int best = -1;
+            double bestGain = -1;
+            for (int s = 0; s < standbyCount; s++) {
+                if (selected[s] || blocked[s]) {
+                    continue;
+                }
+                double gain = 0;
+                for (int o = 0; o < dist.length; o++) {
+                    if (HungarianAssigner.isFeasible(dist[o][s]) && dist[o][s] < current[o]) {
+                        gain += weights[o] * (current[o] - dist[o][s]);
+                    }
+                }
+                if (gain > bestGain) {
+                    bestGain = gain;
+                    best = s;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            selected[best] = true;
+            result.add(best);
+            cover(dist, current, best);
+        }
+        return result.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * 计算待机点布局的预计响应距离 (需求加权)
+     *
+     * @param dist    dist[起点][待机点] 响应距离
+     * @param weights 起点需求率
+     * @param penalty 起点没有任何可达待机点被选中时的响应距离
+     * @param slots   待机点布局
+     * @return 预计响应距离
+     */
+    public static double expectedCost(double[][] dist, double[] weights, double[] penalty, int[] slots) {
+        double[] current = penalty.clone();
+        for (int s : slots) {
+            cover(dist, current, s);
+        }
+        double total = 0;
+        for (int o = 0; o < current.length; o++) {
+            total += weights[o] * current[o];
+        }
+        return total;
+    }
+
+    /**
+     * 用待机点 s 更新各起点的响应距离
+     */
+    private static void cover(double[][] dist, double[] current, int s) {
+        for (int o = 0; o < dist.length; o++) {
+            if (HungarianAssigner.isFeasible(dist[o][s]) && dist[o][s] < current[o]) {
+                current[o] = dist[o][s];
+            }
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.ruinap.core.task.design.filter;
 
 import cn.hutool.core.date.DateUtil;
+import com.ruinap.core.algorithm.DistanceFieldManager;
+import com.ruinap.core.algorithm.domain.DistanceField;
 import com.ruinap.core.business.AlarmManager;
 import com.ruinap.core.equipment.manager.AgvManager;
 import com.ruinap.core.equipment.manager.ChargePileManager;
@@ -38,9 +40,14 @@ public class ChargePileFilter {
     private ChargePileManager chargePileManager;
     @Autowired
     private AlarmManager alarmManager;
+    @Autowired
+    private DistanceFieldManager distanceFieldManager;
 
     /**
      * 距离优先匹配
+     * <p>
+     * 先筛出可用的充电桩，再按充电点距离场 (真实路网距离) 由近到远取第一个可用充电桩；
+     * 可用充电桩都不在 AGV 的前 K 近充电点中时，退回直线距离匹配
      *
      * @param rcsAgv         AGV
      * @param chargePileList 充电桩列表
@@ -55,6 +62,8 @@ public class ChargePileFilter {
             RcsLog.algorithmLog.error("{} AGV坐标不存在任何点位上", rcsAgv.getAgvId());
             return returnCharge;
         }
+        // 可用充电桩 Key: 充电点 graphIndex
+        Map<Integer, RcsChargePile> availablePiles = new HashMap<>();
         for (RcsChargePile value : chargePileList) {
             //状态 0离线 1在线
             Integer state = value.getState();
@@ -65,6 +74,11 @@ public class ChargePileFilter {
             //匹配AGV类型 0通用 1潜伏式 2叉车式
             Integer matchType = value.getMatchType();
             if (state.equals(1) && isolationState.equals(0) && ChargeIdleEnum.isEnumByCode(ChargeIdleEnum.IDLE, idleState)) {
+                //已被其他AGV预约
+                if (chargePileManager.isReservedByOther(value.getCode(), rcsAgv.getAgvId())) {
+                    RcsLog.algorithmLog.info("{} 充电桩[{}]已被其他AGV预约，跳过该充电桩", rcsAgv.getAgvId(), value.getCode());
+                    continue;
+                }
                 //获取充电桩的点位
                 RcsPoint chargePoint = mapManager.getPointByAlias(value.getPointId());
                 if (chargePoint == null) {
@@ -85,6 +99,7 @@ public class ChargePileFilter {
 
                 //判断当前AGV类型是否可接取任务
                 if (matchType.equals(0) || rcsAgv.getAgvType().equals(matchType)) {
+                    availablePiles.putIfAbsent(chargePoint.getGraphIndex(), value);
                     // 计算距离
                     int distance = GeometryUtils.calculateDistance(rcsPoint, chargePoint);
                     if (tempCost.compareTo(distance) > 0) {
@@ -97,6 +112,14 @@ public class ChargePileFilter {
             }
         }
 
+        if (availablePiles.size() > 1) {
+            // 按路网距离取最近的可用充电桩
+            int nearest = distanceFieldManager.getChargeField().nearest(rcsPoint.getGraphIndex(), availablePiles::containsKey);
+            if (nearest != DistanceField.NONE) {
+                return availablePiles.get(nearest);
+            }
+        }
+
         return returnCharge;
     }
 
@@ -153,17 +176,8 @@ public class ChargePileFilter {
      * @return 距离最近的充电桩
      */
     public RcsChargePile filterChargePileByType(RcsAgv rcsAgv) {
-        List<RcsChargePile> chargePileList = new ArrayList<>();
-        //AGV类型
-        Integer agvType = rcsAgv.getAgvType();
-        //遍历充电桩列表
-        for (RcsChargePile chargePile : chargePileManager.getIdleRcsChargePileMap().values()) {
-            //匹配类型
-            Integer matchType = chargePile.getMatchType();
-            if (agvType.equals(matchType)) {
-                chargePileList.add(chargePile);
-            }
-        }
+        //AGV类型匹配的空闲充电桩
+        List<RcsChargePile> chargePileList = List.copyOf(chargePileManager.getIdleRcsChargePileMapByMatchType(rcsAgv.getAgvType()).values());
 
         if (chargePileList.isEmpty()) {
             return null;
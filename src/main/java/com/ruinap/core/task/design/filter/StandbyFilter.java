@@ -1,5 +1,7 @@
 package com.ruinap.core.task.design.filter;
 
+import com.ruinap.core.algorithm.DistanceFieldManager;
+import com.ruinap.core.algorithm.domain.DistanceField;
 import com.ruinap.core.business.AlarmManager;
 import com.ruinap.core.equipment.pojo.RcsAgv;
 import com.ruinap.core.map.MapManager;
@@ -30,6 +32,8 @@ public class StandbyFilter {
     private MapManager mapManager;
     @Autowired
     private AlarmManager alarmManager;
+    @Autowired
+    private DistanceFieldManager distanceFieldManager;
 
     /**
      * 判断当前点位是否在待机屏蔽点
@@ -93,9 +97,8 @@ public class StandbyFilter {
      * @return true:在待机点 false:不在待机点
      */
     public boolean inStandbyList(RcsPoint currentPoint) {
-        //获取指定地图编号待机点集合
-        List<RcsPoint> standbys = mapManager.getSnapshot().standbyPoints().get(currentPoint.getMapId());
-        return standbys.contains(currentPoint);
+        //待机点距离场中的目标标记，O(1) 判断
+        return distanceFieldManager.getStandbyField().isTarget(currentPoint.getGraphIndex());
     }
 
     /**
@@ -114,34 +117,52 @@ public class StandbyFilter {
 
     /**
      * 距离优先匹配
+     * <p>
+     * 优先按待机点距离场 (真实路网距离) 由近到远取第一个可用的待机点，只需检查前 K 个候选的占用；
+     * 前 K 个候选都不可用，或候选不在待机点距离场中时，退回直线距离匹配
      *
      * @param rcsAgv AGV
      * @return 最近的待机点
      */
     private RcsPoint distanceFirst(RcsAgv rcsAgv, List<RcsPoint> standbys) {
-        RcsPoint returnPoint = null;
-        Integer tempCost = Integer.MAX_VALUE;
         //获取AGV的点位
         RcsPoint rcsPoint = mapManager.getRcsPoint(rcsAgv.getMapId(), rcsAgv.getPointId());
         if (rcsPoint == null) {
             RcsLog.algorithmLog.error("{} AGV坐标不存在任何点位上", rcsAgv.getAgvId());
-            return returnPoint;
+            return null;
         }
+
+        // 候选待机点索引 Key: graphIndex
+        Map<Integer, RcsPoint> candidates = new HashMap<>(standbys.size() * 2);
         for (RcsPoint standbyPoint : standbys) {
-            //获取点位占用
-            RcsPointOccupy rcsOccupy = mapManager.getRcsOccupy(standbyPoint);
-            if (rcsOccupy == null) {
-                continue;
-            }
+            candidates.put(standbyPoint.getGraphIndex(), standbyPoint);
+        }
+        DistanceField field = distanceFieldManager.getStandbyField();
+        int nearest = field.nearest(rcsPoint.getGraphIndex(), index -> {
+            RcsPoint standbyPoint = candidates.get(index);
+            return standbyPoint != null && isStandbyAvailable(rcsAgv, standbyPoint);
+        });
+        if (nearest != DistanceField.NONE) {
+            return candidates.get(nearest);
+        }
 
-            // 检查点位是否被占用
-            if (rcsOccupy.isPhysicalBlocked()) {
-                //检查点位是否被当前AGV占用
-                if (!rcsOccupy.getDeviceOccupyState(rcsAgv.getAgvId())) {
-                    // 如果被占用且不是当前 AGV，则跳过
-                    RcsLog.algorithmLog.info("{} 待机点[{}]已经被占用，跳过该待机点", rcsAgv.getAgvId(), standbyPoint);
-                    continue;
-                }
+        return straightDistanceFirst(rcsAgv, rcsPoint, standbys);
+    }
+
+    /**
+     * 直线距离优先匹配
+     *
+     * @param rcsAgv   AGV
+     * @param rcsPoint AGV当前点位
+     * @param standbys 待机点列表
+     * @return 最近的待机点
+     */
+    private RcsPoint straightDistanceFirst(RcsAgv rcsAgv, RcsPoint rcsPoint, List<RcsPoint> standbys) {
+        RcsPoint returnPoint = null;
+        Integer tempCost = Integer.MAX_VALUE;
+        for (RcsPoint standbyPoint : standbys) {
+            if (!isStandbyAvailable(rcsAgv, standbyPoint)) {
+                continue;
             }
 
             // 计算距离
@@ -155,6 +176,32 @@ public class StandbyFilter {
         return returnPoint;
     }
 
+    /**
+     * 判断待机点是否可用
+     *
+     * @param rcsAgv       AGV
+     * @param standbyPoint 待机点
+     * @return true:未被占用或被当前AGV占用 false:不可用
+     */
+    private boolean isStandbyAvailable(RcsAgv rcsAgv, RcsPoint standbyPoint) {
+        //获取点位占用
+        RcsPointOccupy rcsOccupy = mapManager.getRcsOccupy(standbyPoint);
+        if (rcsOccupy == null) {
+            return false;
+        }
+
+        // 检查点位是否被占用
+        if (rcsOccupy.isPhysicalBlocked()) {
+            //检查点位是否被当前AGV占用
+            if (!rcsOccupy.getDeviceOccupyState(rcsAgv.getAgvId())) {
+                // 如果被占用且不是当前 AGV，则跳过
+                RcsLog.algorithmLog.info("{} 待机点[{}]已经被占用，跳过该待机点", rcsAgv.getAgvId(), standbyPoint);
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * 获取绑定的待机点
      *
@@ -0,0 +1,131 @@
+package com.ruinap.core.task.domain;
+
+import cn.hutool.core.annotation.Alias;
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 线路预设明细 (单段) 数据库映射类
+ * <p>
+ * 一条线路预设由多段按顺序排列的起终点组成，查询时已连表带出所属线路的信息
+ *
+ * @author qianye
+ * @create 2026-03-12 14:00
+ */
+@Data
+public class RoutePresetLeg implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 线路编码
+     */
+    @Alias("route_code")
+    private String routeCode;
+
+    /**
+     * 线路任务类型 0搬运任务 5设备任务 6分拣任务
+     */
+    @Alias("route_type")
+    private Integer routeType;
+
+    /**
+     * 线路起点
+     */
+    @Alias("route_origin")
+    private String routeOrigin;
+
+    /**
+     * 线路终点
+     */
+    @Alias("route_destin")
+    private String routeDestin;
+
+    /**
+     * 线路顺序 (同一对起终点存在多条线路时，取顺序最小的)
+     */
+    @Alias("route_rank")
+    private Integer routeRank;
+
+    /**
+     * 明细编码
+     */
+    private String code;
+
+    /**
+     * 明细名称
+     */
+    private String name;
+
+    /**
+     * 明细顺序
+     */
+    private Integer rank;
+
+    /**
+     * 起点楼层
+     */
+    @Alias("origin_floor")
+    private Integer originFloor;
+
+    /**
+     * 起点区域
+     */
+    @Alias("origin_area")
+    private String originArea;
+
+    /**
+     * 起点
+     */
+    private String origin;
+
+    /**
+     * 终点楼层
+     */
+    @Alias("destin_floor")
+    private Integer destinFloor;
+
+    /**
+     * 终点区域
+     */
+    @Alias("destin_area")
+    private String destinArea;
+
+    /**
+     * 终点
+     */
+    private String destin;
+
+    /**
+     * 设备类型 0全类型 1差速潜伏式，2单舵叉车式
+     */
+    @Alias("equipment_type")
+    private Integer equipmentType;
+
+    /**
+     * 执行系统 0AGV 1PDA 2输送线 3电梯
+     */
+    @Alias("executive_system")
+    private String executiveSystem;
+
+    /**
+     * 最终任务 0是 1否
+     */
+    @Alias("finally_task")
+    private Integer finallyTask;
+
+    /**
+     * 是否管制 0不管制 1管制
+     */
+    @Alias("is_control")
+    private Integer isControl;
+
+    /**
+     * 任务管制点
+     */
+    @Alias("task_control")
+    private String taskControl;
+}
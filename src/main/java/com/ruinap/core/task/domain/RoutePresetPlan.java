@@ -0,0 +1,63 @@
+package com.ruinap.core.task.domain;
+
+import com.ruinap.core.map.pojo.MapSnapshot;
+import com.ruinap.core.map.pojo.RcsPoint;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 预编译的线路预设
+ * <p>
+ * 线路各段的点位别名已解析为 {@link RcsPoint}，并已针对 {@link #getSnapshot()} 所指的地图快照按静态路网代价规划好路线 (不计占用与拥堵)。
+ * 地图快照被替换后需要重新编译。
+ *
+ * @author qianye
+ * @create 2026-03-12 14:10
+ */
+@Getter
+public class RoutePresetPlan {
+
+    /**
+     * 线路编码
+     */
+    private final String routeCode;
+    /**
+     * 编译时的地图快照
+     */
+    private final MapSnapshot snapshot;
+    /**
+     * 按顺序排列的线路段
+     */
+    private final List<Leg> legs;
+    /**
+     * 全程路线代价
+     */
+    private final int totalCost;
+
+    /**
+     * 构造函数
+     *
+     * @param routeCode 线路编码
+     * @param snapshot  编译时的地图快照
+     * @param legs      线路段
+     */
+    public RoutePresetPlan(String routeCode, MapSnapshot snapshot, List<Leg> legs) {
+        this.routeCode = routeCode;
+        this.snapshot = snapshot;
+        this.legs = List.copyOf(legs);
+        this.totalCost = legs.stream().mapToInt(Leg::cost).sum();
+    }
+
+    /**
+     * 预编译的线路段
+     *
+     * @param source 线路段配置
+     * @param origin 起点
+     * @param destin 终点
+     * @param route  预规划路线 (不可修改)
+     * @param cost   路线代价
+     */
+    public record Leg(RoutePresetLeg source, RcsPoint origin, RcsPoint destin, List<RcsPoint> route, int cost) {
+    }
+}
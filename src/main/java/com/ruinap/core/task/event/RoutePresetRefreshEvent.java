@@ -0,0 +1,22 @@
+package com.ruinap.core.task.event;
+
+import com.ruinap.infra.framework.core.event.ApplicationEvent;
+
+import java.io.Serial;
+
+/**
+ * 线路预设刷新事件
+ * <p>
+ * 线路预设表内容发生变化并重新加载后发布
+ *
+ * @author qianye
+ * @create 2026-03-12 14:30
+ */
+public class RoutePresetRefreshEvent extends ApplicationEvent {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public RoutePresetRefreshEvent(Object source) {
+        super(source);
+    }
+}
@@ -0,0 +1,347 @@
+package com.ruinap.core.task.journal;
+
+import com.ruinap.core.map.enums.PointOccupyTypeEnum;
+import com.ruinap.core.map.pojo.RcsPoint;
+import com.ruinap.core.map.util.MapKeyUtil;
+import com.ruinap.core.task.domain.TaskPath;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serial;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongFunction;
+
+/**
+ * 运行状态日志记录编解码
+ * <p>
+ * 所有记录都是 "赋值" 语义，重复回放结果不变：
+ * <ul>
+ * <li>占用 / 释放：[类型][点位组合键][设备编号][占用类型]；</li>
+ * <li>任务路径：[类型][AGV编号][路径数量][路径...]，写入该 AGV 当前的全部任务路径，数量为 0 表示已移除。</li>
+ * </ul>
+ * 点位按组合键记录，恢复时从当前地图解析；对接设备 (dockDevice) 不记录，恢复后由任务流程重新获取。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-19 10:50
+ */
+public final class JournalCodec {
+
+    /**
+     * 记录类型：占用
+     */
+    public static final byte TYPE_OCCUPY = 1;
+    /**
+     * 记录类型：释放
+     */
+    public static final byte TYPE_RELEASE = 2;
+    /**
+     * 记录类型：任务路径
+     */
+    public static final byte TYPE_PATHS = 3;
+    /**
+     * 空点位
+     */
+    private static final long NULL_POINT = Long.MIN_VALUE;
+
+    private JournalCodec() {
+    }
+
+    /**
+     * 编码占用变更
+     *
+     * @param key        点位组合键
+     * @param deviceCode 设备编号
+     * @param occupyType 占用类型
+     * @param occupied   true 占用 false 释放
+     * @return 记录内容
+     */
+    public static byte[] encodeOccupy(long key, String deviceCode, PointOccupyTypeEnum occupyType, boolean occupied) {
+        Writer out = new Writer(32);
+        out.writeByte(occupied ? TYPE_OCCUPY : TYPE_RELEASE);
+        out.writeLong(key);
+        out.writeString(deviceCode);
+        out.writeInt(occupyType.code);
+        return out.toByteArray();
+    }
+
+    /**
+     * 编码 AGV 的全部任务路径
+     *
+     * @param agvId AGV编号
+     * @param paths 任务路径，为空表示已移除
+     * @return 记录内容
+     */
+    public static byte[] encodePaths(String agvId, List<TaskPath> paths) {
+        int count = paths == null ? 0 : paths.size();
+        Writer out = new Writer(64 + count * 256);
+        out.writeByte(TYPE_PATHS);
+        out.writeString(agvId);
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            writePath(out, paths.get(i));
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 读取记录类型
+     */
+    public static byte readType(ByteBuffer payload) {
+        return payload.get(payload.position());
+    }
+
+    /**
+     * 解码占用变更
+     *
+     * @param payload 记录内容
+     * @return 占用变更
+     */
+    public static OccupyRecord decodeOccupy(ByteBuffer payload) {
+        ByteBuffer in = payload.duplicate();
+        boolean occupied = in.get() == TYPE_OCCUPY;
+        long key = in.getLong();
+        String deviceCode = readString(in);
+        PointOccupyTypeEnum occupyType = PointOccupyTypeEnum.getByCode(in.getInt());
+        return new OccupyRecord(key, deviceCode, occupyType, occupied);
+    }
+
+    /**
+     * 读取任务路径记录的 AGV 编号
+     */
+    public static String decodePathsAgvId(ByteBuffer payload) {
+        ByteBuffer in = payload.duplicate();
+        in.get();
+        return readString(in);
+    }
+
+    /**
+     * 解码任务路径
+     *
+     * @param payload  记录内容
+     * @param resolver 点位解析，参数为点位组合键，找不到时返回 null
+     * @return 任务路径，存在无法解析的点位时返回 null
+     */
+    public static List<TaskPath> decodePaths(ByteBuffer payload, LongFunction<RcsPoint> resolver) {
+        ByteBuffer in = payload.duplicate();
+        in.get();
+        String agvId = readString(in);
+        int count = in.getInt();
+        List<TaskPath> paths = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                paths.add(readPath(in, agvId, resolver));
+            }
+        } catch (UnresolvedPointException e) {
+            return null;
+        }
+        return paths;
+    }
+
+    /**
+     * 占用变更
+     *
+     * @param key        点位组合键
+     * @param deviceCode 设备编号
+     * @param occupyType 占用类型
+     * @param occupied   true 占用 false 释放
+     */
+    public record OccupyRecord(long key, String deviceCode, PointOccupyTypeEnum occupyType, boolean occupied) {
+    }
+
+    private static void writePath(Writer out, TaskPath path) {
+        out.writeBoolean(path.getTaskId() != null);
+        out.writeInt(path.getTaskId() == null ? 0 : path.getTaskId());
+        out.writeInt(path.getSubTaskType());
+        out.writeInt(path.getFinallyTask());
+        out.writeString(path.getTaskGroup());
+        out.writeString(path.getTaskCode());
+        out.writeInt(path.getSubTaskNo());
+        out.writePoint(path.getTaskOrigin());
+        out.writePoint(path.getTaskDestin());
+        out.writeInt(path.getActionStart());
+        out.writeInt(path.getTaskAction());
+        out.writeInt(path.getTaskParameter());
+        out.writePoint(path.getCurrentPlanOrigin());
+        out.writePoint(path.getCurrentPlanDestin());
+        out.writeInt(path.getPathCode());
+        out.writeInt(path.getLastPathCode());
+        out.writeInt(path.getBeforeState());
+        out.writeInt(path.getState());
+        out.writeInt(path.getCancelType());
+        out.writePoints(path.getExpectRoutes());
+        out.writeInt(path.getExpectCost());
+        out.writeInt(path.getRealizedCost());
+        out.writeInt(path.getCurrentPlan());
+        out.writePoint(path.getExpectNextPoint());
+        out.writePoints(path.getRunningRoutes());
+        out.writePoints(path.getNewPlanRoutes());
+        out.writePoints(path.getTraveledRoutes());
+        out.writeInt(path.getTrafficState());
+    }
+
+    private static TaskPath readPath(ByteBuffer in, String agvId, LongFunction<RcsPoint> resolver) {
+        TaskPath path = new TaskPath();
+        path.setAgvId(agvId);
+        boolean hasTaskId = in.get() != 0;
+        int taskId = in.getInt();
+        path.setTaskId(hasTaskId ? taskId : null);
+        path.setSubTaskType(in.getInt());
+        path.setFinallyTask(in.getInt());
+        path.setTaskGroup(readString(in));
+        path.setTaskCode(readString(in));
+        path.setSubTaskNo(in.getInt());
+        path.setTaskOrigin(readPoint(in, resolver));
+        path.setTaskDestin(readPoint(in, resolver));
+        path.setActionStart(in.getInt());
+        path.setTaskAction(in.getInt());
+        path.setTaskParameter(in.getInt());
+        path.setCurrentPlanOrigin(readPoint(in, resolver));
+        path.setCurrentPlanDestin(readPoint(in, resolver));
+        path.setPathCode(in.getInt());
+        path.setLastPathCode(in.getInt());
+        path.setBeforeState(in.getInt());
+        // setState 会重置 currentPlan，必须在 currentPlan 之前设置
+        path.setState(in.getInt());
+        path.setCancelType(in.getInt());
+        path.setExpectRoutes(new ArrayList<>(readPoints(in, resolver)));
+        path.setExpectCost(in.getInt());
+        path.setRealizedCost(in.getInt());
+        path.setCurrentPlan(in.getInt());
+        path.setExpectNextPoint(readPoint(in, resolver));
+        path.setRunningRoutes(new CopyOnWriteArrayList<>(readPoints(in, resolver)));
+        path.setNewPlanRoutes(new CopyOnWriteArrayList<>(readPoints(in, resolver)));
+        path.setTraveledRoutes(new CopyOnWriteArrayList<>(readPoints(in, resolver)));
+        path.setTrafficState(in.getInt());
+        return path;
+    }
+
+    private static RcsPoint readPoint(ByteBuffer in, LongFunction<RcsPoint> resolver) {
+        long key = in.getLong();
+        if (key == NULL_POINT) {
+            return null;
+        }
+        RcsPoint point = resolver.apply(key);
+        if (point == null) {
+            throw new UnresolvedPointException();
+        }
+        return point;
+    }
+
+    private static List<RcsPoint> readPoints(ByteBuffer in, LongFunction<RcsPoint> resolver) {
+        int size = in.getInt();
+        List<RcsPoint> points = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            RcsPoint point = readPoint(in, resolver);
+            if (point != null) {
+                points.add(point);
+            }
+        }
+        return points;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    /**
+     * 点位在当前地图中不存在 (地图已变更)
+     */
+    private static final class UnresolvedPointException extends RuntimeException {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        UnresolvedPointException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * 记录写入器
+     */
+    private static final class Writer {
+        private final ByteArrayOutputStream bytes;
+        private final DataOutputStream out;
+
+        Writer(int size) {
+            this.bytes = new ByteArrayOutputStream(size);
+            this.out = new DataOutputStream(bytes);
+        }
+
+        void writeByte(int value) {
+            try {
+                out.writeByte(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void writeBoolean(boolean value) {
+            writeByte(value ? 1 : 0);
+        }
+
+        void writeInt(int value) {
+            try {
+                out.writeInt(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void writeLong(long value) {
+            try {
+                out.writeLong(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeInt(-1);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(utf8.length);
+            try {
+                out.write(utf8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void writePoint(RcsPoint point) {
+            writeLong(point == null ? NULL_POINT : MapKeyUtil.compositeKey(point.getMapId(), point.getId()));
+        }
+
+        void writePoints(Collection<RcsPoint> points) {
+            if (points == null) {
+                writeInt(0);
+                return;
+            }
+            // 路径在写入期间可能被并发修改，先取快照
+            Object[] snapshot = points.toArray();
+            writeInt(snapshot.length);
+            for (Object point : snapshot) {
+                writePoint((RcsPoint) point);
+            }
+        }
+
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+}
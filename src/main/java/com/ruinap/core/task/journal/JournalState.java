@@ -0,0 +1,110 @@
+package com.ruinap.core.task.journal;
+
+import com.ruinap.core.map.enums.PointOccupyTypeEnum;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * 运行状态日志的回放结果
+ * <p>
+ * 按记录顺序折叠出最终状态：占用按 点位 → 设备 → 占用类型 记录，任务路径只保留每台 AGV 最后一条记录的原始内容，
+ * 恢复时再按当前地图解码。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-19 11:30
+ */
+public class JournalState {
+
+    /**
+     * 点位占用
+     * Key: 点位组合键，Value: 设备编号 -> 占用类型
+     */
+    private final Map<Long, Map<String, Set<PointOccupyTypeEnum>>> occupancy = new LinkedHashMap<>();
+    /**
+     * 任务路径记录
+     * Key: AGV编号，Value: 最后一条任务路径记录
+     */
+    private final Map<String, ByteBuffer> paths = new LinkedHashMap<>();
+    /**
+     * 无法识别的记录数
+     */
+    private int skipped;
+
+    /**
+     * 回放一条记录
+     *
+     * @param payload 记录内容
+     */
+    public void apply(ByteBuffer payload) {
+        switch (JournalCodec.readType(payload)) {
+            case JournalCodec.TYPE_OCCUPY, JournalCodec.TYPE_RELEASE -> applyOccupy(JournalCodec.decodeOccupy(payload));
+            case JournalCodec.TYPE_PATHS -> {
+                String agvId = JournalCodec.decodePathsAgvId(payload);
+                // 记录数量在 AGV 编号之后，为 0 表示已移除
+                if (pathCount(payload) == 0) {
+                    paths.remove(agvId);
+                } else {
+                    paths.put(agvId, payload);
+                }
+            }
+            default -> skipped++;
+        }
+    }
+
+    /**
+     * 获取点位占用
+     */
+    public Map<Long, Map<String, Set<PointOccupyTypeEnum>>> getOccupancy() {
+        return occupancy;
+    }
+
+    /**
+     * 获取任务路径记录
+     */
+    public Map<String, ByteBuffer> getPaths() {
+        return paths;
+    }
+
+    /**
+     * 获取无法识别的记录数
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    private void applyOccupy(JournalCodec.OccupyRecord record) {
+        if (record.deviceCode() == null || record.occupyType() == null) {
+            skipped++;
+            return;
+        }
+        if (record.occupied()) {
+            occupancy.computeIfAbsent(record.key(), k -> new LinkedHashMap<>())
+                    .computeIfAbsent(record.deviceCode(), k -> EnumSet.noneOf(PointOccupyTypeEnum.class))
+                    .add(record.occupyType());
+            return;
+        }
+        Map<String, Set<PointOccupyTypeEnum>> devices = occupancy.get(record.key());
+        if (devices == null) {
+            return;
+        }
+        Set<PointOccupyTypeEnum> types = devices.get(record.deviceCode());
+        if (types != null && types.remove(record.occupyType()) && types.isEmpty()) {
+            devices.remove(record.deviceCode());
+            if (devices.isEmpty()) {
+                occupancy.remove(record.key());
+            }
+        }
+    }
+
+    private static int pathCount(ByteBuffer payload) {
+        ByteBuffer in = payload.duplicate();
+        in.get();
+        int length = in.getInt();
+        if (length > 0) {
+            in.position(in.position() + length);
+        }
+        return in.getInt();
+    }
+}
@@ -0,0 +1,222 @@
+package com.ruinap.core.task.journal;
+
+import com.ruinap.core.map.enums.PointOccupyTypeEnum;
+import com.ruinap.core.task.domain.TaskPath;
+import com.ruinap.infra.config.common.PathUtils;
+import com.ruinap.infra.framework.annotation.Component;
+import com.ruinap.infra.framework.annotation.PreDestroy;
+import com.ruinap.infra.log.RcsLog;
+import com.ruinap.persistence.journal.JournalFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+
+/**
+ * 运行状态日志
+ * <p>
+ * 记录点位占用与任务路径的变更，崩溃重启后由 {@link RuntimeRecovery} 回放恢复：
+ * <ul>
+ * <li>热路径只做编码与一次页缓存写入，落盘由定时任务批量执行；</li>
+ * <li>同一 AGV 的任务路径内容未变化时不重复写入；</li>
+ * <li>配置占用由地图配置生成，不记录；</li>
+ * <li>写入失败时停用日志并记录错误，不影响调度业务。</li>
+ * </ul>
+ * 恢复完成前 ({@link #start()} 之前) 不记录任何变更。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-19 13:10
+ */
+@Component
+public class RuntimeJournal {
+
+    /**
+     * 日志文件
+     */
+    private final JournalFile file;
+    /**
+     * 是否记录变更
+     */
+    private volatile boolean enabled = false;
+    /**
+     * 每台 AGV 最后写入的任务路径记录校验值
+     */
+    private final Map<String, Integer> pathChecksums = new ConcurrentHashMap<>();
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+
+    public RuntimeJournal() {
+        this(new JournalFile(PathUtils.TEMP_DIR.resolve("journal"), "runtime"));
+    }
+
+    RuntimeJournal(JournalFile file) {
+        this.file = file;
+    }
+
+    /**
+     * 是否正在记录变更
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 记录点位占用变更
+     *
+     * @param key        点位组合键
+     * @param deviceCode 设备编号
+     * @param occupyType 占用类型
+     * @param occupied   true 占用 false 释放
+     */
+    public void recordOccupy(Long key, String deviceCode, PointOccupyTypeEnum occupyType, boolean occupied) {
+        if (!enabled || key == null || deviceCode == null || !isJournaled(occupyType)) {
+            return;
+        }
+        append(JournalCodec.encodeOccupy(key, deviceCode, occupyType, occupied));
+    }
+
+    /**
+     * 记录 AGV 当前的全部任务路径
+     * <p>
+     * 调用方需要保证同一 AGV 的记录按变更顺序写入 (如在任务路径写锁内调用)
+     *
+     * @param agvId AGV编号
+     * @param paths 任务路径，为空表示已移除
+     */
+    public void recordPaths(String agvId, List<TaskPath> paths) {
+        if (!enabled || agvId == null) {
+            return;
+        }
+        byte[] payload = JournalCodec.encodePaths(agvId, paths);
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        Integer checksum = (int) crc.getValue();
+        if (checksum.equals(pathChecksums.put(agvId, checksum))) {
+            deduplicated.increment();
+            return;
+        }
+        append(payload);
+    }
+
+    /**
+     * 回放快照与日志
+     *
+     * @param consumer 记录内容消费者
+     * @return 回放结果
+     * @throws IOException 读取失败
+     */
+    public JournalFile.ReplayResult replay(Consumer<ByteBuffer> consumer) throws IOException {
+        return file.replay(consumer);
+    }
+
+    /**
+     * 开始记录变更
+     *
+     * @throws IOException 打开日志失败
+     */
+    public void start() throws IOException {
+        file.open();
+        enabled = true;
+    }
+
+    /**
+     * 把已写入的记录落盘
+     */
+    public void force() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            file.force();
+        } catch (IOException e) {
+            disable("落盘", e);
+        }
+    }
+
+    /**
+     * 压缩：轮转日志后写入当前状态的快照，再删除被快照覆盖的旧日志
+     * <p>
+     * 快照在轮转之后采集，采集期间的变更会写入新的日志，回放时叠加在快照之上
+     *
+     * @param snapshot 当前状态的全部记录
+     * @return 快照记录数，未记录变更或失败时返回 -1
+     */
+    public int compact(Supplier<List<byte[]>> snapshot) {
+        if (!enabled) {
+            return -1;
+        }
+        try {
+            file.rotate();
+            List<byte[]> records = snapshot.get();
+            file.writeSnapshot(records);
+            file.deleteRotated();
+            return records.size();
+        } catch (IOException e) {
+            // 旧日志保留，下一次压缩或重启回放时仍然可用
+            RcsLog.sysLog.error("运行状态日志压缩失败", e);
+            return -1;
+        }
+    }
+
+    /**
+     * 获取当前日志的字节数
+     */
+    public long getWalBytes() {
+        return file.getWalBytes();
+    }
+
+    /**
+     * 获取累计写入记录数
+     */
+    public long getAppended() {
+        return appended.sum();
+    }
+
+    /**
+     * 获取累计因内容未变化跳过的任务路径记录数
+     */
+    public long getDeduplicated() {
+        return deduplicated.sum();
+    }
+
+    /**
+     * 占用类型是否需要记录
+     */
+    static boolean isJournaled(PointOccupyTypeEnum occupyType) {
+        return occupyType != null && occupyType.code >= 0 && occupyType != PointOccupyTypeEnum.CONFIG;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        enabled = false;
+        try {
+            file.close();
+        } catch (IOException e) {
+            RcsLog.sysLog.error("运行状态日志关闭失败", e);
+        }
+    }
+
+    private void append(byte[] payload) {
+        try {
+            file.append(payload);
+            appended.increment();
+        } catch (IOException e) {
+            disable("写入", e);
+        }
+    }
+
+    private void disable(String action, IOException e) {
+        if (enabled) {
+            enabled = false;
+            pathChecksums.clear();
+            RcsLog.sysLog.error("运行状态日志{}失败，已停止记录，重启后只能恢复到此之前的状态", action, e);
+        }
+    }
+}
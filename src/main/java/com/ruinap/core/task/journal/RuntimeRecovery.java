@@ -0,0 +1,228 @@
+package com.ruinap.core.task.journal;
+
+import com.ruinap.core.equipment.manager.AgvManager;
+import com.ruinap.core.map.MapManager;
+import com.ruinap.core.map.enums.PointOccupyTypeEnum;
+import com.ruinap.core.map.event.RcsPointOccupyChangeEvent;
+import com.ruinap.core.map.pojo.RcsPoint;
+import com.ruinap.core.map.pojo.RcsPointOccupy;
+import com.ruinap.core.map.util.MapKeyUtil;
+import com.ruinap.core.task.TaskPathManager;
+import com.ruinap.core.task.domain.TaskPath;
+import com.ruinap.infra.config.CoreYaml;
+import com.ruinap.infra.framework.annotation.Autowired;
+import com.ruinap.infra.framework.annotation.Component;
+import com.ruinap.infra.framework.annotation.EventListener;
+import com.ruinap.infra.framework.annotation.Order;
+import com.ruinap.infra.framework.boot.CommandLineRunner;
+import com.ruinap.infra.log.RcsLog;
+import com.ruinap.persistence.journal.JournalFile;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 运行状态恢复
+ * <p>
+ * 进程崩溃后，点位占用与任务路径只存在于内存中，重启时无从得知哪台 AGV 占着哪些点、走到了路线的哪里。
+ * 本组件负责：
+ * <ol>
+ * <li>启动时 (地图加载之后、AGV 重新连接之前) 回放快照与日志，恢复点位占用与任务路径，随后写入新的快照；</li>
+ * <li>同步监听点位占用变更事件写入日志，任务路径的增删由 {@link TaskPathManager} 写入；</li>
+ * <li>定时检查任务路径的原地修改 (规划状态、已走路径等)，内容变化时补写；定时落盘，并按间隔压缩为快照。</li>
+ * </ol>
+ * 地图变更后无法解析的点位与已不存在的 AGV 会被跳过并记录日志。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-19 14:00
+ */
+@Component
+@Order(10)
+public class RuntimeRecovery implements CommandLineRunner {
+
+    @Autowired
+    private CoreYaml coreYaml;
+    @Autowired
+    private RuntimeJournal runtimeJournal;
+    @Autowired
+    private MapManager mapManager;
+    @Autowired
+    private AgvManager agvManager;
+    @Autowired
+    private TaskPathManager taskPathManager;
+
+    /**
+     * 防止定时任务重叠执行
+     */
+    private final AtomicBoolean ticking = new AtomicBoolean(false);
+    /**
+     * 上一次压缩的时间
+     */
+    private volatile long lastCompactMs;
+
+    @Override
+    public void run(String... args) {
+        if (coreYaml.getAlgorithmInt("runtime_journal_enable", 1) != 1) {
+            RcsLog.consoleLog.info("运行状态日志未开启");
+            return;
+        }
+        long begin = System.currentTimeMillis();
+        JournalState state = new JournalState();
+        JournalFile.ReplayResult result;
+        try {
+            result = runtimeJournal.replay(state::apply);
+        } catch (Exception e) {
+            RcsLog.consoleLog.error("运行状态日志回放失败，跳过恢复", e);
+            RcsLog.sysLog.error("运行状态日志回放失败，跳过恢复", e);
+            result = new JournalFile.ReplayResult(0, 0, 0);
+            state = new JournalState();
+        }
+
+        int occupied = restoreOccupancy(state);
+        int agvs = restorePaths(state);
+
+        try {
+            runtimeJournal.start();
+        } catch (Exception e) {
+            RcsLog.consoleLog.error("运行状态日志打开失败，本次运行不记录", e);
+            RcsLog.sysLog.error("运行状态日志打开失败，本次运行不记录", e);
+            return;
+        }
+        compact();
+        RcsLog.consoleLog.info("运行状态恢复完成，快照 {} 条，日志 {} 条，截断残帧 {} 字节，恢复占用 {} 项，恢复任务路径 {} 台，耗时 {} ms",
+                result.snapshotRecords(), result.journalRecords(), result.tornBytes(), occupied, agvs, System.currentTimeMillis() - begin);
+        RcsLog.sysLog.info("运行状态恢复完成，快照 {} 条，日志 {} 条，截断残帧 {} 字节，恢复占用 {} 项，恢复任务路径 {} 台，跳过无法识别记录 {} 条",
+                result.snapshotRecords(), result.journalRecords(), result.tornBytes(), occupied, agvs, state.getSkipped());
+    }
+
+    /**
+     * 点位占用变更：写入日志
+     * <p>
+     * 同步监听，保证同一点位的变更按发生顺序写入
+     *
+     * @param event 点位占用变更事件
+     */
+    @EventListener
+    public void onPointOccupyChange(RcsPointOccupyChangeEvent event) {
+        if (runtimeJournal.isEnabled() && event.getSource() instanceof RcsPointOccupy occupy) {
+            runtimeJournal.recordOccupy(occupy.getKey(), event.getDeviceCode(), event.getOccupyType(),
+                    event.getChangeType() == RcsPointOccupyChangeEvent.ChangeType.OCCUPIED);
+        }
+    }
+
+    /**
+     * 定时维护：补写任务路径的原地修改、落盘，到达间隔时压缩
+     * <p>
+     * 由定时任务调用
+     */
+    public void tick() {
+        if (!runtimeJournal.isEnabled() || !ticking.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (String agvId : taskPathManager.getAll().keySet()) {
+                taskPathManager.journal(agvId);
+            }
+            runtimeJournal.force();
+            long intervalMs = Math.max(1, coreYaml.getAlgorithmInt("runtime_journal_snapshot_seconds", 60)) * 1000L;
+            if (System.currentTimeMillis() - lastCompactMs >= intervalMs) {
+                compact();
+            }
+        } catch (Exception e) {
+            RcsLog.sysLog.error("运行状态日志维护失败", e);
+        } finally {
+            ticking.set(false);
+        }
+    }
+
+    /**
+     * 压缩为快照
+     */
+    private void compact() {
+        lastCompactMs = System.currentTimeMillis();
+        runtimeJournal.compact(this::captureSnapshot);
+    }
+
+    /**
+     * 采集当前的点位占用与任务路径
+     *
+     * @return 全部记录
+     */
+    private List<byte[]> captureSnapshot() {
+        List<byte[]> records = new ArrayList<>();
+        for (String deviceCode : mapManager.getOccupyDevices()) {
+            for (RcsPointOccupy occupy : mapManager.getDeviceOccupiedPoints(deviceCode)) {
+                for (PointOccupyTypeEnum occupyType : occupy.getDeviceOccupyTypes(deviceCode)) {
+                    if (RuntimeJournal.isJournaled(occupyType)) {
+                        records.add(JournalCodec.encodeOccupy(occupy.getKey(), deviceCode, occupyType, true));
+                    }
+                }
+            }
+        }
+        for (Map.Entry<String, List<TaskPath>> entry : taskPathManager.getAll().entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                records.add(JournalCodec.encodePaths(entry.getKey(), entry.getValue()));
+            }
+        }
+        return records;
+    }
+
+    /**
+     * 恢复点位占用
+     *
+     * @return 恢复的占用项数
+     */
+    private int restoreOccupancy(JournalState state) {
+        int restored = 0;
+        int skipped = 0;
+        for (Map.Entry<Long, Map<String, Set<PointOccupyTypeEnum>>> entry : state.getOccupancy().entrySet()) {
+            RcsPoint point = resolvePoint(entry.getKey());
+            if (point == null) {
+                skipped++;
+                continue;
+            }
+            for (Map.Entry<String, Set<PointOccupyTypeEnum>> device : entry.getValue().entrySet()) {
+                for (PointOccupyTypeEnum occupyType : device.getValue()) {
+                    mapManager.setOccupyType(device.getKey(), point, occupyType);
+                    restored++;
+                }
+            }
+        }
+        if (skipped > 0) {
+            RcsLog.sysLog.warn("运行状态恢复：{} 个点位在当前地图中不存在，跳过其占用", skipped);
+        }
+        return restored;
+    }
+
+    /**
+     * 恢复任务路径
+     *
+     * @return 恢复的 AGV 数量
+     */
+    private int restorePaths(JournalState state) {
+        Map<String, List<TaskPath>> restored = new HashMap<>();
+        for (Map.Entry<String, ByteBuffer> entry : state.getPaths().entrySet()) {
+            String agvId = entry.getKey();
+            if (agvManager.getRcsAgvByCode(agvId) == null) {
+                RcsLog.sysLog.warn("运行状态恢复：AGV [{}] 不存在，跳过其任务路径", agvId);
+                continue;
+            }
+            List<TaskPath> paths = JournalCodec.decodePaths(entry.getValue(), this::resolvePoint);
+            if (paths == null) {
+                RcsLog.sysLog.warn("运行状态恢复：AGV [{}] 的任务路径包含当前地图中不存在的点位，跳过", agvId);
+                continue;
+            }
+            restored.put(agvId, paths);
+        }
+        if (!restored.isEmpty()) {
+            taskPathManager.putAll(restored);
+        }
+        return restored.size();
+    }
+
+    private RcsPoint resolvePoint(long key) {
+        return mapManager.getRcsPoint(MapKeyUtil.parseMapId(key), MapKeyUtil.parsePointId(key));
+    }
+}
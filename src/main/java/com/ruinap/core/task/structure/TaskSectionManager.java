@@ -1,19 +1,27 @@
 package com.ruinap.core.task.structure;
 
 import com.ruinap.core.algorithm.SlideTimeWindow;
+import com.ruinap.core.algorithm.TrafficManager;
 import com.ruinap.core.algorithm.domain.RouteResult;
 import com.ruinap.core.algorithm.search.RcsAstarSearch;
 import com.ruinap.core.business.AlarmManager;
 import com.ruinap.core.equipment.manager.AgvManager;
 import com.ruinap.core.equipment.pojo.RcsAgv;
 import com.ruinap.core.map.MapManager;
+import com.ruinap.core.map.pojo.MapSnapshot;
 import com.ruinap.core.map.pojo.RcsPoint;
+import com.ruinap.core.task.RoutePresetManager;
 import com.ruinap.core.task.domain.DockDevice;
 import com.ruinap.core.task.domain.RcsTask;
+import com.ruinap.core.task.domain.RoutePresetPlan;
 import com.ruinap.core.task.domain.TaskPath;
+import com.ruinap.core.task.event.RoutePresetRefreshEvent;
 import com.ruinap.core.task.structure.auction.BidResult;
 import com.ruinap.infra.config.InteractionYaml;
 import com.ruinap.infra.config.MapYaml;
+import com.ruinap.infra.config.event.RcsInteractionConfigRefreshEvent;
+import com.ruinap.infra.config.event.RcsMapConfigRefreshEvent;
+import com.ruinap.infra.config.event.RcsTaskConfigRefreshEvent;
 import com.ruinap.infra.config.pojo.interactions.*;
 import com.ruinap.infra.enums.alarm.AlarmCodeEnum;
 import com.ruinap.infra.enums.task.DockTaskTypeEnum;
@@ -22,8 +30,10 @@ import com.ruinap.infra.enums.task.SubTaskTypeEnum;
 import com.ruinap.infra.enums.task.TaskTypeEnum;
 import com.ruinap.infra.framework.annotation.Autowired;
 import com.ruinap.infra.framework.annotation.Component;
+import com.ruinap.infra.framework.annotation.EventListener;
 import com.ruinap.infra.lock.RcsLock;
 import com.ruinap.infra.log.RcsLog;
+import com.ruinap.infra.structure.FiFoConcurrentMap;
 import lombok.Getter;
 
 import java.util.*;
@@ -53,6 +63,8 @@ public class TaskSectionManager {
     private AgvManager agvManager;
     @Autowired
     private RcsAstarSearch rcsAstarSearch;
+    @Autowired
+    private RoutePresetManager routePresetManager;
 
     /**
      * 分段任务缓存, key为AGV编号，value为任务拆分集合
@@ -65,6 +77,19 @@ public class TaskSectionManager {
      */
     private final RcsLock rcsLock = RcsLock.ofReadWrite();
 
+    /**
+     * 分段模板缓存容量，超出后淘汰最早生成的模板
+     */
+    private static final int TEMPLATE_CACHE_SIZE = 1024;
+
+    /**
+     * “前往终点”分段模板缓存，key为 起点别名|终点别名|托盘类型
+     * <p>
+     * 模板按静态路网代价拆分，只保存与交通状况无关的分段结构与静态路线，占用与拥堵由执行时的交通审查处理。
+     * 地图或配置刷新时整体替换；地图快照变化 (异步热重载完成) 时单个模板在读取时失效
+     */
+    private volatile FiFoConcurrentMap<String, TaskSectionTemplate> sectionTemplates = new FiFoConcurrentMap<>(TEMPLATE_CACHE_SIZE);
+
     /**
      * 从缓存中获取指定AGV的分段任务列表
      *
@@ -188,35 +213,34 @@ public class TaskSectionManager {
         List<RcsPoint> originFullPath = (bidResult.getRoute() != null && bidResult.getRoute().getPaths() != null)
                 ? bidResult.getRoute().getPaths() : new ArrayList<>();
 
-        // 【性能优化 2】全局统筹计算“前往终点”的完整路径 (整段任务生命周期仅 1次 A* 计算)
-        List<RcsPoint> destinFullPath = new ArrayList<>();
-        RouteResult destinRoute = rcsAstarSearch.aStarSearch(agvId, taskOrigin, taskDestin);
-        if (destinRoute != null && destinRoute.getPaths() != null) {
-            destinFullPath = destinRoute.getPaths();
-        }
-
         //判断任务类型
         if (TaskTypeEnum.isEnumByCode(TaskTypeEnum.CARRY, taskType)) {
             // 获取AGV当前点位
             RcsPoint rcsPoint = mapManager.getRcsPoint(agv.getMapId(), agv.getPointId());
-            //只有搬运任务才要前往任务起点
-            taskPaths.addAll(sectionElevatorTask(agvId, rcsTask, rcsPoint, taskOrigin, SubTaskTypeEnum.ORIGIN, originFullPath));
-            //拆分到终点的任务
-            taskPaths.addAll(sectionElevatorTask(agvId, rcsTask, taskOrigin, taskDestin, SubTaskTypeEnum.DESTIN, destinFullPath));
+            //只有搬运任务才要前往任务起点，前往起点取决于AGV当前位置，每次实时拆分
+            taskPaths.addAll(sectionOriginTask(agvId, rcsTask, rcsPoint, taskOrigin, originFullPath));
+            //前往终点的分段只取决于起终点，使用分段模板 (命中时 0 次 A* 计算)
+            taskPaths.addAll(getDestinTemplate(agvId, rcsTask, taskOrigin, taskDestin).instantiate(agvId));
         } else {
+            // 【性能优化 2】全局统筹计算“前往终点”的完整路径 (整段任务生命周期仅 1次 A* 计算)
+            List<RcsPoint> destinFullPath = new ArrayList<>();
+            RouteResult destinRoute = rcsAstarSearch.aStarSearch(agvId, taskOrigin, taskDestin);
+            if (destinRoute != null && destinRoute.getPaths() != null) {
+                destinFullPath = destinRoute.getPaths();
+            }
             //拆分到终点的任务
             taskPaths.addAll(sectionElevatorTask(agvId, rcsTask, taskOrigin, taskDestin, SubTaskTypeEnum.DESTIN, destinFullPath));
-        }
 
-        //如果任务进行电梯拆分后集合为空，则使用通用任务拆分
-        if (taskPaths.isEmpty()) {
-            RcsLog.taskLog.info("{} 如果任务进行电梯拆分后集合为空，则使用通用任务拆分", agvId);
-            RcsLog.algorithmLog.info("{} 如果任务进行电梯拆分后集合为空，则使用通用任务拆分", agvId);
-            taskPaths.addAll(sectionCommonTask(agv, rcsTask, taskOrigin, taskDestin));
-        }
+            //如果任务进行电梯拆分后集合为空，则使用通用任务拆分
+            if (taskPaths.isEmpty()) {
+                RcsLog.taskLog.info("{} 如果任务进行电梯拆分后集合为空，则使用通用任务拆分", agvId);
+                RcsLog.algorithmLog.info("{} 如果任务进行电梯拆分后集合为空，则使用通用任务拆分", agvId);
+                taskPaths.addAll(sectionCommonTask(agv, rcsTask, taskOrigin, taskDestin));
+            }
 
-        //风淋室分段任务拆分
-        taskPaths = sectionAirShowersTask(rcsTask, taskPaths);
+            //风淋室分段任务拆分
+            taskPaths = sectionAirShowersTask(rcsTask, taskPaths);
+        }
 
         //如果任务进行风淋室拆分后集合为空，则使用通用任务拆分
         if (taskPaths.isEmpty()) {
@@ -244,6 +268,190 @@ public class TaskSectionManager {
         return taskPaths.getFirst();
     }
 
+    /**
+     * 拆分前往起点的任务
+     * <p>
+     * 先进行电梯拆分，不需要电梯时AGV不在起点则生成一段通用任务，最后进行风淋室拆分
+     *
+     * @param agvId          AGV编号
+     * @param rcsTask        SQL任务
+     * @param rcsPoint       AGV当前点位
+     * @param taskOrigin     任务起点
+     * @param originFullPath 竞标阶段规划的前往起点的路径
+     * @return 任务拆分集合
+     */
+    private List<TaskPath> sectionOriginTask(String agvId, RcsTask rcsTask, RcsPoint rcsPoint, RcsPoint taskOrigin, List<RcsPoint> originFullPath) {
+        List<TaskPath> taskPaths = sectionElevatorTask(agvId, rcsTask, rcsPoint, taskOrigin, SubTaskTypeEnum.ORIGIN, originFullPath);
+        if (taskPaths.isEmpty() && !taskOrigin.equals(rcsPoint)) {
+            Map<String, Integer> originParams = mapManager.getOriginActionParameter(agvId, rcsTask.getOrigin(), rcsTask.getTaskType(), rcsTask.getPalletType());
+            taskPaths.add(createTaskPath(agvId, SubTaskTypeEnum.ORIGIN, rcsPoint, taskOrigin, originParams));
+        }
+        return sectionAirShowersTask(rcsTask, taskPaths);
+    }
+
+    /**
+     * 获取前往终点的分段模板
+     * <p>
+     * 同一对起终点 (及托盘类型) 按静态路网代价 (不计占用、拥堵与时段耗时) 拆分的电梯、风淋室分段结构相同，
+     * 首次拆分后生成模板缓存，之后直接按模板实例化，省去路径、地图属性的遍历。
+     * 模板中的路线是静态路线，实例化后直接作为预期路线：下发时由交通审查 ({@link TrafficManager#pruneAndReviewPath}) 按实时占用截断，
+     * 预期路线失效时由路径规划状态机从当前位置重新规划。
+     * 输送线拆分依赖AGV当前位置，不进入模板，由调用方在实例化后处理。
+     *
+     * @param agvId      AGV编号
+     * @param rcsTask    SQL任务
+     * @param taskOrigin 任务起点
+     * @param taskDestin 任务终点
+     * @return 分段模板
+     */
+    private TaskSectionTemplate getDestinTemplate(String agvId, RcsTask rcsTask, RcsPoint taskOrigin, RcsPoint taskDestin) {
+        MapSnapshot snapshot = mapManager.getSnapshot();
+        String key = rcsTask.getOrigin() + "|" + rcsTask.getDestin() + "|" + rcsTask.getPalletType();
+        FiFoConcurrentMap<String, TaskSectionTemplate> templates = sectionTemplates;
+        TaskSectionTemplate template = templates.get(key);
+        if (template != null && template.isValid(snapshot)) {
+            RcsLog.algorithmLog.info("{} 起终点[{}]命中分段模板，分段数量：{}", agvId, key, template.size());
+            return template;
+        }
+
+        List<TaskPath> taskPaths;
+        boolean cacheable;
+        RoutePresetPlan plan = routePresetManager.getPlan(rcsTask);
+        if (plan != null) {
+            //存在线路预设：按预设的线路段及预规划路线拆分
+            RcsLog.algorithmLog.info("{} 起终点[{}]使用线路预设[{}]，线路段数量：{}", agvId, key, plan.getRouteCode(), plan.getLegs().size());
+            taskPaths = sectionPresetTask(agvId, rcsTask, plan);
+            cacheable = true;
+        } else {
+            // 按静态路网代价计算“前往终点”的完整路径，拆分结果与交通状况无关
+            List<RcsPoint> destinFullPath = new ArrayList<>();
+            RouteResult destinRoute = rcsAstarSearch.staticSearch(taskOrigin, taskDestin);
+            if (destinRoute != null && destinRoute.getPaths() != null) {
+                destinFullPath = destinRoute.getPaths();
+            }
+
+            taskPaths = sectionElevatorTask(agvId, rcsTask, taskOrigin, taskDestin, SubTaskTypeEnum.DESTIN, destinFullPath);
+            //如果任务进行电梯拆分后集合为空，则使用通用任务拆分
+            if (taskPaths.isEmpty()) {
+                Map<String, Integer> destinParams = mapManager.getDestinActionParameter(agvId, rcsTask.getDestin(), rcsTask.getTaskType(), rcsTask.getPalletType());
+                TaskPath taskPath = createTaskPath(agvId, SubTaskTypeEnum.DESTIN, taskOrigin, taskDestin, destinParams);
+                //风淋室拆分同样使用静态路径
+                if (!destinFullPath.isEmpty()) {
+                    taskPath.setExpectRoutes(new ArrayList<>(destinFullPath));
+                }
+                taskPaths.add(taskPath);
+            }
+            //路径规划失败时不缓存，下次重新规划
+            cacheable = !destinFullPath.isEmpty();
+        }
+        //风淋室分段任务拆分
+        taskPaths = sectionAirShowersTask(rcsTask, taskPaths);
+
+        template = new TaskSectionTemplate(snapshot, taskPaths);
+        if (cacheable) {
+            templates.put(key, template);
+            RcsLog.algorithmLog.info("{} 起终点[{}]生成分段模板，分段数量：{}", agvId, key, template.size());
+        }
+        return template;
+    }
+
+    /**
+     * 按线路预设拆分前往终点的任务
+     * <p>
+     * 每个线路段使用预规划路线进行电梯拆分 (不再进行 A* 规划)，不需要电梯时生成一段任务；
+     * 中间线路段的终点是途经点，改为非最终任务并使用对接类动作参数，只有末段保持终点最终
+     *
+     * @param agvId   AGV编号
+     * @param rcsTask SQL任务
+     * @param plan    预编译的线路预设
+     * @return 任务拆分集合
+     */
+    private List<TaskPath> sectionPresetTask(String agvId, RcsTask rcsTask, RoutePresetPlan plan) {
+        List<TaskPath> result = new ArrayList<>();
+        List<RoutePresetPlan.Leg> legs = plan.getLegs();
+        for (int i = 0; i < legs.size(); i++) {
+            RoutePresetPlan.Leg leg = legs.get(i);
+            boolean last = i == legs.size() - 1;
+            List<TaskPath> legPaths = sectionElevatorTask(agvId, rcsTask, leg.origin(), leg.destin(), SubTaskTypeEnum.DESTIN, leg.route());
+            if (legPaths.isEmpty()) {
+                Map<String, Integer> destinParams = mapManager.getDestinActionParameter(agvId, rcsTask.getDestin(), rcsTask.getTaskType(), rcsTask.getPalletType());
+                TaskPath taskPath = createTaskPath(agvId, SubTaskTypeEnum.DESTIN, leg.origin(), leg.destin(), destinParams);
+                taskPath.setExpectRoutes(new ArrayList<>(leg.route()));
+                legPaths.add(taskPath);
+            }
+            if (!last) {
+                TaskPath legEnd = legPaths.getLast();
+                legEnd.setFinallyTask(FinallyTaskEnum.NOT_FINAL.getCode());
+                Map<String, Integer> passParams = mapManager.getDestinActionParameter(agvId, leg.destin().getName(), TaskTypeEnum.DOCK.code, rcsTask.getPalletType());
+                if (passParams != null) {
+                    legEnd.setTaskAction(passParams.getOrDefault("action", 0));
+                    legEnd.setTaskParameter(passParams.getOrDefault("parameter", 0));
+                }
+            }
+            result.addAll(legPaths);
+        }
+        return result;
+    }
+
+    /**
+     * 线路预设刷新，清空分段模板
+     *
+     * @param event 线路预设刷新事件
+     */
+    @EventListener
+    public void onRoutePresetRefresh(RoutePresetRefreshEvent event) {
+        clearSectionTemplates("线路预设刷新");
+    }
+
+    /**
+     * 地图配置刷新，清空分段模板
+     *
+     * @param event 地图配置刷新事件
+     */
+    @EventListener
+    public void onMapConfigRefresh(RcsMapConfigRefreshEvent event) {
+        clearSectionTemplates("地图配置刷新");
+    }
+
+    /**
+     * 任务配置刷新 (动作参数)，清空分段模板
+     *
+     * @param event 任务配置刷新事件
+     */
+    @EventListener
+    public void onTaskConfigRefresh(RcsTaskConfigRefreshEvent event) {
+        clearSectionTemplates("任务配置刷新");
+    }
+
+    /**
+     * 交互配置刷新 (电梯、风淋室)，清空分段模板
+     *
+     * @param event 交互配置刷新事件
+     */
+    @EventListener
+    public void onInteractionConfigRefresh(RcsInteractionConfigRefreshEvent event) {
+        clearSectionTemplates("交互配置刷新");
+    }
+
+    /**
+     * 清空分段模板
+     *
+     * @param reason 原因
+     */
+    public void clearSectionTemplates(String reason) {
+        sectionTemplates = new FiFoConcurrentMap<>(TEMPLATE_CACHE_SIZE);
+        RcsLog.algorithmLog.info("{}，已清空任务分段模板", reason);
+    }
+
+    /**
+     * 获取分段模板数量
+     *
+     * @return 数量
+     */
+    public int getSectionTemplateSize() {
+        return sectionTemplates.size();
+    }
+
     /**
      * 处理输送线对接逻辑
      *
@@ -0,0 +1,124 @@
+package com.ruinap.core.task.structure;
+
+import com.ruinap.core.map.pojo.MapSnapshot;
+import com.ruinap.core.task.domain.DockDevice;
+import com.ruinap.core.task.domain.TaskPath;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * 任务分段模板
+ * <p>
+ * 同一对起终点的“前往终点”分段结果 (电梯、风淋室拆分) 只取决于地图与配置，与执行的 AGV 无关。
+ * 模板保存一次拆分得到的分段原型，之后同一对起终点的任务直接按原型复制出分段，
+ * 复制只涉及分段数量级的对象创建，不再遍历路径和地图属性。
+ * </p>
+ * <p>
+ * 模板记录生成时的地图快照，快照被替换 (地图热重载) 后模板自动失效。
+ * 原型对象只在模板内部持有，外部拿到的始终是新创建的分段。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-12 09:30
+ */
+public class TaskSectionTemplate {
+
+    /**
+     * 生成模板时的地图快照
+     */
+    private final MapSnapshot snapshot;
+    /**
+     * 分段原型
+     */
+    private final List<TaskPath> prototypes;
+
+    /**
+     * 构造函数
+     *
+     * @param snapshot   生成模板时的地图快照
+     * @param prototypes 分段原型，模板持有副本
+     */
+    public TaskSectionTemplate(MapSnapshot snapshot, List<TaskPath> prototypes) {
+        this.snapshot = snapshot;
+        this.prototypes = new ArrayList<>(prototypes.size());
+        for (TaskPath prototype : prototypes) {
+            this.prototypes.add(copy(prototype, null));
+        }
+    }
+
+    /**
+     * 模板是否仍适用于当前地图快照
+     *
+     * @param current 当前地图快照
+     * @return true=适用
+     */
+    public boolean isValid(MapSnapshot current) {
+        return snapshot == current;
+    }
+
+    /**
+     * 分段数量
+     *
+     * @return 数量
+     */
+    public int size() {
+        return prototypes.size();
+    }
+
+    /**
+     * 为指定AGV实例化分段
+     *
+     * @param agvId AGV编号
+     * @return 新创建的分段集合 (可修改)
+     */
+    public List<TaskPath> instantiate(String agvId) {
+        List<TaskPath> taskPaths = new ArrayList<>(prototypes.size());
+        for (TaskPath prototype : prototypes) {
+            taskPaths.add(copy(prototype, agvId));
+        }
+        return taskPaths;
+    }
+
+    /**
+     * 复制分段的结构字段，运行期状态 (路线、交管、动作状态等) 保持初始值
+     *
+     * @param source 源分段
+     * @param agvId  AGV编号
+     * @return 新分段
+     */
+    private static TaskPath copy(TaskPath source, String agvId) {
+        TaskPath taskPath = new TaskPath();
+        taskPath.setAgvId(agvId);
+        taskPath.setSubTaskType(source.getSubTaskType());
+        taskPath.setFinallyTask(source.getFinallyTask());
+        taskPath.setTaskOrigin(source.getTaskOrigin());
+        taskPath.setTaskDestin(source.getTaskDestin());
+        taskPath.setTaskAction(source.getTaskAction());
+        taskPath.setTaskParameter(source.getTaskParameter());
+        if (source.getExpectRoutes() != null) {
+            taskPath.setExpectRoutes(new ArrayList<>(source.getExpectRoutes()));
+        }
+
+        DockDevice sourceDevice = source.getDockDevice();
+        if (sourceDevice != null) {
+            // 对接状态在执行时会被修改，每个分段必须持有独立的对接设备对象
+            DockDevice dockDevice = new DockDevice();
+            dockDevice.setEquipmentId(sourceDevice.getEquipmentId());
+            dockDevice.setDockType(sourceDevice.getDockType());
+            dockDevice.setDockingAdvance(sourceDevice.getDockingAdvance());
+            dockDevice.setStartPoint(sourceDevice.getStartPoint());
+            dockDevice.setEquipmentPoint(sourceDevice.getEquipmentPoint());
+            dockDevice.setEndPoint(sourceDevice.getEndPoint());
+            if (sourceDevice.getFrontDoors() != null) {
+                dockDevice.setFrontDoors(new HashMap<>(sourceDevice.getFrontDoors()));
+            }
+            if (sourceDevice.getBackDoors() != null) {
+                dockDevice.setBackDoors(new HashMap<>(sourceDevice.getBackDoors()));
+            }
+            taskPath.setDockDevice(dockDevice);
+        }
+        return taskPath;
+    }
+}
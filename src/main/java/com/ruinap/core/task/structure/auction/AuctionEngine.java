@@ -1,7 +1,11 @@
 package com.ruinap.core.task.structure.auction;
 
+import com.ruinap.core.algorithm.EtaManager;
+import com.ruinap.core.algorithm.HungarianAssigner;
 import com.ruinap.core.algorithm.domain.RouteResult;
 import com.ruinap.core.algorithm.search.RcsAstarSearch;
+import com.ruinap.core.equipment.manager.AgvEligibilityIndex;
+import com.ruinap.core.equipment.manager.AgvEligibilityIndex.Flag;
 import com.ruinap.core.equipment.manager.AgvManager;
 import com.ruinap.core.equipment.pojo.RcsAgv;
 import com.ruinap.core.map.MapManager;
@@ -9,17 +13,19 @@ import com.ruinap.core.map.pojo.RcsPoint;
 import com.ruinap.core.map.util.GeometryUtils;
 import com.ruinap.core.task.domain.RcsTask;
 import com.ruinap.core.task.structure.auction.filter.AgvEligibilityFilter;
+import com.ruinap.infra.config.CoreYaml;
 import com.ruinap.infra.config.TaskYaml;
-import com.ruinap.infra.enums.agv.AgvStateEnum;
 import com.ruinap.infra.framework.annotation.Autowired;
 import com.ruinap.infra.framework.annotation.Component;
 import com.ruinap.infra.log.RcsLog;
+import com.ruinap.infra.thread.DeadlineTaskScope;
 import com.ruinap.infra.thread.VthreadPool;
+import lombok.Getter;
 
-import java.util.Comparator;
-import java.util.List;
-import java.util.Objects;
-import java.util.concurrent.CompletableFuture;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * FMS 极速拍卖引擎 (支持动态策略与人工干预)
@@ -33,6 +39,8 @@ public class AuctionEngine {
     @Autowired
     private VthreadPool vthreadPool;
     @Autowired
+    private CoreYaml coreYaml;
+    @Autowired
     private TaskYaml taskYaml;
     @Autowired
     private AgvManager agvManager;
@@ -44,6 +52,19 @@ public class AuctionEngine {
     private List<AgvEligibilityFilter> eligibilityFilters;
     @Autowired
     private RcsAstarSearch rcsAstarSearch;
+    @Autowired
+    private EtaManager etaManager;
+
+    /**
+     * 运行指标 (截止时间命中率等)
+     */
+    @Getter
+    private final AuctionMetrics metrics = new AuctionMetrics();
+
+    /**
+     * 批量指派求解器 (无状态)
+     */
+    private final HungarianAssigner hungarianAssigner = new HungarianAssigner();
 
     /**
      * 开启一场拍卖
@@ -82,10 +103,7 @@ public class AuctionEngine {
         // ==========================================
         // 2. 资格审查 (过滤出可用的空闲车辆)
         // ==========================================
-        List<RcsAgv> eligibleAgvs = agvManager.getRcsAgvMap().values().stream()
-                .filter(agv -> AgvStateEnum.isEnumByCode(AgvStateEnum.IDLE, agv.getAgvState()))
-                .filter(agv -> eligibilityFilters == null || eligibilityFilters.stream().allMatch(filter -> filter.isEligible(agv, task)))
-                .toList();
+        List<RcsAgv> eligibleAgvs = eligibleAgvs(agvManager.selectAgv().with(Flag.IDLE_STATE), task);
 
         if (eligibleAgvs.isEmpty()) {
             RcsLog.taskLog.warn("任务 [{}] 拍卖流标：当前无空闲合规的 AGV", task.getTaskCode());
@@ -95,41 +113,219 @@ public class AuctionEngine {
         // ==========================================
         // 2.5 【新增核心优化】漏斗式距离粗筛 (Top-K 机制)
         // ==========================================
-        List<RcsAgv> topKAgvs = eligibleAgvs.stream()
-                .sorted((agv1, agv2) -> {
-                    RcsPoint p1 = mapManager.getRcsPoint(agv1.getMapId(), agv1.getPointId());
-                    RcsPoint p2 = mapManager.getRcsPoint(agv2.getMapId(), agv2.getPointId());
-
-                    // 如果获取不到点位，视为距离无限大(Integer.MAX_VALUE)，直接排到最后面淘汰
-                    int dist1 = p1 != null ? GeometryUtils.calculateDistance(p1, taskOrigin) : Integer.MAX_VALUE;
-                    int dist2 = p2 != null ? GeometryUtils.calculateDistance(p2, taskOrigin) : Integer.MAX_VALUE;
-                    return Integer.compare(dist1, dist2);
-                })
-                .limit(taskYaml.getTaskCommon().getAuctionTopK())
-                .toList();
+        List<RcsAgv> topKAgvs = nearestAgvs(eligibleAgvs, taskOrigin, taskYaml.getTaskCommon().getAuctionTopK());
 
         // ==========================================
-        // 3. 虚拟线程并发竞标 (核爆级性能)
+        // 3. 虚拟线程并发竞标 (核爆级性能)，截止时间到达后只采纳已完成的标书
         // ==========================================
-        List<CompletableFuture<BidResult>> futures = topKAgvs.stream()
-                .map(agv -> CompletableFuture.supplyAsync(() -> generateBid(agv, task, taskOrigin), vthreadPool.getExecutor()))
-                .toList();
-
-        // 阻塞主线程等待所有虚拟线程计算完毕 (极速)
-        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        List<BidResult> bids;
+        try (DeadlineTaskScope<BidResult> scope = openScope()) {
+            for (RcsAgv agv : topKAgvs) {
+                scope.fork(() -> generateBid(agv, task, taskOrigin));
+            }
+            joinBids(scope, "任务 [" + task.getTaskCode() + "]");
+            bids = scope.results();
+        }
 
         // ==========================================
         // 4. 决标：选出综合 Cost 最小的胜者
         // ==========================================
-        return futures.stream()
-                .map(CompletableFuture::join)
-                .filter(Objects::nonNull)
+        return bids.stream()
                 // 过滤掉彻底算不出路的死锁车
                 .filter(bid -> bid.getTotalCost() < Double.MAX_VALUE)
                 .min(Comparator.comparingDouble(BidResult::getTotalCost))
                 .orElse(null);
     }
 
+    /**
+     * 开启一场批量拍卖 (全局最小代价匹配)
+     * <p>
+     * 与逐个任务拍卖不同，批量拍卖把本节拍内所有待分配任务与所有空闲 AGV 一起考虑：
+     * <ol>
+     * <li>每个任务按直线距离粗筛候选 AGV，数量为 TopK + 本批任务数，保证其他任务抢走近车后仍有足够候选。</li>
+     * <li>所有 (任务, AGV) 组合并发竞标，每个组合只做一次 A* 寻路，构建 “任务 × AGV” 代价矩阵。</li>
+     * <li>任务优先级折算为代价减免，任务多于 AGV 时优先保证高优先级任务被分配。</li>
+     * <li>使用匈牙利算法求总代价最小的一对一匹配。</li>
+     * </ol>
+     * </p>
+     *
+     * @param tasks 待分配的新任务 (不含人工指派的任务)
+     * @return Key: 任务编号，Value: 中标标书，本批未分配到 AGV 的任务 Value 为 null
+     */
+    public Map<String, BidResult> startBatchAuction(List<RcsTask> tasks) {
+        Map<String, BidResult> result = new HashMap<>();
+        if (tasks == null || tasks.isEmpty()) {
+            return result;
+        }
+
+        // 1. 资格审查：空闲 AGV 列表 (列)
+        List<RcsAgv> idleAgvs = agvManager.selectAgv().with(Flag.IDLE_STATE).toList();
+        // 有效任务列表 (行)
+        List<RcsTask> rowTasks = new ArrayList<>(tasks.size());
+        List<RcsPoint> rowOrigins = new ArrayList<>(tasks.size());
+        for (RcsTask task : tasks) {
+            result.put(task.getTaskCode(), null);
+            RcsPoint taskOrigin = mapManager.getPointByAlias(task.getOrigin());
+            if (taskOrigin == null) {
+                RcsLog.taskLog.error("任务 [{}] 的起点位置 [{}] 不存在或拼写错误！", task.getTaskCode(), task.getOrigin());
+                continue;
+            }
+            rowTasks.add(task);
+            rowOrigins.add(taskOrigin);
+        }
+        if (idleAgvs.isEmpty() || rowTasks.isEmpty()) {
+            RcsLog.taskLog.warn("批量拍卖流标：空闲AGV数量 [{}]，有效任务数量 [{}]", idleAgvs.size(), rowTasks.size());
+            return result;
+        }
+
+        // 列下标 Key: AGV编号
+        Map<String, Integer> columnIndex = new HashMap<>(idleAgvs.size() * 2);
+        for (int j = 0; j < idleAgvs.size(); j++) {
+            columnIndex.put(idleAgvs.get(j).getAgvId(), j);
+        }
+
+        // 2. 粗筛 + 并发竞标：每个 (任务, AGV) 组合只算一次
+        int candidateLimit = taskYaml.getTaskCommon().getAuctionTopK() + rowTasks.size();
+        BidResult[][] bids = new BidResult[rowTasks.size()][idleAgvs.size()];
+        int forked;
+        try (DeadlineTaskScope<BidResult> scope = openScope()) {
+            // 子任务句柄与矩阵位置一一对应
+            List<Future<BidResult>> subtasks = new ArrayList<>();
+            List<int[]> cells = new ArrayList<>();
+            for (int i = 0; i < rowTasks.size(); i++) {
+                RcsTask task = rowTasks.get(i);
+                RcsPoint taskOrigin = rowOrigins.get(i);
+                List<RcsAgv> eligibleAgvs = eligibleAgvs(agvManager.selectAgv().with(Flag.IDLE_STATE), task);
+                for (RcsAgv agv : nearestAgvs(eligibleAgvs, taskOrigin, candidateLimit)) {
+                    Integer col = columnIndex.get(agv.getAgvId());
+                    if (col == null) {
+                        // 列快照之后才变为空闲的 AGV，留给下一个节拍
+                        continue;
+                    }
+                    subtasks.add(scope.fork(() -> generateBid(agv, task, taskOrigin)));
+                    cells.add(new int[]{i, col});
+                }
+            }
+            joinBids(scope, "批量拍卖");
+            // 截止时间内未完成的组合保持为空，在代价矩阵中视为不可行
+            for (int k = 0; k < subtasks.size(); k++) {
+                Future<BidResult> subtask = subtasks.get(k);
+                if (subtask.state() == Future.State.SUCCESS) {
+                    bids[cells.get(k)[0]][cells.get(k)[1]] = subtask.resultNow();
+                }
+            }
+            forked = subtasks.size();
+        }
+
+        // 3. 构建代价矩阵：优先级越高，代价减免越多
+        int priorityBonus = coreYaml.getAlgorithmInt("auction_priority_bonus", 10000);
+        double[][] cost = new double[rowTasks.size()][idleAgvs.size()];
+        for (int i = 0; i < cost.length; i++) {
+            Integer taskPriority = rowTasks.get(i).getTaskPriority();
+            double bonus = taskPriority == null ? 0 : (double) taskPriority * priorityBonus;
+            for (int j = 0; j < cost[i].length; j++) {
+                BidResult bid = bids[i][j];
+                boolean feasible = bid != null && HungarianAssigner.isFeasible(bid.getTotalCost());
+                cost[i][j] = feasible ? bid.getTotalCost() - bonus : HungarianAssigner.INFEASIBLE;
+            }
+        }
+
+        // 4. 决标：全局最小代价匹配
+        int[] assignment = hungarianAssigner.assign(cost);
+        int assigned = 0;
+        for (int i = 0; i < assignment.length; i++) {
+            if (assignment[i] >= 0) {
+                result.put(rowTasks.get(i).getTaskCode(), bids[i][assignment[i]]);
+                assigned++;
+            }
+        }
+        RcsLog.taskLog.info("批量拍卖完成：任务数量 [{}]，空闲AGV数量 [{}]，竞标组合 [{}]，成功匹配 [{}]", rowTasks.size(), idleAgvs.size(), forked, assigned);
+        return result;
+    }
+
+    /**
+     * 按配置的截止时间打开竞标作用域
+     *
+     * @return 作用域
+     */
+    private DeadlineTaskScope<BidResult> openScope() {
+        int deadlineMs = Math.max(1, coreYaml.getAlgorithmInt("auction_deadline_ms", 1000));
+        return DeadlineTaskScope.withTimeout(vthreadPool.getExecutor(), deadlineMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 等待竞标结果，截止时间到达后放弃未完成的竞标并记录指标
+     * <p>
+     * 未完成的竞标在作用域关闭时被中断，A* 搜索检测到中断标记后立即退出
+     *
+     * @param scope 竞标作用域
+     * @param label 日志标识
+     */
+    private void joinBids(DeadlineTaskScope<BidResult> scope, String label) {
+        try {
+            scope.joinUntilDeadline();
+        } catch (InterruptedException e) {
+            // 分发线程被中断：按截止时间到达处理，保留中断标记
+            Thread.currentThread().interrupt();
+        }
+        int cancelled = scope.timedOutCount();
+        metrics.record(scope.forkedCount(), cancelled);
+        if (cancelled > 0) {
+            RcsLog.taskLog.warn("{} 竞标截止时间到达，{}/{} 个竞标未完成，按已收到的标书决标；{}", label, cancelled, scope.forkedCount(), metrics);
+        }
+    }
+
+    /**
+     * 资格审查
+     * <p>
+     * 能用位图索引表达的过滤器先收窄候选集 (按字求交)，其余过滤器再逐台校验
+     *
+     * @param selection 资格查询 (已包含空闲条件)
+     * @param task      任务
+     * @return 有资格竞标的 AGV 列表
+     */
+    private List<RcsAgv> eligibleAgvs(AgvEligibilityIndex.Selection selection, RcsTask task) {
+        if (eligibilityFilters == null || eligibilityFilters.isEmpty()) {
+            return selection.toList();
+        }
+        List<AgvEligibilityFilter> residualFilters = new ArrayList<>(eligibilityFilters.size());
+        for (AgvEligibilityFilter filter : eligibilityFilters) {
+            if (!filter.narrow(selection, task)) {
+                residualFilters.add(filter);
+            }
+        }
+        List<RcsAgv> agvs = selection.toList();
+        if (residualFilters.isEmpty()) {
+            return agvs;
+        }
+        return agvs.stream()
+                .filter(agv -> residualFilters.stream().allMatch(filter -> filter.isEligible(agv, task)))
+                .toList();
+    }
+
+    /**
+     * 漏斗式距离粗筛 (Top-K 机制)
+     *
+     * @param agvs       候选 AGV
+     * @param taskOrigin 任务起点
+     * @param limit      保留数量
+     * @return 距离任务起点最近的 AGV 列表
+     */
+    private List<RcsAgv> nearestAgvs(List<RcsAgv> agvs, RcsPoint taskOrigin, int limit) {
+        return agvs.stream()
+                .sorted((agv1, agv2) -> {
+                    RcsPoint p1 = mapManager.getRcsPoint(agv1.getMapId(), agv1.getPointId());
+                    RcsPoint p2 = mapManager.getRcsPoint(agv2.getMapId(), agv2.getPointId());
+
+                    // 如果获取不到点位，视为距离无限大(Integer.MAX_VALUE)，直接排到最后面淘汰
+                    int dist1 = p1 != null ? GeometryUtils.calculateDistance(p1, taskOrigin) : Integer.MAX_VALUE;
+                    int dist2 = p2 != null ? GeometryUtils.calculateDistance(p2, taskOrigin) : Integer.MAX_VALUE;
+                    return Integer.compare(dist1, dist2);
+                })
+                .limit(limit)
+                .toList();
+    }
+
     /**
      * AGV 生成竞标书的底层逻辑
      */
@@ -141,7 +337,8 @@ public class AuctionEngine {
             if (rcsPoint == null) {
                 return null;
             }
-            RouteResult route = rcsAstarSearch.aStarSearch(agv.getAgvId(), rcsPoint, taskOrigin);
+            // 截止时间到达时中断，搜索抛出 CancellationException 退出
+            RouteResult route = rcsAstarSearch.aStarSearch(agv.getAgvId(), rcsPoint, taskOrigin, true);
             if (route == null || route.getPaths().isEmpty()) {
                 return null;
             }
@@ -157,7 +354,13 @@ public class AuctionEngine {
                 }
             }
 
-            return new BidResult(agv, task, finalTotalCost, route);
+            BidResult bidResult = new BidResult(agv, task, finalTotalCost, route);
+            // 3. 附带预计到达起点的耗时，供决标与分发使用
+            bidResult.setEtaMs(etaManager.estimateRouteMs(route.getPaths()));
+            return bidResult;
+        } catch (CancellationException e) {
+            // 截止时间到达被中断，属于正常放弃
+            return null;
         } catch (Exception e) {
             RcsLog.algorithmLog.error("AGV [{}] 竞价计算异常", agv.getAgvId(), e);
             return null;
@@ -0,0 +1,100 @@
+package com.ruinap.core.task.structure.auction;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 拍卖引擎运行指标
+ * <p>
+ * 累计拍卖次数、截止时间命中次数 (竞标未在截止时间内全部完成) 与被取消的竞标数量，
+ * 用于评估截止时间配置是否合理：命中率持续偏高说明地图过于复杂或截止时间过短。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-11 10:00
+ */
+public class AuctionMetrics {
+
+    /**
+     * 拍卖次数
+     */
+    private final LongAdder auctions = new LongAdder();
+    /**
+     * 截止时间命中次数
+     */
+    private final LongAdder deadlineHits = new LongAdder();
+    /**
+     * 发起的竞标数量
+     */
+    private final LongAdder bids = new LongAdder();
+    /**
+     * 截止时间到达时被取消的竞标数量
+     */
+    private final LongAdder cancelledBids = new LongAdder();
+
+    /**
+     * 记录一次拍卖
+     *
+     * @param forked    发起的竞标数量
+     * @param cancelled 被取消的竞标数量
+     */
+    public void record(int forked, int cancelled) {
+        auctions.increment();
+        bids.add(forked);
+        if (cancelled > 0) {
+            deadlineHits.increment();
+            cancelledBids.add(cancelled);
+        }
+    }
+
+    /**
+     * 拍卖次数
+     *
+     * @return 次数
+     */
+    public long getAuctions() {
+        return auctions.sum();
+    }
+
+    /**
+     * 截止时间命中次数
+     *
+     * @return 次数
+     */
+    public long getDeadlineHits() {
+        return deadlineHits.sum();
+    }
+
+    /**
+     * 发起的竞标数量
+     *
+     * @return 数量
+     */
+    public long getBids() {
+        return bids.sum();
+    }
+
+    /**
+     * 被取消的竞标数量
+     *
+     * @return 数量
+     */
+    public long getCancelledBids() {
+        return cancelledBids.sum();
+    }
+
+    /**
+     * 截止时间命中率
+     *
+     * @return 0~1
+     */
+    public double getDeadlineHitRate() {
+        long total = auctions.sum();
+        return total == 0 ? 0 : (double) deadlineHits.sum() / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("拍卖次数 %d，截止时间命中 %d 次 (%.1f%%)，竞标 %d 个，取消 %d 个",
+                getAuctions(), getDeadlineHits(), getDeadlineHitRate() * 100, getBids(), getCancelledBids());
+    }
+}
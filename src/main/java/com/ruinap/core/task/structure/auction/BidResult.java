@@ -19,6 +19,8 @@ public class BidResult {
     private double totalCost;
     // 附带规划好的路径，中标后直接用，省去二次计算
     private RouteResult route;
+    // 预计到达任务起点的耗时 (毫秒)，未知时为 -1
+    private long etaMs = -1;
 
     public BidResult(RcsAgv rcsAgv, RcsTask rcsTask, double totalCost, RouteResult route) {
         this.rcsAgv = rcsAgv;
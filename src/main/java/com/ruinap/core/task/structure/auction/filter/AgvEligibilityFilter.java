@@ -1,5 +1,6 @@
 package com.ruinap.core.task.structure.auction.filter;
 
+import com.ruinap.core.equipment.manager.AgvEligibilityIndex;
 import com.ruinap.core.equipment.pojo.RcsAgv;
 import com.ruinap.core.task.domain.RcsTask;
 
@@ -22,4 +23,18 @@ public interface AgvEligibilityFilter {
      * @return true=有资格参与竞标，false=无资格被淘汰
      */
     boolean isEligible(RcsAgv agv, RcsTask task);
+
+    /**
+     * 用资格位图索引收窄候选集
+     * <p>
+     * 规则可以完全用索引表达的过滤器在这里追加查询条件并返回 true，竞标时不再逐台调用 {@link #isEligible}；
+     * 默认不使用索引。
+     *
+     * @param selection 资格查询
+     * @param task      当前派发的任务
+     * @return true=已由索引完成过滤
+     */
+    default boolean narrow(AgvEligibilityIndex.Selection selection, RcsTask task) {
+        return false;
+    }
 }
\ No newline at end of file
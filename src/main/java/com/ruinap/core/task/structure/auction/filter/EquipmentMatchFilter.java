@@ -1,6 +1,7 @@
 package com.ruinap.core.task.structure.auction.filter;
 
 import cn.hutool.core.util.StrUtil;
+import com.ruinap.core.equipment.manager.AgvEligibilityIndex;
 import com.ruinap.core.equipment.pojo.RcsAgv;
 import com.ruinap.core.task.domain.RcsTask;
 import com.ruinap.infra.framework.annotation.Component;
@@ -66,4 +67,17 @@ public class EquipmentMatchFilter implements AgvEligibilityFilter {
         // 经受住了所有考验，允许该 AGV 进入最终的 A* 物理竞标环节！
         return true;
     }
+
+    @Override
+    public boolean narrow(AgvEligibilityIndex.Selection selection, RcsTask task) {
+        // 类型：与类型位图求交
+        if (task.getEquipmentType() != null) {
+            selection.type(task.getEquipmentType());
+        }
+        // 标签：任意一个标签位图的并集，再求交
+        if (StrUtil.isNotBlank(task.getEquipmentLabel())) {
+            selection.anyLabel(StrUtil.split(task.getEquipmentLabel(), ','));
+        }
+        return true;
+    }
 }
\ No newline at end of file
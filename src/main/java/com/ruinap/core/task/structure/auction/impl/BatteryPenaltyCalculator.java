@@ -1,16 +1,31 @@
 package com.ruinap.core.task.structure.auction.impl;
 
+import com.ruinap.core.algorithm.BatteryModelManager;
+import com.ruinap.core.algorithm.DistanceFieldManager;
 import com.ruinap.core.algorithm.domain.RouteResult;
+import com.ruinap.core.algorithm.search.RcsAstarSearch;
 import com.ruinap.core.equipment.pojo.RcsAgv;
+import com.ruinap.core.map.MapManager;
+import com.ruinap.core.map.pojo.MapSnapshot;
+import com.ruinap.core.map.pojo.RcsPoint;
+import com.ruinap.core.map.util.GeometryUtils;
 import com.ruinap.core.task.domain.RcsTask;
 import com.ruinap.core.task.structure.auction.CostCalculator;
 import com.ruinap.infra.config.CoreYaml;
 import com.ruinap.infra.config.TaskYaml;
 import com.ruinap.infra.framework.annotation.Autowired;
 import com.ruinap.infra.framework.annotation.Component;
+import com.ruinap.infra.structure.FiFoConcurrentMap;
+
+import java.util.List;
 
 /**
  * 电量代价计算器
+ * <p>
+ * 按“完成任务后的预计电量”而不是当前电量计算惩罚：
+ * 预计电量 = 当前电量 - 空车前往起点耗电 - 载货前往终点耗电 - 从终点空车前往最近充电点耗电，
+ * 耗电量由电量消耗模型按 AGV 学习得到。电量勉强够用的 AGV 因此不会被选去执行长距离任务。
+ * </p>
  *
  * @author qianye
  * @create 2026-02-26 17:42
@@ -21,6 +36,29 @@ public class BatteryPenaltyCalculator implements CostCalculator {
     private CoreYaml coreYaml;
     @Autowired
     private TaskYaml taskYaml;
+    @Autowired
+    private MapManager mapManager;
+    @Autowired
+    private RcsAstarSearch rcsAstarSearch;
+    @Autowired
+    private DistanceFieldManager distanceFieldManager;
+    @Autowired
+    private BatteryModelManager batteryModelManager;
+
+    /**
+     * 载货段里程缓存 (与 AGV 无关，同一任务的所有竞标共用)
+     * Key: 起点|终点
+     */
+    private final FiFoConcurrentMap<String, LoadedLeg> loadedLegs = new FiFoConcurrentMap<>(1024);
+
+    /**
+     * 载货段里程
+     *
+     * @param snapshot 计算时的地图快照
+     * @param distance 里程 (毫米)，规划不到路线时为 -1
+     */
+    private record LoadedLeg(MapSnapshot snapshot, double distance) {
+    }
 
     @Override
     public double calculate(RcsAgv agv, RcsTask task, RouteResult route) {
@@ -34,7 +72,27 @@ public class BatteryPenaltyCalculator implements CostCalculator {
             // 绝对惩罚
             return 50000.0;
         }
-        if (battery < allowChargePower) {
+
+        double unloaded = route != null ? pathLength(route.getPaths()) : 0;
+        double loaded = 0;
+        RcsPoint destin = task.getDestin() != null ? mapManager.getPointByAlias(task.getDestin()) : null;
+        if (destin != null) {
+            RcsPoint origin = task.getOrigin() != null ? mapManager.getPointByAlias(task.getOrigin()) : null;
+            if (origin != null) {
+                loaded = Math.max(0, getLoadedDistance(origin, destin));
+            }
+            // 完成后还要能回到充电点
+            double toCharge = distanceFieldManager.getChargeField().distance(destin.getGraphIndex(), 0);
+            if (Double.isFinite(toCharge)) {
+                unloaded += toCharge;
+            }
+        }
+        double expected = batteryModelManager.predictRemaining(agv, unloaded, loaded);
+        if (expected < lowestWorkPower) {
+            // 绝对惩罚：完成任务后低于最低工作电量
+            return 50000.0;
+        }
+        if (expected < allowChargePower) {
             // 软性惩罚
             return 10000.0;
         }
@@ -45,4 +103,45 @@ public class BatteryPenaltyCalculator implements CostCalculator {
     public double getDynamicWeight() {
         return coreYaml.getAlgorithmCommon().getOrDefault("auction_weight_battery", 1);
     }
-}
\ No newline at end of file
+
+    /**
+     * 获取载货段 (起点→终点) 的路网里程
+     *
+     * @param origin 起点
+     * @param destin 终点
+     * @return 里程 (毫米)，规划不到路线时返回 -1
+     */
+    private double getLoadedDistance(RcsPoint origin, RcsPoint destin) {
+        MapSnapshot snapshot = mapManager.getSnapshot();
+        String key = origin.getGraphIndex() + "|" + destin.getGraphIndex();
+        LoadedLeg leg = loadedLegs.get(key);
+        if (leg == null || leg.snapshot() != snapshot) {
+            // 在竞标线程中执行，截止时间到达时随竞标一起取消
+            RouteResult route = rcsAstarSearch.aStarSearch("battery:" + key, origin, destin, true);
+            leg = new LoadedLeg(snapshot, route != null && route.getPaths() != null && !route.getPaths().isEmpty() ? pathLength(route.getPaths()) : -1);
+            loadedLegs.put(key, leg);
+        }
+        return leg.distance();
+    }
+
+    /**
+     * 计算路径的行驶里程 (跨楼层段乘电梯，不计入行驶里程)
+     *
+     * @param paths 路径点
+     * @return 里程 (毫米)
+     */
+    private static double pathLength(List<RcsPoint> paths) {
+        if (paths == null || paths.size() < 2) {
+            return 0;
+        }
+        double length = 0;
+        for (int i = 1; i < paths.size(); i++) {
+            RcsPoint from = paths.get(i - 1);
+            RcsPoint to = paths.get(i);
+            if (from.getFloor() == to.getFloor()) {
+                length += GeometryUtils.calculateDistance(from.getX(), from.getY(), to.getX(), to.getY());
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,47 @@
+package com.ruinap.core.task.structure.auction.impl;
+
+import com.ruinap.core.algorithm.ElevatorDispatcher;
+import com.ruinap.core.algorithm.domain.RouteResult;
+import com.ruinap.core.equipment.pojo.RcsAgv;
+import com.ruinap.core.task.domain.RcsTask;
+import com.ruinap.core.task.structure.auction.CostCalculator;
+import com.ruinap.infra.config.CoreYaml;
+import com.ruinap.infra.framework.annotation.Autowired;
+import com.ruinap.infra.framework.annotation.Component;
+
+/**
+ * 电梯等待代价计算器
+ * <p>
+ * 竞标路线需要乘坐电梯时，按电梯批量调度预测的耗时 (等待 + 乘梯) 折算为“等效多走距离”，
+ * 同楼层的 AGV 因此优先于需要排队换层的 AGV。
+ *
+ * @author qianye
+ * @create 2026-03-16 14:10
+ */
+@Component
+public class ElevatorWaitCostCalculator implements CostCalculator {
+    @Autowired
+    private CoreYaml coreYaml;
+    @Autowired
+    private ElevatorDispatcher elevatorDispatcher;
+
+    @Override
+    public double calculate(RcsAgv agv, RcsTask task, RouteResult route) {
+        if (route == null || route.getPaths() == null) {
+            return 0;
+        }
+        long waitMs = elevatorDispatcher.predictRouteWaitMs(route.getPaths());
+        if (waitMs <= 0) {
+            return 0;
+        }
+        // 默认速度 (毫米/秒)
+        int speed = coreYaml.getAlgorithmInt("eta_default_speed", 1000);
+        return waitMs * Math.max(1, speed) / 1000.0;
+    }
+
+    @Override
+    public double getDynamicWeight() {
+        // 从配置热更新读取电梯等待权重，默认为 1.0
+        return coreYaml.getAlgorithmInt("auction_weight_elevator_wait", 1);
+    }
+}
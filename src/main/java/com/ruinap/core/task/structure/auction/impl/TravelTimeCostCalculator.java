@@ -0,0 +1,41 @@
+package com.ruinap.core.task.structure.auction.impl;
+
+import com.ruinap.core.algorithm.TravelTimeManager;
+import com.ruinap.core.algorithm.domain.RouteResult;
+import com.ruinap.core.equipment.pojo.RcsAgv;
+import com.ruinap.core.task.domain.RcsTask;
+import com.ruinap.core.task.structure.auction.CostCalculator;
+import com.ruinap.infra.config.CoreYaml;
+import com.ruinap.infra.framework.annotation.Autowired;
+import com.ruinap.infra.framework.annotation.Component;
+
+/**
+ * 时变通行耗时代价计算器
+ * <p>
+ * 在纯距离代价之外，叠加由历史通行耗时学习得到的“等效多走距离”，
+ * 使拍卖按预计到达时间而非物理距离择优。
+ *
+ * @author qianye
+ * @create 2026-03-02 11:26
+ */
+@Component
+public class TravelTimeCostCalculator implements CostCalculator {
+    @Autowired
+    private CoreYaml coreYaml;
+    @Autowired
+    private TravelTimeManager travelTimeManager;
+
+    @Override
+    public double calculate(RcsAgv agv, RcsTask task, RouteResult route) {
+        if (route == null || route.getPaths() == null) {
+            return 0;
+        }
+        return travelTimeManager.extraCost(route.getPaths());
+    }
+
+    @Override
+    public double getDynamicWeight() {
+        // 从配置热更新读取通行耗时权重，默认为 1.0
+        return coreYaml.getAlgorithmInt("auction_weight_travel_time", 1);
+    }
+}
@@ -233,4 +233,18 @@ public class CoreYaml implements ReloadableConfig {
         }
         return algorithmCommon;
     }
+
+    /**
+     * 获取算法配置中的整数项
+     * <p>
+     * 未配置或配置值不是数字时返回默认值
+     *
+     * @param key          配置项
+     * @param defaultValue 默认值
+     * @return 配置值
+     */
+    public int getAlgorithmInt(String key, int defaultValue) {
+        Object value = getAlgorithmCommon().get(key);
+        return value instanceof Number number ? number.intValue() : defaultValue;
+    }
 }
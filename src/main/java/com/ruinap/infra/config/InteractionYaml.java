@@ -3,11 +3,13 @@ package com.ruinap.infra.config;
 import com.ruinap.core.map.MapManager;
 import com.ruinap.core.map.pojo.RcsPoint;
 import com.ruinap.infra.config.common.ReloadableConfig;
+import com.ruinap.infra.config.event.RcsInteractionConfigRefreshEvent;
 import com.ruinap.infra.config.pojo.InteractionConfig;
 import com.ruinap.infra.config.pojo.interactions.*;
 import com.ruinap.infra.framework.annotation.Autowired;
 import com.ruinap.infra.framework.annotation.Component;
 import com.ruinap.infra.framework.annotation.PostConstruct;
+import com.ruinap.infra.framework.core.ApplicationContext;
 import com.ruinap.infra.framework.core.Environment;
 
 import java.util.*;
@@ -38,6 +40,8 @@ public class InteractionYaml implements ReloadableConfig {
     private MapManager mapManager;
     @Autowired
     private Environment environment;
+    @Autowired
+    private ApplicationContext ctx;
 
     /**
      * 初始化调度交互Yaml配置文件
@@ -167,6 +171,10 @@ public class InteractionYaml implements ReloadableConfig {
     public void rebind() {
         // 纯内存操作，因为GlobalConfigManager已经重新从配置文件读取了最新的数据，这里直接从 Environment 拿最新数据
         bindInternal();
+        // 发送事件，通知其他监听器
+        if (ctx != null) {
+            ctx.publishEvent(new RcsInteractionConfigRefreshEvent(this));
+        }
     }
 
     @Override
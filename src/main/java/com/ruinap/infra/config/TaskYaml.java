@@ -1,6 +1,7 @@
 package com.ruinap.infra.config;
 
 import com.ruinap.infra.config.common.ReloadableConfig;
+import com.ruinap.infra.config.event.RcsTaskConfigRefreshEvent;
 import com.ruinap.infra.config.pojo.TaskConfig;
 import com.ruinap.infra.config.pojo.task.ChargeCommonEntity;
 import com.ruinap.infra.config.pojo.task.StandbyCommonEntity;
@@ -51,6 +52,10 @@ public class TaskYaml implements ReloadableConfig {
     public void rebind() {
         // 纯内存操作，因为GlobalConfigManager已经重新从配置文件读取了最新的数据，这里直接从 Environment 拿最新数据
         bindInternal();
+        // 发送事件，通知其他监听器
+        if (ctx != null) {
+            ctx.publishEvent(new RcsTaskConfigRefreshEvent(this));
+        }
     }
 
     @Override
@@ -92,6 +97,38 @@ public class TaskYaml implements ReloadableConfig {
         return taskDistributeMode == null ? 0 : taskDistributeMode;
     }
 
+    /**
+     * 获取 批量拍卖开关
+     * <p>
+     * 如果配置文件中没有配置，则返回默认值 0
+     *
+     * @return 0关闭 1开启
+     */
+    public Integer getAuctionBatch() {
+        // 获取引用快照
+        TaskConfig current = config;
+        if (current == null || current.getTaskCommon() == null) {
+            return 0;
+        }
+        Integer auctionBatch = current.getTaskCommon().getAuctionBatch();
+        return auctionBatch == null ? 0 : auctionBatch;
+    }
+
+    /**
+     * 获取任务全量校准间隔
+     *
+     * @return 间隔 (秒)，默认300
+     */
+    public Integer getTaskFullSyncInterval() {
+        // 获取引用快照
+        TaskConfig current = config;
+        if (current == null || current.getTaskCommon() == null) {
+            return 300;
+        }
+        Integer interval = current.getTaskCommon().getTaskFullSyncInterval();
+        return interval == null ? 300 : interval;
+    }
+
     /**
      * 获取 点位别名
      * <p>
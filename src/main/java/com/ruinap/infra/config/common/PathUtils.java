@@ -44,6 +44,10 @@ public class PathUtils {
      * H2DB 文件路径
      */
     public static final Path H2DB_DIR = ROOT_DIR.resolve("h2db");
+    /**
+     * AGV 遥测数据文件路径
+     */
+    public static final Path TELEMETRY_DIR = ROOT_DIR.resolve("telemetry");
 
     /**
      * 核心配置文件路径
@@ -0,0 +1,20 @@
+package com.ruinap.infra.config.event;
+
+import com.ruinap.infra.framework.core.event.ApplicationEvent;
+
+import java.io.Serial;
+
+/**
+ * 【自定义事件】调度交互配置文件刷新事件
+ *
+ * @author qianye
+ * @create 2026-03-12 09:10
+ */
+public class RcsInteractionConfigRefreshEvent extends ApplicationEvent {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public RcsInteractionConfigRefreshEvent(Object source) {
+        super(source);
+    }
+}
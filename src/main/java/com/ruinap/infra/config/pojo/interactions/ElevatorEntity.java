@@ -26,6 +26,10 @@ public class ElevatorEntity implements Serializable {
      * 启用状态，设置为false则不读取配置
      */
     private boolean enable;
+    /**
+     * 轿厢一次最多容纳的 AGV 数量，未配置时使用 elevator_capacity
+     */
+    private Integer capacity;
     /**
      * 电梯所有电梯门
      */
@@ -27,6 +27,16 @@ public class TaskCommonEntity {
      */
     @JsonProperty("task_distribute_mode")
     private Integer taskDistributeMode;
+    /**
+     * 批量拍卖开关
+     */
+    @JsonProperty("auction_batch")
+    private Integer auctionBatch;
+    /**
+     * 任务全量校准间隔 (秒)
+     */
+    @JsonProperty("task_full_sync_interval")
+    private Integer taskFullSyncInterval;
 
     /**
      * 任务起点指定AGV
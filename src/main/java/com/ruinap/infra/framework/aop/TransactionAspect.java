@@ -4,6 +4,7 @@ import com.ruinap.infra.framework.annotation.Autowired;
 import com.ruinap.infra.framework.annotation.Component;
 import com.ruinap.infra.framework.config.AopFeatureControl;
 import com.ruinap.infra.log.RcsLog;
+import com.ruinap.persistence.executor.JdbcExecutor;
 import com.ruinap.persistence.factory.RcsDSFactory;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -16,7 +17,9 @@ import org.aspectj.lang.annotation.Aspect;
  * 1. <strong>编译期织入：</strong> 本类由 ajc 编译器直接织入到业务代码中，性能极高。<br>
  * 2. <strong>IoC 托管：</strong> 虽然是 AspectJ 切面，但通过 {@code @Component} 和容器的 {@code aspectOf} 接管机制，
  * 它完全融入了 Spring 生命周期，支持 {@code @Autowired} 注入。<br>
- * 3. <strong>可插拔：</strong> 通过 {@code AopFeatureControl} 检查开关，配合 {@code @EnableTransaction} 使用。
+ * 3. <strong>可插拔：</strong> 通过 {@code AopFeatureControl} 检查开关，配合 {@code @EnableTransaction} 使用。<br>
+ * 4. <strong>线程：</strong> 整个事务经由 {@link JdbcExecutor} 在同一个线程内执行 (与 BaseDao.tx 一致)，
+ * 方法内部的数据库调用直接在该线程执行，仍使用事务绑定的连接。
  * </p>
  *
  * @author qianye
@@ -28,6 +31,8 @@ public class TransactionAspect {
 
     @Autowired
     private RcsDSFactory rcsDSFactory;
+    @Autowired
+    private JdbcExecutor jdbcExecutor;
 
     /**
      * 环绕通知：拦截所有带 @Transactional 注解的方法
@@ -53,7 +58,7 @@ public class TransactionAspect {
 
         // 3. 执行事务模板逻辑
         final Object[] resultHolder = new Object[1];
-        try {
+        JdbcExecutor.SqlCallable<Object> transaction = () -> {
             rcsDSFactory.db.tx(db -> {
                 try {
                     resultHolder[0] = joinPoint.proceed();
@@ -63,6 +68,15 @@ public class TransactionAspect {
                     throw new RuntimeException(e);
                 }
             });
+            return null;
+        };
+        try {
+            // 虚拟线程调用时交给 JDBC 执行器的线程执行，方法内的数据库调用与事务使用同一个线程绑定的连接
+            if (jdbcExecutor == null) {
+                transaction.call();
+            } else {
+                jdbcExecutor.call(transaction);
+            }
         } catch (RuntimeException e) {
             Throwable cause = e.getCause();
             if (cause != null) {
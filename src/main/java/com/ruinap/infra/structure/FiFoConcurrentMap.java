@@ -3,23 +3,65 @@ package com.ruinap.infra.structure;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 
 /**
  * 线程安全的FIFO集合实现
+ * <p>
+ * 结构：ConcurrentHashMap 保存 键 → 链表节点，节点之间用双向指针串成插入顺序链表 (侵入式链表)。
+ * <ul>
+ * <li>get / containsKey / 修改已有键的值：只访问 ConcurrentHashMap 与节点的 volatile 值，无锁；</li>
+ * <li>新增 / 移除 / 淘汰最早的键：ConcurrentHashMap 完成键级原子操作后，在链表锁内做 O(1) 的指针拼接；</li>
+ * <li>遍历：在链表锁内按顺序复制节点快照 (弱一致性)，回调在锁外执行，回调中可以安全地增删元素。</li>
+ * </ul>
+ * 节点被移除时先打上移除标记，再在链表锁内摘链；链表锁内的入链操作会检查该标记，
+ * 因此并发的“新增后立即移除”不会在链表中留下孤儿节点。
+ * </p>
+ * <p>
+ * 可选容量上限：超过上限时自动淘汰最早插入的键。
+ * </p>
  *
  * @author qianye
  * @create 2025-09-19 16:20
  */
 public class FiFoConcurrentMap<K, V> {
-    private final Map<K, V> map = new ConcurrentHashMap<>();
-    private final Queue<K> queue = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<K, Node<K, V>> map = new ConcurrentHashMap<>();
+
+    /**
+     * 链表锁，只保护节点的前后指针
+     */
+    private final ReentrantLock linkLock = new ReentrantLock();
+    /**
+     * 链表头 (最早插入)
+     */
+    private Node<K, V> head;
+    /**
+     * 链表尾 (最近插入)
+     */
+    private Node<K, V> tail;
+
+    /**
+     * 容量上限，小于等于 0 表示不限制
+     */
+    private final int maxSize;
 
     /**
      * 构造函数
      *
      */
     public FiFoConcurrentMap() {
+        this(0);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param maxSize 容量上限，超过后淘汰最早插入的键，小于等于 0 表示不限制
+     */
+    public FiFoConcurrentMap(int maxSize) {
+        this.maxSize = maxSize;
     }
 
     /**
@@ -33,13 +75,19 @@ public class FiFoConcurrentMap<K, V> {
         if (key == null || value == null) {
             throw new NullPointerException("键或值不能为空");
         }
-        // 先放入 Map
-        V oldValue = map.put(key, value);
-        // 如果是新键，加入队列
-        if (oldValue == null) {
-            queue.offer(key);
-        }
-        return oldValue;
+        Object[] result = new Object[2];
+        map.compute(key, (k, node) -> {
+            if (node == null) {
+                Node<K, V> created = new Node<>(k, value);
+                result[1] = created;
+                return created;
+            }
+            result[0] = node.value;
+            node.value = value;
+            return node;
+        });
+        afterInsert(result[1]);
+        return cast(result[0]);
     }
 
     /**
@@ -54,12 +102,13 @@ public class FiFoConcurrentMap<K, V> {
             throw new NullPointerException("键或值不能为空");
         }
         // 原子操作：仅当键不存在时插入
-        V oldValue = map.putIfAbsent(key, value);
-        // 如果插入成功（oldValue == null），加入队列
-        if (oldValue == null) {
-            queue.offer(key);
+        Node<K, V> created = new Node<>(key, value);
+        Node<K, V> existing = map.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing.value;
         }
-        return oldValue;
+        afterInsert(created);
+        return null;
     }
 
     /**
@@ -71,28 +120,43 @@ public class FiFoConcurrentMap<K, V> {
      * @param remappingFunction 重映射函数 (输入 key 和当前 value，返回新 value)
      * @return 新值
      */
-    public V compute(K key, java.util.function.BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
         if (key == null || remappingFunction == null) {
             throw new NullPointerException();
         }
 
+        Object[] result = new Object[3];
         // 调用底层的 compute，它是原子操作（Bucket Lock）
-        return map.compute(key, (k, oldValue) -> {
+        map.compute(key, (k, node) -> {
             // 1. 执行用户的业务逻辑，计算新值
-            V newValue = remappingFunction.apply(k, oldValue);
-
-            // 2. 维护 FIFO 队列的一致性
-            if (oldValue == null && newValue != null) {
-                // 情况 A: 新增键 -> 入队
-                queue.offer(k);
-            } else if (oldValue != null && newValue == null) {
-                // 情况 B: 删除键 -> 出队
-                // 注意：queue.remove 是 O(N) 操作，但在 AGV 调度场景（数量少）下通常可以接受
-                queue.remove(k);
+            V newValue = remappingFunction.apply(k, node == null ? null : node.value);
+            result[0] = newValue;
+
+            // 2. 维护 FIFO 链表的一致性
+            if (node == null) {
+                if (newValue == null) {
+                    return null;
+                }
+                // 情况 A: 新增键 -> 入链
+                Node<K, V> created = new Node<>(k, newValue);
+                result[1] = created;
+                return created;
             }
-            // 情况 C: 修改值 (oldValue != null && newValue != null) -> 队列顺序不变
-            return newValue;
+            if (newValue == null) {
+                // 情况 B: 删除键 -> 摘链
+                node.removed = true;
+                result[2] = node;
+                return null;
+            }
+            // 情况 C: 修改值 -> 链表顺序不变
+            node.value = newValue;
+            return node;
         });
+        afterInsert(result[1]);
+        if (result[2] != null) {
+            unlink(cast(result[2]));
+        }
+        return cast(result[0]);
     }
 
     /**
@@ -102,7 +166,8 @@ public class FiFoConcurrentMap<K, V> {
      * @return 值
      */
     public V get(K key) {
-        return map.get(key);
+        Node<K, V> node = map.get(key);
+        return node == null ? null : node.value;
     }
 
     /**
@@ -112,9 +177,41 @@ public class FiFoConcurrentMap<K, V> {
      * @return 值
      */
     public V remove(K key) {
-        // 从队列移除，O(n) 操作
-        queue.remove(key);
-        return map.remove(key);
+        Node<K, V> node = map.remove(key);
+        if (node == null) {
+            return null;
+        }
+        node.removed = true;
+        unlink(node);
+        return node.value;
+    }
+
+    /**
+     * 移除最早插入的键
+     *
+     * @return 被移除的值，集合为空时返回 null
+     */
+    public V removeEldest() {
+        while (true) {
+            Node<K, V> eldest;
+            linkLock.lock();
+            try {
+                eldest = head;
+            } finally {
+                linkLock.unlock();
+            }
+            if (eldest == null) {
+                return null;
+            }
+            // 只移除仍对应该节点的映射，期间被并发移除则重试下一个
+            if (map.remove(eldest.key, eldest)) {
+                eldest.removed = true;
+                unlink(eldest);
+                return eldest.value;
+            }
+            // 节点已被其他线程移除但尚未摘链：协助摘链，避免重复命中
+            unlink(eldest);
+        }
     }
 
     /**
@@ -142,7 +239,9 @@ public class FiFoConcurrentMap<K, V> {
      * @return 所有键值对
      */
     public ConcurrentHashMap<K, V> getAll() {
-        return new ConcurrentHashMap<>(map);
+        ConcurrentHashMap<K, V> result = new ConcurrentHashMap<>(Math.max(16, map.size() * 2));
+        map.forEach((key, node) -> result.put(key, node.value));
+        return result;
     }
 
     /**
@@ -151,7 +250,11 @@ public class FiFoConcurrentMap<K, V> {
      * @return 按 FIFO 顺序的键列表
      */
     public ConcurrentLinkedQueue<K> getKeysInFifoOrder() {
-        return new ConcurrentLinkedQueue<>(queue);
+        ConcurrentLinkedQueue<K> keys = new ConcurrentLinkedQueue<>();
+        for (Node<K, V> node : snapshot()) {
+            keys.offer(node.key);
+        }
+        return keys;
     }
 
     /**
@@ -160,13 +263,10 @@ public class FiFoConcurrentMap<K, V> {
      * @return 按 FIFO 顺序的值列表
      */
     public List<V> values() {
-        List<V> result = new ArrayList<>();
-        for (K key : queue) {
-            V value = map.get(key);
-            // 确保值存在，处理并发移除情况
-            if (value != null) {
-                result.add(value);
-            }
+        List<Node<K, V>> nodes = snapshot();
+        List<V> result = new ArrayList<>(nodes.size());
+        for (Node<K, V> node : nodes) {
+            result.add(node.value);
         }
         return result;
     }
@@ -180,11 +280,10 @@ public class FiFoConcurrentMap<K, V> {
         if (action == null) {
             throw new NullPointerException("action cannot be null");
         }
-        for (K key : queue) {
-            V value = map.get(key);
-            if (value != null) {
-                // 确保值存在，处理并发移除情况
-                action.accept(key, value);
+        for (Node<K, V> node : snapshot()) {
+            // 跳过遍历期间被移除的键
+            if (!node.removed) {
+                action.accept(node.key, node.value);
             }
         }
     }
@@ -199,37 +298,17 @@ public class FiFoConcurrentMap<K, V> {
         return new AbstractSet<Map.Entry<K, V>>() {
             @Override
             public Iterator<Map.Entry<K, V>> iterator() {
+                Iterator<Node<K, V>> nodeIterator = snapshot().iterator();
                 return new Iterator<>() {
-                    private final Iterator<K> keyIterator = queue.iterator();
-
                     @Override
                     public boolean hasNext() {
-                        return keyIterator.hasNext();
+                        return nodeIterator.hasNext();
                     }
 
                     @Override
                     public Map.Entry<K, V> next() {
-                        K key = keyIterator.next();
-                        V value = map.get(key);
-                        if (value == null) { // 跳过已移除的键
-                            return keyIterator.hasNext() ? next() : null;
-                        }
-                        return new Map.Entry<K, V>() {
-                            @Override
-                            public K getKey() {
-                                return key;
-                            }
-
-                            @Override
-                            public V getValue() {
-                                return value;
-                            }
-
-                            @Override
-                            public V setValue(V newValue) {
-                                throw new UnsupportedOperationException("setValue not supported");
-                            }
-                        };
+                        Node<K, V> node = nodeIterator.next();
+                        return new AbstractMap.SimpleImmutableEntry<>(node.key, node.value);
                     }
                 };
             }
@@ -240,4 +319,108 @@ public class FiFoConcurrentMap<K, V> {
             }
         };
     }
+
+    /**
+     * 新节点入链，并按容量上限淘汰
+     */
+    private void afterInsert(Object created) {
+        if (created == null) {
+            return;
+        }
+        Node<K, V> node = cast(created);
+        linkLock.lock();
+        try {
+            // 入链前已被并发移除的节点不再入链
+            if (!node.removed && !node.linked) {
+                node.prev = tail;
+                if (tail == null) {
+                    head = node;
+                } else {
+                    tail.next = node;
+                }
+                tail = node;
+                node.linked = true;
+            }
+        } finally {
+            linkLock.unlock();
+        }
+        if (maxSize > 0) {
+            while (map.size() > maxSize && removeEldest() != null) {
+                // 淘汰最早插入的键
+            }
+        }
+    }
+
+    /**
+     * 节点摘链 O(1)
+     */
+    private void unlink(Node<K, V> node) {
+        linkLock.lock();
+        try {
+            if (!node.linked) {
+                return;
+            }
+            Node<K, V> prev = node.prev;
+            Node<K, V> next = node.next;
+            if (prev == null) {
+                head = next;
+            } else {
+                prev.next = next;
+            }
+            if (next == null) {
+                tail = prev;
+            } else {
+                next.prev = prev;
+            }
+            node.prev = null;
+            node.next = null;
+            node.linked = false;
+        } finally {
+            linkLock.unlock();
+        }
+    }
+
+    /**
+     * 按链表顺序复制节点快照
+     */
+    private List<Node<K, V>> snapshot() {
+        linkLock.lock();
+        try {
+            List<Node<K, V>> nodes = new ArrayList<>(map.size());
+            for (Node<K, V> node = head; node != null; node = node.next) {
+                nodes.add(node);
+            }
+            return nodes;
+        } finally {
+            linkLock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object value) {
+        return (T) value;
+    }
+
+    /**
+     * 链表节点
+     */
+    private static final class Node<K, V> {
+        private final K key;
+        private volatile V value;
+        /**
+         * 已从 Map 中移除 (在 Map 的原子操作内或之后立即设置)
+         */
+        private volatile boolean removed;
+        /**
+         * 以下字段只在链表锁内访问
+         */
+        private Node<K, V> prev;
+        private Node<K, V> next;
+        private boolean linked;
+
+        private Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
 }
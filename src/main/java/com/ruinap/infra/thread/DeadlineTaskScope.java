@@ -0,0 +1,177 @@
+package com.ruinap.infra.thread;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * 带截止时间的结构化子任务作用域
+ * <p>
+ * 语义与 JDK 的 StructuredTaskScope 一致 (fork → joinUntil → close)，但基于已有的虚拟线程执行器实现，
+ * 运行时不需要开启预览特性：
+ * <ul>
+ * <li>{@link #fork(Callable)}：在执行器中启动一个子任务；</li>
+ * <li>{@link #joinUntilDeadline()}：等待全部子任务完成或截止时间到达，二者先到为准；</li>
+ * <li>{@link #close()}：中断所有未完成的子任务 (协作式取消，子任务需检查中断标记)，
+ * 保证作用域结束后不再有属于它的子任务在后台竞争结果。</li>
+ * </ul>
+ * 截止时间到达后，已完成的子任务结果照常可用 (部分结果)。
+ * </p>
+ * <p>
+ * 作用域只允许由创建它的线程使用。
+ * </p>
+ * 用法：
+ * <pre>
+ * try (DeadlineTaskScope&lt;Bid&gt; scope = new DeadlineTaskScope&lt;&gt;(executor, deadlineNanos)) {
+ *     Future&lt;Bid&gt; f = scope.fork(() -&gt; bid(agv));
+ *     scope.joinUntilDeadline();
+ *     if (f.state() == Future.State.SUCCESS) { ... f.resultNow() ... }
+ * }
+ * </pre>
+ *
+ * @param <T> 子任务结果类型
+ * @author qianye
+ * @create 2026-03-11 09:20
+ */
+public class DeadlineTaskScope<T> implements AutoCloseable {
+
+    private final ExecutorService executor;
+    /**
+     * 截止时间 (System.nanoTime 时间基准)
+     */
+    private final long deadlineNanos;
+    private final List<Future<T>> subtasks = new ArrayList<>();
+
+    /**
+     * 截止时间到达时仍未完成的子任务数量
+     */
+    private int timedOut = 0;
+    private boolean joined = false;
+    private boolean closed = false;
+
+    /**
+     * 构造函数
+     *
+     * @param executor      子任务执行器
+     * @param deadlineNanos 截止时间 (System.nanoTime 时间基准)
+     */
+    public DeadlineTaskScope(ExecutorService executor, long deadlineNanos) {
+        this.executor = executor;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * 以“当前时间 + 超时时长”作为截止时间创建作用域
+     *
+     * @param executor 子任务执行器
+     * @param timeout  超时时长
+     * @param unit     时间单位
+     * @param <T>      子任务结果类型
+     * @return 作用域
+     */
+    public static <T> DeadlineTaskScope<T> withTimeout(ExecutorService executor, long timeout, TimeUnit unit) {
+        return new DeadlineTaskScope<>(executor, System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    /**
+     * 启动子任务
+     *
+     * @param task 子任务
+     * @return 子任务句柄，join 之后通过 {@link Future#state()} 判断是否成功
+     */
+    public Future<T> fork(Callable<T> task) {
+        if (joined || closed) {
+            throw new IllegalStateException("作用域已等待或已关闭，不能再启动子任务");
+        }
+        Future<T> future = executor.submit(task);
+        subtasks.add(future);
+        return future;
+    }
+
+    /**
+     * 等待全部子任务完成或截止时间到达
+     *
+     * @return true=全部子任务在截止时间前结束，false=截止时间到达时仍有子任务未完成
+     * @throws InterruptedException 等待线程被中断 (此时未完成的子任务会在 close 时被中断)
+     */
+    public boolean joinUntilDeadline() throws InterruptedException {
+        if (joined) {
+            return timedOut == 0;
+        }
+        joined = true;
+        for (Future<T> subtask : subtasks) {
+            long remaining = deadlineNanos - System.nanoTime();
+            try {
+                if (remaining <= 0) {
+                    // 截止时间已过：只收集已经完成的
+                    if (!subtask.isDone()) {
+                        timedOut++;
+                    }
+                } else {
+                    subtask.get(remaining, TimeUnit.NANOSECONDS);
+                }
+            } catch (TimeoutException e) {
+                timedOut++;
+            } catch (ExecutionException | CancellationException e) {
+                // 子任务异常由调用方通过 state() 区分，这里只负责等待
+            } catch (InterruptedException e) {
+                // 等待被打断：所有未完成的子任务都视为超时
+                timedOut = (int) subtasks.stream().filter(future -> !future.isDone()).count();
+                throw e;
+            }
+        }
+        return timedOut == 0;
+    }
+
+    /**
+     * 截止时间到达时仍未完成的子任务数量
+     *
+     * @return 数量
+     */
+    public int timedOutCount() {
+        return timedOut;
+    }
+
+    /**
+     * 已启动的子任务数量
+     *
+     * @return 数量
+     */
+    public int forkedCount() {
+        return subtasks.size();
+    }
+
+    /**
+     * 成功完成的子任务结果 (按启动顺序，不含 null)
+     *
+     * @return 结果列表
+     */
+    public List<T> results() {
+        List<T> results = new ArrayList<>(subtasks.size());
+        for (Future<T> subtask : subtasks) {
+            if (subtask.state() == Future.State.SUCCESS) {
+                T result = subtask.resultNow();
+                if (result != null) {
+                    results.add(result);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 关闭作用域，中断所有未完成的子任务
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Future<T> subtask : subtasks) {
+            if (!subtask.isDone()) {
+                subtask.cancel(true);
+            }
+        }
+    }
+}
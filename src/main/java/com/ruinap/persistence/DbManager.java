@@ -2,7 +2,6 @@ package com.ruinap.persistence;
 
 import cn.hutool.core.date.DateTime;
 import cn.hutool.core.date.DateUtil;
-import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.db.Entity;
 import cn.hutool.json.JSONObject;
 import com.ruinap.core.business.AgvSuggestionManager;
@@ -19,13 +18,17 @@ import com.ruinap.infra.framework.annotation.Component;
 import com.ruinap.infra.framework.annotation.Order;
 import com.ruinap.infra.framework.boot.CommandLineRunner;
 import com.ruinap.infra.log.RcsLog;
+import com.ruinap.persistence.gateway.PersistenceGateway;
+import com.ruinap.persistence.mapper.BeanRowMapper;
 import com.ruinap.persistence.repository.*;
 import lombok.Getter;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 数据库管理
@@ -68,6 +71,8 @@ public class DbManager implements CommandLineRunner {
     private TaskManager taskManager;
     @Autowired
     private AgvSuggestionManager agvSuggestionManager;
+    @Autowired
+    private PersistenceGateway persistenceGateway;
 
 
     /**
@@ -87,6 +92,17 @@ public class DbManager implements CommandLineRunner {
     @Getter
     private Integer workState = 1;
 
+    /**
+     * 列级脏数据追踪 (只在 syncDataToDb 中访问，持久化网关的写入结果经追踪器的完成队列回传)
+     */
+    private final DirtyTracker agvTracker = new DirtyTracker();
+    private final DirtyTracker chargePileTracker = new DirtyTracker();
+    private final DirtyTracker taskTracker = new DirtyTracker();
+    /**
+     * 同步到数据库是否进行中
+     */
+    private final AtomicBoolean syncingToDb = new AtomicBoolean(false);
+
 
     @Override
     public void run(String... args) {
@@ -277,50 +293,46 @@ public class DbManager implements CommandLineRunner {
      * 同步数据到调度系统
      * <p>
      * 同步项目：AGV、充电桩、任务
+     * <p>
+     * 每张表按主键 IN 列表批量查询 (超过 500 个时分段)，查询次数与设备、任务数量无关
      */
     public void syncDataToRcs() {
-        //同步AGV数据
-        agvManager.getRcsAgvMap().forEach((key, value) -> {
-            try {
-                Entity entity = agvDB.selectAgv("select agv_control,task_origin,task_destin,charge_signal,isolation_state,handle_suggestion from rcs_agv where agv_id = ?", key);
-                Integer chargeSignal = entity.getInt("charge_signal");
-                Integer isolationState = entity.getInt("isolation_state");
-                String handleSuggestion = entity.getStr("handle_suggestion");
-
-                value.setChargeSignal(chargeSignal);
-                value.setIsolationState(isolationState);
-                value.setHandleSuggestion(handleSuggestion);
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
+        try {
+            //同步AGV数据
+            Map<String, RcsAgv> rcsAgvMap = agvManager.getRcsAgvMap();
+            for (Entity entity : agvDB.selectAgvSyncList(rcsAgvMap.keySet())) {
+                RcsAgv value = rcsAgvMap.get(entity.getStr("agv_id"));
+                if (value != null) {
+                    value.setChargeSignal(entity.getInt("charge_signal"));
+                    value.setIsolationState(entity.getInt("isolation_state"));
+                    value.setHandleSuggestion(entity.getStr("handle_suggestion"));
+                    agvManager.refreshEligibility(value);
+                }
             }
-        });
 
-        //同步充电桩数据
-        chargePileManager.getRcsChargePileMap().forEach((key, value) -> {
-            try {
-                Entity entity = chargePileDB.selectChargePile(new Entity().set("code", key));
-                value.setState(entity.getInt("state"));
-                value.setIdleState(entity.getInt("idle_state"));
-                value.setIsolationState(entity.getInt("isolation_state"));
-                value.setMatchType(entity.getInt("match_type"));
-                value.setIdleState(entity.getInt("idle_state"));
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
+            //同步充电桩数据
+            Map<String, RcsChargePile> rcsChargePileMap = chargePileManager.getRcsChargePileMap();
+            for (Entity entity : chargePileDB.selectChargePileSyncList(rcsChargePileMap.keySet())) {
+                RcsChargePile value = rcsChargePileMap.get(entity.getStr("code"));
+                if (value != null) {
+                    value.setState(entity.getInt("state"));
+                    value.setIdleState(entity.getInt("idle_state"));
+                    value.setIsolationState(entity.getInt("isolation_state"));
+                    value.setMatchType(entity.getInt("match_type"));
+                    chargePileManager.refreshIndex(value);
+                }
             }
-        });
 
-        //同步任务数据
-        taskManager.taskCache.forEach((taskCode, value) -> {
-            try {
-                Entity entity = agvDB.selectAgv("select interrupt_state from rcs_task where task_code = ?", taskCode);
-                if (entity != null) {
-                    Integer interruptState = entity.getInt("interrupt_state");
-                    value.setInterruptState(interruptState);
+            //同步任务数据
+            for (Entity entity : taskDB.selectTaskInterruptList(taskManager.taskCache.getAll().keySet())) {
+                RcsTask value = taskManager.taskCache.get(entity.getStr("task_code"));
+                if (value != null) {
+                    value.setInterruptState(entity.getInt("interrupt_state"));
                 }
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
             }
-        });
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
 
         //同步工作状态
         this.workState = configDB.getWorkState();
@@ -330,71 +342,136 @@ public class DbManager implements CommandLineRunner {
      * 同步数据到数据库
      * <p>
      * 同步项目：AGV、充电桩、任务
+     * <p>
+     * 只提交与上一次成功写入相比发生变化的列，由持久化网关异步批量写入，不等待数据库；
+     * 已提交尚未得到写入结果的行本次跳过，数据库不可用时每行在网关中最多一条，不随同步次数增长。
+     * 写入结果在下一次同步开始时处理：写入成功后才提交追踪记录，结束的任务写入成功后才从缓存中移除。
+     * 上一次同步未结束时跳过本次。
      */
     public void syncDataToDb() {
-        //同步AGV数据
-        agvManager.getRcsAgvMap().forEach((key, value) -> {
-            try {
-                Entity parse = Entity.parse(value, true, true);
+        if (!syncingToDb.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            //处理持久化网关回传的写入结果
+            agvTracker.drain();
+            chargePileTracker.drain();
+            taskTracker.drain(this::onTaskWritten);
+
+            //收集AGV数据
+            List<String> agvKeys = new ArrayList<>();
+            List<Entity> agvRows = new ArrayList<>();
+            BeanRowMapper<RcsAgv> agvMapper = BeanRowMapper.of(RcsAgv.class);
+            agvManager.getRcsAgvMap().forEach((key, value) -> {
+                if (agvTracker.isInFlight(key)) {
+                    return;
+                }
+                Entity parse = agvMapper.toEntity(value);
                 // 移除不可同步的字段
                 parse.remove("charge_signal");
                 parse.remove("isolation_state");
                 //获取处理建议
                 List<String> suggestions = agvSuggestionManager.getSuggestions(key);
                 parse.set("handle_suggestion", suggestions.toString());
-
-                agvDB.updateAgv(parse, new Entity().set("agv_id", key));
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
-            }
-        });
-
-        //同步充电桩数据
-        chargePileManager.getRcsChargePileMap().forEach((key, value) -> {
-            Map<String, String> chargeLink = linkYaml.getChargeLink(key);
-            if (chargeLink != null) {
-                String enable = chargeLink.get("enable");
-                if ("true".equalsIgnoreCase(enable)) {
-                    try {
-                        Entity parse = Entity.parse(value, true, true);
-                        parse.remove("update_time");
-                        chargePileDB.updateChargePile(parse, new Entity().set("code", key));
-                    } catch (SQLException e) {
-                        throw new RuntimeException(e);
+                Entity changes = agvTracker.diff(key, parse);
+                if (!changes.isEmpty()) {
+                    agvKeys.add(key);
+                    agvRows.add(changes.set("agv_id", key));
+                }
+            });
+
+            //收集充电桩数据
+            List<String> pileKeys = new ArrayList<>();
+            List<Entity> pileRows = new ArrayList<>();
+            BeanRowMapper<RcsChargePile> chargePileMapper = BeanRowMapper.of(RcsChargePile.class);
+            chargePileManager.getRcsChargePileMap().forEach((key, value) -> {
+                Map<String, String> chargeLink = linkYaml.getChargeLink(key);
+                if (chargeLink != null && "true".equalsIgnoreCase(chargeLink.get("enable")) && !chargePileTracker.isInFlight(key)) {
+                    Entity parse = chargePileMapper.toEntity(value);
+                    parse.remove("update_time");
+                    Entity changes = chargePileTracker.diff(key, parse);
+                    if (!changes.isEmpty()) {
+                        pileKeys.add(key);
+                        pileRows.add(changes.set("code", key));
                     }
                 }
-            }
-        });
-
-        //同步任务数据
-        for (RcsTask rcsTask : taskManager.taskCache.values()) {
-            try {
-                RcsTask rcsTaskCopy = ObjectUtil.clone(rcsTask);
-                Entity parse = Entity.parse(rcsTask, true, true);
+            });
+
+            //收集任务数据
+            List<String> taskKeys = new ArrayList<>();
+            List<Entity> taskRows = new ArrayList<>();
+            BeanRowMapper<RcsTask> taskMapper = BeanRowMapper.of(RcsTask.class);
+            for (RcsTask rcsTask : taskManager.taskCache.values()) {
+                if (taskTracker.isInFlight(rcsTask.getTaskCode())) {
+                    continue;
+                }
+                Entity parse = taskMapper.toEntity(rcsTask);
                 // 移除不可同步的字段
                 parse.remove("id");
                 parse.remove("interrupt_state");
                 parse.remove("equipment_label");
                 parse.remove("task_priority");
                 parse.remove("priority_time");
-                Integer count = taskDB.updateTask(parse, new Entity().set("task_code", rcsTask.getTaskCode()));
-                if (count > 0) {
-                    //判断是否任务完成状态
-                    if (rcsTaskCopy != null && rcsTaskCopy.getTaskState().compareTo(TaskStateEnum.FINISH.code) == 0) {
-                        // 任务完成，从缓存中移除
-                        taskManager.taskCache.remove(rcsTask.getTaskCode());
-                        RcsLog.consoleLog.info("{} 任务结束，从缓存中移除", rcsTask.getTaskCode());
-                        RcsLog.algorithmLog.info("{} 任务结束，从缓存中移除", rcsTask.getTaskCode());
-                    } else if (rcsTaskCopy != null && rcsTaskCopy.getTaskState().compareTo(TaskStateEnum.FINISH.code) < 0) {
-                        // 任务取消，从缓存中移除
-                        taskManager.taskCache.remove(rcsTask.getTaskCode());
-                        RcsLog.consoleLog.info("{} 任务取消，从缓存中移除", rcsTask.getTaskCode());
-                        RcsLog.algorithmLog.info("{} 任务取消，从缓存中移除", rcsTask.getTaskCode());
-                    }
+                Entity changes = taskTracker.diff(rcsTask.getTaskCode(), parse);
+                if (!changes.isEmpty()) {
+                    taskKeys.add(rcsTask.getTaskCode());
+                    taskRows.add(changes.set("task_code", rcsTask.getTaskCode()));
                 }
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
             }
+            taskTracker.retain(taskManager.taskCache.getAll().keySet());
+
+            //提交到持久化网关，行标记为写入中，得到写入结果前不再提交
+            //数据库不可用时不阻塞，未写入的行解除写入中后，下次同步会再次比较出同样的脏列
+            for (int i = 0; i < agvRows.size(); i++) {
+                String agvId = agvKeys.get(i);
+                persistenceGateway.update(agvDB.TABLE_NAME, "agv_id", agvId, agvRows.get(i), agvTracker.submit(agvId));
+            }
+            for (int i = 0; i < pileRows.size(); i++) {
+                String code = pileKeys.get(i);
+                persistenceGateway.update(chargePileDB.TABLE_NAME, "code", code, pileRows.get(i), chargePileTracker.submit(code));
+            }
+            for (int i = 0; i < taskRows.size(); i++) {
+                String taskCode = taskKeys.get(i);
+                persistenceGateway.update(taskDB.TABLE_NAME, "task_code", taskCode, taskRows.get(i), taskTracker.submit(taskCode));
+            }
+        } finally {
+            syncingToDb.set(false);
         }
     }
+
+    /**
+     * 任务写入数据库后：已结束的任务从缓存中移除
+     * <p>
+     * 在 syncDataToDb 处理写入结果时执行，追踪记录已提交；已移除追踪的任务迟到的写入结果不会到达这里
+     *
+     * @param taskCode 任务编号
+     * @param written  已写入的列
+     */
+    private void onTaskWritten(String taskCode, Entity written) {
+        // 以写入的状态为准，避免写入后状态又被修改
+        Integer taskState = written.getInt("task_state");
+        //判断是否任务完成状态
+        if (taskState != null && taskState.compareTo(TaskStateEnum.FINISH.code) == 0) {
+            // 任务完成，从缓存中移除
+            removeTaskCache(taskCode);
+            RcsLog.consoleLog.info("{} 任务结束，从缓存中移除", taskCode);
+            RcsLog.algorithmLog.info("{} 任务结束，从缓存中移除", taskCode);
+        } else if (taskState != null && taskState.compareTo(TaskStateEnum.FINISH.code) < 0) {
+            // 任务取消，从缓存中移除
+            removeTaskCache(taskCode);
+            RcsLog.consoleLog.info("{} 任务取消，从缓存中移除", taskCode);
+            RcsLog.algorithmLog.info("{} 任务取消，从缓存中移除", taskCode);
+        }
+    }
+
+    /**
+     * 从缓存中移除任务
+     *
+     * @param taskCode 任务编号
+     */
+    private void removeTaskCache(String taskCode) {
+        taskManager.taskCache.remove(taskCode);
+        taskManager.dispatchQueue.remove(taskCode);
+        taskTracker.forget(taskCode);
+    }
 }
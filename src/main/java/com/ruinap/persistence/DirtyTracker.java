@@ -0,0 +1,187 @@
+package com.ruinap.persistence;
+
+import cn.hutool.db.Entity;
+import cn.hutool.json.JSONUtil;
+import com.ruinap.persistence.gateway.WriteCallback;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BiConsumer;
+
+/**
+ * 列级脏数据追踪
+ * <p>
+ * 为每行记录上一次成功写入数据库的列值，同步时只挑出发生变化的列，没有变化的行不产生任何 SQL。
+ * </p>
+ * <p>
+ * 提交到持久化网关的行在得到写入结果之前处于写入中，写入中的行不再比较与提交，
+ * 同一行在网关的内存队列或溢出文件中最多一条。网关线程的写入结果进入完成队列，由同步线程在 {@link #drain} 中处理：
+ * 写入成功时提交列值；未写入时只解除写入中，下一次同步会重新比较出同样的脏列，自然重试。
+ * 除完成队列外只允许同步线程访问。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-18 09:20
+ */
+public class DirtyTracker {
+
+    /**
+     * 上一次成功写入的列值
+     * Key: 行主键，Value: 列名 -> 比较值
+     */
+    private final Map<String, Map<String, Object>> written = new HashMap<>();
+    /**
+     * 写入中的行
+     * Key: 行主键，Value: 本次提交的回调 (区分先后两次提交，已移除追踪的行迟到的结果被忽略)
+     */
+    private final Map<String, WriteCallback> inFlight = new HashMap<>();
+    /**
+     * 网关线程回传的写入结果
+     */
+    private final Queue<Completion> completions = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 计算脏列
+     *
+     * @param key     行主键
+     * @param current 当前的行数据
+     * @return 发生变化的列，没有变化时为空
+     */
+    public Entity diff(String key, Entity current) {
+        Map<String, Object> last = written.get(key);
+        Entity changes = Entity.create();
+        for (Map.Entry<String, Object> entry : current.entrySet()) {
+            if (last == null || !last.containsKey(entry.getKey())
+                    || !Objects.equals(last.get(entry.getKey()), comparable(entry.getValue()))) {
+                changes.set(entry.getKey(), entry.getValue());
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * 提交已成功写入的列
+     *
+     * @param key     行主键
+     * @param changes 已写入的列
+     */
+    public void commit(String key, Entity changes) {
+        Map<String, Object> last = written.computeIfAbsent(key, k -> new HashMap<>());
+        for (Map.Entry<String, Object> entry : changes.entrySet()) {
+            last.put(entry.getKey(), comparable(entry.getValue()));
+        }
+    }
+
+    /**
+     * 标记行为写入中，返回提交给持久化网关的回调
+     *
+     * @param key 行主键
+     * @return 回调，写入结果进入完成队列
+     */
+    public WriteCallback submit(String key) {
+        WriteCallback callback = new WriteCallback() {
+            @Override
+            public void written(Entity written) {
+                completions.add(new Completion(key, this, written));
+            }
+
+            @Override
+            public void dropped() {
+                completions.add(new Completion(key, this, null));
+            }
+        };
+        inFlight.put(key, callback);
+        return callback;
+    }
+
+    /**
+     * 行是否写入中
+     *
+     * @param key 行主键
+     * @return true=写入中，本次同步跳过
+     */
+    public boolean isInFlight(String key) {
+        return inFlight.containsKey(key);
+    }
+
+    /**
+     * 处理完成队列：写入成功的提交列值，未写入的解除写入中
+     */
+    public void drain() {
+        drain(null);
+    }
+
+    /**
+     * 处理完成队列：写入成功的提交列值，未写入的解除写入中
+     *
+     * @param onWritten 提交列值之后的回调，参数为行主键与已写入的列，可为空
+     */
+    public void drain(BiConsumer<String, Entity> onWritten) {
+        Completion completion;
+        while ((completion = completions.poll()) != null) {
+            if (!inFlight.remove(completion.key(), completion.callback())) {
+                // 已移除追踪的行
+                continue;
+            }
+            if (completion.written() != null) {
+                commit(completion.key(), completion.written());
+                if (onWritten != null) {
+                    onWritten.accept(completion.key(), completion.written());
+                }
+            }
+        }
+    }
+
+    /**
+     * 移除行的追踪记录
+     *
+     * @param key 行主键
+     */
+    public void forget(String key) {
+        written.remove(key);
+        inFlight.remove(key);
+    }
+
+    /**
+     * 只保留仍然存在的行
+     *
+     * @param keys 仍然存在的行主键
+     */
+    public void retain(Set<String> keys) {
+        written.keySet().retainAll(keys);
+        inFlight.keySet().retainAll(keys);
+    }
+
+    /**
+     * 获取追踪的行数
+     */
+    public int size() {
+        return written.size();
+    }
+
+    /**
+     * 写入结果
+     *
+     * @param key      行主键
+     * @param callback 提交时的回调
+     * @param written  已写入的列，未写入时为空
+     */
+    private record Completion(String key, WriteCallback callback, Entity written) {
+    }
+
+    /**
+     * 转换为可比较的值
+     * <p>
+     * 日期按时间戳比较；其他可变对象 (如嵌套属性) 按 JSON 内容比较，避免原地修改后与快照是同一引用而漏写
+     */
+    static Object comparable(Object value) {
+        if (value == null || value instanceof Number || value instanceof CharSequence
+                || value instanceof Boolean || value instanceof Character || value instanceof Enum<?>) {
+            return value instanceof CharSequence ? value.toString() : value;
+        }
+        if (value instanceof Date date) {
+            return date.getTime();
+        }
+        return JSONUtil.toJsonStr(value);
+    }
+}
@@ -0,0 +1,360 @@
+package com.ruinap.persistence.executor;
+
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.StrUtil;
+import com.ruinap.infra.config.DbSetting;
+import com.ruinap.infra.framework.annotation.Autowired;
+import com.ruinap.infra.framework.annotation.Component;
+import com.ruinap.infra.framework.annotation.Order;
+import com.ruinap.infra.framework.annotation.PreDestroy;
+import com.ruinap.infra.framework.boot.CommandLineRunner;
+import com.ruinap.infra.log.RcsLog;
+
+import java.sql.SQLException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * JDBC 执行器
+ * <p>
+ * MySQL 驱动与 Druid 连接池内部大量使用 synchronized，虚拟线程在 synchronized 内阻塞 (等待网络、等待连接) 时会钉住载体线程，
+ * 慢查询会占满载体线程，导致与数据库无关的 AGV 控制循环得不到调度。
+ * 因此所有阻塞的数据库调用都交给这里的平台线程执行：
+ * <ol>
+ * <li>线程数与连接池最大连接数 (maxActive) 一致，多出的线程只会在连接池里等待连接；</li>
+ * <li>许可数为线程数 + 队列容量，虚拟线程在许可上等待 (不钉住载体线程)，超过连接池最长等待时间 (maxWait) 拒绝；</li>
+ * <li>虚拟线程提交后在 Future 上等待，等待期间让出载体线程；</li>
+ * <li>平台线程 (启动线程、定时器线程、执行器自身的线程) 直接在当前线程执行，事务内的嵌套调用仍使用同一个线程绑定的连接；</li>
+ * <li>统计提交、完成、拒绝数量以及排队与执行耗时。</li>
+ * </ol>
+ * 启动前 (如 Flyway 迁移、单元测试) 直接在当前线程执行。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-22 09:40
+ */
+@Component
+@Order(1)
+public class JdbcExecutor implements CommandLineRunner {
+
+    @Autowired
+    private DbSetting dbSetting;
+
+    /**
+     * MySQL 连接池配置分组
+     */
+    private static final String POOL_GROUP = "rcs_db_mysql";
+    /**
+     * 默认线程数 (与连接池默认 maxActive 一致)
+     */
+    static final int DEFAULT_THREADS = 100;
+    /**
+     * 默认等待许可时间 (毫秒，与连接池默认 maxWait 一致)
+     */
+    static final long DEFAULT_WAIT_MS = 6_000L;
+    /**
+     * 每个线程的排队容量
+     */
+    private static final int QUEUE_PER_THREAD = 4;
+    /**
+     * 关闭时等待执行中任务的时间 (毫秒)
+     */
+    private static final long STOP_WAIT_MS = 5_000L;
+
+    private volatile ThreadPoolExecutor executor;
+    private volatile Semaphore permits;
+    private long waitMs = DEFAULT_WAIT_MS;
+
+    /**
+     * 统计
+     */
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder inline = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder execNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong maxExecNanos = new AtomicLong();
+
+    /**
+     * 数据库调用
+     *
+     * @param <T> 返回值类型
+     */
+    @FunctionalInterface
+    public interface SqlCallable<T> {
+        /**
+         * 执行数据库调用
+         *
+         * @return 结果
+         * @throws SQLException 数据库异常
+         */
+        T call() throws SQLException;
+    }
+
+    @Override
+    public void run(String... args) {
+        int threads = getPoolConfig("maxActive", DEFAULT_THREADS);
+        start(threads, threads * QUEUE_PER_THREAD, getPoolConfig("maxWait", (int) DEFAULT_WAIT_MS));
+    }
+
+    /**
+     * 启动线程池
+     *
+     * @param threads       线程数
+     * @param queueCapacity 排队容量
+     * @param waitMs        等待许可的最长时间 (毫秒)
+     */
+    public void start(int threads, int queueCapacity, long waitMs) {
+        int size = Math.max(1, threads);
+        int capacity = Math.max(0, queueCapacity);
+        this.waitMs = Math.max(0, waitMs);
+        AtomicInteger index = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 60L, TimeUnit.SECONDS,
+                // 许可数不超过线程数 + 排队容量，队列不会满
+                new LinkedBlockingQueue<>(),
+                r -> Thread.ofPlatform().daemon().name("jdbc-" + index.incrementAndGet()).unstarted(r));
+        pool.allowCoreThreadTimeOut(true);
+        this.permits = new Semaphore(size + capacity);
+        this.executor = pool;
+        RcsLog.consoleLog.info(StrUtil.format("JdbcExecutor 启动完成，线程数：{}，排队容量：{}", size, capacity));
+    }
+
+    /**
+     * 执行数据库调用并等待结果
+     * <p>
+     * 虚拟线程交给平台线程执行，在结果上等待时让出载体线程；平台线程或执行器未启动时直接在当前线程执行
+     *
+     * @param callable 数据库调用
+     * @param <T>      返回值类型
+     * @return 结果
+     * @throws SQLException 数据库异常，或等待超时、线程中断
+     */
+    public <T> T call(SqlCallable<T> callable) throws SQLException {
+        ThreadPoolExecutor pool = executor;
+        if (pool == null || !Thread.currentThread().isVirtual()) {
+            inline.increment();
+            return callable.call();
+        }
+        try {
+            if (!permits.tryAcquire(waitMs, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                throw new SQLException(StrUtil.format("JDBC 执行器繁忙，等待 {} 毫秒未获得执行许可 ({})", waitMs, stats()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("等待 JDBC 执行许可时被中断", e);
+        }
+        CompletableFuture<T> future = dispatch(pool, callable);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            // 已提交的调用继续执行，结果丢弃
+            Thread.currentThread().interrupt();
+            throw new SQLException("等待数据库调用结果时被中断", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    /**
+     * 异步执行数据库调用
+     * <p>
+     * 不等待许可，排队已满时返回以 {@link RejectedExecutionException} 结束的 Future；执行器未启动时在当前线程执行
+     *
+     * @param callable 数据库调用
+     * @param <T>      返回值类型
+     * @return 结果，数据库异常以 {@link CompletionException} 包装的 {@link SQLException} 结束
+     */
+    public <T> CompletableFuture<T> submit(SqlCallable<T> callable) {
+        ThreadPoolExecutor pool = executor;
+        if (pool == null) {
+            inline.increment();
+            try {
+                return CompletableFuture.completedFuture(callable.call());
+            } catch (Throwable e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        if (!permits.tryAcquire()) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(new RejectedExecutionException("JDBC 执行器排队已满 (" + stats() + ")"));
+        }
+        return dispatch(pool, callable);
+    }
+
+    /**
+     * 提交到线程池，调用方已获得许可
+     */
+    private <T> CompletableFuture<T> dispatch(ThreadPoolExecutor pool, SqlCallable<T> callable) {
+        submitted.increment();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        try {
+            pool.execute(() -> {
+                long start = System.nanoTime();
+                record(waitNanos, maxWaitNanos, start - queuedAt);
+                try {
+                    T result = callable.call();
+                    completed.increment();
+                    future.complete(result);
+                } catch (Throwable e) {
+                    failed.increment();
+                    future.completeExceptionally(e);
+                } finally {
+                    record(execNanos, maxExecNanos, System.nanoTime() - start);
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 已关闭
+            permits.release();
+            rejected.increment();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 关闭线程池，等待执行中的调用完成
+     * <p>
+     * 在持久化网关之后、数据源之前关闭；关闭后的调用直接在当前线程执行
+     */
+    @PreDestroy
+    public void shutdown() {
+        ThreadPoolExecutor pool = executor;
+        if (pool == null) {
+            return;
+        }
+        executor = null;
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(STOP_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                RcsLog.sysLog.warn("JdbcExecutor 关闭超时，仍有 {} 个数据库调用未完成", pool.getActiveCount() + pool.getQueue().size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        RcsLog.consoleLog.warn("JdbcExecutor 资源释放完毕，" + stats());
+    }
+
+    public boolean isStarted() {
+        return executor != null;
+    }
+
+    public int getPoolSize() {
+        ThreadPoolExecutor pool = executor;
+        return pool == null ? 0 : pool.getMaximumPoolSize();
+    }
+
+    /**
+     * 正在执行的调用数
+     */
+    public int getActive() {
+        ThreadPoolExecutor pool = executor;
+        return pool == null ? 0 : pool.getActiveCount();
+    }
+
+    /**
+     * 排队中的调用数
+     */
+    public int getQueued() {
+        ThreadPoolExecutor pool = executor;
+        return pool == null ? 0 : pool.getQueue().size();
+    }
+
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * 在当前线程直接执行的调用数
+     */
+    public long getInline() {
+        return inline.sum();
+    }
+
+    /**
+     * 平均排队时间 (毫秒)
+     */
+    public double getAvgWaitMs() {
+        long count = submitted.sum();
+        return count == 0 ? 0 : waitNanos.sum() / 1e6 / count;
+    }
+
+    /**
+     * 平均执行时间 (毫秒)
+     */
+    public double getAvgExecMs() {
+        long count = completed.sum() + failed.sum();
+        return count == 0 ? 0 : execNanos.sum() / 1e6 / count;
+    }
+
+    public double getMaxWaitMs() {
+        return maxWaitNanos.get() / 1e6;
+    }
+
+    public double getMaxExecMs() {
+        return maxExecNanos.get() / 1e6;
+    }
+
+    /**
+     * 统计信息
+     */
+    public String stats() {
+        return StrUtil.format("线程：{}，执行中：{}，排队：{}，提交：{}，完成：{}，失败：{}，拒绝：{}，直接执行：{}，平均排队：{}ms (最大 {}ms)，平均执行：{}ms (最大 {}ms)",
+                getPoolSize(), getActive(), getQueued(), getSubmitted(), getCompleted(), getFailed(), getRejected(), getInline(),
+                NumberUtil.round(getAvgWaitMs(), 2), NumberUtil.round(getMaxWaitMs(), 2),
+                NumberUtil.round(getAvgExecMs(), 2), NumberUtil.round(getMaxExecMs(), 2));
+    }
+
+    private static void record(LongAdder total, AtomicLong max, long nanos) {
+        total.add(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    private static SQLException unwrap(Throwable cause) {
+        if (cause instanceof SQLException e) {
+            return e;
+        }
+        if (cause instanceof RuntimeException e) {
+            throw e;
+        }
+        if (cause instanceof Error e) {
+            throw e;
+        }
+        return new SQLException(cause);
+    }
+
+    /**
+     * 读取连接池配置
+     */
+    private int getPoolConfig(String key, int defaultValue) {
+        String value = dbSetting == null ? null : dbSetting.getKeyByGroupAndKey(POOL_GROUP, key);
+        if (StrUtil.isBlank(value)) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            RcsLog.sysLog.warn("连接池配置 {} 无效：{}，使用默认值 {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,600 @@
+package com.ruinap.persistence.gateway;
+
+import cn.hutool.db.Db;
+import com.ruinap.infra.config.CoreYaml;
+import com.ruinap.infra.config.common.PathUtils;
+import com.ruinap.infra.framework.annotation.*;
+import com.ruinap.infra.framework.boot.CommandLineRunner;
+import com.ruinap.infra.log.RcsLog;
+import com.ruinap.persistence.factory.RcsDSFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 持久化网关
+ * <p>
+ * 调度、交通管制等控制循环的数据库写入统一提交到这里，提交只做内存操作，永不等待数据库：
+ * <ol>
+ * <li>写入先进入有界的内存队列 ({@link WriteQueue})，同一行尚未写入的更新只保留最新值；</li>
+ * <li>单个写入线程 (平台线程) 按提交顺序取出一批，在一个事务内批量写入，成功后执行回调；</li>
+ * <li>数据库不可用时，这一批放回队首，按 1 秒到 30 秒指数退避重试，断开与恢复各记录一次日志；</li>
+ * <li>内存队列满后，新的写入由溢出线程追加到磁盘上的溢出文件 ({@link SpillFile})，数据库恢复后先写完内存队列再按顺序回放；</li>
+ * <li>数据库可用但某条操作本身无法写入 (约束冲突等) 时，逐条写入并丢弃失败的操作，避免一条坏数据阻塞整个队列。</li>
+ * </ol>
+ * 每个操作的回调最多执行一次：写入成功执行 {@link WriteCallback#written}，未写入或被丢弃执行 {@link WriteCallback#dropped}，
+ * 进入溢出文件的操作回放时执行。
+ * 关闭时尽量写完剩余操作，写不完的放入溢出文件，下次启动时回放。
+ * 最后启动、最先关闭：关闭之后提交的写入直接追加到溢出文件。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-21 11:40
+ */
+@Component
+@Order(11)
+public class PersistenceGateway implements CommandLineRunner {
+
+    @Autowired
+    private CoreYaml coreYaml;
+    @Autowired
+    private RcsDSFactory factory;
+
+    /**
+     * 每批最大写入数量
+     */
+    static final int BATCH_SIZE = 500;
+    /**
+     * 空闲时最长等待时间 (毫秒)
+     */
+    private static final long IDLE_WAIT_MS = 200L;
+    /**
+     * 重试退避时间 (毫秒)
+     */
+    static final long MIN_BACKOFF_MS = 1_000L;
+    static final long MAX_BACKOFF_MS = 30_000L;
+    /**
+     * 关闭时等待线程退出的时间 (毫秒)
+     */
+    private static final long STOP_WAIT_MS = 3_000L;
+
+    private volatile WriteQueue queue;
+    private volatile SpillFile spillFile;
+    private volatile Supplier<Db> dbSupplier;
+    private volatile boolean running = false;
+    private Thread writerThread;
+    private Thread spillerThread;
+
+    /**
+     * 数据库不可用的开始时间，0 表示可用
+     */
+    private volatile long outageSince = 0;
+    /**
+     * 统计
+     */
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        long maxSpillBytes = Math.max(1, coreYaml.getAlgorithmInt("persistence_spill_max_mb", 512)) * 1024L * 1024L;
+        configure(coreYaml.getAlgorithmInt("persistence_queue_capacity", 10_000), PathUtils.TEMP_DIR.resolve("spill"), maxSpillBytes);
+    }
+
+    @Override
+    public void run(String... args) {
+        // 写入线程只做阻塞的 JDBC 与文件读写，使用平台线程，不占用虚拟线程的载体线程
+        start(() -> factory.db, Thread.ofPlatform().daemon().name("persistence-", 0).factory());
+    }
+
+    /**
+     * 创建内存队列与溢出文件
+     *
+     * @param capacity      内存队列容量
+     * @param spillDir      溢出文件目录
+     * @param maxSpillBytes 溢出文件最大字节数
+     */
+    void configure(int capacity, Path spillDir, long maxSpillBytes) {
+        this.queue = new WriteQueue(capacity);
+        this.spillFile = new SpillFile(spillDir, "persistence", maxSpillBytes);
+    }
+
+    /**
+     * 打开溢出文件，启动写入线程与溢出线程
+     *
+     * @param dbSupplier 数据库
+     * @param threads    线程工厂
+     */
+    void start(Supplier<Db> dbSupplier, ThreadFactory threads) {
+        open(dbSupplier);
+        running = true;
+        writerThread = threads.newThread(this::runWriter);
+        spillerThread = threads.newThread(this::runSpiller);
+        writerThread.start();
+        spillerThread.start();
+        RcsLog.consoleLog.info("PersistenceGateway 启动完成");
+    }
+
+    /**
+     * 打开溢出文件，文件中还有未回放的操作时进入溢出模式
+     *
+     * @param dbSupplier 数据库
+     */
+    void open(Supplier<Db> dbSupplier) {
+        this.dbSupplier = dbSupplier;
+        try {
+            long torn = spillFile.open();
+            if (torn > 0) {
+                RcsLog.sysLog.warn("写入溢出文件末尾残帧已截断，共 {} 字节", torn);
+            }
+            if (!spillFile.isEmpty()) {
+                // 上次未回放完的操作排在最前面
+                queue.startSpilling();
+                RcsLog.consoleLog.info("写入溢出文件中还有 {} 字节未回放，数据库可用后按顺序写入", spillFile.getPendingBytes());
+            }
+        } catch (IOException e) {
+            RcsLog.consoleLog.error("写入溢出文件打开失败，数据库不可用时超出内存队列的写入将被丢弃", e);
+            RcsLog.sysLog.error("写入溢出文件打开失败", e);
+        }
+    }
+
+    // ==================== 提交 ====================
+
+    /**
+     * 按主键更新部分列，同一行尚未写入的更新合并为一条
+     *
+     * @param table     表名
+     * @param keyColumn 主键列名
+     * @param key       主键值
+     * @param columns   要更新的列
+     * @param onWritten 写入结果回调，可为空；在写入线程或溢出线程执行，重启前进入溢出文件的操作回放时没有回调
+     */
+    public void update(String table, String keyColumn, Object key, Map<String, Object> columns, WriteCallback onWritten) {
+        submit(WriteOp.update(table, keyColumn, key, columns, onWritten));
+    }
+
+    /**
+     * 插入一行
+     *
+     * @param table 表名
+     * @param row   行数据
+     */
+    public void insert(String table, Map<String, Object> row) {
+        submit(WriteOp.insert(table, row));
+    }
+
+    /**
+     * 执行 SQL
+     *
+     * @param sql    SQL
+     * @param params 参数
+     */
+    public void execute(String sql, Object... params) {
+        submit(WriteOp.execute(sql, params));
+    }
+
+    /**
+     * 提交写入操作
+     *
+     * @param op 操作
+     */
+    public void submit(WriteOp op) {
+        try {
+            queue.offer(op);
+        } catch (IllegalStateException e) {
+            // 已关闭：直接追加到溢出文件，下次启动时回放
+            spill(List.of(op));
+        }
+    }
+
+    // ==================== 写入线程 ====================
+
+    /**
+     * 写入线程：写入失败时指数退避
+     */
+    private void runWriter() {
+        long backoff = 0;
+        while (running) {
+            try {
+                if (backoff > 0) {
+                    TimeUnit.MILLISECONDS.sleep(backoff);
+                }
+                Boolean result = writeOnce();
+                if (result == null) {
+                    queue.await(IDLE_WAIT_MS, TimeUnit.MILLISECONDS);
+                } else if (result) {
+                    backoff = 0;
+                } else {
+                    backoff = backoff == 0 ? MIN_BACKOFF_MS : Math.min(backoff * 2, MAX_BACKOFF_MS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                RcsLog.sysLog.error("持久化写入线程异常", e);
+                backoff = backoff == 0 ? MIN_BACKOFF_MS : Math.min(backoff * 2, MAX_BACKOFF_MS);
+            }
+        }
+    }
+
+    /**
+     * 写入一批：先写内存队列，队列为空且处于溢出模式时回放溢出文件
+     *
+     * @return null 没有可写入的操作，true 写入成功，false 数据库不可用
+     * @throws IOException 溢出文件读写异常
+     */
+    Boolean writeOnce() throws IOException {
+        List<WriteOp> ops = queue.poll(BATCH_SIZE);
+        if (!ops.isEmpty()) {
+            int done = write(ops);
+            queue.written(done);
+            if (done < ops.size()) {
+                queue.pushBack(ops.subList(done, ops.size()));
+                return false;
+            }
+            return true;
+        }
+        if (queue.tryStopSpilling(spillFile::isEmpty)) {
+            return null;
+        }
+        SpillFile.Batch batch = spillFile.read(BATCH_SIZE);
+        if (batch.ops().isEmpty()) {
+            // 溢出线程还在写入，或只读到无法解析的操作
+            spillFile.commit(batch.endOffset());
+            return null;
+        }
+        int done = write(batch.ops());
+        if (done > 0) {
+            spillFile.commit(batch.endOffsets()[done - 1]);
+            replayed.addAndGet(done);
+        }
+        return done == batch.ops().size();
+    }
+
+    /**
+     * 在一个事务内批量写入
+     * <p>
+     * 事务失败且数据库可用时逐条写入，丢弃无法写入的操作
+     *
+     * @param ops 操作
+     * @return 从头开始已处理 (写入或丢弃) 的数量，小于 ops.size() 表示数据库不可用
+     */
+    private int write(List<WriteOp> ops) {
+        Db db = dbSupplier.get();
+        if (db == null) {
+            onOutage(null, ops.size());
+            return 0;
+        }
+        List<Group> groups = group(ops);
+        int[][] counts = new int[groups.size()][];
+        try {
+            db.tx(tx -> {
+                for (int i = 0; i < groups.size(); i++) {
+                    counts[i] = groups.get(i).execute(tx);
+                }
+            });
+        } catch (Exception e) {
+            if (!isHealthy(db)) {
+                onOutage(e, ops.size());
+                return 0;
+            }
+            return writeEach(db, ops);
+        }
+        onHealthy();
+        for (int i = 0; i < groups.size(); i++) {
+            List<WriteOp> groupOps = groups.get(i).ops();
+            for (int j = 0; j < groupOps.size(); j++) {
+                if (isWritten(counts[i][j])) {
+                    callback(groupOps.get(j));
+                } else {
+                    drop(groupOps.get(j));
+                }
+            }
+        }
+        written.addAndGet(ops.size());
+        return ops.size();
+    }
+
+    /**
+     * 逐条写入，找出无法写入的操作
+     */
+    private int writeEach(Db db, List<WriteOp> ops) {
+        for (int i = 0; i < ops.size(); i++) {
+            WriteOp op = ops.get(i);
+            try {
+                if (isWritten(db.execute(op.sql(), op.params()))) {
+                    callback(op);
+                } else {
+                    drop(op);
+                }
+                written.incrementAndGet();
+            } catch (Exception e) {
+                if (!isHealthy(db)) {
+                    onOutage(e, ops.size() - i);
+                    return i;
+                }
+                dropped.incrementAndGet();
+                RcsLog.sysLog.error("持久化写入失败，丢弃操作：{}", op, e);
+                drop(op);
+            }
+        }
+        onHealthy();
+        return ops.size();
+    }
+
+    /**
+     * 分组：连续的、主键互不相同的 UPDATE 按 SQL 分组，其余操作只合并相邻的相同 SQL，保持写入顺序
+     *
+     * @param ops 操作
+     * @return 分组
+     */
+    static List<Group> group(List<WriteOp> ops) {
+        List<Group> groups = new ArrayList<>();
+        Map<String, Group> updates = new LinkedHashMap<>();
+        Set<String> keys = new HashSet<>();
+        for (WriteOp op : ops) {
+            String sql = op.sql();
+            if (op.getKind() == WriteOp.Kind.UPDATE) {
+                if (!keys.add(op.coalesceKey())) {
+                    // 同一行出现两次，之前的更新先写
+                    groups.addAll(updates.values());
+                    updates.clear();
+                    keys.clear();
+                    keys.add(op.coalesceKey());
+                }
+                updates.computeIfAbsent(sql, s -> new Group(s, new ArrayList<>())).ops().add(op);
+                continue;
+            }
+            if (!updates.isEmpty()) {
+                groups.addAll(updates.values());
+                updates.clear();
+                keys.clear();
+            }
+            Group last = groups.isEmpty() ? null : groups.getLast();
+            if (last != null && last.sql().equals(sql)) {
+                last.ops().add(op);
+            } else {
+                groups.add(new Group(sql, new ArrayList<>(List.of(op))));
+            }
+        }
+        groups.addAll(updates.values());
+        return groups;
+    }
+
+    /**
+     * 相同 SQL 的一组操作
+     */
+    record Group(String sql, List<WriteOp> ops) {
+
+        int[] execute(Db db) throws SQLException {
+            if (ops.size() == 1) {
+                return new int[]{db.execute(sql, ops.getFirst().params())};
+            }
+            List<Object[]> params = new ArrayList<>(ops.size());
+            for (WriteOp op : ops) {
+                params.add(op.params());
+            }
+            return db.executeBatch(sql, params);
+        }
+    }
+
+    // ==================== 溢出线程 ====================
+
+    /**
+     * 溢出线程：把溢出列表追加到溢出文件
+     */
+    private void runSpiller() {
+        while (running) {
+            try {
+                queue.awaitOverflow(IDLE_WAIT_MS, TimeUnit.MILLISECONDS);
+                spillOverflow();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 把溢出列表追加到溢出文件
+     */
+    void spillOverflow() {
+        List<WriteOp> ops = queue.takeOverflow();
+        if (!ops.isEmpty()) {
+            try {
+                spill(ops);
+            } finally {
+                queue.overflowWritten();
+            }
+        }
+    }
+
+    /**
+     * 追加到溢出文件并刷盘，文件已满或写入失败时丢弃并执行未写入回调
+     *
+     * @param ops 操作
+     */
+    private void spill(List<WriteOp> ops) {
+        int count = 0;
+        try {
+            count = spillFile.append(ops);
+            spillFile.force();
+        } catch (Exception e) {
+            RcsLog.sysLog.error("写入溢出文件失败", e);
+        }
+        spilled.addAndGet(count);
+        if (count < ops.size()) {
+            dropped.addAndGet(ops.size() - count);
+            RcsLog.sysLog.error("写入溢出文件已满或不可写，丢弃 {} 条写入，累计丢弃 {} 条", ops.size() - count, dropped.get());
+            for (WriteOp op : ops.subList(count, ops.size())) {
+                drop(op);
+            }
+        }
+    }
+
+    // ==================== 关闭 ====================
+
+    /**
+     * 停止线程，尽量写完剩余操作，写不完的放入溢出文件
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        join(writerThread);
+        join(spillerThread);
+        WriteQueue.Remaining remain = queue.close();
+        List<WriteOp> head = remain.head();
+        List<WriteOp> tail = remain.tail();
+        try {
+            // 数据库可用时先写内存队列，溢出文件为空时再写溢出列表
+            int done = head.isEmpty() ? 0 : write(head);
+            head = head.subList(done, head.size());
+            if (head.isEmpty() && spillFile.isEmpty() && !tail.isEmpty()) {
+                done = write(tail);
+                tail = tail.subList(done, tail.size());
+            }
+            if (!head.isEmpty() || !tail.isEmpty()) {
+                int count = spillFile.rewrite(head, tail);
+                spilled.addAndGet(count);
+                RcsLog.consoleLog.warn("数据库不可用，{} 条写入已保存到溢出文件，下次启动时回放", count);
+            }
+            spillFile.force();
+        } catch (Exception e) {
+            RcsLog.sysLog.error("PersistenceGateway 关闭时保存剩余写入失败，共 {} 条", head.size() + tail.size(), e);
+        }
+        RcsLog.consoleLog.info("PersistenceGateway 已关闭，{}", stats());
+    }
+
+    private static void join(Thread thread) {
+        if (thread == null) {
+            return;
+        }
+        thread.interrupt();
+        try {
+            thread.join(STOP_WAIT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ==================== 状态 ====================
+
+    private void onOutage(Exception e, int pending) {
+        if (outageSince == 0) {
+            outageSince = System.currentTimeMillis();
+            RcsLog.consoleLog.error("数据库不可写，写入进入缓冲队列，按 {}~{} 秒退避重试，当前待写入 {} 条", MIN_BACKOFF_MS / 1000, MAX_BACKOFF_MS / 1000, pending + queue.size());
+            RcsLog.sysLog.error("数据库不可写，写入进入缓冲队列", e);
+        }
+    }
+
+    private void onHealthy() {
+        long since = outageSince;
+        if (since != 0) {
+            outageSince = 0;
+            RcsLog.consoleLog.info("数据库已恢复，不可写持续 {} 毫秒，开始回放，{}", System.currentTimeMillis() - since, stats());
+            RcsLog.sysLog.info("数据库已恢复，不可写持续 {} 毫秒，{}", System.currentTimeMillis() - since, stats());
+        }
+    }
+
+    private void callback(WriteOp op) {
+        try {
+            op.written();
+        } catch (Exception e) {
+            RcsLog.sysLog.error("持久化写入回调异常：{}", op, e);
+        }
+    }
+
+    private void drop(WriteOp op) {
+        try {
+            op.dropped();
+        } catch (Exception e) {
+            RcsLog.sysLog.error("持久化未写入回调异常：{}", op, e);
+        }
+    }
+
+    private static boolean isHealthy(Db db) {
+        try {
+            db.queryNumber("SELECT 1");
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 判断批量更新的行是否已写入 (批量驱动不返回行数时视为已写入)
+     */
+    private static boolean isWritten(int count) {
+        return count > 0 || count == Statement.SUCCESS_NO_INFO;
+    }
+
+    /**
+     * 数据库是否可写
+     */
+    public boolean isDbAvailable() {
+        return outageSince == 0;
+    }
+
+    /**
+     * 之前提交的操作是否已全部写入：数据库可写，内存与溢出文件中都没有待写入的操作
+     * <p>
+     * 未全部写入时绕过网关直接写库，可能先于网关中的同一行写入 (例如先结束、后新增)
+     */
+    public boolean isDrained() {
+        return isDbAvailable() && queue.isEmpty() && getSpillBytes() == 0;
+    }
+
+    /**
+     * 内存中待写入的数量 (含正在写入的)
+     */
+    public int getPending() {
+        return queue.size();
+    }
+
+    /**
+     * 溢出文件中待回放的字节数
+     */
+    public long getSpillBytes() {
+        return spillFile.getPendingBytes();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getCoalesced() {
+        return queue.getCoalesced();
+    }
+
+    public long getSpilled() {
+        return spilled.get();
+    }
+
+    public long getReplayed() {
+        return replayed.get();
+    }
+
+    public long getDropped() {
+        return dropped.get() + spillFile.getSkipped();
+    }
+
+    /**
+     * 统计信息
+     */
+    public String stats() {
+        return String.format("待写入 %d 条，溢出文件 %d 字节，累计提交 %d 条、合并 %d 条、写入 %d 条、溢出 %d 条、回放 %d 条、丢弃 %d 条",
+                getPending(), getSpillBytes(), queue.getOffered(), getCoalesced(), getWritten(), getSpilled(), getReplayed(), getDropped());
+    }
+}
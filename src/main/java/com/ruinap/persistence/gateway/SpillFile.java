@@ -0,0 +1,426 @@
+package com.ruinap.persistence.gateway;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * 写入溢出文件
+ * <p>
+ * 数据库不可用且内存队列已满时，新的写入操作按顺序追加到本文件，数据库恢复后从读取位置依次回放：
+ * <ul>
+ * <li>每个操作为一帧：[长度 int][CRC32C int][序列化的 {@link WriteOp}]；</li>
+ * <li>读取位置保存在 .pos 文件中，每批回放成功后更新，全部回放完毕时清空文件；</li>
+ * <li>打开时截断写入时崩溃留下的残帧。</li>
+ * </ul>
+ * 回放成功与更新读取位置之间崩溃时，重启后这一批会再回放一次 (至少一次)。
+ * 操作的写入结果回调不写入文件，本进程追加的操作的回调保留在内存中，回放时还原；重启前追加的操作没有回调。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-21 10:50
+ */
+public class SpillFile implements Closeable {
+
+    /**
+     * 帧头长度
+     */
+    static final int HEADER_BYTES = 8;
+    /**
+     * 单帧最大长度，超过视为损坏
+     */
+    static final int MAX_FRAME_BYTES = 4 * 1024 * 1024;
+
+    private final Path file;
+    private final Path posFile;
+    private final long maxBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private FileChannel channel;
+    private long readOffset;
+    private long size;
+    private long skipped;
+    /**
+     * 本进程追加的操作的回调
+     * Key: 帧结束位置，Value: 回调
+     */
+    private final NavigableMap<Long, WriteCallback> callbacks = new TreeMap<>();
+
+    /**
+     * 一批回放的操作
+     *
+     * @param ops        操作
+     * @param endOffsets 每个操作之后的读取位置，部分回放成功时把最后一个成功操作的位置传给 {@link #commit(long)}
+     * @param endOffset  这一批之后的读取位置 (含跳过的无法解析的操作)
+     */
+    public record Batch(List<WriteOp> ops, long[] endOffsets, long endOffset) {
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param dir      目录
+     * @param name     文件名
+     * @param maxBytes 文件最大字节数
+     */
+    public SpillFile(Path dir, String name, long maxBytes) {
+        this.file = dir.resolve(name + ".spill");
+        this.posFile = dir.resolve(name + ".pos");
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 打开文件，恢复读取位置并截断末尾残帧
+     *
+     * @return 截断的字节数
+     * @throws IOException IO异常
+     */
+    public long open() throws IOException {
+        lock.lock();
+        try {
+            Files.createDirectories(file.getParent());
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long length = channel.size();
+            readOffset = readPos(length);
+            // 从读取位置开始校验，找到最后一个完整帧
+            long valid = readOffset;
+            while (true) {
+                int frame = frameLength(valid, length);
+                if (frame < 0) {
+                    break;
+                }
+                valid += HEADER_BYTES + frame;
+            }
+            if (valid < length) {
+                channel.truncate(valid);
+            }
+            size = valid;
+            callbacks.clear();
+            return length - valid;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 追加操作
+     *
+     * @param ops 操作
+     * @return 已写入的数量，文件已满时后面的操作不写入
+     * @throws IOException IO异常
+     */
+    public int append(List<WriteOp> ops) throws IOException {
+        lock.lock();
+        try {
+            Encoded encoded = encode(ops, maxBytes - size);
+            ByteBuffer buffer = ByteBuffer.wrap(encoded.bytes());
+            long position = size;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            for (int i = 0; i < encoded.count(); i++) {
+                WriteCallback callback = ops.get(i).callback();
+                if (callback != null) {
+                    callbacks.put(size + encoded.ends()[i], callback);
+                }
+            }
+            size = position;
+            return encoded.count();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 从读取位置读取一批操作，不移动读取位置，本进程追加的操作还原回调
+     *
+     * @param max 最大数量
+     * @return 一批操作，没有时 ops 为空
+     * @throws IOException IO异常
+     */
+    public Batch read(int max) throws IOException {
+        lock.lock();
+        try {
+            List<WriteOp> ops = new ArrayList<>();
+            long[] endOffsets = new long[max];
+            long offset = readOffset;
+            while (ops.size() < max) {
+                int frame = frameLength(offset, size);
+                if (frame < 0) {
+                    break;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(frame);
+                readFully(payload, offset + HEADER_BYTES);
+                offset += HEADER_BYTES + frame;
+                WriteOp op = deserialize(payload.array(), callbacks.get(offset));
+                if (op == null) {
+                    // 校验通过但无法解析 (版本不兼容)，跳过
+                    skipped++;
+                } else {
+                    endOffsets[ops.size()] = offset;
+                    ops.add(op);
+                }
+            }
+            return new Batch(ops, Arrays.copyOf(endOffsets, ops.size()), offset);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 提交读取位置，全部回放完毕时清空文件
+     *
+     * @param endOffset {@link Batch#endOffset()}
+     * @throws IOException IO异常
+     */
+    public void commit(long endOffset) throws IOException {
+        lock.lock();
+        try {
+            readOffset = Math.min(endOffset, size);
+            callbacks.headMap(readOffset, true).clear();
+            if (readOffset >= size) {
+                channel.truncate(0);
+                size = 0;
+                readOffset = 0;
+            }
+            writePos(readOffset);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 重写文件：head + 未回放的内容 + tail
+     * <p>
+     * 关闭时调用，把早于溢出文件的内存操作放到文件开头
+     *
+     * @param head 早于溢出文件的操作
+     * @param tail 晚于溢出文件的操作
+     * @return 写入的操作数量 (不含原有内容)
+     * @throws IOException IO异常
+     */
+    public int rewrite(List<WriteOp> head, List<WriteOp> tail) throws IOException {
+        lock.lock();
+        try {
+            if (head.isEmpty()) {
+                return append(tail);
+            }
+            Encoded first = encode(head, Long.MAX_VALUE);
+            Encoded last = encode(tail, Long.MAX_VALUE);
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(out, first.bytes());
+                long remaining = size - readOffset;
+                long copied = 0;
+                while (copied < remaining) {
+                    copied += channel.transferTo(readOffset + copied, remaining - copied, out);
+                }
+                writeFully(out, last.bytes());
+                out.force(true);
+            }
+            channel.close();
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            size = channel.size();
+            readOffset = 0;
+            callbacks.clear();
+            writePos(0);
+            return first.count() + last.count();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 刷盘
+     *
+     * @throws IOException IO异常
+     */
+    public void force() throws IOException {
+        lock.lock();
+        try {
+            if (channel != null) {
+                channel.force(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 是否已全部回放
+     */
+    public boolean isEmpty() {
+        lock.lock();
+        try {
+            return readOffset >= size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 未回放的字节数
+     */
+    public long getPendingBytes() {
+        lock.lock();
+        try {
+            return size - readOffset;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 无法解析而跳过的操作数量
+     */
+    public long getSkipped() {
+        lock.lock();
+        try {
+            return skipped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (channel != null) {
+                channel.force(false);
+                channel.close();
+                channel = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 读取并校验指定位置的帧
+     *
+     * @param offset 帧开始位置
+     * @param limit  有效数据结束位置
+     * @return 帧内容长度，帧不完整或校验失败时返回 -1
+     */
+    private int frameLength(long offset, long limit) throws IOException {
+        if (offset + HEADER_BYTES > limit) {
+            return -1;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(header, offset);
+        int length = header.getInt(0);
+        if (length <= 0 || length > MAX_FRAME_BYTES || offset + HEADER_BYTES + length > limit) {
+            return -1;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(payload, offset + HEADER_BYTES);
+        return crc(payload.array(), length) == header.getInt(4) ? length : -1;
+    }
+
+    /**
+     * 编码为帧
+     *
+     * @param ops       操作
+     * @param available 可用字节数，超出后停止
+     */
+    private static Encoded encode(List<WriteOp> ops, long available) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long[] ends = new long[ops.size()];
+        int count = 0;
+        for (WriteOp op : ops) {
+            byte[] payload = serialize(op.toSerializable());
+            if (out.size() + HEADER_BYTES + (long) payload.length > available) {
+                break;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(payload.length).putInt(crc(payload, payload.length));
+            out.write(header.array());
+            out.write(payload);
+            ends[count++] = out.size();
+        }
+        return new Encoded(out.toByteArray(), count, ends);
+    }
+
+    /**
+     * 编码结果
+     *
+     * @param bytes 帧
+     * @param count 编码的操作数量
+     * @param ends  每帧结束位置 (相对 bytes 开头)
+     */
+    private record Encoded(byte[] bytes, int count, long[] ends) {
+    }
+
+    private static void writeFully(FileChannel out, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException(file.toString());
+            }
+        }
+    }
+
+    private long readPos(long length) {
+        try {
+            if (Files.exists(posFile)) {
+                long pos = ByteBuffer.wrap(Files.readAllBytes(posFile)).getLong();
+                if (pos >= 0 && pos <= length) {
+                    return pos;
+                }
+            }
+        } catch (Exception e) {
+            // 读取位置损坏时从头回放
+        }
+        return 0;
+    }
+
+    private void writePos(long pos) throws IOException {
+        Path tmp = posFile.resolveSibling(posFile.getFileName() + ".tmp");
+        Files.write(tmp, ByteBuffer.allocate(Long.BYTES).putLong(pos).array());
+        Files.move(tmp, posFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int crc(byte[] bytes, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, length);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] serialize(WriteOp.Spilled op) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(op);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 反序列化
+     *
+     * @param payload  帧内容
+     * @param callback 回调，可为空
+     * @return 操作，无法解析时返回 null
+     */
+    private static WriteOp deserialize(byte[] payload, WriteCallback callback) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+            return in.readObject() instanceof WriteOp.Spilled op ? op.restore(callback) : null;
+        } catch (IOException | ClassNotFoundException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.ruinap.persistence.gateway;
+
+import cn.hutool.db.Entity;
+
+/**
+ * 写入结果回调
+ * <p>
+ * 每次提交的操作最多得到一个结果：写入成功 (影响行数大于 0) 时执行 {@link #written(Entity)}，
+ * 未写入 (影响行数为 0、数据无法写入或溢出文件已满) 时执行 {@link #dropped()}。
+ * 在持久化网关的写入线程或溢出线程中执行，应尽量轻量。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-21 09:20
+ */
+@FunctionalInterface
+public interface WriteCallback {
+
+    /**
+     * 写入成功
+     *
+     * @param written 实际写入的列与主键 (合并后的列)
+     */
+    void written(Entity written);
+
+    /**
+     * 未写入
+     */
+    default void dropped() {
+    }
+}
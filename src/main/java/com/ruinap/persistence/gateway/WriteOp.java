@@ -0,0 +1,296 @@
+package com.ruinap.persistence.gateway;
+
+import cn.hutool.db.Entity;
+import cn.hutool.json.JSONUtil;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * 待写入的数据库操作
+ * <p>
+ * 三类操作：
+ * <ul>
+ * <li>UPDATE：按主键更新部分列，同一行尚未写入的更新合并为一条，列值以最新为准；</li>
+ * <li>INSERT：插入一行，按提交顺序写入；</li>
+ * <li>EXECUTE：任意 SQL 与参数，按提交顺序写入。</li>
+ * </ul>
+ * 通过 {@link #toSerializable()} 转换后写入溢出文件，回调不序列化，由溢出文件在内存中保留到回放。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-21 09:30
+ */
+public final class WriteOp {
+
+    /**
+     * 操作类型
+     */
+    enum Kind {
+        UPDATE, INSERT, EXECUTE
+    }
+
+    private final Kind kind;
+    private final String table;
+    private final String keyColumn;
+    private final Object key;
+    /**
+     * UPDATE 为要更新的列，INSERT 为整行
+     */
+    private final LinkedHashMap<String, Object> columns;
+    /**
+     * EXECUTE 的 SQL 与参数
+     */
+    private final String sql;
+    private final Object[] params;
+    /**
+     * 写入结果回调，写入成功时参数为实际写入的列 (UPDATE 为合并后的列与主键)
+     */
+    private WriteCallback onWritten;
+
+    private WriteOp(Kind kind, String table, String keyColumn, Object key, Map<String, ?> columns,
+                    String sql, Object[] params, WriteCallback onWritten) {
+        this.kind = kind;
+        this.table = table;
+        this.keyColumn = keyColumn;
+        this.key = key;
+        this.columns = columns == null ? null : new LinkedHashMap<>(columns);
+        this.sql = sql;
+        this.params = params;
+        this.onWritten = onWritten;
+    }
+
+    /**
+     * 按主键更新
+     *
+     * @param table     表名
+     * @param keyColumn 主键列名
+     * @param key       主键值
+     * @param columns   要更新的列，不含主键
+     * @param onWritten 写入结果回调，可为空
+     * @return 操作
+     */
+    public static WriteOp update(String table, String keyColumn, Object key, Map<String, Object> columns, WriteCallback onWritten) {
+        Objects.requireNonNull(key, "主键不能为空");
+        Map<String, Object> set = new LinkedHashMap<>(columns);
+        set.remove(keyColumn);
+        if (set.isEmpty()) {
+            throw new IllegalArgumentException("更新的列不能为空");
+        }
+        return new WriteOp(Kind.UPDATE, table, keyColumn, key, set, null, null, onWritten);
+    }
+
+    /**
+     * 插入一行
+     *
+     * @param table 表名
+     * @param row   行数据
+     * @return 操作
+     */
+    public static WriteOp insert(String table, Map<String, Object> row) {
+        if (row.isEmpty()) {
+            throw new IllegalArgumentException("插入的列不能为空");
+        }
+        return new WriteOp(Kind.INSERT, table, null, null, row, null, null, null);
+    }
+
+    /**
+     * 执行 SQL
+     *
+     * @param sql    SQL
+     * @param params 参数
+     * @return 操作
+     */
+    public static WriteOp execute(String sql, Object... params) {
+        return new WriteOp(Kind.EXECUTE, null, null, null, null, sql, params == null ? new Object[0] : params.clone(), null);
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * 合并键，只有 UPDATE 有
+     *
+     * @return 表名 + 主键，其他操作返回 null
+     */
+    String coalesceKey() {
+        return kind == Kind.UPDATE ? table + '\u0001' + key : null;
+    }
+
+    /**
+     * 合并同一行更新的操作：列值以新操作为准，两个操作的回调都保留，按提交顺序执行
+     *
+     * @param newer 新操作
+     */
+    void merge(WriteOp newer) {
+        columns.putAll(newer.columns);
+        onWritten = chain(onWritten, newer.onWritten);
+    }
+
+    private static WriteCallback chain(WriteCallback first, WriteCallback second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        return new WriteCallback() {
+            @Override
+            public void written(Entity written) {
+                first.written(written);
+                second.written(written);
+            }
+
+            @Override
+            public void dropped() {
+                first.dropped();
+                second.dropped();
+            }
+        };
+    }
+
+    /**
+     * 生成 SQL，列顺序与 {@link #params()} 一致
+     */
+    String sql() {
+        return switch (kind) {
+            case UPDATE -> {
+                StringJoiner set = new StringJoiner(", ");
+                for (String column : columns.keySet()) {
+                    set.add("`" + column + "` = ?");
+                }
+                yield "UPDATE `" + table + "` SET " + set + " WHERE `" + keyColumn + "` = ?";
+            }
+            case INSERT -> {
+                StringJoiner names = new StringJoiner(", ");
+                StringJoiner marks = new StringJoiner(", ");
+                for (String column : columns.keySet()) {
+                    names.add("`" + column + "`");
+                    marks.add("?");
+                }
+                yield "INSERT INTO `" + table + "` (" + names + ") VALUES (" + marks + ")";
+            }
+            case EXECUTE -> sql;
+        };
+    }
+
+    /**
+     * 生成 PreparedStatement 参数
+     */
+    Object[] params() {
+        return switch (kind) {
+            case UPDATE -> {
+                Object[] values = columns.values().toArray(new Object[columns.size() + 1]);
+                values[columns.size()] = key;
+                yield values;
+            }
+            case INSERT -> columns.values().toArray();
+            case EXECUTE -> params;
+        };
+    }
+
+    /**
+     * 执行写入成功回调
+     */
+    void written() {
+        WriteCallback callback = onWritten;
+        if (callback != null) {
+            Entity entity = Entity.create(table);
+            if (columns != null) {
+                columns.forEach(entity::set);
+            }
+            if (keyColumn != null) {
+                entity.set(keyColumn, key);
+            }
+            callback.written(entity);
+        }
+    }
+
+    /**
+     * 执行未写入回调
+     */
+    void dropped() {
+        WriteCallback callback = onWritten;
+        if (callback != null) {
+            callback.dropped();
+        }
+    }
+
+    /**
+     * 写入结果回调，可为空
+     */
+    WriteCallback callback() {
+        return onWritten;
+    }
+
+    /**
+     * 转换为可序列化的操作
+     * <p>
+     * 写入溢出文件前调用：基本类型与日期保持不变，枚举转为名称，其他对象转为 JSON 字符串
+     *
+     * @return 转换后的操作，不含回调
+     */
+    Spilled toSerializable() {
+        if (columns != null) {
+            LinkedHashMap<String, Serializable> converted = new LinkedHashMap<>(columns.size());
+            columns.forEach((column, value) -> converted.put(column, serializable(value)));
+            return new Spilled(kind, table, keyColumn, serializable(key), converted, sql, null);
+        }
+        Serializable[] converted = new Serializable[params.length];
+        for (int i = 0; i < params.length; i++) {
+            converted[i] = serializable(params[i]);
+        }
+        return new Spilled(kind, table, keyColumn, serializable(key), null, sql, converted);
+    }
+
+    private static Serializable serializable(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof CharSequence s) {
+            return s.toString();
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof Date || value instanceof byte[]) {
+            return (Serializable) value;
+        }
+        if (value instanceof Enum<?> e) {
+            return e.name();
+        }
+        return JSONUtil.toJsonStr(value);
+    }
+
+    /**
+     * 溢出文件中保存的操作
+     *
+     * @param kind      操作类型
+     * @param table     表名
+     * @param keyColumn 主键列名
+     * @param key       主键值
+     * @param columns   UPDATE 为要更新的列，INSERT 为整行
+     * @param sql       EXECUTE 的 SQL
+     * @param params    EXECUTE 的参数
+     */
+    record Spilled(Kind kind, String table, String keyColumn, Serializable key,
+                   LinkedHashMap<String, Serializable> columns, String sql, Serializable[] params) implements Serializable {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * 还原为操作
+         *
+         * @param onWritten 写入结果回调，可为空
+         * @return 操作
+         */
+        WriteOp restore(WriteCallback onWritten) {
+            return new WriteOp(kind, table, keyColumn, key, columns, sql, params, onWritten);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + (kind == Kind.EXECUTE ? sql : table + (key == null ? "" : "[" + key + "]"));
+    }
+}
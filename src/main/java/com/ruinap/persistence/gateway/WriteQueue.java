@@ -0,0 +1,382 @@
+package com.ruinap.persistence.gateway;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 写入队列
+ * <p>
+ * 内存中的有界队列，提交方只做内存操作，永不等待数据库或磁盘：
+ * <ul>
+ * <li>同一行尚未取出的 UPDATE 合并为一条，只保留每列的最新值；</li>
+ * <li>队列达到容量后进入溢出模式：之后提交的操作进入溢出列表，由溢出线程追加到溢出文件；
+ * 队列中已有的操作都早于溢出文件中的操作，写入线程先写完队列再回放溢出文件，
+ * 溢出文件回放完毕后退出溢出模式，整体保持提交顺序；</li>
+ * <li>写入失败的操作放回队首，下次按原顺序重试。</li>
+ * </ul>
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-21 10:10
+ */
+public final class WriteQueue {
+
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    private final ArrayDeque<WriteOp> queue = new ArrayDeque<>();
+    /**
+     * 队列中可合并的 UPDATE
+     * Key: 合并键，Value: 队列中的操作
+     */
+    private final Map<String, WriteOp> pending = new HashMap<>();
+    /**
+     * 溢出模式下提交的操作，等待写入溢出文件
+     */
+    private List<WriteOp> overflow = new ArrayList<>();
+    /**
+     * 溢出列表中可合并的 UPDATE
+     */
+    private final Map<String, WriteOp> overflowPending = new HashMap<>();
+    /**
+     * 是否处于溢出模式
+     */
+    private boolean spilling = false;
+    /**
+     * 是否已关闭
+     */
+    private boolean closed = false;
+    /**
+     * 已被溢出线程取出、尚未写完的批次数
+     */
+    private int spillsInProgress = 0;
+    /**
+     * 已被写入线程取出、尚未写完的操作数
+     */
+    private int inFlight = 0;
+
+    private long offered;
+    private long coalesced;
+
+    /**
+     * 构造方法
+     *
+     * @param capacity 内存队列容量
+     */
+    public WriteQueue(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * 提交操作
+     *
+     * @param op 操作
+     * @return true 表示已合并到尚未写入的同一行更新中
+     * @throws IllegalStateException 已关闭
+     */
+    public boolean offer(WriteOp op) {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("写入队列已关闭");
+            }
+            offered++;
+            String key = op.coalesceKey();
+            if (spilling || queue.size() >= capacity) {
+                if (!spilling) {
+                    // 进入溢出模式：队列中的更新不再接受合并，否则新值会先于溢出文件中的旧值写入
+                    spilling = true;
+                    pending.clear();
+                }
+                if (merge(overflowPending, key, op)) {
+                    return true;
+                }
+                overflow.add(op);
+            } else {
+                if (merge(pending, key, op)) {
+                    return true;
+                }
+                queue.addLast(op);
+            }
+            changed.signalAll();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 从队首取出一批操作
+     *
+     * @param max 最大数量
+     * @return 操作，队列为空时返回空列表
+     */
+    public List<WriteOp> poll(int max) {
+        lock.lock();
+        try {
+            int count = Math.min(max, queue.size());
+            List<WriteOp> batch = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                WriteOp op = queue.pollFirst();
+                String key = op.coalesceKey();
+                if (key != null && pending.get(key) == op) {
+                    // 已取出的操作不再接受合并，之后的更新重新排队
+                    pending.remove(key);
+                }
+                batch.add(op);
+            }
+            inFlight += count;
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 写入线程已处理完取出的操作 (写入或丢弃)
+     *
+     * @param count 数量
+     */
+    public void written(int count) {
+        lock.lock();
+        try {
+            inFlight -= count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 写入失败的操作按原顺序放回队首
+     *
+     * @param batch {@link #poll(int)} 取出的操作
+     */
+    public void pushBack(List<WriteOp> batch) {
+        lock.lock();
+        try {
+            inFlight -= batch.size();
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                WriteOp op = batch.get(i);
+                queue.addFirst(op);
+                String key = op.coalesceKey();
+                // 取出期间同一行又有更新时保留两条，按顺序写入
+                if (key != null && !spilling) {
+                    pending.putIfAbsent(key, op);
+                }
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 取出溢出列表，由溢出线程写入溢出文件，写完后必须调用 {@link #overflowWritten()}
+     *
+     * @return 溢出的操作，没有时返回空列表
+     */
+    public List<WriteOp> takeOverflow() {
+        lock.lock();
+        try {
+            if (overflow.isEmpty()) {
+                return List.of();
+            }
+            List<WriteOp> taken = overflow;
+            overflow = new ArrayList<>();
+            overflowPending.clear();
+            spillsInProgress++;
+            return taken;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 溢出线程已写完一批
+     */
+    public void overflowWritten() {
+        lock.lock();
+        try {
+            spillsInProgress--;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 进入溢出模式
+     * <p>
+     * 启动时溢出文件中还有未回放的操作时调用：启动前提交的操作转入溢出列表，保证排在溢出文件之后
+     */
+    public void startSpilling() {
+        lock.lock();
+        try {
+            spilling = true;
+            overflow.addAll(0, queue);
+            queue.clear();
+            pending.clear();
+            overflowPending.clear();
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 尝试退出溢出模式
+     * <p>
+     * 只有队列、溢出列表都为空，没有正在写入的溢出批次，且溢出文件已回放完毕时才退出
+     *
+     * @param spillEmpty 溢出文件是否已回放完毕
+     * @return 当前是否已不在溢出模式
+     */
+    public boolean tryStopSpilling(BooleanSupplier spillEmpty) {
+        lock.lock();
+        try {
+            if (spilling && queue.isEmpty() && overflow.isEmpty() && spillsInProgress == 0 && spillEmpty.getAsBoolean()) {
+                spilling = false;
+            }
+            return !spilling;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 队列为空时等待，有新的操作或溢出批次写完时返回
+     *
+     * @param timeout 最长等待时间
+     * @param unit    时间单位
+     * @throws InterruptedException 线程中断
+     */
+    public void await(long timeout, TimeUnit unit) throws InterruptedException {
+        lock.lock();
+        try {
+            if (queue.isEmpty()) {
+                changed.await(timeout, unit);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 等待溢出列表中出现操作
+     *
+     * @param timeout 最长等待时间
+     * @param unit    时间单位
+     * @throws InterruptedException 线程中断
+     */
+    public void awaitOverflow(long timeout, TimeUnit unit) throws InterruptedException {
+        lock.lock();
+        try {
+            if (overflow.isEmpty()) {
+                changed.await(timeout, unit);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 关闭队列并取出全部操作，之后提交的操作抛出 {@link IllegalStateException}
+     * <p>
+     * 写入线程与溢出线程停止后调用
+     *
+     * @return 剩余的操作
+     */
+    public Remaining close() {
+        lock.lock();
+        try {
+            closed = true;
+            List<WriteOp> head = new ArrayList<>(queue);
+            List<WriteOp> tail = overflow;
+            queue.clear();
+            pending.clear();
+            overflow = new ArrayList<>();
+            overflowPending.clear();
+            return new Remaining(head, tail);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 关闭时剩余的操作
+     *
+     * @param head 队列中的操作 (早于溢出文件)
+     * @param tail 溢出列表中的操作 (晚于溢出文件)
+     */
+    public record Remaining(List<WriteOp> head, List<WriteOp> tail) {
+    }
+
+    /**
+     * 内存中的操作数量 (队列 + 溢出列表 + 写入线程正在写入的)
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return queue.size() + overflow.size() + inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 内存中没有待写入的操作，且没有正在写入溢出文件的批次
+     */
+    public boolean isEmpty() {
+        lock.lock();
+        try {
+            return queue.isEmpty() && overflow.isEmpty() && inFlight == 0 && spillsInProgress == 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isSpilling() {
+        lock.lock();
+        try {
+            return spilling;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getOffered() {
+        lock.lock();
+        try {
+            return offered;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getCoalesced() {
+        lock.lock();
+        try {
+            return coalesced;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean merge(Map<String, WriteOp> index, String key, WriteOp op) {
+        if (key == null) {
+            return false;
+        }
+        WriteOp existing = index.get(key);
+        if (existing != null) {
+            existing.merge(op);
+            coalesced++;
+            return true;
+        }
+        index.put(key, op);
+        return false;
+    }
+}
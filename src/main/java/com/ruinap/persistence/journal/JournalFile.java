@@ -0,0 +1,336 @@
+package com.ruinap.persistence.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * 本地追加日志文件
+ * <p>
+ * 只追加、带校验的本地日志，配合压缩快照使用：
+ * <ul>
+ * <li>每条记录为一帧：[长度 int][CRC32C int][内容]，追加时只写入页缓存，由 {@link #force()} 定时落盘；</li>
+ * <li>压缩时先把当前日志轮转为旧日志 ({@link #rotate()})，再写入快照 ({@link #writeSnapshot(List)})，
+ * 快照写完并原子替换后删除旧日志 ({@link #deleteRotated()})；</li>
+ * <li>回放顺序为 快照 → 旧日志 → 当前日志，遇到长度或校验不正确的帧 (写入时崩溃的残帧) 即停止并截断。</li>
+ * </ul>
+ * 记录内容由调用方定义，要求按 "赋值" 语义编码 (重复回放结果不变)，这样任意时刻的快照叠加其后的日志都能得到最终状态。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-19 10:20
+ */
+public class JournalFile implements Closeable {
+
+    /**
+     * 帧头长度
+     */
+    static final int HEADER_BYTES = 8;
+    /**
+     * 单帧最大长度，超过视为损坏
+     */
+    static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+    /**
+     * 快照文件头
+     */
+    private static final int SNAPSHOT_MAGIC = 0x524A534E;
+
+    private final Path walFile;
+    private final Path rotatedFile;
+    private final Path snapshotFile;
+    private final Path snapshotTmpFile;
+    private final Object appendLock = new Object();
+
+    private volatile FileChannel channel;
+    private volatile long walBytes;
+
+    /**
+     * 回放结果
+     *
+     * @param snapshotRecords 快照中的记录数
+     * @param journalRecords  日志中的记录数
+     * @param tornBytes       截断的残帧字节数
+     */
+    public record ReplayResult(int snapshotRecords, int journalRecords, long tornBytes) {
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param dir  日志目录
+     * @param name 日志名称
+     */
+    public JournalFile(Path dir, String name) {
+        this.walFile = dir.resolve(name + ".wal");
+        this.rotatedFile = dir.resolve(name + ".wal.old");
+        this.snapshotFile = dir.resolve(name + ".snap");
+        this.snapshotTmpFile = dir.resolve(name + ".snap.tmp");
+    }
+
+    /**
+     * 回放快照与日志
+     * <p>
+     * 必须在 {@link #open()} 之前调用，日志末尾的残帧会被截断
+     *
+     * @param consumer 记录内容消费者
+     * @return 回放结果
+     * @throws IOException 读取失败
+     */
+    public ReplayResult replay(Consumer<ByteBuffer> consumer) throws IOException {
+        int snapshotRecords = readSnapshot(consumer);
+        long[] rotated = readJournal(rotatedFile, consumer);
+        long[] current = readJournal(walFile, consumer);
+        return new ReplayResult(snapshotRecords, (int) (rotated[0] + current[0]), rotated[1] + current[1]);
+    }
+
+    /**
+     * 打开日志用于追加
+     *
+     * @throws IOException 打开失败
+     */
+    public void open() throws IOException {
+        Files.createDirectories(walFile.getParent());
+        synchronized (appendLock) {
+            if (channel != null) {
+                return;
+            }
+            channel = FileChannel.open(walFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            walBytes = channel.size();
+        }
+    }
+
+    /**
+     * 追加一条记录
+     *
+     * @param payload 记录内容
+     * @throws IOException 写入失败
+     */
+    public void append(byte[] payload) throws IOException {
+        if (payload.length == 0 || payload.length > MAX_FRAME_BYTES) {
+            throw new IllegalArgumentException("日志记录长度不正确: " + payload.length);
+        }
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        frame.putInt(payload.length).putInt(checksum(payload, 0, payload.length)).put(payload).flip();
+        synchronized (appendLock) {
+            FileChannel ch = channel;
+            if (ch == null) {
+                throw new ClosedChannelException();
+            }
+            while (frame.hasRemaining()) {
+                ch.write(frame);
+            }
+            walBytes += frame.limit();
+        }
+    }
+
+    /**
+     * 把已追加的记录落盘
+     * <p>
+     * 不持有追加锁，落盘期间追加不受影响
+     *
+     * @throws IOException 落盘失败
+     */
+    public void force() throws IOException {
+        FileChannel ch = channel;
+        if (ch == null) {
+            return;
+        }
+        try {
+            ch.force(false);
+        } catch (ClosedChannelException e) {
+            // 并发轮转时旧文件已在关闭前落盘
+        }
+    }
+
+    /**
+     * 轮转日志：当前日志改为旧日志，之后的记录写入新的日志
+     * <p>
+     * 上一次压缩失败遗留的旧日志不会被覆盖，当前日志会追加到其末尾
+     *
+     * @throws IOException 轮转失败
+     */
+    public void rotate() throws IOException {
+        synchronized (appendLock) {
+            FileChannel ch = channel;
+            if (ch != null) {
+                ch.force(false);
+                ch.close();
+            }
+            if (Files.exists(walFile)) {
+                if (Files.exists(rotatedFile)) {
+                    try (FileChannel src = FileChannel.open(walFile, StandardOpenOption.READ);
+                         FileChannel dst = FileChannel.open(rotatedFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                        long position = 0;
+                        long size = src.size();
+                        while (position < size) {
+                            position += src.transferTo(position, size - position, dst);
+                        }
+                        dst.force(false);
+                    }
+                    Files.delete(walFile);
+                } else {
+                    Files.move(walFile, rotatedFile, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            channel = ch == null ? null
+                    : FileChannel.open(walFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            walBytes = 0;
+        }
+    }
+
+    /**
+     * 写入快照
+     * <p>
+     * 先写临时文件并落盘，再原子替换正式快照，写入过程中崩溃不会破坏已有快照
+     *
+     * @param records 全部记录内容
+     * @throws IOException 写入失败
+     */
+    public void writeSnapshot(List<byte[]> records) throws IOException {
+        Files.createDirectories(snapshotFile.getParent());
+        try (FileChannel ch = FileChannel.open(snapshotTmpFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer head = ByteBuffer.allocate(8).putInt(SNAPSHOT_MAGIC).putInt(records.size()).flip();
+            writeFully(ch, head);
+            for (byte[] record : records) {
+                ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + record.length);
+                frame.putInt(record.length).putInt(checksum(record, 0, record.length)).put(record).flip();
+                writeFully(ch, frame);
+            }
+            // 结束帧：长度为 0，用于识别写入不完整的快照
+            writeFully(ch, ByteBuffer.allocate(HEADER_BYTES));
+            ch.force(true);
+        }
+        try {
+            Files.move(snapshotTmpFile, snapshotFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(snapshotTmpFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 删除已被快照覆盖的旧日志
+     *
+     * @throws IOException 删除失败
+     */
+    public void deleteRotated() throws IOException {
+        Files.deleteIfExists(rotatedFile);
+    }
+
+    /**
+     * 获取当前日志的字节数
+     */
+    public long getWalBytes() {
+        return walBytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            FileChannel ch = channel;
+            channel = null;
+            if (ch != null) {
+                ch.force(false);
+                ch.close();
+            }
+        }
+    }
+
+    /**
+     * 读取快照
+     *
+     * @return 快照中的记录数，快照不存在或不完整时为 0
+     */
+    private int readSnapshot(Consumer<ByteBuffer> consumer) throws IOException {
+        if (!Files.exists(snapshotFile)) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshotFile));
+        if (buffer.remaining() < 8 || buffer.getInt() != SNAPSHOT_MAGIC) {
+            return 0;
+        }
+        int count = buffer.getInt();
+        // 先完整校验，不完整的快照整体丢弃，只回放日志
+        int start = buffer.position();
+        for (int i = 0; i < count; i++) {
+            if (nextFrame(buffer) == null) {
+                return 0;
+            }
+        }
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != 0) {
+            return 0;
+        }
+        buffer.position(start);
+        for (int i = 0; i < count; i++) {
+            consumer.accept(nextFrame(buffer));
+        }
+        return count;
+    }
+
+    /**
+     * 读取日志，遇到残帧时截断
+     *
+     * @return [记录数, 截断字节数]
+     */
+    private long[] readJournal(Path file, Consumer<ByteBuffer> consumer) throws IOException {
+        if (!Files.exists(file)) {
+            return new long[]{0, 0};
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        long count = 0;
+        ByteBuffer payload;
+        while ((payload = nextFrame(buffer)) != null) {
+            consumer.accept(payload);
+            count++;
+        }
+        long valid = buffer.position();
+        long torn = buffer.limit() - valid;
+        if (torn > 0) {
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                ch.truncate(valid);
+                ch.force(false);
+            }
+        }
+        return new long[]{count, torn};
+    }
+
+    /**
+     * 读取下一帧
+     *
+     * @return 帧内容，帧不完整或校验失败时返回 null 且不移动位置
+     */
+    static ByteBuffer nextFrame(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < HEADER_BYTES) {
+            return null;
+        }
+        int length = buffer.getInt();
+        int crc = buffer.getInt();
+        if (length <= 0 || length > MAX_FRAME_BYTES || buffer.remaining() < length
+                || checksum(buffer.array(), buffer.arrayOffset() + buffer.position(), length) != crc) {
+            buffer.position(start);
+            return null;
+        }
+        ByteBuffer payload = buffer.slice(buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        return payload;
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            ch.write(buffer);
+        }
+    }
+}
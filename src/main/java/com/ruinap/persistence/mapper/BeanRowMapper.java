@@ -0,0 +1,380 @@
+package com.ruinap.persistence.mapper;
+
+import cn.hutool.core.annotation.Alias;
+import cn.hutool.core.annotation.PropIgnore;
+import cn.hutool.core.convert.Convert;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.db.Entity;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于 MethodHandle 的行映射器
+ * <p>
+ * 每个类型在首次使用时解析一次属性，生成 setter/getter 的 MethodHandle 与按类型读取列的读取器，之后：
+ * <ul>
+ * <li>ResultSet → POJO/Record：每个结果集只按列标签匹配一次属性，逐行按列下标直接读取并调用 setter，
+ * 不再经过 Entity 中间 Map 与反射拷贝；</li>
+ * <li>POJO → 行：按 getter 直接取值，生成与 {@code Entity.parse(bean, true, true)} 相同的列；
+ * 或按列名生成 PreparedStatement 参数数组。</li>
+ * </ul>
+ * 列名规则与 hutool 保持一致：有 {@link Alias} 时使用别名，否则使用字段名的下划线形式，匹配时忽略大小写与下划线；
+ * 跳过 {@link PropIgnore} 与 transient 字段；多个字段使用同一列名时只取第一个。
+ * </p>
+ *
+ * @param <T> 目标类型
+ * @author qianye
+ * @create 2026-03-19 09:30
+ */
+public final class BeanRowMapper<T> {
+
+    /**
+     * 映射器缓存
+     */
+    private static final Map<Class<?>, BeanRowMapper<?>> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * 按下标读取列值
+     */
+    @FunctionalInterface
+    private interface ColumnReader {
+        Object read(ResultSet rs, int index) throws SQLException;
+    }
+
+    /**
+     * 属性
+     *
+     * @param column     列名
+     * @param type       属性类型
+     * @param setter     setter (Object, Object)void，Record 为 null
+     * @param getter     getter (Object)Object，不可读时为 null
+     * @param reader     列读取器
+     * @param components Record 组件下标，POJO 为 -1
+     */
+    private record Property(String column, Class<?> type, MethodHandle setter, MethodHandle getter,
+                            ColumnReader reader, int components) {
+    }
+
+    private final Class<T> type;
+    /**
+     * 无参构造方法 ()Object，或 Record 规范构造方法 (Object[])Object
+     */
+    private final MethodHandle constructor;
+    /**
+     * 可读属性，按字段声明顺序
+     */
+    private final List<Property> readable;
+    /**
+     * 可写属性
+     * Key: 去除下划线的小写列名
+     */
+    private final Map<String, Property> writable;
+    /**
+     * 可读属性
+     * Key: 列名
+     */
+    private final Map<String, Property> readableByColumn;
+    private final int recordSize;
+
+    /**
+     * 获取类型的映射器
+     *
+     * @param type 目标类型
+     * @param <T>  目标类型
+     * @return 映射器
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> BeanRowMapper<T> of(Class<T> type) {
+        return (BeanRowMapper<T>) CACHE.computeIfAbsent(type, BeanRowMapper::new);
+    }
+
+    private BeanRowMapper(Class<T> type) {
+        this.type = type;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        List<Property> readableList = new ArrayList<>();
+        Map<String, Property> writableMap = new HashMap<>();
+        try {
+            if (type.isRecord()) {
+                RecordComponent[] components = type.getRecordComponents();
+                Class<?>[] types = new Class<?>[components.length];
+                for (int i = 0; i < components.length; i++) {
+                    RecordComponent component = components[i];
+                    types[i] = component.getType();
+                    Field field = type.getDeclaredField(component.getName());
+                    Property property = new Property(columnOf(field), component.getType(), null,
+                            generic(lookup.unreflect(component.getAccessor())), readerOf(component.getType()), i);
+                    readableList.add(property);
+                    writableMap.putIfAbsent(normalize(property.column()), property);
+                }
+                this.constructor = lookup.findConstructor(type, MethodType.methodType(void.class, types))
+                        .asSpreader(Object[].class, components.length)
+                        .asType(MethodType.methodType(Object.class, Object[].class));
+                this.recordSize = components.length;
+            } else {
+                this.constructor = lookup.findConstructor(type, MethodType.methodType(void.class))
+                        .asType(MethodType.methodType(Object.class));
+                this.recordSize = -1;
+                Set<String> seen = new HashSet<>();
+                for (Field field : fieldsOf(type)) {
+                    if (!seen.add(columnOf(field))) {
+                        continue;
+                    }
+                    MethodHandle setter = accessor(lookup, type, "set" + StrUtil.upperFirst(field.getName()), field.getType());
+                    MethodHandle getter = accessor(lookup, type, getterName(field), null);
+                    if (setter == null && getter == null) {
+                        continue;
+                    }
+                    Property property = new Property(columnOf(field), field.getType(),
+                            setter == null ? null : setter.asType(MethodType.methodType(void.class, Object.class, Object.class)),
+                            getter == null ? null : generic(getter), readerOf(field.getType()), -1);
+                    if (getter != null) {
+                        readableList.add(property);
+                    }
+                    if (setter != null) {
+                        writableMap.putIfAbsent(normalize(property.column()), property);
+                    }
+                }
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("无法生成行映射器：" + type.getName(), e);
+        }
+        this.readable = List.copyOf(readableList);
+        this.writable = Map.copyOf(writableMap);
+        Map<String, Property> byColumn = new LinkedHashMap<>();
+        readableList.forEach(property -> byColumn.put(property.column(), property));
+        this.readableByColumn = byColumn;
+    }
+
+    /**
+     * 映射结果集中的所有行
+     *
+     * @param rs 结果集
+     * @return 对象列表
+     * @throws SQLException 读取失败
+     */
+    public List<T> mapAll(ResultSet rs) throws SQLException {
+        Property[] layout = layoutOf(rs.getMetaData());
+        List<T> list = new ArrayList<>();
+        while (rs.next()) {
+            list.add(mapRow(rs, layout));
+        }
+        return list;
+    }
+
+    /**
+     * 映射结果集中的第一行
+     *
+     * @param rs 结果集
+     * @return 对象，没有数据时返回 null
+     * @throws SQLException 读取失败
+     */
+    public T mapFirst(ResultSet rs) throws SQLException {
+        return rs.next() ? mapRow(rs, layoutOf(rs.getMetaData())) : null;
+    }
+
+    /**
+     * 对象转换为行数据
+     * <p>
+     * 与 {@code Entity.parse(bean, true, true)} 结果一致：列名为别名或下划线形式，忽略 null 值
+     *
+     * @param bean 对象
+     * @return 行数据
+     */
+    public Entity toEntity(T bean) {
+        Entity entity = Entity.create();
+        for (Property property : readable) {
+            Object value = get(property, bean);
+            if (value != null) {
+                entity.set(property.column(), value);
+            }
+        }
+        return entity;
+    }
+
+    /**
+     * 生成 PreparedStatement 参数
+     *
+     * @param bean    对象
+     * @param columns 列名，顺序与占位符一致
+     * @return 参数数组
+     */
+    public Object[] bind(T bean, List<String> columns) {
+        Object[] params = new Object[columns.size()];
+        for (int i = 0; i < params.length; i++) {
+            Property property = readableByColumn.get(columns.get(i));
+            if (property == null) {
+                throw new IllegalArgumentException(type.getSimpleName() + " 没有可读的列：" + columns.get(i));
+            }
+            params[i] = get(property, bean);
+        }
+        return params;
+    }
+
+    /**
+     * 获取可读列名，按字段声明顺序
+     */
+    public List<String> columns() {
+        return List.copyOf(readableByColumn.keySet());
+    }
+
+    private T mapRow(ResultSet rs, Property[] layout) throws SQLException {
+        try {
+            if (recordSize >= 0) {
+                Object[] args = new Object[recordSize];
+                for (int i = 0; i < layout.length; i++) {
+                    if (layout[i] != null) {
+                        args[layout[i].components()] = read(layout[i], rs, i + 1);
+                    }
+                }
+                return type.cast(constructor.invokeExact(args));
+            }
+            Object bean = constructor.invokeExact();
+            for (int i = 0; i < layout.length; i++) {
+                if (layout[i] != null) {
+                    layout[i].setter().invokeExact(bean, read(layout[i], rs, i + 1));
+                }
+            }
+            return type.cast(bean);
+        } catch (SQLException | RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("行映射失败：" + type.getName(), e);
+        }
+    }
+
+    /**
+     * 按列标签匹配属性，每个结果集只计算一次
+     */
+    private Property[] layoutOf(ResultSetMetaData metaData) throws SQLException {
+        Property[] layout = new Property[metaData.getColumnCount()];
+        for (int i = 0; i < layout.length; i++) {
+            // 没有对应属性的列为 null，读取时跳过
+            layout[i] = writable.get(normalize(metaData.getColumnLabel(i + 1)));
+        }
+        return layout;
+    }
+
+    private static Object read(Property property, ResultSet rs, int index) throws SQLException {
+        Object value = property.reader().read(rs, index);
+        if (value == null && property.type().isPrimitive()) {
+            // 基本类型不接受 null，保持默认值
+            return Convert.convert(property.type(), 0);
+        }
+        return value;
+    }
+
+    private static Object get(Property property, Object bean) {
+        try {
+            return property.getter().invokeExact(bean);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("读取属性失败：" + property.column(), e);
+        }
+    }
+
+    /**
+     * 按属性类型选择读取方法，避免 getObject 后再转换
+     */
+    private static ColumnReader readerOf(Class<?> type) {
+        if (type == String.class) {
+            return ResultSet::getString;
+        }
+        if (type == Integer.class || type == int.class) {
+            return (rs, i) -> {
+                int value = rs.getInt(i);
+                return rs.wasNull() ? null : value;
+            };
+        }
+        if (type == Long.class || type == long.class) {
+            return (rs, i) -> {
+                long value = rs.getLong(i);
+                return rs.wasNull() ? null : value;
+            };
+        }
+        if (type == Double.class || type == double.class) {
+            return (rs, i) -> {
+                double value = rs.getDouble(i);
+                return rs.wasNull() ? null : value;
+            };
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            return (rs, i) -> {
+                boolean value = rs.getBoolean(i);
+                return rs.wasNull() ? null : value;
+            };
+        }
+        if (type == BigDecimal.class) {
+            return ResultSet::getBigDecimal;
+        }
+        if (type == Date.class) {
+            // 与 hutool 一致，直接使用 Timestamp (Date 的子类)
+            return ResultSet::getTimestamp;
+        }
+        if (type == LocalDateTime.class) {
+            return (rs, i) -> rs.getObject(i, LocalDateTime.class);
+        }
+        // 其他类型 (枚举、JSON 对象等) 交给 hutool 转换，转换失败时忽略该列
+        return (rs, i) -> {
+            Object value = rs.getObject(i);
+            return value == null ? null : Convert.convertQuietly(type, value, null);
+        };
+    }
+
+    private static List<Field> fieldsOf(Class<?> type) {
+        Deque<Class<?>> hierarchy = new ArrayDeque<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            hierarchy.push(c);
+        }
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> c : hierarchy) {
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()
+                        && !field.isAnnotationPresent(PropIgnore.class)) {
+                    fields.add(field);
+                }
+            }
+        }
+        return fields;
+    }
+
+    private static MethodHandle accessor(MethodHandles.Lookup lookup, Class<?> type, String name, Class<?> parameter) {
+        try {
+            Method method = parameter == null ? type.getMethod(name) : type.getMethod(name, parameter);
+            return Modifier.isStatic(method.getModifiers()) ? null : lookup.unreflect(method);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static String getterName(Field field) {
+        String prefix = field.getType() == boolean.class ? "is" : "get";
+        return prefix + StrUtil.upperFirst(field.getName());
+    }
+
+    private static MethodHandle generic(MethodHandle getter) {
+        return getter.asType(MethodType.methodType(Object.class, Object.class));
+    }
+
+    private static String columnOf(Field field) {
+        Alias alias = field.getAnnotation(Alias.class);
+        return alias != null ? alias.value() : StrUtil.toUnderlineCase(field.getName());
+    }
+
+    private static String normalize(String column) {
+        return StrUtil.removeAll(column, '_').toLowerCase(Locale.ROOT);
+    }
+}
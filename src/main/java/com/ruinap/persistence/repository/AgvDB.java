@@ -9,6 +9,7 @@ import com.ruinap.infra.log.RcsLog;
 import com.ruinap.persistence.factory.RcsDSFactory;
 
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -90,6 +91,17 @@ public class AgvDB extends BaseDao {
         return select(factory.db, sql, params);
     }
 
+    /**
+     * 批量查询AGV的人工维护字段
+     *
+     * @param agvIds AGV编号集合
+     * @return agv_id、charge_signal、isolation_state、handle_suggestion
+     * @throws SQLException
+     */
+    public List<Entity> selectAgvSyncList(Collection<String> agvIds) throws SQLException {
+        return queryListIn(factory.db, "select agv_id,charge_signal,isolation_state,handle_suggestion from " + TABLE_NAME + " where agv_id in", agvIds);
+    }
+
     /**
      * 查询AGV列表
      *
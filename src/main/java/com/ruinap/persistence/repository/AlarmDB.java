@@ -26,6 +26,10 @@ public class AlarmDB extends BaseDao {
      * 表名称
      */
     public String TABLE_NAME = "rcs_alarm";
+    /**
+     * 结束告警：把设备与告警码对应的未结束告警 (state=0) 更新为已结束 (state=1)，参数为 {设备编号, 告警码}
+     */
+    public static final String END_ALARM_SQL = "UPDATE rcs_alarm SET state = 1 WHERE name = ? AND code = ? AND state = 0";
 
 
     /**
@@ -103,4 +107,31 @@ public class AlarmDB extends BaseDao {
     public Integer updateAlarm(Entity body, Entity where) throws SQLException {
         return update(factory.db, TABLE_NAME, body, where);
     }
+
+    /**
+     * 批量新建告警信息
+     *
+     * @param list 数据体列表，字段必须一致
+     * @return 每行受影响行数
+     * @throws SQLException
+     */
+    public int[] createAlarmBatch(List<Entity> list) throws SQLException {
+        return insertBatch(factory.db, TABLE_NAME, list);
+    }
+
+    /**
+     * 批量结束告警
+     * <p>
+     * 把设备与告警码对应的未结束告警 (state=0) 更新为已结束 (state=1)
+     *
+     * @param keys 告警键列表，每项为 {设备编号, 告警码}
+     * @return 每项受影响行数
+     * @throws SQLException
+     */
+    public int[] endAlarmBatch(List<Object[]> keys) throws SQLException {
+        if (keys.isEmpty()) {
+            return new int[0];
+        }
+        return executeBatch(factory.db, END_ALARM_SQL, keys);
+    }
 }
@@ -7,10 +7,12 @@ import cn.hutool.db.Entity;
 import cn.hutool.db.Page;
 import cn.hutool.db.PageResult;
 import cn.hutool.db.sql.Condition;
+import com.ruinap.infra.framework.annotation.Autowired;
+import com.ruinap.persistence.executor.JdbcExecutor;
+import com.ruinap.persistence.mapper.BeanRowMapper;
 
 import java.sql.SQLException;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 
 
 /**
@@ -19,11 +21,37 @@ import java.util.List;
  * 需要继承该类才能使用通用方法
  * <p>
  * 封装通用的数据库增删改查功能，减少出错的概率
+ * <p>
+ * 所有方法都经由 {@link JdbcExecutor} 执行，虚拟线程调用时不会钉住载体线程
  *
  * @author qianye
  * @create 2024-11-18 13:47
  */
 public class BaseDao {
+
+    /**
+     * IN 批量查询每段的最大参数个数
+     */
+    protected static final int IN_CHUNK_SIZE = 500;
+
+    @Autowired
+    private JdbcExecutor jdbcExecutor;
+
+    /**
+     * 经由 JDBC 执行器执行数据库调用
+     * <p>
+     * 未注入执行器时 (直接 new 出来的 DAO，如单元测试) 在当前线程执行
+     *
+     * @param callable 数据库调用
+     * @param <T>      返回值类型
+     * @return 结果
+     * @throws SQLException 抛出数据库异常
+     */
+    protected <T> T jdbc(JdbcExecutor.SqlCallable<T> callable) throws SQLException {
+        JdbcExecutor executor = jdbcExecutor;
+        return executor == null ? callable.call() : executor.call(callable);
+    }
+
     // ==================== 基础元数据查询 ====================
 
     /**
@@ -38,7 +66,7 @@ public class BaseDao {
      */
     protected boolean checkProcedureExists(Db db, String databaseName, String routineName) throws SQLException {
         String sql = "SELECT COUNT(*) FROM information_schema.ROUTINES WHERE ROUTINE_TYPE='PROCEDURE' AND ROUTINE_NAME= ? AND ROUTINE_SCHEMA= ?";
-        Number count = db.queryNumber(sql, routineName, databaseName);
+        Number count = jdbc(() -> db.queryNumber(sql, routineName, databaseName));
         return count != null && count.intValue() > 0;
     }
 
@@ -53,7 +81,7 @@ public class BaseDao {
      */
     protected boolean checkTableExists(Db db, String databaseName, String tableName) throws SQLException {
         String sql = "SELECT count(table_name) FROM information_schema.tables WHERE table_schema = ? and table_name = ?";
-        Number count = db.queryNumber(sql, databaseName, tableName);
+        Number count = jdbc(() -> db.queryNumber(sql, databaseName, tableName));
         return count != null && count.intValue() > 0;
     }
 
@@ -68,7 +96,7 @@ public class BaseDao {
      * @return 数据对象
      */
     protected Entity select(Db db, String tableName, Entity where) throws SQLException {
-        List<Entity> list = db.find(where.setTableName(tableName));
+        List<Entity> list = jdbc(() -> db.find(where.setTableName(tableName)));
         return list.isEmpty() ? null : list.getFirst();
     }
 
@@ -84,7 +112,7 @@ public class BaseDao {
      * @throws SQLException 抛出数据库异常
      */
     protected Entity select(Db db, String sql, Object... params) throws SQLException {
-        Entity entity = db.queryOne(sql, params);
+        Entity entity = jdbc(() -> db.queryOne(sql, params));
         return (entity == null || entity.isEmpty()) ? null : entity;
     }
 
@@ -102,11 +130,8 @@ public class BaseDao {
      * @throws SQLException 抛出数据库异常
      */
     protected <T> T selectBean(Db db, String sql, Class<T> clazz, Object... params) throws SQLException {
-        Entity entity = db.queryOne(sql, params);
-        if (entity == null || entity.isEmpty()) {
-            return null;
-        }
-        return entity.toBean(clazz);
+        // 结果集直接映射为对象，不经过 Entity
+        return jdbc(() -> db.query(sql, BeanRowMapper.of(clazz)::mapFirst, params));
     }
 
     /**
@@ -132,7 +157,7 @@ public class BaseDao {
      * @return 数据对象集合
      */
     protected List<Entity> selectList(Db db, String tableName, Entity where) throws SQLException {
-        List<Entity> entityList = db.find(where.setTableName(tableName));
+        List<Entity> entityList = jdbc(() -> db.find(where.setTableName(tableName)));
         if (entityList == null) {
             return Collections.emptyList();
         }
@@ -153,7 +178,7 @@ public class BaseDao {
      * @return 数据对象集合
      */
     protected List<Entity> selectList(Db db, String tableName, Condition... wheres) throws SQLException {
-        List<Entity> entityList = db.findBy(tableName, wheres);
+        List<Entity> entityList = jdbc(() -> db.findBy(tableName, wheres));
         if (entityList == null) {
             return Collections.emptyList();
         }
@@ -172,10 +197,40 @@ public class BaseDao {
      * @param params 参数值 (按顺序对应 ?)
      */
     protected List<Entity> queryList(Db db, String sql, Object... params) throws SQLException {
-        List<Entity> list = db.query(sql, params);
+        List<Entity> list = jdbc(() -> db.query(sql, params));
         return CollUtil.defaultIfEmpty(list, Collections.emptyList());
     }
 
+    /**
+     * 通用 IN 批量查询方法
+     * <p>
+     * 按 {@link #IN_CHUNK_SIZE} 分段生成 IN 列表，每段一次查询，合并返回
+     * <p>
+     * SQL示例： select agv_id, agv_control from rcs_agv where agv_id in
+     *
+     * @param db        数据库连接
+     * @param sqlPrefix 以 in 结尾的SQL字符串，占位符列表由本方法追加
+     * @param values    IN 列表的值
+     * @return 结果集合
+     * @throws SQLException 抛出数据库异常
+     */
+    protected List<Entity> queryListIn(Db db, String sqlPrefix, Collection<?> values) throws SQLException {
+        if (CollUtil.isEmpty(values)) {
+            return Collections.emptyList();
+        }
+        List<Object> params = new ArrayList<>(values);
+        return jdbc(() -> {
+            List<Entity> result = new ArrayList<>(params.size());
+            for (int from = 0; from < params.size(); from += IN_CHUNK_SIZE) {
+                List<Object> chunk = params.subList(from, Math.min(from + IN_CHUNK_SIZE, params.size()));
+                StringJoiner placeholders = new StringJoiner(", ", " (", ")");
+                chunk.forEach(value -> placeholders.add("?"));
+                result.addAll(db.query(sqlPrefix + placeholders, chunk.toArray()));
+            }
+            return result;
+        });
+    }
+
     /**
      * 通用自定SQL查询方法 (增强版：支持直接返回 Bean List)
      * <p>
@@ -190,11 +245,9 @@ public class BaseDao {
      * @throws SQLException 抛出数据库异常
      */
     protected <T> List<T> queryListBean(Db db, String sql, Class<T> clazz, Object... params) throws SQLException {
-        List<Entity> entities = db.query(sql, params);
-        if (CollUtil.isEmpty(entities)) {
-            return Collections.emptyList();
-        }
-        return entities.stream().map(e -> e.toBean(clazz)).toList();
+        // 结果集直接映射为对象，不经过 Entity
+        List<T> list = jdbc(() -> db.query(sql, BeanRowMapper.of(clazz)::mapAll, params));
+        return CollUtil.defaultIfEmpty(list, Collections.emptyList());
     }
 
     /**
@@ -209,10 +262,10 @@ public class BaseDao {
      * @throws SQLException 抛出数据库异常
      */
     protected PageResult<Entity> selectListPage(Db db, String tableName, int pageNum, int pageSize, Entity where) throws SQLException {
-        return db.page(
+        return jdbc(() -> db.page(
                 where.setTableName(tableName),
                 new Page(pageNum, pageSize)
-        );
+        ));
     }
 
     /**
@@ -230,10 +283,10 @@ public class BaseDao {
      */
     protected <T> PageResult<T> selectPageBean(Db db, String tableName, int pageNum, int pageSize, Entity where, Class<T> clazz) throws SQLException {
         // 1. 获取 Entity 分页数据
-        PageResult<Entity> entityPage = db.page(
+        PageResult<Entity> entityPage = jdbc(() -> db.page(
                 where.setTableName(tableName),
                 new Page(pageNum, pageSize)
-        );
+        ));
 
         // 2. 转换数据
         List<T> beanList = entityPage.stream()
@@ -258,7 +311,7 @@ public class BaseDao {
      * @throws SQLException 抛出数据库异常
      */
     protected long count(Db db, String tableName, Entity where) throws SQLException {
-        return db.count(where.setTableName(tableName));
+        return jdbc(() -> db.count(where.setTableName(tableName)));
     }
 
     /**
@@ -272,10 +325,10 @@ public class BaseDao {
      * @throws SQLException 抛出数据库异常
      */
     protected int update(Db db, String tableName, Entity body, Entity where) throws SQLException {
-        return db.update(
+        return jdbc(() -> db.update(
                 body,
                 where.setTableName(tableName)
-        );
+        ));
     }
 
     /**
@@ -288,9 +341,9 @@ public class BaseDao {
      * @throws SQLException 抛出数据库异常
      */
     protected int delete(Db db, String tableName, Entity where) throws SQLException {
-        return db.del(
+        return jdbc(() -> db.del(
                 where.setTableName(tableName)
-        );
+        ));
     }
 
     /**
@@ -303,7 +356,7 @@ public class BaseDao {
      * @throws SQLException 抛出数据库异常
      */
     protected int insert(Db db, String tableName, Entity body) throws SQLException {
-        return db.insert(body.setTableName(tableName));
+        return jdbc(() -> db.insert(body.setTableName(tableName)));
     }
 
     /**
@@ -323,7 +376,7 @@ public class BaseDao {
         for (Entity entity : list) {
             entity.setTableName(tableName);
         }
-        return db.insert(list);
+        return jdbc(() -> db.insert(list));
     }
 
     /**
@@ -336,7 +389,7 @@ public class BaseDao {
      * @throws SQLException 抛出数据库异常
      */
     protected Integer insertForPrimaryKey(Db db, String tableName, Entity body) throws SQLException {
-        return db.insertForGeneratedKey(body.setTableName(tableName)).intValue();
+        return jdbc(() -> db.insertForGeneratedKey(body.setTableName(tableName))).intValue();
     }
 
     /**
@@ -350,7 +403,20 @@ public class BaseDao {
      * @throws SQLException 抛出数据库异常
      */
     protected int execute(Db db, String sql) throws SQLException {
-        return db.execute(sql);
+        return jdbc(() -> db.execute(sql));
+    }
+
+    /**
+     * 批量执行同一条 SQL
+     *
+     * @param db     数据库连接
+     * @param sql    SQL字符串
+     * @param params 每次执行的参数
+     * @return 每次执行的受影响行数
+     * @throws SQLException 抛出数据库异常
+     */
+    protected int[] executeBatch(Db db, String sql, List<Object[]> params) throws SQLException {
+        return jdbc(() -> db.executeBatch(sql, params));
     }
 
     /**
@@ -362,11 +428,16 @@ public class BaseDao {
      * 2. **严禁**在 func 内部开启新线程（如 VthreadPool.execute），否则事务失效！
      * <p>
      * 3. 必须在 func 内部调用 CommonDB 的方法或使用同一个 DataSource。
+     * <p>
+     * 整个事务在 JDBC 执行器的同一个线程内执行，func 内部的数据库调用直接在该线程执行，仍使用事务绑定的连接。
      *
      * @param db   数据库连接
      * @param func 事务逻辑
      */
     protected void tx(Db db, VoidFunc1<Db> func) throws SQLException {
-        db.tx(func);
+        jdbc(() -> {
+            db.tx(func);
+            return null;
+        });
     }
 }
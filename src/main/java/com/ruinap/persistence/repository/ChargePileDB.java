@@ -8,6 +8,7 @@ import com.ruinap.infra.log.RcsLog;
 import com.ruinap.persistence.factory.RcsDSFactory;
 
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -71,6 +72,17 @@ public class ChargePileDB extends BaseDao {
         return select(factory.db, TABLE_NAME, where);
     }
 
+    /**
+     * 批量查询充电桩的人工维护字段
+     *
+     * @param codes 充电桩编号集合
+     * @return code、state、idle_state、isolation_state、match_type
+     * @throws SQLException
+     */
+    public List<Entity> selectChargePileSyncList(Collection<String> codes) throws SQLException {
+        return queryListIn(factory.db, "select code,state,idle_state,isolation_state,match_type from " + TABLE_NAME + " where code in", codes);
+    }
+
     /**
      * 查询充电桩列表
      *
@@ -1,5 +1,6 @@
 package com.ruinap.persistence.repository;
 
+import cn.hutool.db.Db;
 import cn.hutool.db.Entity;
 import com.ruinap.infra.framework.annotation.Autowired;
 import com.ruinap.infra.framework.annotation.Service;
@@ -114,16 +115,22 @@ public class ConfigDB extends BaseDao {
      * @throws SQLException
      */
     private String getStoredConfigValue(String configKey, String prefix) throws SQLException {
-        Connection conn = factory.db.getConnection();
-        CallableStatement cstmt = conn.prepareCall("{call " + PROCEDURE_GETCONFIGVALUE + "(?, ?, ?, ?)}");
-
-        cstmt.setString(1, configKey);
-        cstmt.setInt(2, 10);
-        cstmt.setString(3, prefix);
-        cstmt.registerOutParameter(4, Types.VARCHAR);
-        cstmt.execute();
-
-        return cstmt.getString(4);
+        Db db = factory.db;
+        return jdbc(() -> {
+            Connection conn = db.getConnection();
+            try (CallableStatement cstmt = conn.prepareCall("{call " + PROCEDURE_GETCONFIGVALUE + "(?, ?, ?, ?)}")) {
+                cstmt.setString(1, configKey);
+                cstmt.setInt(2, 10);
+                cstmt.setString(3, prefix);
+                cstmt.registerOutParameter(4, Types.VARCHAR);
+                cstmt.execute();
+
+                return cstmt.getString(4);
+            } finally {
+                // 归还连接 (事务中不关闭)
+                db.closeConnection(conn);
+            }
+        });
     }
 
     /**
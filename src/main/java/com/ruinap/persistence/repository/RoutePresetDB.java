@@ -0,0 +1,72 @@
+package com.ruinap.persistence.repository;
+
+import cn.hutool.core.util.StrUtil;
+import com.ruinap.core.task.domain.RoutePresetLeg;
+import com.ruinap.infra.framework.annotation.Autowired;
+import com.ruinap.infra.framework.annotation.Service;
+import com.ruinap.persistence.factory.RcsDSFactory;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * 线路预设数据库
+ *
+ * @author qianye
+ * @create 2026-03-12 14:20
+ */
+@Service
+public class RoutePresetDB extends BaseDao {
+
+    @Autowired
+    private RcsDSFactory factory;
+
+    /**
+     * 表名称
+     */
+    public String TABLE_NAME = "rcs_route_preset";
+
+    /**
+     * 明细表名称
+     */
+    public String DETAIL_TABLE_NAME = "rcs_route_preset_detail";
+
+    /**
+     * 连表查询所有开启的线路及其开启的明细，一次往返取回全部线路段
+     */
+    private static final String SELECT_ENABLED_LEGS_SQL = """
+            SELECT p.code AS route_code, p.type AS route_type, p.origin AS route_origin, p.destin AS route_destin, p.`rank` AS route_rank,
+                   d.code, d.name, d.`rank`, d.origin_floor, d.origin_area, d.origin, d.destin_floor, d.destin_area, d.destin,
+                   d.equipment_type, d.executive_system, d.finally_task, d.is_control, d.task_control
+            FROM {} p
+            JOIN {} d ON d.route_code = p.code
+            WHERE p.state = 0
+              AND d.state = 0
+            ORDER BY p.`rank` ASC, p.code ASC, d.`rank` ASC, d.id ASC
+            """;
+
+    private final String cachedEnabledLegsSql = StrUtil.format(SELECT_ENABLED_LEGS_SQL, TABLE_NAME, DETAIL_TABLE_NAME);
+
+    /**
+     * 检测表是否存在
+     *
+     * @return true:存在 false:不存在
+     * @throws SQLException
+     */
+    public boolean checkTableExists() throws SQLException {
+        return checkTableExists(factory.db, factory.dbSetting.getDatabaseName(), TABLE_NAME)
+                && checkTableExists(factory.db, factory.dbSetting.getDatabaseName(), DETAIL_TABLE_NAME);
+    }
+
+    /**
+     * 查询所有开启的线路段
+     * <p>
+     * 按线路顺序、线路编码、明细顺序排列
+     *
+     * @return 线路段列表
+     * @throws SQLException
+     */
+    public List<RoutePresetLeg> selectEnabledLegs() throws SQLException {
+        return queryListBean(factory.db, cachedEnabledLegsSql, RoutePresetLeg.class);
+    }
+}
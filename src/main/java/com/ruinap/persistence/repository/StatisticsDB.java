@@ -7,7 +7,9 @@ import com.ruinap.infra.framework.annotation.Service;
 import com.ruinap.persistence.factory.RcsDSFactory;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.StringJoiner;
 
 /**
  * 统计数据库
@@ -46,6 +48,44 @@ public class StatisticsDB extends BaseDao {
         return insert(factory.db, TABLE_NAME, body);
     }
 
+    /**
+     * 批量写入周期统计
+     * <p>
+     * 同一周期 (period_type + begin，唯一键) 已存在时覆盖统计值，写入失败重试时不会产生重复的统计行。
+     * 每行的列必须相同
+     *
+     * @param list 统计行列表
+     * @return 每条写入的受影响行数
+     * @throws SQLException
+     */
+    public int[] saveStatisticsBatch(List<Entity> list) throws SQLException {
+        if (list.isEmpty()) {
+            return new int[0];
+        }
+        List<String> columns = new ArrayList<>(list.getFirst().keySet());
+        StringJoiner names = new StringJoiner(", ");
+        StringJoiner values = new StringJoiner(", ");
+        StringJoiner updates = new StringJoiner(", ");
+        for (String column : columns) {
+            names.add("`" + column + "`");
+            values.add("?");
+            if (!"period_type".equals(column) && !"begin".equals(column)) {
+                updates.add("`" + column + "` = VALUES(`" + column + "`)");
+            }
+        }
+        String sql = "INSERT INTO `" + TABLE_NAME + "` (" + names + ") VALUES (" + values + ") ON DUPLICATE KEY UPDATE " + updates;
+
+        List<Object[]> params = new ArrayList<>(list.size());
+        for (Entity row : list) {
+            Object[] param = new Object[columns.size()];
+            for (int i = 0; i < columns.size(); i++) {
+                param[i] = row.get(columns.get(i));
+            }
+            params.add(param);
+        }
+        return executeBatch(factory.db, sql, params);
+    }
+
     /**
      * 修改统计
      *
@@ -5,11 +5,10 @@ import cn.hutool.db.Entity;
 import cn.hutool.db.sql.Condition;
 import com.ruinap.infra.framework.annotation.Autowired;
 import com.ruinap.infra.framework.annotation.Service;
-import com.ruinap.infra.log.RcsLog;
 import com.ruinap.persistence.factory.RcsDSFactory;
 
 import java.sql.SQLException;
-import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -51,6 +50,25 @@ public class TaskAgvDB extends BaseDao {
      */
     private final String cachedGroupSql = StrUtil.format(SELECT_GROUP_SQL, TABLE_NAME);
 
+    /**
+     * 增量查询：最后更新时间不早于水位线的任务 (依赖 idx_update_time 索引)
+     */
+    private static final String SELECT_CHANGED_SQL = """
+            SELECT id, task_group, task_code, task_type, is_control, task_control, equipment_type, equipment_label, equipment_code, pallet_type, origin_floor, origin_area, origin, destin_floor, destin_area, destin, task_priority, priority_time, task_rank, task_state, send_state, interrupt_state, executive_system, create_time, start_time, finish_time, update_time, finally_task, task_source, remark, task_duration
+            FROM {}
+            WHERE update_time >= ?
+            ORDER BY update_time ASC, id ASC
+            """;
+
+    private final String cachedChangedSql = StrUtil.format(SELECT_CHANGED_SQL, TABLE_NAME);
+
+    /**
+     * 查询当前最大更新时间 (作为全量加载时的水位线)
+     */
+    private static final String SELECT_MAX_UPDATE_TIME_SQL = "SELECT MAX(update_time) AS max_update_time FROM {}";
+
+    private final String cachedMaxUpdateTimeSql = StrUtil.format(SELECT_MAX_UPDATE_TIME_SQL, TABLE_NAME);
+
     /**
      * 检测表是否存在
      *
@@ -127,16 +145,35 @@ public class TaskAgvDB extends BaseDao {
 
     /**
      * 查询分组任务列表
+     * <p>
+     * 查询失败时抛出异常，不能返回空列表：调用方会把空列表当作没有待分发任务，清空任务视图
      *
      * @return 任务列表
+     * @throws SQLException
      */
-    public List<Entity> selectTaskGroupList() {
-        try {
-            return queryList(factory.db, cachedGroupSql, 0, 0, 0);
-        } catch (SQLException e) {
-            // 捕获异常并记录日志
-            RcsLog.sysLog.error(e);
-            return new ArrayList<>(0);
-        }
+    public List<Entity> selectTaskGroupList() throws SQLException {
+        return queryList(factory.db, cachedGroupSql, 0, 0, 0);
+    }
+
+    /**
+     * 查询水位线之后变更的任务
+     *
+     * @param since 水位线 (包含)
+     * @return 变更的任务列表，按更新时间升序
+     * @throws SQLException
+     */
+    public List<Entity> selectTaskChangedSince(Date since) throws SQLException {
+        return queryList(factory.db, cachedChangedSql, since);
+    }
+
+    /**
+     * 查询任务表当前最大更新时间
+     *
+     * @return 最大更新时间，空表返回null
+     * @throws SQLException
+     */
+    public Date selectMaxUpdateTime() throws SQLException {
+        List<Entity> list = queryList(factory.db, cachedMaxUpdateTimeSql);
+        return list.isEmpty() ? null : list.getFirst().getDate("max_update_time");
     }
 }
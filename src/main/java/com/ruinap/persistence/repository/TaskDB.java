@@ -10,6 +10,8 @@ import com.ruinap.persistence.factory.RcsDSFactory;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -51,6 +53,38 @@ public class TaskDB extends BaseDao {
      */
     private final String cachedGroupSql = StrUtil.format(SELECT_GROUP_SQL, TABLE_NAME);
 
+    /**
+     * 增量查询：最后更新时间不早于水位线的任务 (依赖 idx_update_time 索引)
+     */
+    private static final String SELECT_CHANGED_SQL = """
+            SELECT id, task_group, task_code, task_type, is_control, task_control, equipment_type, equipment_label, equipment_code, pallet_type, origin_floor, origin_area, origin, destin_floor, destin_area, destin, task_priority, priority_time, task_rank, task_state, send_state, interrupt_state, executive_system, create_time, start_time, finish_time, update_time, finally_task, task_source, remark, task_duration
+            FROM {}
+            WHERE update_time >= ?
+            ORDER BY update_time ASC, id ASC
+            """;
+
+    private final String cachedChangedSql = StrUtil.format(SELECT_CHANGED_SQL, TABLE_NAME);
+
+    /**
+     * 查询当前最大更新时间 (作为全量加载时的水位线)
+     */
+    private static final String SELECT_MAX_UPDATE_TIME_SQL = "SELECT MAX(update_time) AS max_update_time FROM {}";
+
+    private final String cachedMaxUpdateTimeSql = StrUtil.format(SELECT_MAX_UPDATE_TIME_SQL, TABLE_NAME);
+
+    /**
+     * 按起点与小时统计任务数量 (用于学习起点需求率)
+     */
+    private static final String SELECT_ORIGIN_DEMAND_SQL = """
+            SELECT origin, HOUR(create_time) AS hour_of_day, COUNT(*) AS total
+            FROM {}
+            WHERE task_type = ?
+              AND create_time >= ?
+            GROUP BY origin, HOUR(create_time)
+            """;
+
+    private final String cachedOriginDemandSql = StrUtil.format(SELECT_ORIGIN_DEMAND_SQL, TABLE_NAME);
+
     /**
      * 检测表是否存在
      *
@@ -103,6 +137,17 @@ public class TaskDB extends BaseDao {
         return select(factory.db, TABLE_NAME, where);
     }
 
+    /**
+     * 批量查询任务的中断状态
+     *
+     * @param taskCodes 任务编号集合
+     * @return task_code、interrupt_state
+     * @throws SQLException
+     */
+    public List<Entity> selectTaskInterruptList(Collection<String> taskCodes) throws SQLException {
+        return queryListIn(factory.db, "select task_code,interrupt_state from " + TABLE_NAME + " where task_code in", taskCodes);
+    }
+
     /**
      * 查询任务列表
      *
@@ -127,12 +172,48 @@ public class TaskDB extends BaseDao {
 
     /**
      * 查询分组任务列表
+     * <p>
+     * 查询失败时抛出异常，不能返回空列表：调用方会把空列表当作没有待分发任务，清空任务视图
      *
      * @return 任务列表
+     * @throws SQLException
+     */
+    public List<Entity> selectTaskGroupList() throws SQLException {
+        return queryList(factory.db, cachedGroupSql, 0, 0, 0);
+    }
+
+    /**
+     * 查询水位线之后变更的任务
+     *
+     * @param since 水位线 (包含)
+     * @return 变更的任务列表，按更新时间升序
+     * @throws SQLException
+     */
+    public List<Entity> selectTaskChangedSince(Date since) throws SQLException {
+        return queryList(factory.db, cachedChangedSql, since);
+    }
+
+    /**
+     * 查询任务表当前最大更新时间
+     *
+     * @return 最大更新时间，空表返回null
+     * @throws SQLException
+     */
+    public Date selectMaxUpdateTime() throws SQLException {
+        List<Entity> list = queryList(factory.db, cachedMaxUpdateTimeSql);
+        return list.isEmpty() ? null : list.getFirst().getDate("max_update_time");
+    }
+
+    /**
+     * 按起点与小时统计任务数量
+     *
+     * @param taskType 任务类型
+     * @param since    统计起始时间
+     * @return 统计列表 (origin, hour_of_day, total)
      */
-    public List<Entity> selectTaskGroupList() {
+    public List<Entity> selectOriginDemand(Integer taskType, Date since) {
         try {
-            return queryList(factory.db, cachedGroupSql, 0, 0, 0);
+            return queryList(factory.db, cachedOriginDemandSql, taskType, since);
         } catch (SQLException e) {
             // 捕获异常并记录日志
             RcsLog.sysLog.error(e);
@@ -0,0 +1,111 @@
+package com.ruinap.persistence.telemetry;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 遥测数据块列式编码
+ * <p>
+ * 一个数据块内按列连续存放：先是时间列，再依次是各个数值列。每列记录首个值与之后的差值，
+ * 差值经 ZigZag 转为非负数后按变长整数 (varint) 写入。相邻上报之间大多数字段不变或变化很小，
+ * 一个采样通常只占十几个字节。
+ * </p>
+ * 格式：[varint 行数][时间列][列 0]...[列 8]
+ *
+ * @author qianye
+ * @create 2026-03-20 09:50
+ */
+public final class TelemetryChunk {
+
+    private TelemetryChunk() {
+    }
+
+    /**
+     * 编码
+     *
+     * @param samples 采样，按时间排序
+     * @return 编码结果
+     */
+    public static byte[] encode(List<TelemetrySample> samples) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + samples.size() * 16);
+        writeVarLong(out, samples.size());
+        long lastTime = 0;
+        for (TelemetrySample sample : samples) {
+            writeVarLong(out, zigZag(sample.timeMs() - lastTime));
+            lastTime = sample.timeMs();
+        }
+        for (int column = 0; column < TelemetrySample.COLUMNS; column++) {
+            long last = 0;
+            for (TelemetrySample sample : samples) {
+                long value = sample.column(column);
+                writeVarLong(out, zigZag(value - last));
+                last = value;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 解码
+     *
+     * @param payload 编码结果
+     * @return 采样
+     */
+    public static List<TelemetrySample> decode(ByteBuffer payload) {
+        ByteBuffer in = payload.duplicate();
+        int count = (int) readVarLong(in);
+        long[] times = new long[count];
+        long time = 0;
+        for (int i = 0; i < count; i++) {
+            time += unZigZag(readVarLong(in));
+            times[i] = time;
+        }
+        int[][] columns = new int[TelemetrySample.COLUMNS][count];
+        for (int column = 0; column < TelemetrySample.COLUMNS; column++) {
+            long value = 0;
+            for (int i = 0; i < count; i++) {
+                value += unZigZag(readVarLong(in));
+                columns[column][i] = (int) value;
+            }
+        }
+        List<TelemetrySample> samples = new ArrayList<>(count);
+        int[] row = new int[TelemetrySample.COLUMNS];
+        for (int i = 0; i < count; i++) {
+            for (int column = 0; column < TelemetrySample.COLUMNS; column++) {
+                row[column] = columns[column][i];
+            }
+            samples.add(TelemetrySample.of(times[i], row));
+        }
+        return samples;
+    }
+
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("varint 过长");
+    }
+}
@@ -0,0 +1,61 @@
+package com.ruinap.persistence.telemetry;
+
+/**
+ * AGV 遥测采样
+ * <p>
+ * 降采样后的数据行：时间为时间桶的开始时间，速度与异常取桶内最大值，其余取桶内最后一次上报的值。
+ * 上报中缺失的字段记为 {@link #UNKNOWN}。
+ * </p>
+ *
+ * @param timeMs  时间戳 (毫秒)
+ * @param mapId   地图编号
+ * @param pointId 点位编号
+ * @param x       SLAM X 坐标 (毫米)
+ * @param y       SLAM Y 坐标 (毫米)
+ * @param angle   SLAM 角度
+ * @param battery 电量 (百分比)
+ * @param speed   线速度 (毫米/秒)
+ * @param state   AGV状态
+ * @param error   异常状态 0正常 1急停 2故障 3急停且故障
+ * @author qianye
+ * @create 2026-03-20 09:30
+ */
+public record TelemetrySample(long timeMs, int mapId, int pointId, int x, int y, int angle,
+                              int battery, int speed, int state, int error) {
+
+    /**
+     * 未知值
+     */
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    /**
+     * 列数 (不含时间)
+     */
+    static final int COLUMNS = 9;
+
+    /**
+     * 按列序号读取
+     */
+    int column(int index) {
+        return switch (index) {
+            case 0 -> mapId;
+            case 1 -> pointId;
+            case 2 -> x;
+            case 3 -> y;
+            case 4 -> angle;
+            case 5 -> battery;
+            case 6 -> speed;
+            case 7 -> state;
+            case 8 -> error;
+            default -> throw new IndexOutOfBoundsException(index);
+        };
+    }
+
+    /**
+     * 按列值构造
+     */
+    static TelemetrySample of(long timeMs, int[] columns) {
+        return new TelemetrySample(timeMs, columns[0], columns[1], columns[2], columns[3], columns[4],
+                columns[5], columns[6], columns[7], columns[8]);
+    }
+}
@@ -0,0 +1,545 @@
+package com.ruinap.persistence.telemetry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32C;
+
+/**
+ * 嵌入式 AGV 遥测时序存储
+ * <p>
+ * 每台 AGV 一个序列，按分层、按时间跨度分文件，文件只追加：
+ * <ul>
+ * <li>写入：上报线程只写内存 (原始层追加一行，同时累计 1 秒、1 分钟时间桶)，不做任何 IO；</li>
+ * <li>落盘：定时调用 {@link #flush(long)}，结束已过期的时间桶，把写满或超过保留时间的数据块列式编码后追加到文件；</li>
+ * <li>文件中每个数据块为一帧：[长度][CRC32C][最小时间][最大时间][数据块]，查询时按时间范围跳过无关的块，残帧之后的内容忽略；</li>
+ * <li>查询：合并文件中的数据块与内存中尚未落盘的数据；</li>
+ * <li>保留：{@link #purge(long, Map)} 按分层删除整个过期文件。</li>
+ * </ul>
+ * 进程崩溃时最多丢失各层一个数据块保留时间内的数据。
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-20 10:10
+ */
+public class TelemetryStore {
+
+    /**
+     * 帧头长度：长度 + 校验 + 最小时间 + 最大时间
+     */
+    private static final int FRAME_HEADER_BYTES = 24;
+    /**
+     * 单个数据块最大行数
+     */
+    private static final int MAX_CHUNK_ROWS = 1024;
+    /**
+     * 写入失败时每个序列最多保留的数据块数量
+     */
+    private static final int MAX_SEALED_CHUNKS = 256;
+    /**
+     * 文件后缀
+     */
+    private static final String FILE_SUFFIX = ".tsc";
+
+    private final Path root;
+    private final Map<String, Series> seriesMap = new ConcurrentHashMap<>();
+    /**
+     * 本进程已检查过末尾残帧的文件
+     */
+    private final Set<Path> checkedFiles = ConcurrentHashMap.newKeySet();
+    private final LongAdder writtenRows = new LongAdder();
+    private final LongAdder writtenBytes = new LongAdder();
+    private final LongAdder droppedChunks = new LongAdder();
+
+    /**
+     * 构造方法
+     *
+     * @param root 存储目录
+     */
+    public TelemetryStore(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * 写入一条原始采样
+     * <p>
+     * 只写内存，不阻塞上报线程
+     *
+     * @param agvId  AGV编号
+     * @param sample 采样
+     */
+    public void append(String agvId, TelemetrySample sample) {
+        Series series = seriesMap.computeIfAbsent(agvId, Series::new);
+        series.lock.lock();
+        try {
+            series.append(sample);
+        } finally {
+            series.lock.unlock();
+        }
+    }
+
+    /**
+     * 落盘
+     * <p>
+     * 结束已过期的时间桶，把写满或超过保留时间的数据块写入文件。某个序列写入失败时，
+     * 其余序列照常写入，失败的数据块留在内存中下次重试。
+     *
+     * @param nowMs 当前时间
+     * @return 写入的数据块数量
+     * @throws IOException 任意序列写入失败
+     */
+    public int flush(long nowMs) throws IOException {
+        int written = 0;
+        IOException failure = null;
+        for (Series series : seriesMap.values()) {
+            try {
+                written += series.flush(nowMs);
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return written;
+    }
+
+    /**
+     * 范围查询
+     *
+     * @param agvId  AGV编号
+     * @param tier   分层
+     * @param fromMs 开始时间 (包含)
+     * @param toMs   结束时间 (不包含)
+     * @return 按时间排序的采样
+     * @throws IOException 读取失败
+     */
+    public List<TelemetrySample> query(String agvId, TelemetryTier tier, long fromMs, long toMs) throws IOException {
+        List<TelemetrySample> result = new ArrayList<>();
+        if (fromMs >= toMs) {
+            return result;
+        }
+        Series series = seriesMap.get(agvId);
+        if (series != null) {
+            series.io.readLock().lock();
+        }
+        try {
+            for (Path file : listFiles(tier, agvId, fromMs, toMs)) {
+                readFile(file, fromMs, toMs, result);
+            }
+            if (series != null) {
+                series.lock.lock();
+                try {
+                    series.collect(tier, fromMs, toMs, result);
+                } finally {
+                    series.lock.unlock();
+                }
+            }
+        } finally {
+            if (series != null) {
+                series.io.readLock().unlock();
+            }
+        }
+        result.sort(Comparator.comparingLong(TelemetrySample::timeMs));
+        return result;
+    }
+
+    /**
+     * 删除过期文件
+     *
+     * @param nowMs       当前时间
+     * @param retentionMs 每个分层的保留时长 (毫秒)，未配置的分层不删除
+     * @return 删除的文件数量
+     * @throws IOException 删除失败
+     */
+    public int purge(long nowMs, Map<TelemetryTier, Long> retentionMs) throws IOException {
+        int deleted = 0;
+        for (Map.Entry<TelemetryTier, Long> entry : retentionMs.entrySet()) {
+            TelemetryTier tier = entry.getKey();
+            long expireBefore = nowMs - entry.getValue();
+            Path tierDir = root.resolve(tier.dir);
+            if (!Files.isDirectory(tierDir)) {
+                continue;
+            }
+            try (DirectoryStream<Path> agvDirs = Files.newDirectoryStream(tierDir, Files::isDirectory)) {
+                for (Path agvDir : agvDirs) {
+                    try (DirectoryStream<Path> files = Files.newDirectoryStream(agvDir, "*" + FILE_SUFFIX)) {
+                        for (Path file : files) {
+                            Long start = fileStart(file);
+                            if (start != null && start + tier.fileSpanMs <= expireBefore) {
+                                Files.deleteIfExists(file);
+                                checkedFiles.remove(file);
+                                deleted++;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * 获取累计写入文件的行数
+     */
+    public long getWrittenRows() {
+        return writtenRows.sum();
+    }
+
+    /**
+     * 获取累计写入文件的字节数
+     */
+    public long getWrittenBytes() {
+        return writtenBytes.sum();
+    }
+
+    /**
+     * 获取写入失败时丢弃的数据块数量
+     */
+    public long getDroppedChunks() {
+        return droppedChunks.sum();
+    }
+
+    /**
+     * 列出与时间范围有交集的文件
+     */
+    private List<Path> listFiles(TelemetryTier tier, String agvId, long fromMs, long toMs) throws IOException {
+        Path dir = seriesDir(tier, agvId);
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + FILE_SUFFIX)) {
+            for (Path file : stream) {
+                Long start = fileStart(file);
+                if (start != null && start < toMs && start + tier.fileSpanMs > fromMs) {
+                    files.put(start, file);
+                }
+            }
+        }
+        return new ArrayList<>(files.values());
+    }
+
+    /**
+     * 读取文件中与时间范围有交集的数据块
+     */
+    private static void readFile(Path file, long fromMs, long toMs, List<TelemetrySample> result) throws IOException {
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        } catch (NoSuchFileException e) {
+            // 查询期间被过期删除
+            return;
+        }
+        int frameStart = buffer.position();
+        ByteBuffer payload;
+        while ((payload = nextFrame(buffer)) != null) {
+            long minTime = buffer.getLong(frameStart + 8);
+            long maxTime = buffer.getLong(frameStart + 16);
+            frameStart = buffer.position();
+            if (maxTime < fromMs || minTime >= toMs) {
+                continue;
+            }
+            for (TelemetrySample sample : TelemetryChunk.decode(payload)) {
+                if (sample.timeMs() >= fromMs && sample.timeMs() < toMs) {
+                    result.add(sample);
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取下一帧
+     *
+     * @return 帧内容，帧不完整或校验失败时返回 null 且不移动位置
+     */
+    private static ByteBuffer nextFrame(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < FRAME_HEADER_BYTES) {
+            return null;
+        }
+        int length = buffer.getInt();
+        int crc = buffer.getInt();
+        buffer.position(start + FRAME_HEADER_BYTES);
+        if (length <= 0 || buffer.remaining() < length || checksum(buffer.array(), buffer.position(), length) != crc) {
+            buffer.position(start);
+            return null;
+        }
+        ByteBuffer payload = buffer.slice(buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        return payload;
+    }
+
+    /**
+     * 追加数据块到文件
+     */
+    private void writeChunk(String agvId, Chunk chunk) throws IOException {
+        Path dir = seriesDir(chunk.tier(), agvId);
+        Path file = dir.resolve(chunk.fileStart() + FILE_SUFFIX);
+        Files.createDirectories(dir);
+        if (checkedFiles.add(file)) {
+            truncateTornTail(file);
+        }
+        byte[] payload = TelemetryChunk.encode(chunk.rows());
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_BYTES + payload.length);
+        frame.putInt(payload.length)
+                .putInt(checksum(payload, 0, payload.length))
+                .putLong(chunk.rows().getFirst().timeMs())
+                .putLong(chunk.rows().getLast().timeMs())
+                .put(payload)
+                .flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+        }
+        writtenRows.add(chunk.rows().size());
+        writtenBytes.add(frame.limit());
+    }
+
+    /**
+     * 截断上次崩溃留下的残帧，保证之后追加的数据块可读
+     */
+    private static void truncateTornTail(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        while (nextFrame(buffer) != null) {
+            // 跳过完整的帧
+        }
+        if (buffer.position() < buffer.limit()) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(buffer.position());
+            }
+        }
+    }
+
+    private Path seriesDir(TelemetryTier tier, String agvId) {
+        return root.resolve(tier.dir).resolve(agvId.replaceAll("[^A-Za-z0-9_.-]", "_"));
+    }
+
+    private static Long fileStart(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * 待写入文件的数据块
+     *
+     * @param tier      分层
+     * @param fileStart 所属文件的开始时间
+     * @param rows      数据行
+     */
+    private record Chunk(TelemetryTier tier, long fileStart, List<TelemetrySample> rows) {
+    }
+
+    /**
+     * 降采样时间桶
+     */
+    private static final class Bucket {
+        private final long start;
+        private TelemetrySample last;
+        private int maxSpeed;
+        private int maxError;
+
+        Bucket(long start, TelemetrySample sample) {
+            this.start = start;
+            this.last = sample;
+            this.maxSpeed = sample.speed();
+            this.maxError = sample.error();
+        }
+
+        void merge(TelemetrySample sample) {
+            last = sample;
+            maxSpeed = Math.max(maxSpeed, sample.speed());
+            maxError = Math.max(maxError, sample.error());
+        }
+
+        TelemetrySample toRow() {
+            return new TelemetrySample(start, last.mapId(), last.pointId(), last.x(), last.y(), last.angle(),
+                    last.battery(), maxSpeed, last.state(), maxError);
+        }
+    }
+
+    /**
+     * 单台 AGV 的序列
+     */
+    private final class Series {
+        private final String agvId;
+        /**
+         * 保护内存数据，只在内存操作期间持有
+         */
+        private final ReentrantLock lock = new ReentrantLock();
+        /**
+         * 落盘持有写锁，查询持有读锁，保证查询不会重复或遗漏正在落盘的数据块
+         */
+        private final ReentrantReadWriteLock io = new ReentrantReadWriteLock();
+        private final EnumMap<TelemetryTier, Chunk> open = new EnumMap<>(TelemetryTier.class);
+        private final List<Chunk> sealed = new ArrayList<>();
+        private Bucket second;
+        private Bucket minute;
+
+        Series(String agvId) {
+            this.agvId = agvId;
+        }
+
+        void append(TelemetrySample sample) {
+            add(TelemetryTier.RAW, sample);
+            feed(TelemetryTier.SECOND, sample);
+        }
+
+        int flush(long nowMs) throws IOException {
+            io.writeLock().lock();
+            try {
+                List<Chunk> pending;
+                lock.lock();
+                try {
+                    closeExpired(nowMs);
+                    for (TelemetryTier tier : TelemetryTier.values()) {
+                        Chunk chunk = open.get(tier);
+                        if (chunk != null && nowMs - chunk.rows().getFirst().timeMs() >= tier.chunkAgeMs) {
+                            seal(tier);
+                        }
+                    }
+                    pending = new ArrayList<>(sealed);
+                } finally {
+                    lock.unlock();
+                }
+                Set<Chunk> written = Collections.newSetFromMap(new IdentityHashMap<>());
+                try {
+                    for (Chunk chunk : pending) {
+                        writeChunk(agvId, chunk);
+                        written.add(chunk);
+                    }
+                } finally {
+                    lock.lock();
+                    try {
+                        sealed.removeIf(written::contains);
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+                return written.size();
+            } finally {
+                io.writeLock().unlock();
+            }
+        }
+
+        void collect(TelemetryTier tier, long fromMs, long toMs, List<TelemetrySample> result) {
+            for (Chunk chunk : sealed) {
+                if (chunk.tier() == tier) {
+                    filter(chunk.rows(), fromMs, toMs, result);
+                }
+            }
+            Chunk chunk = open.get(tier);
+            if (chunk != null) {
+                filter(chunk.rows(), fromMs, toMs, result);
+            }
+        }
+
+        private void feed(TelemetryTier tier, TelemetrySample sample) {
+            Bucket bucket = tier == TelemetryTier.SECOND ? second : minute;
+            long start = tier.bucketStart(sample.timeMs());
+            if (bucket != null && bucket.start != start) {
+                if (start < bucket.start) {
+                    // 时间回退的采样不参与降采样
+                    return;
+                }
+                close(tier);
+                bucket = null;
+            }
+            if (bucket == null) {
+                bucket = new Bucket(start, sample);
+                if (tier == TelemetryTier.SECOND) {
+                    second = bucket;
+                } else {
+                    minute = bucket;
+                }
+            } else {
+                bucket.merge(sample);
+            }
+        }
+
+        private void close(TelemetryTier tier) {
+            if (tier == TelemetryTier.SECOND) {
+                TelemetrySample row = second.toRow();
+                second = null;
+                add(TelemetryTier.SECOND, row);
+                feed(TelemetryTier.MINUTE, row);
+            } else {
+                TelemetrySample row = minute.toRow();
+                minute = null;
+                add(TelemetryTier.MINUTE, row);
+            }
+        }
+
+        private void closeExpired(long nowMs) {
+            if (second != null && second.start + TelemetryTier.SECOND.bucketMs <= nowMs) {
+                close(TelemetryTier.SECOND);
+            }
+            if (minute != null && minute.start + TelemetryTier.MINUTE.bucketMs <= nowMs) {
+                close(TelemetryTier.MINUTE);
+            }
+        }
+
+        private void add(TelemetryTier tier, TelemetrySample row) {
+            long fileStart = tier.fileStart(row.timeMs());
+            Chunk chunk = open.get(tier);
+            if (chunk != null && (chunk.fileStart() != fileStart || chunk.rows().size() >= MAX_CHUNK_ROWS)) {
+                seal(tier);
+                chunk = null;
+            }
+            if (chunk == null) {
+                chunk = new Chunk(tier, fileStart, new ArrayList<>());
+                open.put(tier, chunk);
+            }
+            chunk.rows().add(row);
+        }
+
+        private void seal(TelemetryTier tier) {
+            Chunk chunk = open.remove(tier);
+            if (chunk == null || chunk.rows().isEmpty()) {
+                return;
+            }
+            sealed.add(chunk);
+            if (sealed.size() > MAX_SEALED_CHUNKS) {
+                // 长时间写入失败，丢弃最早的数据块，避免内存无限增长
+                sealed.removeFirst();
+                droppedChunks.increment();
+            }
+        }
+
+        private static void filter(List<TelemetrySample> rows, long fromMs, long toMs, List<TelemetrySample> result) {
+            for (TelemetrySample row : rows) {
+                if (row.timeMs() >= fromMs && row.timeMs() < toMs) {
+                    result.add(row);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.ruinap.persistence.telemetry;
+
+/**
+ * 遥测存储分层
+ * <p>
+ * 原始数据逐级降采样为 1 秒、1 分钟两层，每层按固定时间跨度分文件，过期文件整体删除
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-20 09:40
+ */
+public enum TelemetryTier {
+    /**
+     * 原始上报
+     */
+    RAW("raw", 0L, 10 * 60_000L, 10_000L),
+    /**
+     * 1 秒降采样
+     */
+    SECOND("1s", 1_000L, 3_600_000L, 60_000L),
+    /**
+     * 1 分钟降采样
+     */
+    MINUTE("1m", 60_000L, 86_400_000L, 600_000L),
+    ;
+
+    /**
+     * 目录名
+     */
+    public final String dir;
+    /**
+     * 时间桶长度 (毫秒)，原始数据为 0
+     */
+    public final long bucketMs;
+    /**
+     * 单个文件覆盖的时间跨度 (毫秒)
+     */
+    public final long fileSpanMs;
+    /**
+     * 内存中的数据块最长保留时间 (毫秒)，超过后写入文件
+     */
+    public final long chunkAgeMs;
+
+    TelemetryTier(String dir, long bucketMs, long fileSpanMs, long chunkAgeMs) {
+        this.dir = dir;
+        this.bucketMs = bucketMs;
+        this.fileSpanMs = fileSpanMs;
+        this.chunkAgeMs = chunkAgeMs;
+    }
+
+    /**
+     * 所在文件的开始时间
+     */
+    long fileStart(long timeMs) {
+        return Math.floorDiv(timeMs, fileSpanMs) * fileSpanMs;
+    }
+
+    /**
+     * 所在时间桶的开始时间
+     */
+    long bucketStart(long timeMs) {
+        return Math.floorDiv(timeMs, bucketMs) * bucketMs;
+    }
+
+    /**
+     * 根据目录名获取分层
+     *
+     * @param dir 目录名
+     * @return 分层，找不到时返回 null
+     */
+    public static TelemetryTier getByDir(String dir) {
+        for (TelemetryTier tier : values()) {
+            if (tier.dir.equalsIgnoreCase(dir) || tier.name().equalsIgnoreCase(dir)) {
+                return tier;
+            }
+        }
+        return null;
+    }
+}
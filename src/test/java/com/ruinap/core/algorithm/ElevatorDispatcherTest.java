@@ -0,0 +1,151 @@
+package com.ruinap.core.algorithm;
+
+import com.ruinap.core.map.MapManager;
+import com.ruinap.core.map.pojo.RcsPoint;
+import com.ruinap.core.task.TaskPathManager;
+import com.ruinap.core.task.domain.DockDevice;
+import com.ruinap.core.task.domain.TaskPath;
+import com.ruinap.infra.config.CoreYaml;
+import com.ruinap.infra.config.InteractionYaml;
+import com.ruinap.infra.config.pojo.interactions.ElevatorEntity;
+import com.ruinap.infra.enums.task.DockTaskTypeEnum;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * ElevatorDispatcher 单元测试
+ * <p>
+ * 覆盖场景：
+ * 1. 同方向的 AGV 按电梯容量拼成一个批次，分到批次后才允许进梯
+ * 2. 批次超出预计时间仍未出梯时继续占用电梯，全部离开电梯对接分段后才发出下一批次
+ * 3. 非电梯对接与同层对接直接放行
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-16 15:40
+ */
+@ExtendWith(MockitoExtension.class)
+class ElevatorDispatcherTest {
+
+    private ElevatorDispatcher dispatcher;
+
+    @Mock
+    private CoreYaml coreYaml;
+    @Mock
+    private InteractionYaml interactionYaml;
+    @Mock
+    private MapManager mapManager;
+    @Mock
+    private TaskPathManager taskPathManager;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dispatcher = new ElevatorDispatcher();
+        injectField(dispatcher, "coreYaml", coreYaml);
+        injectField(dispatcher, "interactionYaml", interactionYaml);
+        injectField(dispatcher, "mapManager", mapManager);
+        injectField(dispatcher, "taskPathManager", taskPathManager);
+
+        // 不设批量窗口，推演的运行时间足够长，批次不会因到时而结束
+        lenient().when(coreYaml.getAlgorithmCommon()).thenReturn(new HashMap<>(Map.of(
+                "elevator_batch_window_ms", 0, "elevator_floor_travel_ms", 0, "elevator_stop_ms", 0)));
+        lenient().when(coreYaml.getAlgorithmInt(anyString(), anyInt())).thenCallRealMethod();
+        ElevatorEntity elevator = new ElevatorEntity();
+        elevator.setCapacity(2);
+        lenient().when(interactionYaml.getElevatorByCode("E1")).thenReturn(elevator);
+    }
+
+    private TaskPath elevatorPath(String agvId, int fromFloor, int toFloor) {
+        DockDevice dockDevice = new DockDevice();
+        dockDevice.setEquipmentId("E1");
+        dockDevice.setDockType(DockTaskTypeEnum.ELEVATOR.code);
+        dockDevice.setStartPoint(point(fromFloor));
+        dockDevice.setEndPoint(point(toFloor));
+        TaskPath taskPath = new TaskPath();
+        taskPath.setAgvId(agvId);
+        taskPath.setDockDevice(dockDevice);
+        // AGV 的首条任务路径是电梯对接分段
+        lenient().when(taskPathManager.getFirst(agvId)).thenReturn(taskPath);
+        return taskPath;
+    }
+
+    private static RcsPoint point(int floor) {
+        RcsPoint point = new RcsPoint();
+        point.setFloor(floor);
+        return point;
+    }
+
+    @Test
+    @DisplayName("拼车: 同方向的 AGV 按容量拼成一个批次，分到批次后才允许进梯")
+    void testBoardByTrip() {
+        TaskPath a = elevatorPath("A", 1, 3);
+        TaskPath b = elevatorPath("B", 1, 2);
+        TaskPath c = elevatorPath("C", 1, 3);
+
+        assertFalse(dispatcher.requestBoarding(a), "调度前只排队，不进梯");
+        assertFalse(dispatcher.requestBoarding(b));
+        assertFalse(dispatcher.requestBoarding(c));
+
+        dispatcher.dispatch();
+        assertTrue(dispatcher.requestBoarding(a));
+        assertTrue(dispatcher.requestBoarding(b), "同方向的 AGV 应拼入同一批次");
+        assertFalse(dispatcher.requestBoarding(c), "超出容量的 AGV 等待下一批次");
+        assertEquals(1, dispatcher.getQueueSize("E1"));
+    }
+
+    @Test
+    @DisplayName("出梯: 批次全部离开电梯对接分段后才发出下一批次")
+    void testTripHeldUntilReleased() {
+        TaskPath a = elevatorPath("A", 1, 3);
+        TaskPath b = elevatorPath("B", 1, 3);
+        TaskPath c = elevatorPath("C", 1, 3);
+        dispatcher.requestBoarding(a);
+        dispatcher.requestBoarding(b);
+        dispatcher.requestBoarding(c);
+        dispatcher.dispatch();
+
+        // 预计耗时为 0 已过期，但 A、B 仍在电梯对接分段
+        dispatcher.dispatch();
+        assertFalse(dispatcher.requestBoarding(c), "上一批次未出梯时不应发出下一批次");
+
+        // A 出梯，B 仍在电梯中
+        when(taskPathManager.getFirst("A")).thenReturn(null);
+        dispatcher.dispatch();
+        assertFalse(dispatcher.requestBoarding(c));
+
+        when(taskPathManager.getFirst("B")).thenReturn(null);
+        dispatcher.dispatch();
+        assertTrue(dispatcher.requestBoarding(c));
+    }
+
+    @Test
+    @DisplayName("放行: 非电梯对接与同层对接不需要排队")
+    void testPassThrough() {
+        TaskPath sameFloor = elevatorPath("A", 2, 2);
+        assertTrue(dispatcher.requestBoarding(sameFloor));
+
+        TaskPath other = elevatorPath("B", 1, 3);
+        other.getDockDevice().setDockType(DockTaskTypeEnum.AIRSHOWER.code);
+        assertTrue(dispatcher.requestBoarding(other));
+        assertEquals(0, dispatcher.getQueueSize("E1"));
+    }
+
+    private void injectField(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
@@ -0,0 +1,216 @@
+package com.ruinap.core.algorithm;
+
+import com.ruinap.core.algorithm.domain.EdgeTravelTable;
+import com.ruinap.core.algorithm.domain.EtaResult;
+import com.ruinap.core.equipment.manager.AgvManager;
+import com.ruinap.core.equipment.pojo.RcsAgv;
+import com.ruinap.core.map.MapManager;
+import com.ruinap.core.map.pojo.RcsPoint;
+import com.ruinap.core.task.TaskPathManager;
+import com.ruinap.core.task.domain.DockDevice;
+import com.ruinap.core.task.domain.TaskPath;
+import com.ruinap.core.task.structure.TaskSectionManager;
+import com.ruinap.infra.config.CoreYaml;
+import com.ruinap.infra.enums.task.DockTaskTypeEnum;
+import com.ruinap.infra.enums.task.SubTaskTypeEnum;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * EtaManager 单元测试
+ * <p>
+ * 无历史通行数据时按默认速度 (1000 毫米/秒) 估算，便于断言具体耗时
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-03 14:10
+ */
+@ExtendWith(MockitoExtension.class)
+class EtaManagerTest {
+
+    private EtaManager etaManager;
+
+    @Mock
+    private CoreYaml coreYaml;
+    @Mock
+    private MapManager mapManager;
+    @Mock
+    private AgvManager agvManager;
+    @Mock
+    private TaskPathManager taskPathManager;
+    @Mock
+    private TaskSectionManager taskSectionManager;
+    @Mock
+    private TravelTimeManager travelTimeManager;
+    @Mock
+    private ElevatorDispatcher elevatorDispatcher;
+
+    private static final String AGV_ID = "AGV_001";
+    private static final Integer MAP_ID = 1;
+
+    private final List<RcsPoint> points = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        etaManager = new EtaManager();
+        injectField(etaManager, "coreYaml", coreYaml);
+        injectField(etaManager, "mapManager", mapManager);
+        injectField(etaManager, "agvManager", agvManager);
+        injectField(etaManager, "taskPathManager", taskPathManager);
+        injectField(etaManager, "taskSectionManager", taskSectionManager);
+        injectField(etaManager, "travelTimeManager", travelTimeManager);
+        injectField(etaManager, "elevatorDispatcher", elevatorDispatcher);
+
+        // 未配置算法参数，读取时使用默认值
+        lenient().when(coreYaml.getAlgorithmInt(anyString(), anyInt())).thenCallRealMethod();
+        // 空图直方表：无任何学习数据
+        lenient().when(travelTimeManager.getTable()).thenReturn(new EdgeTravelTable(null, 1));
+        lenient().when(travelTimeManager.expectedMs(any(), anyInt(), anyInt(), anyInt())).thenReturn(-1.0);
+
+        // 0 -> 1 -> 2 -> 3 直线，每段 1000 毫米
+        for (int i = 0; i < 4; i++) {
+            RcsPoint point = new RcsPoint();
+            point.setId(i);
+            point.setMapId(MAP_ID);
+            point.setX(i * 1000);
+            point.setY(0);
+            point.setGraphIndex(i);
+            points.add(point);
+            lenient().when(mapManager.getRcsPoint(MAP_ID, i)).thenReturn(point);
+        }
+    }
+
+    private TaskPath section(String taskCode, int subTaskType, int from, int to) {
+        TaskPath taskPath = new TaskPath();
+        taskPath.setAgvId(AGV_ID);
+        taskPath.setTaskCode(taskCode);
+        taskPath.setSubTaskType(subTaskType);
+        taskPath.setExpectRoutes(new ArrayList<>(points.subList(from, to + 1)));
+        return taskPath;
+    }
+
+    @Test
+    @DisplayName("估算路线耗时: 无学习数据时按默认速度")
+    void testEstimateRouteMs_DefaultSpeed() {
+        assertEquals(3000, etaManager.estimateRouteMs(points));
+        assertEquals(0, etaManager.estimateRouteMs(List.of(points.getFirst())));
+        assertEquals(0, etaManager.estimateRouteMs(null));
+    }
+
+    @Test
+    @DisplayName("增量更新: 进度上报只移动游标，剩余耗时递减")
+    void testOnProgress_Incremental() {
+        List<TaskPath> sections = List.of(
+                section("TASK_001", SubTaskTypeEnum.ORIGIN.code, 0, 1),
+                section("TASK_001", SubTaskTypeEnum.DESTIN.code, 1, 3));
+        when(taskSectionManager.getTaskSections(AGV_ID)).thenReturn(sections);
+
+        etaManager.onProgress(AGV_ID, MAP_ID, 0);
+        EtaResult eta = etaManager.getAgvEta(AGV_ID);
+        assertNotNull(eta);
+        assertEquals("TASK_001", eta.getTaskCode());
+        assertEquals(3000, eta.getRemainingMs());
+        assertTrue(eta.getOriginEta() > 0, "尚未到达起点时应有起点 ETA");
+        assertSame(eta, etaManager.getTaskEta("TASK_001"));
+
+        etaManager.onProgress(AGV_ID, MAP_ID, 2);
+        eta = etaManager.getAgvEta(AGV_ID);
+        assertEquals(1000, eta.getRemainingMs());
+        assertEquals(0, eta.getOriginEta(), "已越过起点后起点 ETA 为 0");
+
+        // 游标不回退：上报已走过的点位时保持原位
+        etaManager.onProgress(AGV_ID, MAP_ID, 1);
+        assertEquals(1000, etaManager.getAgvEta(AGV_ID).getRemainingMs());
+
+        // 路线画像复用，不重复读取直方表
+        verify(travelTimeManager, times(1)).getTable();
+    }
+
+    @Test
+    @DisplayName("路线变化: 预期路径被替换时重建画像")
+    void testOnProgress_RouteChanged() {
+        TaskPath taskPath = section("TASK_001", SubTaskTypeEnum.DESTIN.code, 0, 3);
+        when(taskSectionManager.getTaskSections(AGV_ID)).thenReturn(List.of(taskPath));
+
+        etaManager.onProgress(AGV_ID, MAP_ID, 0);
+        assertEquals(3000, etaManager.getAgvEta(AGV_ID).getRemainingMs());
+
+        // 二次规划：路线缩短为 2 -> 3
+        taskPath.setExpectRoutes(new ArrayList<>(points.subList(2, 4)));
+        etaManager.onProgress(AGV_ID, MAP_ID, 2);
+        assertEquals(1000, etaManager.getAgvEta(AGV_ID).getRemainingMs());
+        verify(travelTimeManager, times(2)).getTable();
+    }
+
+    @Test
+    @DisplayName("任务结束: 无分段任务时清理 AGV 与任务 ETA")
+    void testOnProgress_TaskFinished() {
+        when(taskSectionManager.getTaskSections(AGV_ID))
+                .thenReturn(List.of(section("TASK_001", SubTaskTypeEnum.DESTIN.code, 0, 3)))
+                .thenReturn(List.of());
+        when(taskPathManager.getFirst(AGV_ID)).thenReturn(null);
+
+        etaManager.onProgress(AGV_ID, MAP_ID, 0);
+        assertNotNull(etaManager.getTaskEta("TASK_001"));
+
+        etaManager.onProgress(AGV_ID, MAP_ID, 3);
+        assertNull(etaManager.getAgvEta(AGV_ID));
+        assertNull(etaManager.getTaskEta("TASK_001"));
+    }
+
+    @Test
+    @DisplayName("进度上报: 路线与游标未变化时不重新发布")
+    void testOnProgress_Unchanged() {
+        when(taskSectionManager.getTaskSections(AGV_ID))
+                .thenReturn(List.of(section("TASK_001", SubTaskTypeEnum.DESTIN.code, 0, 3)));
+
+        etaManager.onProgress(AGV_ID, MAP_ID, 1);
+        EtaResult eta = etaManager.getAgvEta(AGV_ID);
+        etaManager.onProgress(AGV_ID, MAP_ID, 1);
+        assertSame(eta, etaManager.getAgvEta(AGV_ID), "同一点位的重复上报不应重新计算");
+        etaManager.onProgress(AGV_ID, MAP_ID, 2);
+        assertNotSame(eta, etaManager.getAgvEta(AGV_ID));
+    }
+
+    @Test
+    @DisplayName("电梯兜底: 楼层未知时按其他排队 AGV 估算，不重复计入自身")
+    void testElevatorFallback_ExcludesSelf() {
+        DockDevice dockDevice = new DockDevice();
+        dockDevice.setEquipmentId("elevator_left");
+        dockDevice.setDockType(DockTaskTypeEnum.ELEVATOR.code);
+        TaskPath elevatorSection = section("TASK_001", SubTaskTypeEnum.DESTIN.code, 0, 3);
+        elevatorSection.setDockDevice(dockDevice);
+        when(taskSectionManager.getTaskSections(AGV_ID)).thenReturn(List.of(elevatorSection));
+        when(taskPathManager.getFirst(AGV_ID)).thenReturn(elevatorSection);
+        when(elevatorDispatcher.predictWaitMs(AGV_ID)).thenReturn(-1L);
+
+        RcsAgv rcsAgv = new RcsAgv();
+        rcsAgv.setAgvId(AGV_ID);
+        rcsAgv.setMapId(MAP_ID);
+        rcsAgv.setPointId(0);
+        when(agvManager.getRcsAgvMap()).thenReturn(Map.of(AGV_ID, rcsAgv));
+
+        etaManager.refreshAll();
+        // 只有自身在排队：等待一个电梯周期 (默认 60 秒)
+        assertEquals(60000, etaManager.getAgvEta(AGV_ID).getElevatorWaitMs());
+    }
+
+    private void injectField(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
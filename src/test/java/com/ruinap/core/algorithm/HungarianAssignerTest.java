@@ -0,0 +1,218 @@
+package com.ruinap.core.algorithm;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HungarianAssigner 单元测试
+ * <p>
+ * 覆盖场景：
+ * 1. 方阵最优解
+ * 2. 矩形矩阵 (任务少于 AGV / 任务多于 AGV)
+ * 3. 不可行组合
+ * 4. 随机矩阵与暴力枚举结果对比
+ * 5. 仿真：批量匹配与逐个任务贪心匹配的空驶距离对比
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-04 11:20
+ */
+class HungarianAssignerTest {
+
+    private static final double X = HungarianAssigner.INFEASIBLE;
+
+    private HungarianAssigner assigner;
+
+    @BeforeEach
+    void setUp() {
+        assigner = new HungarianAssigner();
+    }
+
+    @Test
+    @DisplayName("方阵: 贪心会选错的经典用例")
+    void testSquare() {
+        // 贪心：任务0 选 AGV0(1)，任务1 只能选 AGV1(100)，总计 101
+        // 最优：任务0 选 AGV1(2)，任务1 选 AGV0(2)，总计 4
+        double[][] cost = {
+                {1, 2},
+                {2, 100}
+        };
+        int[] result = assigner.assign(cost);
+        assertArrayEquals(new int[]{1, 0}, result);
+        assertEquals(4, HungarianAssigner.totalCost(cost, result));
+    }
+
+    @Test
+    @DisplayName("矩形: 任务少于 AGV，每个任务都被分配")
+    void testMoreColumns() {
+        double[][] cost = {
+                {9, 2, 7, 8},
+                {6, 4, 3, 7}
+        };
+        int[] result = assigner.assign(cost);
+        assertArrayEquals(new int[]{1, 2}, result);
+    }
+
+    @Test
+    @DisplayName("矩形: 任务多于 AGV，只分配总代价最小的任务组合")
+    void testMoreRows() {
+        double[][] cost = {
+                {5, 9},
+                {1, 8},
+                {7, 2}
+        };
+        int[] result = assigner.assign(cost);
+        assertArrayEquals(new int[]{-1, 0, 1}, result);
+    }
+
+    @Test
+    @DisplayName("不可行组合: 优先保证匹配数量，无法匹配的任务返回 -1")
+    void testInfeasible() {
+        double[][] cost = {
+                {1, X},
+                {2, X},
+                {X, X}
+        };
+        int[] result = assigner.assign(cost);
+        assertEquals(-1, result[2]);
+        assertEquals(-1, result[1]);
+        assertEquals(0, result[0]);
+
+        // 只有让出 AGV0 才能两个任务都分配
+        double[][] cost2 = {
+                {1, 3},
+                {2, X}
+        };
+        assertArrayEquals(new int[]{1, 0}, assigner.assign(cost2));
+    }
+
+    @Test
+    @DisplayName("边界: 空矩阵")
+    void testEmpty() {
+        assertEquals(0, assigner.assign(new double[0][0]).length);
+        assertArrayEquals(new int[]{-1, -1}, assigner.assign(new double[2][0]));
+        assertEquals(0, assigner.assign(null).length);
+    }
+
+    @Test
+    @DisplayName("正确性: 随机矩阵与暴力枚举的最优值一致")
+    void testAgainstBruteForce() {
+        Random random = new Random(20260304L);
+        for (int round = 0; round < 200; round++) {
+            int rows = 1 + random.nextInt(6);
+            int cols = 1 + random.nextInt(6);
+            double[][] cost = new double[rows][cols];
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    cost[i][j] = random.nextInt(10) == 0 ? X : random.nextInt(1000) - 200;
+                }
+            }
+            int[] result = assigner.assign(cost);
+
+            // 匹配合法：列不重复，且不落在不可行格子上
+            boolean[] usedCols = new boolean[cols];
+            int matched = 0;
+            for (int i = 0; i < rows; i++) {
+                if (result[i] >= 0) {
+                    assertFalse(usedCols[result[i]], "列被重复分配");
+                    assertTrue(HungarianAssigner.isFeasible(cost[i][result[i]]));
+                    usedCols[result[i]] = true;
+                    matched++;
+                }
+            }
+
+            double[] best = bruteForce(cost, 0, new boolean[cols]);
+            assertEquals((int) best[0], matched, "匹配数量应为最大值");
+            assertEquals(best[1], HungarianAssigner.totalCost(cost, result), 1e-6, "总代价应为最小值");
+        }
+    }
+
+    @Test
+    @DisplayName("仿真: 批量匹配的总空驶距离不高于逐个任务贪心匹配")
+    void testSimulationAgainstGreedy() {
+        Random random = new Random(42L);
+        double greedyTotal = 0;
+        double batchTotal = 0;
+        int rounds = 500;
+        for (int round = 0; round < rounds; round++) {
+            // 100m × 50m 车间，每个节拍随机释放 3~12 个任务，8 台空闲 AGV
+            int taskCount = 3 + random.nextInt(10);
+            int agvCount = 8;
+            int[][] tasks = randomPositions(random, taskCount);
+            int[][] agvs = randomPositions(random, agvCount);
+
+            // 空驶距离：AGV 当前点 -> 任务起点 (网格路网，曼哈顿距离)
+            double[][] cost = new double[taskCount][agvCount];
+            for (int i = 0; i < taskCount; i++) {
+                for (int j = 0; j < agvCount; j++) {
+                    cost[i][j] = Math.abs(tasks[i][0] - agvs[j][0]) + Math.abs(tasks[i][1] - agvs[j][1]);
+                }
+            }
+
+            // 现有流程：按数据库顺序逐个任务拍卖，每次选最近的空闲 AGV
+            double greedy = 0;
+            boolean[] busy = new boolean[agvCount];
+            for (int i = 0; i < Math.min(taskCount, agvCount); i++) {
+                int bestAgv = -1;
+                for (int j = 0; j < agvCount; j++) {
+                    if (!busy[j] && (bestAgv < 0 || cost[i][j] < cost[i][bestAgv])) {
+                        bestAgv = j;
+                    }
+                }
+                busy[bestAgv] = true;
+                greedy += cost[i][bestAgv];
+            }
+
+            // 批量流程：与贪心分配相同的任务集合，做全局最小代价匹配
+            double[][] sameTasks = new double[Math.min(taskCount, agvCount)][];
+            System.arraycopy(cost, 0, sameTasks, 0, sameTasks.length);
+            double batch = HungarianAssigner.totalCost(sameTasks, assigner.assign(sameTasks));
+
+            assertTrue(batch <= greedy + 1e-6, "第 " + round + " 轮批量匹配劣于贪心");
+            greedyTotal += greedy;
+            batchTotal += batch;
+        }
+        System.out.printf("仿真 %d 轮：贪心空驶总距离 %.0f mm，批量匹配空驶总距离 %.0f mm，降低 %.1f%%%n",
+                rounds, greedyTotal, batchTotal, (greedyTotal - batchTotal) * 100 / greedyTotal);
+        assertTrue(batchTotal < greedyTotal * 0.95, "批量匹配应显著降低空驶距离");
+    }
+
+    private static int[][] randomPositions(Random random, int count) {
+        int[][] positions = new int[count][2];
+        for (int i = 0; i < count; i++) {
+            positions[i][0] = random.nextInt(100) * 1000;
+            positions[i][1] = random.nextInt(50) * 1000;
+        }
+        return positions;
+    }
+
+    /**
+     * 暴力枚举：返回 {最大匹配数量, 该数量下的最小总代价}
+     */
+    private static double[] bruteForce(double[][] cost, int row, boolean[] usedCols) {
+        if (row == cost.length) {
+            return new double[]{0, 0};
+        }
+        // 当前行不分配
+        double[] best = bruteForce(cost, row + 1, usedCols);
+        for (int j = 0; j < usedCols.length; j++) {
+            if (usedCols[j] || !HungarianAssigner.isFeasible(cost[row][j])) {
+                continue;
+            }
+            usedCols[j] = true;
+            double[] sub = bruteForce(cost, row + 1, usedCols);
+            usedCols[j] = false;
+            double count = sub[0] + 1;
+            double total = sub[1] + cost[row][j];
+            if (count > best[0] || (count == best[0] && total < best[1])) {
+                best = new double[]{count, total};
+            }
+        }
+        return best;
+    }
+}
@@ -2,6 +2,8 @@ package com.ruinap.core.algorithm;
 
 import cn.hutool.core.util.ReflectUtil;
 import com.ruinap.core.algorithm.domain.RouteResult;
+import com.ruinap.core.algorithm.search.AstarEstimator;
+import com.ruinap.core.algorithm.search.AstarSearch;
 import com.ruinap.core.algorithm.search.RcsAstarSearch;
 import com.ruinap.core.map.MapManager;
 import com.ruinap.core.map.enums.PointOccupyTypeEnum;
@@ -11,6 +13,7 @@ import com.ruinap.core.map.pojo.RcsPointTarget;
 import com.ruinap.core.map.util.MapKeyUtil;
 import org.graph4j.Digraph;
 import org.graph4j.GraphBuilder;
+import org.graph4j.util.Path;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -22,6 +25,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.objenesis.Objenesis;
 import org.objenesis.ObjenesisStd;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -41,6 +45,7 @@ import static org.mockito.Mockito.when;
  * 4. [权重] 动态拥堵避让
  * 5. [跨层] 同坐标垂直跨层 (Elevator Direct: 起终点 XY 相同)
  * 6. [跨层] 异坐标长途跨层 (Room A -> Elevator -> Room B: 起终点 XY 不同)
+ * 7. [静态] 静态代价搜索不受占用与拥堵影响
  */
 @ExtendWith(MockitoExtension.class)
 class RcsAstarSearchTest {
@@ -138,6 +143,21 @@ class RcsAstarSearchTest {
         Assertions.assertFalse(hasP1, "应当选择总代价更低的 P2 绕行路径");
     }
 
+    @Test
+    @DisplayName("场景4：静态代价搜索忽略占用与拥堵 (仍走P1)")
+    void testAStarSearch_TrafficFree() {
+        // P1 被其他 AGV 占用且 P1 路径拥堵
+        when(mapManager.getPointOccupy(anyInt(), eq(p1.getGraphIndex()))).thenReturn(createOccupy(true, "AGV_OTHER"));
+        when(slideTimeWindow.costCalculation(eq(10.0), anyDouble())).thenReturn(1010.0);
+
+        Path traffic = new AstarSearch("AGV_SELF", graph, p0, p4, new AstarEstimator(graph), mapManager, slideTimeWindow, 5000).findPath();
+        Path trafficFree = new AstarSearch("static", graph, p0, p4, new AstarEstimator(graph), mapManager, slideTimeWindow, 5000).trafficFree().findPath();
+
+        Assertions.assertFalse(Arrays.stream(traffic.vertices()).anyMatch(v -> v == p1.getGraphIndex()), "实时代价应绕开 P1");
+        Assertions.assertArrayEquals(new int[]{p0.getGraphIndex(), p1.getGraphIndex(), p3.getGraphIndex(), p4.getGraphIndex()}, trafficFree.vertices(),
+                "静态代价只按边长，应走最短的 P1");
+    }
+
     // ==================== 辅助私有方法 ====================
 
     /**
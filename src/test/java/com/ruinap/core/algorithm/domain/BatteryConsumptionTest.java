@@ -0,0 +1,91 @@
+package com.ruinap.core.algorithm.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BatteryConsumption 单元测试
+ * <p>
+ * 覆盖场景：
+ * 1. 空车/载货混合行驶时分别学习出两个耗电系数
+ * 2. 充电、重新开机、静止耗电不形成样本
+ * 3. 估算按毫米里程换算
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-14 14:00
+ */
+class BatteryConsumptionTest {
+
+    @Test
+    @DisplayName("学习: 混合行驶区间收敛到真实的空车/载货耗电系数")
+    void testLearnMixed() {
+        // 真实耗电：空车每米 0.01%，载货每米 0.02%；模型从偏差较大的默认值开始
+        double trueUnloaded = 0.01;
+        double trueLoaded = 0.02;
+        BatteryConsumption model = new BatteryConsumption(0.005, 0.005);
+        Random random = new Random(20260314L);
+
+        double battery = 100;
+        long runLength = 0;
+        boolean loaded = false;
+        int learned = 0;
+        model.observe(100, 0, false, 5000, 0.2);
+        for (int step = 0; step < 40_000; step++) {
+            if (step % 30 == 0) {
+                // 每 30 次上报切换一次载货状态，且随机插入短暂的同状态延续，形成混合区间
+                loaded = random.nextInt(4) != 0 ? !loaded : loaded;
+            }
+            // 每次上报行驶 0.5~1.5 米
+            long delta = 500 + random.nextInt(1001);
+            runLength += delta;
+            battery -= (loaded ? trueLoaded : trueUnloaded) * delta / 1000.0;
+            if (battery < 20) {
+                // 充电后重新开始
+                battery = 100;
+            }
+            if (model.observe((int) Math.ceil(battery), runLength, loaded, 5000, 0.2)) {
+                learned++;
+            }
+        }
+
+        assertTrue(learned > 100, "应形成足够多的样本: " + learned);
+        assertEquals(trueUnloaded, model.getUnloadedRate(), trueUnloaded * 0.15);
+        assertEquals(trueLoaded, model.getLoadedRate(), trueLoaded * 0.15);
+        assertEquals(learned, model.getSamples());
+    }
+
+    @Test
+    @DisplayName("样本过滤: 充电、重新开机、静止耗电不学习")
+    void testIgnoredIntervals() {
+        BatteryConsumption model = new BatteryConsumption(0.01, 0.015);
+        assertFalse(model.observe(80, 10_000, false, 5000, 0.2));
+        // 静止耗电：里程不变电量下降
+        assertFalse(model.observe(79, 10_000, false, 5000, 0.2));
+        // 充电：电量上升
+        assertFalse(model.observe(90, 20_000, false, 5000, 0.2));
+        // 重新开机：里程回退
+        assertFalse(model.observe(89, 1_000, false, 5000, 0.2));
+        assertEquals(0, model.getSamples());
+        assertEquals(0.01, model.getUnloadedRate(), 1e-12);
+
+        // 正常行驶 100 米下降 2%，空车系数向 0.02 修正
+        assertTrue(model.observe(87, 101_000, false, 5000, 0.5));
+        assertEquals(1, model.getSamples());
+        assertEquals(0.015, model.getUnloadedRate(), 1e-9);
+        assertEquals(0.015, model.getLoadedRate(), 1e-12);
+    }
+
+    @Test
+    @DisplayName("估算: 按毫米里程换算耗电")
+    void testEstimate() {
+        BatteryConsumption model = new BatteryConsumption(0.01, 0.02);
+        // 空车 200 米 + 载货 100 米 = 2% + 2%
+        assertEquals(4.0, model.estimate(200_000, 100_000), 1e-9);
+        assertEquals(0.0, model.estimate(-1, 0), 1e-12);
+    }
+}
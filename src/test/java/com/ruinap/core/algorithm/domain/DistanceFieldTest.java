@@ -0,0 +1,179 @@
+package com.ruinap.core.algorithm.domain;
+
+import com.ruinap.core.map.pojo.RcsPoint;
+import com.ruinap.core.map.pojo.RcsPointTarget;
+import org.graph4j.Digraph;
+import org.graph4j.GraphBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * DistanceField 单元测试
+ * <p>
+ * 覆盖场景：
+ * 1. 隔墙场景：直线最近的目标并非路网最近
+ * 2. 单向线路：距离按“从顶点到目标”的方向计算
+ * 3. 最近空闲目标：跳过被占用的候选
+ * 4. 随机图与逐目标 Dijkstra 结果对比
+ *
+ * @author qianye
+ * @create 2026-03-05 11:00
+ */
+class DistanceFieldTest {
+
+    private static RcsPoint point(int graphIndex) {
+        RcsPoint point = new RcsPoint();
+        point.setGraphIndex(graphIndex);
+        return point;
+    }
+
+    private static void biEdge(Digraph<RcsPoint, RcsPointTarget> graph, int a, int b, double weight) {
+        graph.addEdge(a, b, weight);
+        graph.addEdge(b, a, weight);
+    }
+
+    @Test
+    @DisplayName("隔墙场景：按路网距离而不是直线距离取最近目标")
+    void testWallDetour() {
+        // 0 在墙一侧，目标 3 直线很近但要绕行 0-1-2-3；目标 4 直线较远但直达
+        Digraph<RcsPoint, RcsPointTarget> graph = GraphBuilder.numVertices(5).buildDigraph();
+        biEdge(graph, 0, 1, 10000);
+        biEdge(graph, 1, 2, 10000);
+        biEdge(graph, 2, 3, 10000);
+        biEdge(graph, 0, 4, 5000);
+        DistanceField field = new DistanceField(graph, List.of(point(3), point(4)), 8);
+
+        Assertions.assertEquals(2, field.getK(), "K 不应超过目标数量");
+        Assertions.assertEquals(4, field.target(0, 0));
+        Assertions.assertEquals(5000, field.distance(0, 0), 1e-3);
+        Assertions.assertEquals(3, field.target(0, 1));
+        Assertions.assertEquals(30000, field.distanceTo(0, 3), 1e-3);
+        Assertions.assertTrue(field.isTarget(3));
+        Assertions.assertFalse(field.isTarget(0));
+        Assertions.assertEquals(0, field.distance(3, 0), 1e-3);
+    }
+
+    @Test
+    @DisplayName("单向线路：只能从目标驶出的点不可达")
+    void testOneWay() {
+        // 0 -> 1 (单向)，目标为 0：顶点 1 无法到达目标
+        Digraph<RcsPoint, RcsPointTarget> graph = GraphBuilder.numVertices(2).buildDigraph();
+        graph.addEdge(0, 1, 1000);
+        DistanceField field = new DistanceField(graph, List.of(point(0)), 4);
+
+        Assertions.assertEquals(DistanceField.NONE, field.target(1, 0));
+        Assertions.assertEquals(Double.POSITIVE_INFINITY, field.distance(1, 0));
+        Assertions.assertEquals(-1, field.distanceTo(1, 0));
+    }
+
+    @Test
+    @DisplayName("最近空闲目标：跳过被占用的候选")
+    void testNearestFree() {
+        // 链路 0-1-2-3-4，目标 1、3、4
+        Digraph<RcsPoint, RcsPointTarget> graph = GraphBuilder.numVertices(5).buildDigraph();
+        for (int i = 0; i < 4; i++) {
+            biEdge(graph, i, i + 1, 1000);
+        }
+        DistanceField field = new DistanceField(graph, List.of(point(1), point(3), point(4)), 2);
+
+        Assertions.assertEquals(1, field.nearest(0, null));
+        Assertions.assertEquals(3, field.nearest(0, index -> index != 1));
+        // 前 K(2) 个候选均被占用
+        Assertions.assertEquals(DistanceField.NONE, field.nearest(0, index -> index == 4));
+        Assertions.assertEquals(DistanceField.NONE, field.nearest(99, null));
+    }
+
+    @Test
+    @DisplayName("空目标集合：所有查询返回无")
+    void testNoTargets() {
+        Digraph<RcsPoint, RcsPointTarget> graph = GraphBuilder.numVertices(3).buildDigraph();
+        biEdge(graph, 0, 1, 1000);
+        DistanceField field = new DistanceField(graph, new ArrayList<>(), 8);
+        Assertions.assertEquals(0, field.getTargetCount());
+        Assertions.assertEquals(DistanceField.NONE, field.nearest(0, null));
+        Assertions.assertEquals(DistanceField.NONE, new DistanceField(null, null, 8).target(0, 0));
+    }
+
+    @Test
+    @DisplayName("正确性：随机图上的前 K 近目标与逐目标 Dijkstra 一致")
+    void testAgainstDijkstra() {
+        Random random = new Random(20260305L);
+        for (int round = 0; round < 50; round++) {
+            int n = 20 + random.nextInt(40);
+            Digraph<RcsPoint, RcsPointTarget> graph = GraphBuilder.numVertices(n).buildDigraph();
+            double[][] weights = new double[n][n];
+            for (int e = 0; e < n * 3; e++) {
+                int a = random.nextInt(n);
+                int b = random.nextInt(n);
+                if (a == b || weights[a][b] > 0) {
+                    continue;
+                }
+                weights[a][b] = 1 + random.nextInt(5000);
+                graph.addEdge(a, b, weights[a][b]);
+            }
+            List<RcsPoint> targets = new ArrayList<>();
+            for (int t = 0; t < n; t += 1 + random.nextInt(6)) {
+                targets.add(point(t));
+            }
+            int k = 1 + random.nextInt(4);
+            DistanceField field = new DistanceField(graph, targets, k);
+
+            // 逐目标计算 顶点 -> 目标 的最短距离
+            double[][] expected = new double[targets.size()][];
+            for (int t = 0; t < targets.size(); t++) {
+                expected[t] = reverseDijkstra(weights, targets.get(t).getGraphIndex());
+            }
+            for (int v = 0; v < n; v++) {
+                List<Double> sorted = new ArrayList<>();
+                for (double[] distances : expected) {
+                    if (distances[v] < Double.POSITIVE_INFINITY) {
+                        sorted.add(distances[v]);
+                    }
+                }
+                sorted.sort(Double::compare);
+                for (int rank = 0; rank < field.getK(); rank++) {
+                    if (rank < sorted.size()) {
+                        Assertions.assertEquals(sorted.get(rank), field.distance(v, rank), 1e-2, "顶点 " + v + " 第 " + rank + " 近目标距离不一致");
+                    } else {
+                        Assertions.assertEquals(DistanceField.NONE, field.target(v, rank));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 朴素 O(n²) Dijkstra：所有顶点到 target 的最短距离
+     */
+    private static double[] reverseDijkstra(double[][] weights, int target) {
+        int n = weights.length;
+        double[] dist = new double[n];
+        boolean[] done = new boolean[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        dist[target] = 0;
+        for (int iter = 0; iter < n; iter++) {
+            int v = -1;
+            for (int i = 0; i < n; i++) {
+                if (!done[i] && (v < 0 || dist[i] < dist[v])) {
+                    v = i;
+                }
+            }
+            if (v < 0 || dist[v] == Double.POSITIVE_INFINITY) {
+                break;
+            }
+            done[v] = true;
+            for (int u = 0; u < n; u++) {
+                if (weights[u][v] > 0 && dist[v] + weights[u][v] < dist[u]) {
+                    dist[u] = dist[v] + weights[u][v];
+                }
+            }
+        }
+        return dist;
+    }
+}
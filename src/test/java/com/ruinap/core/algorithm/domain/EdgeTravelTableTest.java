@@ -0,0 +1,99 @@
+package com.ruinap.core.algorithm.domain;
+
+import com.ruinap.core.map.pojo.RcsPoint;
+import com.ruinap.core.map.pojo.RcsPointTarget;
+import org.graph4j.Digraph;
+import org.graph4j.GraphBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * EdgeTravelTable 单元测试
+ * <p>
+ * 覆盖场景：
+ * 1. CSR 边槽位查找
+ * 2. 样本记录与滑动平均
+ * 3. 代价系数的上下限
+ * 4. 时间段隔离
+ *
+ * @author qianye
+ * @create 2026-03-02 14:05
+ */
+class EdgeTravelTableTest {
+
+    private EdgeTravelTable table;
+
+    @BeforeEach
+    void setUp() {
+        // 0 -> 1 -> 2，0 -> 2 (长度均为 1000mm)
+        Digraph<RcsPoint, RcsPointTarget> graph = GraphBuilder.numVertices(3).buildDigraph();
+        graph.addEdge(0, 1, 1000);
+        graph.addEdge(1, 2, 1000);
+        graph.addEdge(0, 2, 1000);
+        table = new EdgeTravelTable(graph, 48);
+    }
+
+    @Test
+    @DisplayName("槽位查找：存在的边返回槽位，不存在的边返回 -1")
+    void testSlotOf() {
+        Assertions.assertEquals(3, table.edgeCount());
+        Assertions.assertTrue(table.slotOf(0, 1) >= 0);
+        Assertions.assertTrue(table.slotOf(0, 2) >= 0);
+        Assertions.assertEquals(-1, table.slotOf(2, 0));
+        Assertions.assertEquals(-1, table.slotOf(99, 0));
+        Assertions.assertFalse(table.record(2, 0, 0, 1000, 0.2));
+    }
+
+    @Test
+    @DisplayName("无数据：代价系数为 1，预计耗时为 -1")
+    void testNoData() {
+        Assertions.assertEquals(1.0, table.costFactor(0, 1, 0, 1, 5));
+        Assertions.assertEquals(-1, table.expectedMs(0, 1, 0, 1));
+    }
+
+    @Test
+    @DisplayName("慢速线路：代价系数大于 1 且不超过上限")
+    void testSlowEdgeFactor() {
+        // 快线路 1 m/s，慢线路 0.25 m/s
+        for (int i = 0; i < 10; i++) {
+            table.record(0, 1, 0, 1000, 0.2);
+            table.record(1, 2, 0, 1000, 0.2);
+            table.record(0, 2, 0, 4000, 0.2);
+        }
+        double slow = table.costFactor(0, 2, 0, 3, 10);
+        double fast = table.costFactor(0, 1, 0, 3, 10);
+        Assertions.assertTrue(slow > 1.5, "慢速线路系数应明显大于 1: " + slow);
+        Assertions.assertEquals(1.0, fast, 1e-9);
+        Assertions.assertEquals(1.5, table.costFactor(0, 2, 0, 3, 1.5), 1e-9);
+        Assertions.assertEquals(4000, table.expectedMs(0, 2, 0, 3), 1.0);
+    }
+
+    @Test
+    @DisplayName("时间段隔离：高峰时段的拥堵不影响其他时段")
+    void testBucketIsolation() {
+        for (int i = 0; i < 10; i++) {
+            table.record(0, 1, 0, 1000, 0.2);
+            table.record(0, 2, 0, 1000, 0.2);
+            // 第 16 个时段 (08:00~08:30) 0->2 拥堵
+            table.record(0, 2, 16, 5000, 0.2);
+        }
+        Assertions.assertTrue(table.costFactor(0, 2, 16, 3, 10) > 1.0);
+        Assertions.assertEquals(1.0, table.costFactor(0, 2, 0, 3, 10), 1e-9);
+        Assertions.assertEquals(10, table.sampleCount(0, 2, 16));
+        // 时间段取模，超出范围时不越界
+        Assertions.assertEquals(10, table.sampleCount(0, 2, 16 + 48));
+    }
+
+    @Test
+    @DisplayName("最少样本数：样本不足时不参与代价计算")
+    void testMinSamples() {
+        table.record(0, 1, 0, 1000, 0.2);
+        table.record(0, 2, 0, 9000, 0.2);
+        Assertions.assertEquals(1.0, table.costFactor(0, 2, 0, 3, 10));
+        table.clear();
+        Assertions.assertEquals(0, table.sampleCount(0, 2, 0));
+        Assertions.assertEquals(0, table.getGlobalMsPerMm());
+    }
+}
@@ -0,0 +1,142 @@
+package com.ruinap.core.algorithm.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ElevatorSchedule 单元测试
+ * <p>
+ * 覆盖场景：
+ * 1. 批次以队首方向为准按先后顺序装满，停靠顺序按扫描方向排列
+ * 2. 批量窗口：未装满时等待拼车，装满立即出发，全部出梯后电梯立即空闲
+ * 3. 预计耗时：排队中的 AGV 与假设请求按后续批次推演
+ * 4. 仿真：批量调度与单车运送的平均电梯耗时对比
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-16 15:00
+ */
+class ElevatorScheduleTest {
+
+    private static final ElevatorSchedule.Params PARAMS = new ElevatorSchedule.Params(3, 5000, 5000, 15000);
+
+    private static ElevatorSchedule.ElevatorRequest req(String agvId, int from, int to, long requestMs) {
+        return new ElevatorSchedule.ElevatorRequest(agvId, from, to, requestMs);
+    }
+
+    @Test
+    @DisplayName("批次: 以队首方向为准按先后顺序装满，停靠按扫描方向")
+    void testSelectBatchAndStops() {
+        List<ElevatorSchedule.ElevatorRequest> pending = List.of(
+                req("A", 1, 3, 0), req("B", 4, 2, 1), req("C", 2, 4, 2), req("D", 1, 2, 3), req("E", 1, 4, 4));
+
+        List<ElevatorSchedule.ElevatorRequest> batch = ElevatorSchedule.selectBatch(pending, 3);
+        assertEquals(List.of("A", "C", "D"), batch.stream().map(ElevatorSchedule.ElevatorRequest::agvId).toList());
+        assertEquals(List.of(1, 2, 3, 4), ElevatorSchedule.planStops(batch));
+
+        List<ElevatorSchedule.ElevatorRequest> down = List.of(req("B", 4, 2, 1), req("F", 3, 1, 5));
+        assertEquals(List.of(4, 3, 2, 1), ElevatorSchedule.planStops(down));
+
+        // 电梯在 3 楼：下到 1 楼 (2 层) 后上行到 4 楼 (3 层)，停靠 4 次
+        ElevatorSchedule.ElevatorTrip trip = ElevatorSchedule.buildTrip(batch, 3, 0, PARAMS);
+        assertEquals(5 * 5000 + 4 * 15000, trip.endMs());
+        // A 在 3 楼出梯：2 层 + 上行 2 层，停靠 1、2、3 楼
+        assertEquals(4 * 5000 + 3 * 15000, trip.leaveMs().get("A"));
+    }
+
+    @Test
+    @DisplayName("窗口: 未装满时等待拼车，装满立即出发，全部出梯后电梯空闲")
+    void testDispatchWindow() {
+        ElevatorSchedule schedule = new ElevatorSchedule();
+        assertTrue(schedule.request("A", 1, 3, 0));
+        assertFalse(schedule.request("A", 1, 3, 100), "重复请求不应重复排队");
+        assertFalse(schedule.request("Z", 2, 2, 100), "同层请求不需要电梯");
+
+        assertNull(schedule.dispatch(1000, PARAMS), "批量窗口内未装满应等待");
+        assertTrue(schedule.request("B", 2, 3, 2000));
+        ElevatorSchedule.ElevatorTrip trip = schedule.dispatch(5000, PARAMS);
+        assertNotNull(trip);
+        assertEquals(2, trip.requests().size());
+        assertTrue(schedule.inTrip("B"));
+        assertFalse(schedule.request("B", 2, 3, 5100), "已上梯的 AGV 不应重复排队");
+
+        // 电梯忙时后续装满的批次也要等待
+        schedule.request("C", 3, 1, 6000);
+        schedule.request("D", 3, 1, 6000);
+        schedule.request("E", 2, 1, 6000);
+        assertNull(schedule.dispatch(6000, PARAMS));
+        assertTrue(schedule.remove("A"));
+        assertTrue(schedule.remove("B"));
+        ElevatorSchedule.ElevatorTrip next = schedule.dispatch(6000, PARAMS);
+        assertNotNull(next, "全部出梯后电梯应立即空闲，装满的批次立即出发");
+        assertEquals(List.of(3, 2, 1), next.stops());
+        assertEquals(0, schedule.size());
+    }
+
+    @Test
+    @DisplayName("预计耗时: 按后续批次推演")
+    void testPredictWait() {
+        ElevatorSchedule schedule = new ElevatorSchedule();
+        ElevatorSchedule.Params single = new ElevatorSchedule.Params(1, 5000, 5000, 15000);
+        schedule.request("A", 1, 2, 0);
+        schedule.request("B", 1, 2, 0);
+
+        // A：电梯位置未知视为在 1 楼，停 1 楼 + 上 1 层 + 停 2 楼
+        assertEquals(5000 + 2 * 15000, schedule.predictWaitMs("A", 0, single));
+        // B：等 A 的批次 35s，再从 2 楼下到 1 楼接、上到 2 楼送
+        assertEquals(35000 + 2 * 5000 + 2 * 15000, schedule.predictWaitMs("B", 0, single));
+        assertEquals(-1, schedule.predictWaitMs("X", 0, single));
+        // 假设请求排在 A、B 之后：B 的批次 75s 结束，再下楼接、上楼送 40s
+        assertEquals(75000 + 40000, schedule.predictWaitMs(1, 2, 0, single));
+        assertEquals(0, schedule.predictWaitMs(2, 2, 0, single));
+
+        // 容量 3：三者拼成一个装满的批次，立即出发
+        assertEquals(5000 + 2 * 15000, schedule.predictWaitMs(1, 2, 0, PARAMS));
+    }
+
+    @Test
+    @DisplayName("仿真: 批量调度减少平均电梯耗时")
+    void testSimulation() {
+        double singleMs = simulate(new ElevatorSchedule.Params(1, 0, 5000, 15000));
+        double batchedMs = simulate(PARAMS);
+        System.out.printf("仿真高峰 30 分钟：单车运送平均电梯耗时 %.1f 秒，批量调度平均电梯耗时 %.1f 秒%n",
+                singleMs / 1000, batchedMs / 1000);
+        assertTrue(batchedMs < singleMs, "批量调度应减少平均电梯耗时");
+    }
+
+    /**
+     * 秒级电梯仿真
+     * <p>
+     * 4 层楼，平均每 40 秒一个换层请求；前半段以 1 楼上行为主，后半段以下行回 1 楼为主。
+     * </p>
+     *
+     * @param params 调度参数
+     * @return 平均电梯耗时 (请求到出梯，毫秒)
+     */
+    private static double simulate(ElevatorSchedule.Params params) {
+        Random random = new Random(20260316L);
+        ElevatorSchedule schedule = new ElevatorSchedule();
+        Map<String, Long> requestMs = new HashMap<>();
+        List<Long> durations = new ArrayList<>();
+        int seq = 0;
+        long end = 30 * 60_000L;
+        for (long now = 0; now < end || !requestMs.isEmpty(); now += 1000) {
+            if (now < end && random.nextInt(40) == 0) {
+                int other = 2 + random.nextInt(3);
+                boolean up = now < end / 2 ? random.nextInt(5) != 0 : random.nextInt(5) == 0;
+                String agvId = "AGV" + (seq++);
+                schedule.request(agvId, up ? 1 : other, up ? other : 1, now);
+                requestMs.put(agvId, now);
+            }
+            ElevatorSchedule.ElevatorTrip trip = schedule.dispatch(now, params);
+            if (trip != null) {
+                trip.leaveMs().forEach((agvId, leave) -> durations.add(leave - requestMs.remove(agvId)));
+            }
+        }
+        return durations.stream().mapToLong(Long::longValue).average().orElse(0);
+    }
+}
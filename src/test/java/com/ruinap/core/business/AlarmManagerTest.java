@@ -4,6 +4,7 @@ import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.db.Entity;
 import com.ruinap.infra.enums.alarm.AlarmCodeEnum;
 import com.ruinap.infra.thread.VthreadPool;
+import com.ruinap.persistence.gateway.PersistenceGateway;
 import com.ruinap.persistence.repository.AlarmDB;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,6 +17,8 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -25,6 +28,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -36,6 +41,9 @@ import static org.mockito.Mockito.*;
  * 3. 手动清除触发回调
  * 4. 系统关闭逻辑
  * 5. 高并发竞态条件测试
+ * 6. 写库前结束的告警直接以已结束状态批量入库
+ * 7. 写库失败时转交持久化网关，不丢弃
+ * 8. 网关中还有排队的新增时，结束告警也交给网关，排在新增之后
  *
  * @author qianye
  * @create 2026-01-12 09:32
@@ -52,6 +60,9 @@ class AlarmManagerTest {
     @Mock
     private VthreadPool vthreadPool;
 
+    @Mock
+    private PersistenceGateway persistenceGateway;
+
     // 模拟的告警枚举
     private final AlarmCodeEnum TEST_ALARM = AlarmCodeEnum.E10001; // 假设存在此枚举，需替换为实际枚举
 
@@ -65,6 +76,9 @@ class AlarmManagerTest {
             task.run();
             return null;
         }).when(vthreadPool).execute(any(Runnable.class));
+        // 写入线程不启动 (submit 返回 null)，由测试调用 flush() 同步写库
+        // 数据库可用且持久化网关没有积压时直接写库
+        lenient().when(persistenceGateway.isDrained()).thenReturn(true);
 
         // 手动触发生命周期初始化
         alarmManager.init();
@@ -77,22 +91,21 @@ class AlarmManagerTest {
     }
 
     @Test
-    @DisplayName("测试：首次触发告警应立即入库")
+    @DisplayName("测试：首次触发告警应在写入时批量入库")
     void testTriggerAlarm_New_ShouldSaveToDb() throws Exception {
         // Given
         String equipmentCode = "AGV_001";
 
         // When
         alarmManager.triggerAlarm(equipmentCode, TEST_ALARM, "TestParam", "AGV");
+        alarmManager.flush();
 
         // Then
-        // 验证 alarmDB.createAlarm 被调用了1次
-        verify(alarmDB, times(1)).createAlarm(any(Entity.class));
-
         // 验证入库参数细节
-        ArgumentCaptor<Entity> entityCaptor = ArgumentCaptor.forClass(Entity.class);
-        verify(alarmDB).createAlarm(entityCaptor.capture());
-        Entity savedEntity = entityCaptor.getValue();
+        ArgumentCaptor<List<Entity>> listCaptor = ArgumentCaptor.forClass(List.class);
+        verify(alarmDB, times(1)).createAlarmBatch(listCaptor.capture());
+        assertEquals(1, listCaptor.getValue().size());
+        Entity savedEntity = listCaptor.getValue().getFirst();
 
         assertEquals(equipmentCode, savedEntity.get("name"));
         assertEquals(TEST_ALARM.code, savedEntity.get("code"));
@@ -111,10 +124,13 @@ class AlarmManagerTest {
         // 第二次触发 (模拟高频上报)
         alarmManager.triggerAlarm(equipmentCode, TEST_ALARM, "Param2", "AGV");
         alarmManager.triggerAlarm(equipmentCode, TEST_ALARM, "Param3", "AGV");
+        alarmManager.flush();
 
         // Then
-        // 验证 alarmDB.createAlarm 只被调用了1次
-        verify(alarmDB, times(1)).createAlarm(any(Entity.class));
+        // 验证只入库了1条
+        ArgumentCaptor<List<Entity>> listCaptor = ArgumentCaptor.forClass(List.class);
+        verify(alarmDB, times(1)).createAlarmBatch(listCaptor.capture());
+        assertEquals(1, listCaptor.getValue().size());
     }
 
     @Test
@@ -124,27 +140,48 @@ class AlarmManagerTest {
         String equipmentCode = "AGV_003";
         // 先触发一个告警，使其存在于缓存中
         alarmManager.triggerAlarm(equipmentCode, TEST_ALARM, "Param", "AGV");
+        alarmManager.flush();
 
-        // 重置 Mock 计数，忽略掉刚才触发时的 createAlarm 调用
+        // 重置 Mock 计数，忽略掉刚才触发时的 createAlarmBatch 调用
         clearInvocations(alarmDB);
 
         // When
-        // 手动清除 -> 应该触发 TimedCache 的 onRemove -> 触发 updateAlarmStatus
+        // 手动清除 -> 应该触发 TimedCache 的 onRemove -> 放入缓冲区 -> 批量结束
         alarmManager.clearAlarm(equipmentCode, TEST_ALARM);
+        alarmManager.flush();
 
         // Then
-        // 验证 alarmDB.updateAlarm 被调用
-        ArgumentCaptor<Entity> bodyCaptor = ArgumentCaptor.forClass(Entity.class);
-        ArgumentCaptor<Entity> whereCaptor = ArgumentCaptor.forClass(Entity.class);
+        ArgumentCaptor<List<Object[]>> keysCaptor = ArgumentCaptor.forClass(List.class);
+        verify(alarmDB, times(1)).endAlarmBatch(keysCaptor.capture());
+        verify(alarmDB, never()).createAlarmBatch(anyList());
+
+        List<Object[]> keys = keysCaptor.getValue();
+        assertEquals(1, keys.size());
+        assertEquals(equipmentCode, keys.getFirst()[0]);
+        assertEquals(TEST_ALARM.code, keys.getFirst()[1]);
+    }
 
-        verify(alarmDB, times(1)).updateAlarm(bodyCaptor.capture(), whereCaptor.capture());
+    @Test
+    @DisplayName("测试：写库前清除的告警应直接以已结束状态入库，不产生更新")
+    void testClearAlarm_BeforeFlush_ShouldCoalesce() throws Exception {
+        // Given
+        String equipmentCode = "AGV_004";
+        alarmManager.triggerAlarm(equipmentCode, TEST_ALARM, "Param", "AGV");
 
-        Entity body = bodyCaptor.getValue();
-        Entity where = whereCaptor.getValue();
+        // When
+        alarmManager.clearAlarm(equipmentCode, TEST_ALARM);
+        // 结束后再次触发，视为新的告警
+        alarmManager.triggerAlarm(equipmentCode, TEST_ALARM, "Param", "AGV");
+        alarmManager.flush();
 
-        assertEquals(1, body.get("state")); // 状态更新为 1 (恢复)
-        assertEquals(equipmentCode, where.get("name"));
-        assertEquals(TEST_ALARM.code, where.get("code"));
+        // Then
+        ArgumentCaptor<List<Entity>> listCaptor = ArgumentCaptor.forClass(List.class);
+        verify(alarmDB, times(1)).createAlarmBatch(listCaptor.capture());
+        verify(alarmDB, never()).endAlarmBatch(anyList());
+        List<Entity> rows = listCaptor.getValue();
+        assertEquals(2, rows.size());
+        assertEquals(1, rows.get(0).get("state"));
+        assertEquals(0, rows.get(1).get("state"));
     }
 
     @Test
@@ -161,6 +198,11 @@ class AlarmManagerTest {
         alarmManager.shutdown();
 
         // Then
+        // 0. 缓冲区中尚未写库的告警应先入库
+        ArgumentCaptor<List<Entity>> listCaptor = ArgumentCaptor.forClass(List.class);
+        verify(alarmDB, times(1)).createAlarmBatch(listCaptor.capture());
+        assertEquals(2, listCaptor.getValue().size());
+
         // 1. 验证监听器是否被移除 (难直接验证，通过观察 updateAlarm 的调用参数间接验证)
         // 2. 验证执行了全局更新 SQL
         ArgumentCaptor<Entity> bodyCaptor = ArgumentCaptor.forClass(Entity.class);
@@ -197,18 +239,17 @@ class AlarmManagerTest {
         String equipmentCode = "AGV_CONCURRENT";
         AtomicInteger successTriggerCount = new AtomicInteger(0);
 
-        // 这里的 Mock 需要稍微改一下，统计 createAlarm 被调用的真实次数
+        // 这里的 Mock 需要稍微改一下，统计真实入库的行数
         // 我们用一个计数器来记录 DB 调用
         AtomicInteger dbInsertCount = new AtomicInteger(0);
         doAnswer(invocation -> {
-            dbInsertCount.incrementAndGet();
+            List<Entity> rows = invocation.getArgument(0);
+            dbInsertCount.addAndGet(rows.size());
             ThreadUtil.sleep(10); // 模拟 DB IO 耗时
-            return null;
-        }).when(alarmDB).createAlarm(any(Entity.class));
+            return new int[rows.size()];
+        }).when(alarmDB).createAlarmBatch(anyList());
 
-        // 此时 vthreadPool 依然是同步执行，这模拟了 CPU 密集的极端情况，
-        // 或者我们可以让 mock vthreadPool 真的去起线程，但为了测试稳定性，保持同步调用即可，
-        // 这意味着 triggerAlarm 方法内部的 cache.put 和 saveToDb 都在测试线程中执行。
+        // triggerAlarm 只放入缓冲区，并发结束后由 flush() 同步写库
 
         for (int i = 0; i < threadCount; i++) {
             executor.submit(() -> {
@@ -229,21 +270,65 @@ class AlarmManagerTest {
         // 等待所有线程结束
         boolean finished = endLatch.await(5, TimeUnit.SECONDS);
         assertTrue(finished, "并发测试未在规定时间内完成");
+        alarmManager.flush();
 
         // 验证
         System.out.println("并发请求数: " + threadCount);
         System.out.println("DB 插入次数: " + dbInsertCount.get());
 
-        // 期望：DB 插入次数应该很少。
-        // 由于我们去掉了 synchronized，确实存在竞态条件，dbInsertCount 可能会 > 1。
-        // 但在极短时间内，Hutool Cache 的 put 应该能拦截绝大多数。
-        // 如果这里是 100，说明缓存完全失效；如果是 1~5，说明架构正常。
-        assertTrue(dbInsertCount.get() < 10, "DB 重复插入次数过多，缓存防抖失效");
+        // 期望：DB 插入次数只有 1 次。
+        // TimedCache 的 check-then-put 存在竞态，但漏过的重复告警会在缓冲区中按告警键合并。
+        assertEquals(1, dbInsertCount.get(), "DB 重复插入，缓存防抖与缓冲区合并失效");
         assertEquals(threadCount, successTriggerCount.get());
 
         executor.shutdownNow();
     }
 
+    @Test
+    @DisplayName("测试：写库失败时告警转交持久化网关排队重试")
+    void testWriteFailure_ShouldHandOverToGateway() throws Exception {
+        // Given
+        doThrow(new SQLException("Communications link failure")).when(alarmDB).createAlarmBatch(anyList());
+        alarmManager.triggerAlarm("AGV_005", TEST_ALARM, "P", "S");
+        alarmManager.triggerAlarm("AGV_006", TEST_ALARM, "P", "S");
+
+        // When
+        alarmManager.flush();
+
+        // Then
+        ArgumentCaptor<Map<String, Object>> rowCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(persistenceGateway, times(2)).insert(eq("rcs_alarm"), rowCaptor.capture());
+        assertEquals("AGV_005", rowCaptor.getAllValues().get(0).get("name"));
+        assertEquals("AGV_006", rowCaptor.getAllValues().get(1).get("name"));
+
+        // 网关有积压时不再直接写库，结束告警也交给网关，保证顺序
+        when(persistenceGateway.isDrained()).thenReturn(false);
+        clearInvocations(alarmDB);
+        alarmManager.clearAlarm("AGV_005", TEST_ALARM);
+        alarmManager.flush();
+        verifyNoInteractions(alarmDB);
+        verify(persistenceGateway, times(1)).execute(eq(AlarmDB.END_ALARM_SQL), eq("AGV_005"), eq(TEST_ALARM.code));
+    }
+
+    @Test
+    @DisplayName("测试：数据库恢复后网关仍有排队的新增时，结束告警排在新增之后")
+    void testEndAfterQueuedInsert_ShouldGoThroughGateway() throws Exception {
+        // Given: 宕机期间告警新增已交给网关
+        when(persistenceGateway.isDrained()).thenReturn(false);
+        alarmManager.triggerAlarm("AGV_007", TEST_ALARM, "P", "S");
+        alarmManager.flush();
+        verify(persistenceGateway, times(1)).insert(eq("rcs_alarm"), any(Entity.class));
+
+        // When: 数据库已恢复，但网关还没有写完排队的新增
+        lenient().when(persistenceGateway.isDbAvailable()).thenReturn(true);
+        alarmManager.clearAlarm("AGV_007", TEST_ALARM);
+        alarmManager.flush();
+
+        // Then: 结束更新不直接写库 (否则匹配不到尚未写入的记录)，由网关排在新增之后执行
+        verifyNoInteractions(alarmDB);
+        verify(persistenceGateway, times(1)).execute(eq(AlarmDB.END_ALARM_SQL), eq("AGV_007"), eq(TEST_ALARM.code));
+    }
+
     @Test
     @DisplayName("测试：空参数防御性校验")
     void testTriggerAlarm_NullInputs_ShouldDoNothing() {
@@ -0,0 +1,125 @@
+package com.ruinap.core.business.domain;
+
+import cn.hutool.db.Entity;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AlarmBuffer 单元测试
+ * <p>
+ * 覆盖场景：
+ * 1. 缓冲满时合并重复告警、丢弃新告警并计数
+ * 2. 写库前结束的告警改为已结束行，已写库的告警按键合并结束
+ * 3. 先结束后新增：未写完的结束之后的新增留到下一批
+ * 4. 模拟全场故障：上千条告警被合并为少量批量写入
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-18 15:10
+ */
+class AlarmBufferTest {
+
+    private static Entity row(String name) {
+        return Entity.create("rcs_alarm").set("name", name).set("state", 0);
+    }
+
+    @Test
+    @DisplayName("缓冲满: 重复告警合并，新告警丢弃并计数，调用方不阻塞")
+    void testOverflow() {
+        AlarmBuffer<String> buffer = new AlarmBuffer<>(3, 2);
+        assertTrue(buffer.offer("a", row("a")));
+        assertTrue(buffer.offer("b", row("b")));
+        assertTrue(buffer.offer("c", row("c")));
+        assertFalse(buffer.offer("a", row("a")));
+        assertFalse(buffer.offer("d", row("d")));
+        assertFalse(buffer.end("x"));
+        assertEquals(3, buffer.size());
+        assertEquals(1, buffer.getCoalesced());
+        assertEquals(2, buffer.getDropped());
+
+        // 每批最多 2 条
+        assertEquals(2, buffer.drain().inserts().size());
+        assertEquals(1, buffer.drain().inserts().size());
+        assertTrue(buffer.drain().isEmpty());
+    }
+
+    @Test
+    @DisplayName("结束: 写库前结束改写为已结束行，已写库的结束按键合并")
+    void testEnd() {
+        AlarmBuffer<String> buffer = new AlarmBuffer<>(10, 10);
+        buffer.offer("a", row("a"));
+        assertFalse(buffer.end("a"));
+        AlarmBuffer.Batch<String> batch = buffer.drain();
+        assertTrue(batch.ends().isEmpty());
+        assertEquals(1, batch.inserts().size());
+        assertEquals(1, batch.inserts().getFirst().get("state"));
+
+        // 已写库的告警
+        assertTrue(buffer.end("a"));
+        assertFalse(buffer.end("a"));
+        assertEquals(List.of("a"), buffer.drain().ends());
+    }
+
+    @Test
+    @DisplayName("顺序: 同一批先结束后新增，未写完的结束之后的新增留到下一批")
+    void testOrdering() throws InterruptedException {
+        AlarmBuffer<String> buffer = new AlarmBuffer<>(10, 2);
+        buffer.end("a");
+        buffer.end("b");
+        buffer.end("c");
+        // c 结束后又触发
+        buffer.offer("c", row("c"));
+
+        AlarmBuffer.Batch<String> first = buffer.await(10, TimeUnit.MILLISECONDS);
+        assertEquals(List.of("a", "b"), first.ends());
+        assertTrue(first.inserts().isEmpty());
+        AlarmBuffer.Batch<String> second = buffer.drain();
+        assertEquals(List.of("c"), second.ends());
+        assertEquals(1, second.inserts().size());
+    }
+
+    @Test
+    @DisplayName("模拟: 200 台 AGV 同时断网，每台 5 种告警重复上报 10 次，合并为少量批量写入")
+    void testBurstSimulation() throws InterruptedException {
+        AlarmBuffer<String> buffer = new AlarmBuffer<>(4096, 200);
+        List<Thread> reporters = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t;
+            Thread reporter = new Thread(() -> {
+                for (int repeat = 0; repeat < 10; repeat++) {
+                    for (int agv = offset; agv < 200; agv += 8) {
+                        for (int code = 0; code < 5; code++) {
+                            String key = agv + "-" + code;
+                            buffer.offer(key, row(key));
+                        }
+                    }
+                }
+            });
+            reporters.add(reporter);
+            reporter.start();
+        }
+        for (Thread reporter : reporters) {
+            reporter.join();
+        }
+
+        int batches = 0, rows = 0;
+        AlarmBuffer.Batch<String> batch = buffer.drain();
+        while (!batch.isEmpty()) {
+            batches++;
+            rows += batch.inserts().size();
+            batch = buffer.drain();
+        }
+        System.out.printf("上报 %d 次, 合并 %d 次, 写入 %d 行 / %d 批 (逐条写入需 %d 次 INSERT)%n",
+                200 * 5 * 10, buffer.getCoalesced(), rows, batches, rows);
+        assertEquals(1000, rows);
+        assertEquals(5, batches);
+        assertEquals(9000, buffer.getCoalesced());
+        assertEquals(0, buffer.getDropped());
+    }
+}
@@ -0,0 +1,89 @@
+package com.ruinap.core.business.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * KpiRing 单元测试
+ * <p>
+ * 覆盖场景：
+ * 1. 分钟桶聚合为小时指标，派生指标计算正确
+ * 2. 环形覆盖：旧桶被淘汰，过旧数据被丢弃
+ * 3. 多线程并发累加不丢数
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-17 11:30
+ */
+class KpiRingTest {
+
+    @Test
+    @DisplayName("聚合: 分钟桶求和并计算每小时任务数、空驶率、平均等待、稼动率")
+    void testAggregate() {
+        KpiRing ring = new KpiRing(120);
+        long hour = 1_000_000L;
+        for (int i = 0; i < 60; i++) {
+            ring.addTask(hour + i, i % 2 == 0 ? 30_000 : -1);
+            ring.addState(hour + i, KpiRing.StateKind.BUSY, 45_000);
+            ring.addState(hour + i, KpiRing.StateKind.IDLE, 15_000);
+            ring.addTravel(hour + i, 3_000, true);
+            ring.addTravel(hour + i, 1_000, false);
+        }
+        // 区间外的数据不参与聚合
+        ring.addTask(hour + 60, 0);
+
+        KpiSnapshot snapshot = ring.aggregate(hour, hour + 60);
+        assertEquals(60, snapshot.getTaskCount());
+        assertEquals(30, snapshot.getWaitCount());
+        assertEquals(60.0, snapshot.getTasksPerHour(), 1e-9);
+        assertEquals(30_000.0, snapshot.getAvgWaitMs(), 1e-9);
+        assertEquals(0.25, snapshot.getEmptyTravelRatio(), 1e-9);
+        assertEquals(0.75, snapshot.getUtilization(), 1e-9);
+        assertFalse(snapshot.isEmpty());
+        assertTrue(ring.aggregate(hour - 60, hour).isEmpty());
+    }
+
+    @Test
+    @DisplayName("环形覆盖: 旧桶被新分钟淘汰，过旧数据直接丢弃")
+    void testWrap() {
+        KpiRing ring = new KpiRing(60);
+        ring.addTask(100, -1);
+        // 同一槽位的新分钟淘汰旧桶
+        ring.addTask(160, -1);
+        assertEquals(0, ring.aggregate(100, 101).getTaskCount());
+        assertEquals(1, ring.aggregate(160, 161).getTaskCount());
+        // 槽位已被更新的分钟占用，过旧数据丢弃
+        ring.addTask(100, -1);
+        assertEquals(1, ring.aggregate(160, 161).getTaskCount());
+        // 超出环容量的区间只聚合最近一个环
+        assertEquals(1, ring.aggregate(0, 161).getTaskCount());
+    }
+
+    @Test
+    @DisplayName("并发: 多线程跨分钟累加不丢数")
+    void testConcurrent() throws InterruptedException {
+        KpiRing ring = new KpiRing(1440);
+        int threads = 8;
+        int perThread = 20_000;
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    // 每 1000 次跨入下一分钟，多个线程同时创建新桶
+                    ring.addState(i / 1000, KpiRing.StateKind.BUSY, 1);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals((long) threads * perThread, ring.aggregate(0, 1440).getBusyMs());
+    }
+}
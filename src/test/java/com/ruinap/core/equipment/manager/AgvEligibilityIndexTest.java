@@ -0,0 +1,259 @@
+package com.ruinap.core.equipment.manager;
+
+import cn.hutool.core.util.StrUtil;
+import com.ruinap.core.equipment.manager.AgvEligibilityIndex.Flag;
+import com.ruinap.core.equipment.pojo.RcsAgv;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AgvEligibilityIndex 单元测试
+ * <p>
+ * 覆盖场景：
+ * 1. 标记与属性值的位图求交
+ * 2. 字段变化后刷新，旧值位图清除
+ * 3. 电量档位边界、标签并集
+ * 4. 移除与槽位复用
+ * 5. 500 台 AGV 随机数据与逐台扫描结果一致，并输出 100 个任务的筛选耗时
+ * 6. 状态、楼层、点位视图不可修改，成员变化时失效，无关字段变化时复用
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-10 11:00
+ */
+class AgvEligibilityIndexTest {
+
+    /**
+     * 测试用空闲判定：AGV 状态 0 且未载货
+     */
+    private static final Predicate<RcsAgv> IDLE = agv -> Integer.valueOf(0).equals(agv.getAgvState()) && Integer.valueOf(0).equals(agv.getGoodsState());
+
+    private AgvEligibilityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new AgvEligibilityIndex(Map.of(Flag.IDLE, IDLE));
+    }
+
+    private static RcsAgv agv(String agvId, int state, int mapId, int type, String label, Integer battery) {
+        RcsAgv agv = new RcsAgv();
+        agv.setAgvId(agvId);
+        agv.setAgvState(state);
+        agv.setGoodsState(0);
+        agv.setMapId(mapId);
+        agv.setAgvType(type);
+        agv.setAgvLabel(label);
+        agv.setBattery(battery);
+        return agv;
+    }
+
+    private static List<String> ids(AgvEligibilityIndex.Selection selection) {
+        List<String> ids = new ArrayList<>();
+        selection.toList().forEach(agv -> ids.add(agv.getAgvId()));
+        Collections.sort(ids);
+        return ids;
+    }
+
+    @Test
+    @DisplayName("求交：标记、楼层、类型组合查询")
+    void testSelect() {
+        index.refresh(agv("A1", 0, 1, 1, null, 80));
+        index.refresh(agv("A2", 0, 2, 1, null, 80));
+        index.refresh(agv("A3", 1, 1, 1, null, 80));
+        index.refresh(agv("A4", 0, 1, 2, null, 80));
+
+        assertEquals(List.of("A1", "A2", "A3", "A4"), ids(index.select()));
+        assertEquals(List.of("A1", "A2", "A4"), ids(index.select().with(Flag.IDLE)));
+        assertEquals(List.of("A1", "A4"), ids(index.select().with(Flag.IDLE).floor(1)));
+        assertEquals(List.of("A1"), ids(index.select().with(Flag.IDLE).floor(1).type(1)));
+        // 未提供判定逻辑的标记恒为 false，不存在的值为空集
+        assertEquals(0, index.select().with(Flag.CHARGING).count());
+        assertEquals(0, index.select().floor(9).count());
+    }
+
+    @Test
+    @DisplayName("刷新：字段变化后移动到新值位图")
+    void testRefresh() {
+        RcsAgv agv = agv("A1", 0, 1, 1, null, 80);
+        index.refresh(agv);
+        assertEquals(1, index.select().with(Flag.IDLE).floor(1).count());
+
+        agv.setAgvState(1);
+        agv.setMapId(2);
+        index.refresh(agv);
+        assertEquals(0, index.select().with(Flag.IDLE).count());
+        assertEquals(0, index.select().floor(1).count());
+        assertEquals(List.of("A1"), ids(index.select().floor(2)));
+
+        agv.setGoodsState(1);
+        agv.setAgvState(0);
+        index.refresh(agv);
+        assertEquals(0, index.select().with(Flag.IDLE).count());
+        assertEquals(List.of("A1"), ids(index.select().goods(1)));
+    }
+
+    @Test
+    @DisplayName("电量与标签：档位边界逐台判断，标签取并集")
+    void testBatteryAndLabel() {
+        index.refresh(agv("A1", 0, 1, 1, "冷库,重载", 29));
+        index.refresh(agv("A2", 0, 1, 1, "重载", 30));
+        index.refresh(agv("A3", 0, 1, 1, "冷库", 35));
+        index.refresh(agv("A4", 0, 1, 1, null, 100));
+        index.refresh(agv("A5", 0, 1, 1, "冷库", null));
+
+        assertEquals(List.of("A2", "A3", "A4"), ids(index.select().batteryAtLeast(30)));
+        assertEquals(List.of("A3", "A4"), ids(index.select().batteryAtLeast(31)));
+        assertEquals(List.of("A4"), ids(index.select().batteryAtLeast(100)));
+        assertEquals(0, index.select().batteryAtLeast(101).count());
+        assertEquals(List.of("A1", "A2", "A3", "A4"), ids(index.select().batteryAtLeast(0)));
+
+        assertEquals(List.of("A1", "A3", "A5"), ids(index.select().anyLabel(List.of("冷库"))));
+        assertEquals(List.of("A1", "A2", "A3", "A5"), ids(index.select().anyLabel(List.of("冷库", "重载"))));
+        assertEquals(List.of("A2", "A3"), ids(index.select().anyLabel(List.of("冷库", "重载")).batteryAtLeast(30)));
+        assertEquals(0, index.select().anyLabel(List.of("不存在")).count());
+    }
+
+    @Test
+    @DisplayName("移除：位图清除，槽位被新 AGV 复用")
+    void testRemove() {
+        index.refresh(agv("A1", 0, 1, 1, "冷库", 80));
+        index.refresh(agv("A2", 0, 1, 1, null, 80));
+        index.remove("A1");
+        assertFalse(index.contains("A1"));
+        assertEquals(1, index.size());
+        assertEquals(List.of("A2"), ids(index.select().floor(1)));
+        assertEquals(0, index.select().anyLabel(List.of("冷库")).count());
+
+        index.refresh(agv("A3", 0, 2, 1, null, 80));
+        assertEquals(List.of("A2", "A3"), ids(index.select().with(Flag.IDLE)));
+        assertEquals(List.of("A3"), ids(index.select().floor(2)));
+        index.remove("A1");
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    @DisplayName("视图：按状态、楼层、点位查询，成员变化时失效")
+    void testViews() {
+        RcsAgv a1 = agv("A1", 0, 1, 1, null, 80);
+        a1.setPointId(10);
+        RcsAgv a2 = agv("A2", 1, 1, 1, null, 80);
+        a2.setPointId(10);
+        RcsAgv a3 = agv("A3", 0, 2, 1, null, 80);
+        a3.setPointId(10);
+        index.refresh(a1);
+        index.refresh(a2);
+        index.refresh(a3);
+
+        // 点位编号只在同一地图内唯一
+        assertEquals(Set.of("A1", "A2"), index.pointView(1, 10).keySet());
+        assertEquals(Set.of("A3"), index.pointView(2, 10).keySet());
+        assertEquals(Set.of("A1", "A3"), index.stateView(0).keySet());
+        assertEquals(Set.of("A1", "A3"), index.view(Flag.IDLE).keySet());
+        assertEquals(List.of("A1"), ids(index.select().state(0).point(1, 10)));
+        assertTrue(index.pointView(1, -1).isEmpty());
+        assertThrows(UnsupportedOperationException.class, () -> index.floorView(1).remove("A1"));
+        assertThrows(UnsupportedOperationException.class, () -> index.select().toMap().clear());
+
+        // 无关字段变化时复用同一视图
+        Map<String, RcsAgv> floor1 = index.floorView(1);
+        Map<String, RcsAgv> idle = index.view(Flag.IDLE);
+        a1.setBattery(50);
+        index.refresh(a1);
+        assertSame(floor1, index.floorView(1));
+        assertSame(idle, index.view(Flag.IDLE));
+
+        // 移动到新点位后旧点位、新点位视图都失效，楼层视图不变
+        a1.setPointId(11);
+        index.refresh(a1);
+        assertEquals(Set.of("A2"), index.pointView(1, 10).keySet());
+        assertEquals(Set.of("A1"), index.pointView(1, 11).keySet());
+        assertSame(floor1, index.floorView(1));
+
+        a1.setAgvState(1);
+        index.refresh(a1);
+        assertEquals(Set.of("A3"), index.view(Flag.IDLE).keySet());
+        assertEquals(Set.of("A1", "A2"), index.stateView(1).keySet());
+
+        index.remove("A2");
+        assertEquals(Set.of("A1"), index.floorView(1).keySet());
+        assertTrue(index.pointView(1, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("正确性与性能：500 台 AGV 随机数据与逐台扫描一致")
+    void testAgainstScan() {
+        Random random = new Random(20260310L);
+        String[] labelPool = {null, "冷库", "重载", "冷库,重载", "防爆"};
+        List<RcsAgv> agvs = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            RcsAgv agv = agv("AGV" + i, random.nextInt(3), 1 + random.nextInt(4), 1 + random.nextInt(2),
+                    labelPool[random.nextInt(labelPool.length)], random.nextInt(10) == 0 ? null : random.nextInt(101));
+            agv.setGoodsState(random.nextInt(4) == 0 ? 1 : 0);
+            agvs.add(agv);
+            index.refresh(agv);
+        }
+        // 随机改动一部分 AGV 并刷新
+        for (int i = 0; i < 2000; i++) {
+            RcsAgv agv = agvs.get(random.nextInt(agvs.size()));
+            agv.setAgvState(random.nextInt(3));
+            agv.setMapId(1 + random.nextInt(4));
+            agv.setBattery(random.nextInt(101));
+            index.refresh(agv);
+        }
+
+        // 100 个任务：楼层、类型、标签、最低电量
+        int tasks = 100;
+        int[] floors = new int[tasks];
+        int[] types = new int[tasks];
+        String[] labels = new String[tasks];
+        int[] batteries = new int[tasks];
+        for (int t = 0; t < tasks; t++) {
+            floors[t] = 1 + random.nextInt(4);
+            types[t] = 1 + random.nextInt(2);
+            labels[t] = random.nextBoolean() ? null : labelPool[1 + random.nextInt(labelPool.length - 1)];
+            batteries[t] = random.nextInt(60);
+        }
+
+        List<List<RcsAgv>> indexed = new ArrayList<>(tasks);
+        List<List<RcsAgv>> scanned = new ArrayList<>(tasks);
+        long indexNanos = 0;
+        long scanNanos = 0;
+        for (int round = 0; round < 5; round++) {
+            indexed.clear();
+            scanned.clear();
+            long start = System.nanoTime();
+            for (int t = 0; t < tasks; t++) {
+                AgvEligibilityIndex.Selection selection = index.select().with(Flag.IDLE).floor(floors[t]).type(types[t]).batteryAtLeast(batteries[t]);
+                if (labels[t] != null) {
+                    selection.anyLabel(StrUtil.split(labels[t], ','));
+                }
+                indexed.add(selection.toList());
+            }
+            indexNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int t = 0; t < tasks; t++) {
+                int task = t;
+                scanned.add(agvs.stream()
+                        .filter(IDLE)
+                        .filter(agv -> agv.getMapId() == floors[task] && agv.getAgvType() == types[task])
+                        .filter(agv -> agv.getBattery() != null && agv.getBattery() >= batteries[task])
+                        .filter(agv -> labels[task] == null || (StrUtil.isNotBlank(agv.getAgvLabel())
+                                && StrUtil.split(labels[task], ',').stream().anyMatch(StrUtil.split(agv.getAgvLabel(), ',')::contains)))
+                        .toList());
+            }
+            scanNanos = System.nanoTime() - start;
+        }
+
+        for (int t = 0; t < tasks; t++) {
+            assertEquals(new HashSet<>(scanned.get(t)), new HashSet<>(indexed.get(t)), "任务 " + t + " 的候选集不一致");
+        }
+        System.out.printf("AgvEligibilityIndex: 500 台 AGV × %d 个任务，位图筛选 %.1f us，逐台扫描 %.1f us%n", tasks, indexNanos / 1e3, scanNanos / 1e3);
+    }
+}
@@ -0,0 +1,174 @@
+package com.ruinap.core.equipment.manager;
+
+import com.ruinap.core.equipment.pojo.RcsChargePile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ChargePileIndex 单元测试
+ * <p>
+ * 覆盖场景：
+ * 1. 按空闲、状态、楼层、区域、匹配类型分组查询，结果不可修改
+ * 2. 字段变化后移动到新分组，无关字段变化时分组不替换
+ * 3. 移除后从所有分组中清除
+ * 4. 随机数据与逐个扫描结果一致，并输出查询耗时
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-22 15:00
+ */
+class ChargePileIndexTest {
+
+    /**
+     * 测试用空闲判定：在线、未隔离、空闲
+     */
+    private static final Predicate<RcsChargePile> IDLE = pile -> Integer.valueOf(1).equals(pile.getState())
+            && Integer.valueOf(0).equals(pile.getIsolationState()) && Integer.valueOf(0).equals(pile.getIdleState());
+
+    private ChargePileIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ChargePileIndex(IDLE);
+    }
+
+    private static RcsChargePile pile(String code, int state, int idleState, int floor, String area, int matchType) {
+        RcsChargePile pile = new RcsChargePile();
+        pile.setCode(code);
+        pile.setState(state);
+        pile.setIsolationState(0);
+        pile.setIdleState(idleState);
+        pile.setFloor(floor);
+        pile.setArea(area);
+        pile.setMatchType(matchType);
+        return pile;
+    }
+
+    @Test
+    @DisplayName("分组：空闲、状态、楼层、区域、匹配类型")
+    void testGroups() {
+        index.refresh(pile("C1", 1, 0, 1, "A", 1));
+        index.refresh(pile("C2", 1, 1, 1, "A", 1));
+        index.refresh(pile("C3", 0, 0, 2, "B", 2));
+        index.refresh(pile("C4", 1, 0, 2, null, 2));
+
+        assertEquals(Set.of("C1", "C4"), index.idleView().keySet());
+        assertEquals(Set.of("C1"), index.idleMatchTypeView(1).keySet());
+        assertEquals(Set.of("C4"), index.idleMatchTypeView(2).keySet());
+        assertEquals(Set.of("C1", "C2", "C4"), index.stateView(1).keySet());
+        assertEquals(Set.of("C3", "C4"), index.floorView(2).keySet());
+        assertEquals(Set.of("C1", "C2"), index.areaView("A").keySet());
+        assertTrue(index.areaView(null).isEmpty());
+        assertTrue(index.floorView(9).isEmpty());
+        assertThrows(UnsupportedOperationException.class, () -> index.idleView().remove("C1"));
+    }
+
+    @Test
+    @DisplayName("刷新：字段变化后移动到新分组，无关字段变化时分组不替换")
+    void testRefresh() {
+        RcsChargePile c1 = pile("C1", 1, 0, 1, "A", 1);
+        index.refresh(c1);
+        index.refresh(pile("C2", 1, 0, 1, "A", 1));
+        Map<String, RcsChargePile> idle = index.idleView();
+
+        c1.setVoltage(48);
+        c1.setCurrent(20);
+        index.refresh(c1);
+        assertSame(idle, index.idleView());
+
+        c1.setIdleState(1);
+        index.refresh(c1);
+        assertEquals(Set.of("C2"), index.idleView().keySet());
+        assertEquals(Set.of("C2"), index.idleMatchTypeView(1).keySet());
+        // 之前返回的分组不受影响
+        assertEquals(Set.of("C1", "C2"), idle.keySet());
+
+        c1.setFloor(3);
+        c1.setArea("B");
+        c1.setState(0);
+        index.refresh(c1);
+        assertEquals(Set.of("C2"), index.floorView(1).keySet());
+        assertEquals(Set.of("C1"), index.floorView(3).keySet());
+        assertEquals(Set.of("C1"), index.areaView("B").keySet());
+        assertEquals(Set.of("C1"), index.stateView(0).keySet());
+    }
+
+    @Test
+    @DisplayName("移除：从所有分组中清除")
+    void testRemove() {
+        index.refresh(pile("C1", 1, 0, 1, "A", 1));
+        index.refresh(pile("C2", 1, 0, 1, "A", 1));
+        index.remove("C1");
+        index.remove("C9");
+        assertFalse(index.contains("C1"));
+        assertEquals(1, index.size());
+        assertEquals(Set.of("C2"), index.idleView().keySet());
+        assertEquals(Set.of("C2"), index.floorView(1).keySet());
+        assertEquals(Set.of("C2"), index.areaView("A").keySet());
+        assertEquals(Set.of("C2"), index.idleMatchTypeView(1).keySet());
+    }
+
+    @Test
+    @DisplayName("正确性与性能：随机数据与逐个扫描一致")
+    void testAgainstScan() {
+        Random random = new Random(20260322L);
+        String[] areas = {null, "A", "B", "C"};
+        List<RcsChargePile> piles = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            RcsChargePile pile = pile("C" + i, random.nextInt(2), random.nextInt(2), 1 + random.nextInt(3),
+                    areas[random.nextInt(areas.length)], 1 + random.nextInt(2));
+            piles.add(pile);
+            index.refresh(pile);
+        }
+        for (int i = 0; i < 1000; i++) {
+            RcsChargePile pile = piles.get(random.nextInt(piles.size()));
+            pile.setState(random.nextInt(2));
+            pile.setIdleState(random.nextInt(2));
+            pile.setIsolationState(random.nextInt(5) == 0 ? 1 : 0);
+            pile.setFloor(1 + random.nextInt(3));
+            index.refresh(pile);
+        }
+
+        for (int type = 1; type <= 2; type++) {
+            int matchType = type;
+            Set<String> scanned = new HashSet<>();
+            piles.stream().filter(IDLE).filter(p -> p.getMatchType() == matchType).forEach(p -> scanned.add(p.getCode()));
+            assertEquals(scanned, index.idleMatchTypeView(matchType).keySet());
+        }
+        for (int floor = 1; floor <= 3; floor++) {
+            int f = floor;
+            Set<String> scanned = new HashSet<>();
+            piles.stream().filter(p -> p.getFloor() == f).forEach(p -> scanned.add(p.getCode()));
+            assertEquals(scanned, index.floorView(f).keySet());
+        }
+
+        int rounds = 100_000;
+        long start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < rounds; i++) {
+            found += index.idleView().size();
+        }
+        long indexNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        int scannedCount = 0;
+        for (int i = 0; i < rounds; i++) {
+            Map<String, RcsChargePile> idle = new HashMap<>();
+            for (RcsChargePile pile : piles) {
+                if (IDLE.test(pile)) {
+                    idle.put(pile.getCode(), pile);
+                }
+            }
+            scannedCount += idle.size();
+        }
+        long scanNanos = System.nanoTime() - start;
+        assertEquals(scannedCount, found);
+        System.out.printf("ChargePileIndex: 60 个充电桩，空闲查询 索引 %.1f ns/次，逐个扫描 %.1f ns/次%n",
+                indexNanos / (double) rounds, scanNanos / (double) rounds);
+    }
+}
@@ -0,0 +1,182 @@
+package com.ruinap.core.equipment.manager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HandoverDevicePoller 单元测试
+ * <p>
+ * 覆盖场景：
+ * 1. 一台设备无应答时，其余设备的状态在应答到达时立即更新，整轮只等待一个截止时间
+ * 2. 截止时间到达后取消未应答的请求，迟到的应答不再更新状态
+ * 3. 连续失败达到阈值后熔断，退避期间不发送请求，探测失败退避翻倍，探测成功恢复 (测试时钟推进，不依赖真实等待)
+ * 4. 单台设备发送异常不影响其他设备
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-22 16:50
+ */
+class HandoverDevicePollerTest {
+
+    private ScheduledExecutorService device;
+
+    @BeforeEach
+    void setUp() {
+        device = Executors.newScheduledThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        device.shutdownNow();
+    }
+
+    /**
+     * 模拟设备在指定时间后应答
+     */
+    private CompletableFuture<Integer> replyAfter(int state, long millis) {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        device.schedule(() -> future.complete(state), millis, TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    @Test
+    @DisplayName("并行: 一台设备无应答不拖慢其他设备，整轮只等待一个截止时间")
+    void testSlowDeviceDoesNotBlockOthers() {
+        HandoverDevicePoller<String> poller = new HandoverDevicePoller<>(3, 5_000, 60_000);
+        List<String> devices = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            devices.add("D" + i);
+        }
+        long replyMs = 20;
+        long timeoutMs = 300;
+        Map<String, Integer> states = new ConcurrentHashMap<>();
+        // 应答回调执行时无应答设备的请求是否已被取消 (截止时间到达才会取消)
+        Map<String, Boolean> afterDeadline = new ConcurrentHashMap<>();
+        CompletableFuture<Integer> silent = new CompletableFuture<>();
+
+        long begin = System.nanoTime();
+        HandoverDevicePoller.PollResult result = poller.poll(devices,
+                // D1 排在最前且永不应答
+                d -> "D1".equals(d) ? silent : replyAfter(Integer.parseInt(d.substring(1)), replyMs),
+                (d, state) -> {
+                    states.put(d, state);
+                    afterDeadline.put(d, silent.isCancelled());
+                }, timeoutMs);
+        double elapsedMs = (System.nanoTime() - begin) / 1e6;
+
+        assertEquals(10, result.sent());
+        assertEquals(9, result.replied());
+        assertEquals(1, result.timedOut());
+        assertEquals(9, states.size());
+        assertFalse(states.containsKey("D1"));
+        assertTrue(silent.isCancelled(), "无应答的请求应在截止时间取消");
+        // 应答到达即更新，不等待无应答的设备
+        assertEquals(9, afterDeadline.size());
+        assertFalse(afterDeadline.containsValue(true), "应答应在截止时间之前更新");
+        assertEquals(1, poller.getFailures("D1"));
+
+        System.out.printf("并行轮询 10 台 (1 台无应答)：整轮 %.0f ms；逐台等待约需 %d ms%n",
+                elapsedMs, timeoutMs + 9 * replyMs);
+    }
+
+    @Test
+    @DisplayName("截止: 超时的请求被取消，迟到的应答不再更新状态")
+    void testLateReplyIgnored() {
+        HandoverDevicePoller<String> poller = new HandoverDevicePoller<>(3, 5_000, 60_000);
+        Map<String, Integer> states = new ConcurrentHashMap<>();
+        List<CompletableFuture<Integer>> sent = new ArrayList<>();
+        HandoverDevicePoller.PollResult result = poller.poll(List.of("A", "B"), d -> {
+            CompletableFuture<Integer> future = "A".equals(d) ? CompletableFuture.completedFuture(1) : new CompletableFuture<>();
+            sent.add(future);
+            return future;
+        }, states::put, 50);
+
+        assertEquals(1, result.replied());
+        assertEquals(1, result.timedOut());
+        assertTrue(sent.get(1).isCancelled(), "未应答的请求应被取消");
+        // 截止时间之后到达的应答
+        assertFalse(sent.get(1).complete(1));
+        assertEquals(Map.of("A", 1), states);
+    }
+
+    @Test
+    @DisplayName("熔断: 连续失败后退避，探测失败退避翻倍，探测成功恢复")
+    void testCircuitBreaker() {
+        AtomicLong now = new AtomicLong();
+        HandoverDevicePoller<String> poller = new HandoverDevicePoller<>(3, 400, 4_000, now::get);
+        AtomicInteger calls = new AtomicInteger();
+        boolean[] healthy = {false};
+        Map<String, Integer> states = new HashMap<>();
+        Function<String, CompletableFuture<Integer>> request = d -> {
+            calls.incrementAndGet();
+            return healthy[0] ? CompletableFuture.completedFuture(1) : CompletableFuture.failedFuture(new TimeoutException("无应答"));
+        };
+
+        for (int i = 0; i < 3; i++) {
+            poller.poll(List.of("E1"), request, states::put, 50);
+        }
+        assertEquals(3, calls.get());
+        assertTrue(poller.isOpen("E1"));
+
+        // 退避期间不发送请求
+        advance(now, 399);
+        HandoverDevicePoller.PollResult skipped = poller.poll(List.of("E1"), request, states::put, 50);
+        assertEquals(1, skipped.skipped());
+        assertEquals(0, skipped.sent());
+        assertEquals(3, calls.get());
+
+        // 退避结束后探测失败：再次熔断，退避翻倍
+        advance(now, 1);
+        assertFalse(poller.isOpen("E1"));
+        poller.poll(List.of("E1"), request, states::put, 50);
+        assertEquals(4, calls.get());
+        assertTrue(poller.isOpen("E1"));
+        advance(now, 799);
+        assertTrue(poller.isOpen("E1"), "第二次熔断的退避时长应翻倍");
+
+        // 探测成功：恢复并清零失败次数
+        advance(now, 1);
+        assertFalse(poller.isOpen("E1"));
+        healthy[0] = true;
+        HandoverDevicePoller.PollResult recovered = poller.poll(List.of("E1"), request, states::put, 50);
+        assertEquals(1, recovered.replied());
+        assertFalse(poller.isOpen("E1"));
+        assertEquals(0, poller.getFailures("E1"));
+        assertEquals(1, states.get("E1"));
+    }
+
+    /**
+     * 推进测试时钟
+     */
+    private static void advance(AtomicLong now, long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Test
+    @DisplayName("隔离: 单台设备发送异常不影响其他设备")
+    void testSendExceptionIsolated() {
+        HandoverDevicePoller<String> poller = new HandoverDevicePoller<>(3, 5_000, 60_000);
+        Map<String, Integer> states = new ConcurrentHashMap<>();
+        HandoverDevicePoller.PollResult result = poller.poll(List.of("A", "B", "C"), d -> {
+            if ("B".equals(d)) {
+                throw new IllegalStateException("通道未激活");
+            }
+            return CompletableFuture.completedFuture(2);
+        }, states::put, 50);
+
+        assertEquals(2, result.replied());
+        assertEquals(1, result.failed());
+        assertEquals(Map.of("A", 2, "C", 2), states);
+        assertEquals(1, poller.getFailures("B"));
+    }
+}
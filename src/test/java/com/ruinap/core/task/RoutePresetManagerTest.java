@@ -0,0 +1,80 @@
+package com.ruinap.core.task;
+
+import com.ruinap.core.task.domain.RoutePresetLeg;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RoutePresetManager 单元测试
+ * <p>
+ * 覆盖场景：
+ * 1. 索引按 任务类型|起点|终点 建立，别名忽略大小写与空白，同一对起终点取顺序最小的线路
+ * 2. 校验线路段首尾相连、端点与线路一致且全部由AGV执行
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-13 10:00
+ */
+class RoutePresetManagerTest {
+
+    private static RoutePresetLeg leg(String routeCode, String routeOrigin, String routeDestin, String code, String origin, String destin) {
+        RoutePresetLeg leg = new RoutePresetLeg();
+        leg.setRouteCode(routeCode);
+        leg.setRouteType(0);
+        leg.setRouteOrigin(routeOrigin);
+        leg.setRouteDestin(routeDestin);
+        leg.setCode(code);
+        leg.setOrigin(origin);
+        leg.setDestin(destin);
+        leg.setExecutiveSystem("0");
+        return leg;
+    }
+
+    @Test
+    @DisplayName("索引：按线路分组，同一对起终点取顺序最小的线路")
+    void testIndex() {
+        // 查询结果已按线路顺序排列，R1 顺序更小
+        List<RoutePresetLeg> legs = List.of(
+                leg("R1", "a1 ", "B2", "R1-1", "A1", "C1"),
+                leg("R1", "a1 ", "B2", "R1-2", "C1", "B2"),
+                leg("R2", "A1", "b2", "R2-1", "A1", "B2"),
+                leg("R3", "A1", "D4", "R3-1", "A1", "D4"));
+
+        Map<String, List<RoutePresetLeg>> index = RoutePresetManager.index(legs);
+
+        assertEquals(2, index.size());
+        List<RoutePresetLeg> route = index.get("0|A1|B2");
+        assertNotNull(route);
+        assertEquals(List.of("R1-1", "R1-2"), route.stream().map(RoutePresetLeg::getCode).toList());
+        assertEquals(1, index.get("0|A1|D4").size());
+        assertThrows(UnsupportedOperationException.class, () -> index.put("x", List.of()));
+    }
+
+    @Test
+    @DisplayName("校验：合法线路通过，断链、端点不一致、非AGV执行均不可用")
+    void testValidate() {
+        assertNull(RoutePresetManager.validate(List.of(
+                leg("R1", "A1", "B2", "R1-1", "A1", "c1"),
+                leg("R1", "A1", "B2", "R1-2", "C1 ", "B2"))));
+
+        String broken = RoutePresetManager.validate(List.of(
+                leg("R1", "A1", "B2", "R1-1", "A1", "C1"),
+                leg("R1", "A1", "B2", "R1-2", "C2", "B2")));
+        assertNotNull(broken);
+        assertTrue(broken.contains("首尾不相连"));
+
+        assertNotNull(RoutePresetManager.validate(List.of(leg("R1", "A1", "B2", "R1-1", "A2", "B2"))));
+        assertNotNull(RoutePresetManager.validate(List.of(leg("R1", "A1", "B2", "R1-1", "A1", "B3"))));
+
+        RoutePresetLeg manual = leg("R1", "A1", "B2", "R1-1", "A1", "B2");
+        manual.setExecutiveSystem("1");
+        String problem = RoutePresetManager.validate(List.of(manual));
+        assertNotNull(problem);
+        assertTrue(problem.contains("不是AGV"));
+    }
+}
@@ -0,0 +1,183 @@
+package com.ruinap.core.task;
+
+import com.ruinap.core.task.domain.RcsTask;
+import com.ruinap.infra.enums.task.TaskStateEnum;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TaskDispatchQueue 单元测试
+ * <p>
+ * 覆盖场景：
+ * 1. 分发顺序
+ * 2. 状态变化在可分发/不可分发索引间移动
+ * 3. (优先级, 任务组) 桶头随插入、改优先级、移除更新
+ * 4. 状态、起点楼层索引
+ * 5. 随机操作序列与排序基准对比
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-08 11:00
+ */
+class TaskDispatchQueueTest {
+
+    private TaskDispatchQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        queue = new TaskDispatchQueue();
+    }
+
+    private static RcsTask task(String taskCode, int state, int priority, String group, int floor, long createTime) {
+        RcsTask task = new RcsTask();
+        task.setTaskCode(taskCode);
+        task.setTaskState(state);
+        task.setTaskPriority(priority);
+        task.setTaskGroup(group);
+        task.setOriginFloor(floor);
+        task.setCreateTime(new Date(createTime));
+        task.setTaskRank(1);
+        task.setSendState(0);
+        task.setInterruptState(0);
+        return task;
+    }
+
+    private static List<String> codes(List<RcsTask> tasks) {
+        List<String> codes = new ArrayList<>();
+        tasks.forEach(task -> codes.add(task.getTaskCode()));
+        return codes;
+    }
+
+    @Test
+    @DisplayName("分发顺序：状态降序、优先级降序、置顶时间降序、创建时间升序")
+    void testOrder() {
+        int newState = TaskStateEnum.NEW.code;
+        queue.upsert(task("LOW", newState, 0, "G1", 1, 1000));
+        queue.upsert(task("HIGH", newState, 5, "G1", 1, 2000));
+        queue.upsert(task("RUNNING", 99, 0, "G1", 1, 3000));
+        queue.upsert(task("EARLY", newState, 0, "G1", 1, 500));
+        queue.upsert(task("PINNED", newState, 0, "G1", 1, 4000), new Date(9000));
+
+        assertEquals(List.of("RUNNING", "HIGH", "PINNED", "EARLY", "LOW"), codes(queue.ordered()));
+        assertEquals(List.of("HIGH", "PINNED", "EARLY", "LOW"), codes(queue.eligible()));
+        assertEquals("HIGH", queue.peekEligible().getTaskCode());
+    }
+
+    @Test
+    @DisplayName("状态变化：已下发的任务移出可分发索引，仍保留在全量与状态索引中")
+    void testStateTransition() {
+        RcsTask task = task("T1", TaskStateEnum.NEW.code, 0, "G1", 1, 1000);
+        queue.upsert(task);
+        assertEquals("T1", queue.peek(0, "G1").getTaskCode());
+
+        task.setSendState(1);
+        queue.upsert(task);
+        assertNull(queue.peek(0, "G1"));
+        assertTrue(queue.eligible().isEmpty());
+
+        queue.updateState("T1", TaskStateEnum.ISSUED.code);
+        assertTrue(queue.byState(TaskStateEnum.NEW.code).isEmpty());
+        assertEquals(List.of("T1"), codes(queue.byState(TaskStateEnum.ISSUED.code)));
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    @DisplayName("桶头：按 (优先级, 任务组) 返回最优可分发任务")
+    void testBucketPeek() {
+        int newState = TaskStateEnum.NEW.code;
+        queue.upsert(task("A", newState, 1, "G1", 1, 2000));
+        queue.upsert(task("B", newState, 1, "G1", 1, 1000));
+        queue.upsert(task("C", newState, 1, "G2", 2, 500));
+
+        assertEquals("B", queue.peek(1, "G1").getTaskCode());
+        assertEquals("C", queue.peek(1, "G2").getTaskCode());
+        assertNull(queue.peek(2, "G1"));
+
+        // B 提升优先级后离开 (1, G1) 桶
+        queue.updatePriority("B", 2);
+        assertEquals("A", queue.peek(1, "G1").getTaskCode());
+        assertEquals("B", queue.peek(2, "G1").getTaskCode());
+
+        queue.remove("A");
+        assertNull(queue.peek(1, "G1"));
+        assertEquals(List.of("C"), codes(queue.byOriginFloor(2)));
+        assertEquals(List.of("B"), codes(queue.byOriginFloor(1)));
+        assertNull(queue.remove("A"));
+    }
+
+    @Test
+    @DisplayName("幂等：字段未变化的任务重复入队不改变顺序")
+    void testIdempotentUpsert() {
+        RcsTask first = task("T1", TaskStateEnum.NEW.code, 0, "G1", 1, 1000);
+        RcsTask second = task("T2", TaskStateEnum.NEW.code, 0, "G1", 1, 1000);
+        queue.upsert(first);
+        queue.upsert(second);
+        queue.upsert(first);
+        queue.upsert(first);
+        // 创建时间相同，按入队顺序
+        assertEquals(List.of("T1", "T2"), codes(queue.ordered()));
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    @DisplayName("正确性：随机操作序列与排序基准一致")
+    void testAgainstSort() {
+        Random random = new Random(20260308L);
+        Map<String, RcsTask> tasks = new LinkedHashMap<>();
+        int[] states = {TaskStateEnum.NEW.code, TaskStateEnum.ISSUED.code, 99};
+        for (int step = 0; step < 5000; step++) {
+            String taskCode = "T" + random.nextInt(200);
+            int op = random.nextInt(10);
+            if (op < 5) {
+                RcsTask task = task(taskCode, states[random.nextInt(states.length)], random.nextInt(4), "G" + random.nextInt(3),
+                        1 + random.nextInt(2), random.nextInt(100) * 1000L);
+                task.setSendState(random.nextInt(4) == 0 ? 1 : 0);
+                tasks.put(taskCode, task);
+                queue.upsert(task);
+            } else if (op < 7 && tasks.containsKey(taskCode)) {
+                int priority = random.nextInt(4);
+                tasks.get(taskCode).setTaskPriority(priority);
+                queue.updatePriority(taskCode, priority);
+            } else if (op < 9 && tasks.containsKey(taskCode)) {
+                int state = states[random.nextInt(states.length)];
+                tasks.get(taskCode).setTaskState(state);
+                queue.updateState(taskCode, state);
+            } else {
+                tasks.remove(taskCode);
+                queue.remove(taskCode);
+            }
+        }
+
+        assertEquals(tasks.size(), queue.size());
+        // 基准：状态降序、优先级降序、创建时间升序 (不含入队顺序，只校验非递减)
+        Comparator<RcsTask> order = Comparator.comparing(RcsTask::getTaskState).reversed()
+                .thenComparing(Comparator.comparing(RcsTask::getTaskPriority).reversed())
+                .thenComparing(RcsTask::getCreateTime);
+        List<RcsTask> ordered = queue.ordered();
+        for (int i = 1; i < ordered.size(); i++) {
+            assertTrue(order.compare(ordered.get(i - 1), ordered.get(i)) <= 0, "第 " + i + " 个任务顺序错误");
+        }
+        for (int p = 0; p < 4; p++) {
+            for (int g = 0; g < 3; g++) {
+                String group = "G" + g;
+                int priority = p;
+                Optional<RcsTask> expected = tasks.values().stream()
+                        .filter(task -> task.getTaskPriority() == priority && group.equals(task.getTaskGroup()))
+                        .filter(task -> task.getTaskState() == TaskStateEnum.NEW.code && task.getSendState() == 0)
+                        .min(order);
+                RcsTask actual = queue.peek(priority, group);
+                if (expected.isEmpty()) {
+                    assertNull(actual);
+                } else {
+                    assertNotNull(actual);
+                    assertEquals(0, order.compare(expected.get(), actual), "桶 (" + priority + ", " + group + ") 的桶头错误");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.ruinap.core.task;
+
+import cn.hutool.db.Entity;
+import com.ruinap.infra.config.TaskYaml;
+import com.ruinap.persistence.repository.TaskAgvDB;
+import com.ruinap.persistence.repository.TaskDB;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.lang.reflect.Field;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * TaskIngestManager 单元测试
+ * <p>
+ * 覆盖场景：
+ * 1. 首次全量加载，之后按水位线增量读取
+ * 2. 增量行不再满足分发条件时从视图移除
+ * 3. 分发顺序与分组查询的 ORDER BY 一致
+ * 4. 查询异常后重新全量加载
+ * 5. 全量查询异常时保留任务视图，不当作任务全部结束
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-07 10:40
+ */
+@ExtendWith(MockitoExtension.class)
+class TaskIngestManagerTest {
+
+    private TaskIngestManager taskIngestManager;
+
+    @Mock
+    private TaskYaml taskYaml;
+    @Mock
+    private TaskDB taskDB;
+    @Mock
+    private TaskAgvDB taskAgvDB;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        taskIngestManager = new TaskIngestManager();
+        injectField(taskIngestManager, "taskYaml", taskYaml);
+        injectField(taskIngestManager, "taskDB", taskDB);
+        injectField(taskIngestManager, "taskAgvDB", taskAgvDB);
+
+        lenient().when(taskYaml.getTaskSource()).thenReturn(0);
+        lenient().when(taskYaml.getTaskFullSyncInterval()).thenReturn(300);
+    }
+
+    private static Entity task(String taskCode, int taskState, int priority, long updateTime) {
+        return new Entity()
+                .set("task_code", taskCode)
+                .set("task_state", taskState)
+                .set("task_priority", priority)
+                .set("executive_system", 0)
+                .set("interrupt_state", 0)
+                .set("create_time", new Date(1000))
+                .set("task_rank", 1)
+                .set("update_time", new Date(updateTime));
+    }
+
+    private static List<String> codes(List<Entity> entities) {
+        List<String> codes = new ArrayList<>();
+        entities.forEach(entity -> codes.add(entity.getStr("task_code")));
+        return codes;
+    }
+
+    @Test
+    @DisplayName("首次全量加载，之后只按水位线增量读取")
+    void testFullThenIncremental() throws SQLException {
+        when(taskDB.selectMaxUpdateTime()).thenReturn(new Date(100_000));
+        when(taskDB.selectTaskGroupList()).thenReturn(List.of(task("T1", 2, 0, 90_000)));
+        when(taskDB.selectTaskChangedSince(any())).thenReturn(List.of(task("T2", 2, 0, 101_000)));
+
+        List<String> seen = new ArrayList<>();
+        assertEquals(List.of("T1"), codes(taskIngestManager.poll(entity -> seen.add(entity.getStr("task_code")), null)));
+        assertEquals(List.of("T1", "T2"), codes(taskIngestManager.poll(entity -> seen.add(entity.getStr("task_code")), null)));
+        assertEquals(List.of("T1", "T2"), seen);
+
+        // 只全量查询一次，增量查询从水位线向前重叠
+        verify(taskDB, times(1)).selectTaskGroupList();
+        ArgumentCaptor<Date> since = ArgumentCaptor.forClass(Date.class);
+        verify(taskDB).selectTaskChangedSince(since.capture());
+        assertEquals(100_000 - TaskIngestManager.OVERLAP_MS, since.getValue().getTime());
+        verifyNoInteractions(taskAgvDB);
+    }
+
+    @Test
+    @DisplayName("增量行不再满足分发条件时从视图移除")
+    void testRemoveFinished() throws SQLException {
+        when(taskDB.selectMaxUpdateTime()).thenReturn(new Date(100_000));
+        when(taskDB.selectTaskGroupList()).thenReturn(List.of(task("T1", 2, 0, 90_000), task("T2", 2, 0, 90_000)));
+        Entity cancelled = task("T2", 2, 0, 102_000).set("interrupt_state", 2);
+        when(taskDB.selectTaskChangedSince(any())).thenReturn(List.of(task("T1", 0, 0, 101_000), cancelled));
+
+        taskIngestManager.poll(null, null);
+        List<String> removed = new ArrayList<>();
+        assertTrue(taskIngestManager.poll(null, removed::add).isEmpty());
+        assertEquals(List.of("T1", "T2"), removed);
+    }
+
+    @Test
+    @DisplayName("分发顺序：状态降序、优先级降序、创建时间升序")
+    void testDispatchOrder() throws SQLException {
+        Entity newLow = task("NEW_LOW", 2, 0, 0);
+        Entity newHigh = task("NEW_HIGH", 2, 5, 0);
+        Entity running = task("RUNNING", 99, 0, 0);
+        Entity newLowEarly = task("NEW_LOW_EARLY", 2, 0, 0).set("create_time", new Date(500));
+        when(taskDB.selectMaxUpdateTime()).thenReturn(null);
+        when(taskDB.selectTaskGroupList()).thenReturn(List.of(newLow, newHigh, running, newLowEarly));
+
+        assertEquals(List.of("RUNNING", "NEW_HIGH", "NEW_LOW_EARLY", "NEW_LOW"), codes(taskIngestManager.poll(null, null)));
+        assertTrue(TaskIngestManager.isDispatchable(newLow));
+        assertFalse(TaskIngestManager.isDispatchable(task("PDA", 2, 0, 0).set("executive_system", 1)));
+    }
+
+    @Test
+    @DisplayName("查询异常后返回空列表，下一个节拍重新全量加载")
+    void testReloadAfterError() throws SQLException {
+        when(taskDB.selectMaxUpdateTime()).thenReturn(new Date(100_000));
+        when(taskDB.selectTaskGroupList()).thenReturn(List.of(task("T1", 2, 0, 90_000)));
+        when(taskDB.selectTaskChangedSince(any())).thenThrow(new SQLException("连接断开"));
+
+        taskIngestManager.poll(null, null);
+        assertTrue(taskIngestManager.poll(null, null).isEmpty());
+        assertEquals(List.of("T1"), codes(taskIngestManager.poll(null, null)));
+        verify(taskDB, times(2)).selectTaskGroupList();
+    }
+
+    @Test
+    @DisplayName("全量查询异常时保留任务视图，不通知移除，下一个节拍重新全量加载")
+    void testFullLoadErrorKeepsView() throws SQLException {
+        when(taskDB.selectMaxUpdateTime()).thenReturn(new Date(100_000));
+        when(taskDB.selectTaskGroupList())
+                .thenReturn(List.of(task("T1", 2, 0, 90_000)))
+                .thenThrow(new SQLException("连接断开"))
+                .thenReturn(List.of(task("T1", 2, 0, 90_000)));
+        when(taskDB.selectTaskChangedSince(any())).thenThrow(new SQLException("连接断开"));
+
+        List<String> removed = new ArrayList<>();
+        assertEquals(List.of("T1"), codes(taskIngestManager.poll(null, removed::add)));
+        // 增量查询失败，下一个节拍全量加载
+        assertTrue(taskIngestManager.poll(null, removed::add).isEmpty());
+        // 全量查询也失败：不能把 T1 当作已结束移除
+        assertTrue(taskIngestManager.poll(null, removed::add).isEmpty());
+        assertTrue(removed.isEmpty(), "全量查询失败时不应通知任务移除");
+
+        assertEquals(List.of("T1"), codes(taskIngestManager.poll(null, removed::add)));
+        assertTrue(removed.isEmpty());
+        verify(taskDB, times(3)).selectTaskGroupList();
+    }
+
+    private void injectField(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
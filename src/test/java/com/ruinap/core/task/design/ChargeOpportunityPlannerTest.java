@@ -0,0 +1,187 @@
+package com.ruinap.core.task.design;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ChargeOpportunityPlanner 单元测试
+ * <p>
+ * 覆盖场景：
+ * 1. 空闲时段按峰值小时需求率的比例识别，没有需求数据时不识别
+ * 2. 名额按电量由低到高分配，同时充电数量有上限
+ * 3. 仿真：机会充电与固定阈值充电的高峰期充电次数对比
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-14 15:00
+ */
+class ChargeOpportunityPlannerTest {
+
+    /**
+     * 需求曲线：8~11 点、14~17 点为高峰，其余时段为低谷
+     */
+    private static double[] demand() {
+        double[] demand = new double[24];
+        for (int hour = 0; hour < 24; hour++) {
+            demand[hour] = isPeak(hour) ? 12 : 2;
+        }
+        return demand;
+    }
+
+    private static boolean isPeak(int hour) {
+        return (hour >= 8 && hour < 12) || (hour >= 14 && hour < 18);
+    }
+
+    @Test
+    @DisplayName("空闲时段: 需求率不超过峰值的比例视为空闲，无数据时不识别")
+    void testIdleGap() {
+        double[] demand = demand();
+        assertTrue(ChargeOpportunityPlanner.isIdleGap(demand, 3, 50));
+        assertTrue(ChargeOpportunityPlanner.isIdleGap(demand, 12, 50));
+        assertFalse(ChargeOpportunityPlanner.isIdleGap(demand, 9, 50));
+        assertTrue(ChargeOpportunityPlanner.isIdleGap(demand, 9, 100));
+        assertTrue(ChargeOpportunityPlanner.isIdleGap(demand, 24 + 3, 50));
+
+        assertFalse(ChargeOpportunityPlanner.isIdleGap(new double[24], 3, 50));
+        assertFalse(ChargeOpportunityPlanner.isIdleGap(null, 3, 50));
+    }
+
+    @Test
+    @DisplayName("名额: 按电量由低到高分配，同时充电数量有上限")
+    void testSelectCandidates() {
+        Map<String, Integer> batteries = new HashMap<>();
+        batteries.put("AGV1", 70);
+        batteries.put("AGV2", 45);
+        batteries.put("AGV3", 95);
+        batteries.put("AGV4", 45);
+        batteries.put("AGV5", 80);
+
+        assertEquals(List.of("AGV2", "AGV4", "AGV1"), ChargeOpportunityPlanner.selectCandidates(batteries, 80, 3));
+        assertEquals(List.of("AGV2", "AGV4", "AGV1", "AGV5"), ChargeOpportunityPlanner.selectCandidates(batteries, 80, 10));
+        assertEquals(List.of(), ChargeOpportunityPlanner.selectCandidates(batteries, 80, 0));
+
+        assertEquals(3, ChargeOpportunityPlanner.maxConcurrent(10, 30));
+        assertEquals(1, ChargeOpportunityPlanner.maxConcurrent(2, 30));
+        assertEquals(0, ChargeOpportunityPlanner.maxConcurrent(0, 30));
+    }
+
+    @Test
+    @DisplayName("仿真: 机会充电减少高峰期的充电次数")
+    void testSimulation() {
+        SimResult threshold = simulate(false);
+        SimResult opportunity = simulate(true);
+        System.out.printf("仿真两天 (统计第二天)：固定阈值高峰期充电 %d 次，机会充电高峰期充电 %d 次；未及时执行的任务分钟数 %d / %d%n",
+                threshold.peakTrips, opportunity.peakTrips, threshold.waitMinutes, opportunity.waitMinutes);
+        assertTrue(threshold.peakTrips > 0, "固定阈值充电应在高峰期出现充电");
+        assertTrue(opportunity.peakTrips < threshold.peakTrips, "机会充电应减少高峰期充电次数");
+        assertTrue(opportunity.waitMinutes <= threshold.waitMinutes, "机会充电不应让任务等待更久");
+    }
+
+    private record SimResult(int peakTrips, long waitMinutes) {
+    }
+
+    /**
+     * 分钟级车队仿真
+     * <p>
+     * 6 台 AGV、2 个充电桩；任务耗时 15 分钟、每分钟耗电 0.4%；充电每分钟 1%，充满为止；
+     * 电量不高于 30% 必须充电，且不再接任务。
+     * </p>
+     *
+     * @param opportunity 是否开启机会充电
+     * @return 第二天的统计结果
+     */
+    private static SimResult simulate(boolean opportunity) {
+        int fleet = 6;
+        int piles = 2;
+        int lowestWorkPower = 30;
+        double[] demand = demand();
+
+        double[] battery = new double[fleet];
+        int[] busyUntil = new int[fleet];
+        boolean[] charging = new boolean[fleet];
+        Arrays.fill(battery, 100);
+
+        double arrivals = 0;
+        int queued = 0;
+        int peakTrips = 0;
+        long waitMinutes = 0;
+        for (int minute = 0; minute < 2 * 1440; minute++) {
+            int hour = minute / 60 % 24;
+            boolean counted = minute >= 1440;
+
+            // 1. 执行中与充电中的 AGV
+            int chargingCount = 0;
+            for (int i = 0; i < fleet; i++) {
+                if (charging[i]) {
+                    battery[i] = Math.min(100, battery[i] + 1);
+                    if (battery[i] >= 100) {
+                        charging[i] = false;
+                    } else {
+                        chargingCount++;
+                    }
+                } else if (busyUntil[i] > minute) {
+                    battery[i] -= 0.4;
+                }
+            }
+
+            // 2. 充电决策：必须充电优先，其次机会充电
+            List<Integer> mustCharge = new ArrayList<>();
+            Map<String, Integer> idle = new HashMap<>();
+            for (int i = 0; i < fleet; i++) {
+                if (!charging[i] && busyUntil[i] <= minute) {
+                    if (battery[i] <= lowestWorkPower) {
+                        mustCharge.add(i);
+                    } else {
+                        idle.put(String.valueOf(i), (int) battery[i]);
+                    }
+                }
+            }
+            for (int i : mustCharge) {
+                if (chargingCount < piles) {
+                    charging[i] = true;
+                    chargingCount++;
+                    if (counted && isPeak(hour)) {
+                        peakTrips++;
+                    }
+                }
+            }
+            if (opportunity && ChargeOpportunityPlanner.isIdleGap(demand, hour, 50)) {
+                int slots = Math.min(piles, ChargeOpportunityPlanner.maxConcurrent(fleet, 30)) - chargingCount;
+                for (String agv : ChargeOpportunityPlanner.selectCandidates(idle, 80, slots)) {
+                    int i = Integer.parseInt(agv);
+                    charging[i] = true;
+                    idle.remove(agv);
+                    if (counted && isPeak(hour)) {
+                        peakTrips++;
+                    }
+                }
+            }
+
+            // 3. 任务到达与分配：电量最高的空闲 AGV 优先
+            arrivals += demand[hour] / 60.0;
+            while (arrivals >= 1) {
+                arrivals -= 1;
+                queued++;
+            }
+            List<String> candidates = idle.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                    .map(Map.Entry::getKey)
+                    .toList();
+            for (String agv : candidates) {
+                if (queued == 0) {
+                    break;
+                }
+                busyUntil[Integer.parseInt(agv)] = minute + 15;
+                queued--;
+            }
+            if (counted) {
+                waitMinutes += queued;
+            }
+        }
+        return new SimResult(peakTrips, waitMinutes);
+    }
+}
@@ -0,0 +1,119 @@
+package com.ruinap.core.task.design;
+
+import com.ruinap.core.algorithm.HungarianAssigner;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StandbyPlanner 单元测试
+ * <p>
+ * 覆盖场景：
+ * 1. 需求集中在一侧时，待机点向高需求起点靠拢
+ * 2. 种子待机点 (已占用) 必须保留，不可选待机点被跳过
+ * 3. 需求覆盖后仍补足数量
+ * 4. 仿真：预测布局与随机布局的预计响应距离对比
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-06 14:10
+ */
+class StandbyPlannerTest {
+
+    private static final double X = HungarianAssigner.INFEASIBLE;
+
+    /**
+     * 一维走廊：起点、待机点均按坐标排列，响应距离为坐标差
+     */
+    private static double[][] corridor(int[] origins, int[] standbys) {
+        double[][] dist = new double[origins.length][standbys.length];
+        for (int o = 0; o < origins.length; o++) {
+            for (int s = 0; s < standbys.length; s++) {
+                dist[o][s] = Math.abs(origins[o] - standbys[s]);
+            }
+        }
+        return dist;
+    }
+
+    private static double[] penalty(int size, double value) {
+        double[] penalty = new double[size];
+        Arrays.fill(penalty, value);
+        return penalty;
+    }
+
+    @Test
+    @DisplayName("选址: 待机点靠近高需求起点")
+    void testFollowDemand() {
+        // 起点 0、100，待机点 10、50、90；起点 100 需求是起点 0 的 10 倍
+        double[][] dist = corridor(new int[]{0, 100}, new int[]{10, 50, 90});
+        double[] weights = {1, 10};
+        int[] chosen = StandbyPlanner.selectStandbys(dist, weights, penalty(2, 1000), List.of(), new boolean[3], 1);
+        assertArrayEquals(new int[]{2}, chosen);
+
+        int[] two = StandbyPlanner.selectStandbys(dist, weights, penalty(2, 1000), List.of(), new boolean[3], 2);
+        assertArrayEquals(new int[]{2, 0}, two);
+        assertEquals(1 * 10 + 10 * 10, StandbyPlanner.expectedCost(dist, weights, penalty(2, 1000), two), 1e-6);
+    }
+
+    @Test
+    @DisplayName("选址: 保留种子待机点，跳过不可选待机点")
+    void testSeedsAndBlocked() {
+        double[][] dist = corridor(new int[]{0, 100}, new int[]{10, 50, 90});
+        double[] weights = {1, 10};
+        boolean[] blocked = {false, false, true};
+        int[] chosen = StandbyPlanner.selectStandbys(dist, weights, penalty(2, 1000), List.of(1), blocked, 2);
+        // 种子在前；90 被占用，只能再选 10
+        assertArrayEquals(new int[]{1, 0}, chosen);
+    }
+
+    @Test
+    @DisplayName("选址: 不可达组合不计入，需求覆盖后仍补足数量")
+    void testInfeasibleAndFill() {
+        double[][] dist = {
+                {5, X, X},
+        };
+        double[] weights = {1};
+        int[] chosen = StandbyPlanner.selectStandbys(dist, weights, penalty(1, 100), List.of(), new boolean[3], 3);
+        assertEquals(0, chosen[0]);
+        assertEquals(3, chosen.length);
+        assertEquals(5, StandbyPlanner.expectedCost(dist, weights, penalty(1, 100), chosen), 1e-6);
+        // 没有选中任何可达待机点时按惩罚距离计算
+        assertEquals(100, StandbyPlanner.expectedCost(dist, weights, penalty(1, 100), new int[]{1, 2}), 1e-6);
+    }
+
+    @Test
+    @DisplayName("仿真: 预测布局的预计响应距离低于随机布局")
+    void testSimulationAgainstRandom() {
+        Random random = new Random(20260306L);
+        double plannedTotal = 0;
+        double randomTotal = 0;
+        for (int round = 0; round < 200; round++) {
+            // 100m 走廊，20 个起点 (需求服从长尾分布)，30 个待机点，6 台空闲 AGV
+            int[] origins = new int[20];
+            double[] weights = new double[origins.length];
+            for (int o = 0; o < origins.length; o++) {
+                origins[o] = random.nextInt(100_000);
+                weights[o] = random.nextInt(10) < 2 ? 5 + random.nextInt(20) : random.nextInt(3);
+            }
+            int[] standbys = new int[30];
+            for (int s = 0; s < standbys.length; s++) {
+                standbys[s] = random.nextInt(100_000);
+            }
+            double[][] dist = corridor(origins, standbys);
+            double[] penalty = penalty(origins.length, 200_000);
+
+            int[] planned = StandbyPlanner.selectStandbys(dist, weights, penalty, List.of(), new boolean[standbys.length], 6);
+            int[] shuffled = random.ints(0, standbys.length).distinct().limit(6).toArray();
+            plannedTotal += StandbyPlanner.expectedCost(dist, weights, penalty, planned);
+            randomTotal += StandbyPlanner.expectedCost(dist, weights, penalty, shuffled);
+        }
+        System.out.printf("仿真 200 轮：随机布局预计响应距离 %.0f，预测布局预计响应距离 %.0f，降低 %.1f%%%n",
+                randomTotal, plannedTotal, (randomTotal - plannedTotal) * 100 / randomTotal);
+        assertTrue(plannedTotal < randomTotal * 0.8, "预测布局应显著降低预计响应距离");
+    }
+}
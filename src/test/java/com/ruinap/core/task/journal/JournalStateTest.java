@@ -0,0 +1,138 @@
+package com.ruinap.core.task.journal;
+
+import com.ruinap.core.map.enums.PointOccupyTypeEnum;
+import com.ruinap.core.map.pojo.RcsPoint;
+import com.ruinap.core.map.util.MapKeyUtil;
+import com.ruinap.core.task.domain.TaskPath;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.function.LongFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JournalState / JournalCodec 单元测试
+ * <p>
+ * 覆盖场景：
+ * 1. 占用与释放按顺序折叠，重复回放结果不变
+ * 2. 任务路径只保留最后一条记录，数量为 0 时移除
+ * 3. 任务路径编解码往返一致 (含 setState 重置 currentPlan 的顺序)，地图中不存在的点位返回 null
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-19 16:10
+ */
+class JournalStateTest {
+
+    @Test
+    @DisplayName("占用: 占用与释放按顺序折叠，整段日志重复回放结果不变")
+    void testOccupancyFold() {
+        long p1 = MapKeyUtil.compositeKey(1, 10);
+        long p2 = MapKeyUtil.compositeKey(1, 11);
+        List<byte[]> records = List.of(
+                JournalCodec.encodeOccupy(p1, "AGV-1", PointOccupyTypeEnum.TASK, true),
+                JournalCodec.encodeOccupy(p1, "AGV-1", PointOccupyTypeEnum.PARK, true),
+                JournalCodec.encodeOccupy(p2, "AGV-1", PointOccupyTypeEnum.TASK, true),
+                JournalCodec.encodeOccupy(p1, "AGV-1", PointOccupyTypeEnum.TASK, false),
+                JournalCodec.encodeOccupy(p2, "AGV-1", PointOccupyTypeEnum.TASK, false),
+                JournalCodec.encodeOccupy(p2, "AGV-2", PointOccupyTypeEnum.MANUAL, true));
+
+        JournalState state = new JournalState();
+        // 快照与日志存在重叠时会重复回放同一段记录
+        for (int round = 0; round < 2; round++) {
+            records.forEach(r -> state.apply(ByteBuffer.wrap(r)));
+        }
+        assertEquals(Map.of(
+                p1, Map.of("AGV-1", Set.of(PointOccupyTypeEnum.PARK)),
+                p2, Map.of("AGV-2", Set.of(PointOccupyTypeEnum.MANUAL))), state.getOccupancy());
+        assertEquals(0, state.getSkipped());
+    }
+
+    @Test
+    @DisplayName("任务路径: 只保留最后一条记录，移除记录删除该 AGV")
+    void testPathsFold() {
+        Map<Long, RcsPoint> points = points(1, 1, 2, 3);
+        JournalState state = new JournalState();
+        state.apply(ByteBuffer.wrap(JournalCodec.encodePaths("AGV-1", List.of(path("T1", points, 1, 2)))));
+        state.apply(ByteBuffer.wrap(JournalCodec.encodePaths("AGV-2", List.of(path("T2", points, 2, 3)))));
+        state.apply(ByteBuffer.wrap(JournalCodec.encodePaths("AGV-1", List.of(path("T3", points, 1, 3)))));
+        state.apply(ByteBuffer.wrap(JournalCodec.encodePaths("AGV-2", null)));
+
+        assertEquals(Set.of("AGV-1"), state.getPaths().keySet());
+        List<TaskPath> paths = JournalCodec.decodePaths(state.getPaths().get("AGV-1"), points::get);
+        assertNotNull(paths);
+        assertEquals("T3", paths.getFirst().getTaskCode());
+    }
+
+    @Test
+    @DisplayName("编解码: 任务路径往返一致，点位不存在时返回 null")
+    void testPathRoundTrip() {
+        Map<Long, RcsPoint> points = points(1, 1, 2, 3, 4);
+        TaskPath origin = path("T1", points, 1, 4);
+        origin.setTaskId(null);
+        origin.setState(2);
+        origin.setCurrentPlan(1);
+        origin.setRealizedCost(1500);
+        origin.setExpectNextPoint(null);
+        origin.getRunningRoutes().addAll(List.of(points.get(key(1)), points.get(key(2)), points.get(key(3))));
+        origin.getTraveledRoutes().add(points.get(key(1)));
+
+        byte[] payload = JournalCodec.encodePaths("AGV-1", List.of(origin, path("T1", points, 4, 1)));
+        List<TaskPath> decoded = JournalCodec.decodePaths(ByteBuffer.wrap(payload), points::get);
+        assertNotNull(decoded);
+        assertEquals(2, decoded.size());
+        TaskPath restored = decoded.getFirst();
+        assertEquals("AGV-1", restored.getAgvId());
+        assertNull(restored.getTaskId());
+        assertEquals(origin.getTaskCode(), restored.getTaskCode());
+        assertEquals(origin.getSubTaskNo(), restored.getSubTaskNo());
+        assertEquals(2, restored.getState());
+        assertEquals(1, restored.getCurrentPlan());
+        assertEquals(1500, restored.getRealizedCost());
+        assertNull(restored.getExpectNextPoint());
+        assertSame(points.get(key(1)), restored.getTaskOrigin());
+        assertSame(points.get(key(4)), restored.getTaskDestin());
+        assertEquals(origin.getRunningRoutes(), restored.getRunningRoutes());
+        assertEquals(origin.getTraveledRoutes(), restored.getTraveledRoutes());
+        assertEquals(origin.getExpectRoutes(), restored.getExpectRoutes());
+
+        // 地图变更后点位不存在
+        LongFunction<RcsPoint> changedMap = k -> MapKeyUtil.parsePointId(k) == 3 ? null : points.get(k);
+        assertNull(JournalCodec.decodePaths(ByteBuffer.wrap(payload), changedMap));
+    }
+
+    private static TaskPath path(String taskCode, Map<Long, RcsPoint> points, int from, int to) {
+        TaskPath path = new TaskPath();
+        path.setAgvId("AGV-1");
+        path.setTaskId(7);
+        path.setTaskCode(taskCode);
+        path.setTaskGroup("G1");
+        path.setSubTaskNo(2);
+        path.setTaskOrigin(points.get(key(from)));
+        path.setTaskDestin(points.get(key(to)));
+        path.setCurrentPlanOrigin(points.get(key(from)));
+        path.setCurrentPlanDestin(points.get(key(to)));
+        path.setExpectNextPoint(points.get(key(to)));
+        path.setExpectRoutes(new ArrayList<>(List.of(points.get(key(from)), points.get(key(to)))));
+        path.setPathCode(3);
+        return path;
+    }
+
+    private static Map<Long, RcsPoint> points(int mapId, int... ids) {
+        Map<Long, RcsPoint> points = new HashMap<>();
+        for (int id : ids) {
+            RcsPoint point = new RcsPoint();
+            point.setMapId(mapId);
+            point.setId(id);
+            points.put(MapKeyUtil.compositeKey(mapId, id), point);
+        }
+        return points;
+    }
+
+    private static long key(int id) {
+        return MapKeyUtil.compositeKey(1, id);
+    }
+}
@@ -8,14 +8,18 @@ import com.ruinap.core.equipment.manager.AgvManager;
 import com.ruinap.core.equipment.pojo.RcsAgv;
 import com.ruinap.core.map.MapManager;
 import com.ruinap.core.map.pojo.RcsPoint;
+import com.ruinap.core.task.RoutePresetManager;
 import com.ruinap.core.task.domain.RcsTask;
+import com.ruinap.core.task.domain.RoutePresetPlan;
 import com.ruinap.core.task.domain.TaskPath;
 import com.ruinap.core.task.structure.auction.BidResult;
 import com.ruinap.infra.config.InteractionYaml;
 import com.ruinap.infra.config.MapYaml;
+import com.ruinap.infra.config.event.RcsMapConfigRefreshEvent;
 import com.ruinap.infra.config.pojo.interactions.*;
 import com.ruinap.infra.enums.alarm.AlarmCodeEnum;
 import com.ruinap.infra.enums.task.DockTaskTypeEnum;
+import com.ruinap.infra.enums.task.FinallyTaskEnum;
 import com.ruinap.infra.enums.task.SubTaskTypeEnum;
 import com.ruinap.infra.enums.task.TaskTypeEnum;
 import org.junit.jupiter.api.BeforeEach;
@@ -65,6 +69,8 @@ class TaskSectionManagerTest {
     private AgvManager agvManager;
     @Mock
     private RcsAstarSearch rcsAstarSearch;
+    @Mock
+    private RoutePresetManager routePresetManager;
 
     @Mock
     private RcsTask mockTask;
@@ -93,6 +99,7 @@ class TaskSectionManagerTest {
         injectField(taskSectionManager, "mapYaml", mapYaml);
         injectField(taskSectionManager, "agvManager", agvManager);
         injectField(taskSectionManager, "rcsAstarSearch", rcsAstarSearch);
+        injectField(taskSectionManager, "routePresetManager", routePresetManager);
 
         lenient().when(mockAgv.getAgvId()).thenReturn(AGV_ID);
         lenient().when(mockAgv.getMapId()).thenReturn(MAP_ID);
@@ -288,6 +295,69 @@ class TaskSectionManagerTest {
         assertEquals(DockTaskTypeEnum.CONVEYORLINE.code, paths.get(1).getDockDevice().getDockType());
     }
 
+    @Test
+    @DisplayName("宏观调度: 分段模板 - 相同起终点第二次按模板实例化，直接使用缓存的静态路线，不再进行 A* 规划")
+    void testGetNewTaskSection_SectionTemplate() {
+        setupBasicPoints();
+        when(mockTask.getTaskType()).thenReturn(TaskTypeEnum.CARRY.code);
+        when(mapManager.getRcsPoint(MAP_ID, POINT_ID)).thenReturn(originPoint);
+        mockEmptyAstarAndInteractions();
+        RcsPoint middle = createPoint(9002, "P_MIDDLE", MAP_ID);
+        when(rcsAstarSearch.staticSearch(any(), any())).thenReturn(new RouteResult(true, 20, Arrays.asList(originPoint, middle, destinPoint)));
+
+        BidResult bidResult = new BidResult(mockAgv, mockTask, 0, null);
+        taskSectionManager.getNewTaskSection(bidResult);
+        List<TaskPath> first = taskSectionManager.removeTaskSections(AGV_ID);
+        taskSectionManager.getNewTaskSection(bidResult);
+        List<TaskPath> second = taskSectionManager.getTaskSections(AGV_ID);
+
+        assertEquals(1, taskSectionManager.getSectionTemplateSize());
+        // 模板只按静态代价拆分一次，实时占用由下发时的交通审查处理
+        verify(rcsAstarSearch, times(1)).staticSearch(any(), any());
+        verify(rcsAstarSearch, never()).aStarSearch(anyString(), any(), any());
+        assertEquals(List.of(originPoint, middle, destinPoint), second.getFirst().getExpectRoutes());
+        assertNotSame(first.getFirst().getExpectRoutes(), second.getFirst().getExpectRoutes(), "实例化必须复制路线，避免分段之间互相修改");
+        assertEquals(first.size(), second.size());
+        assertNotSame(first.getFirst(), second.getFirst(), "模板实例化必须创建新的分段对象");
+        assertEquals(SubTaskTypeEnum.DESTIN.code, second.getFirst().getSubTaskType());
+        assertSame(destinPoint, second.getFirst().getTaskDestin());
+        assertEquals(AGV_ID, second.getFirst().getAgvId());
+
+        // 地图配置刷新后模板清空
+        taskSectionManager.onMapConfigRefresh(new RcsMapConfigRefreshEvent(this));
+        assertEquals(0, taskSectionManager.getSectionTemplateSize());
+    }
+
+    @Test
+    @DisplayName("宏观调度: 线路预设 - 各线路段直接使用预编译的静态路线，不再进行 A* 规划")
+    void testGetNewTaskSection_RoutePreset() {
+        setupBasicPoints();
+        when(mockTask.getTaskType()).thenReturn(TaskTypeEnum.CARRY.code);
+        when(mapManager.getRcsPoint(MAP_ID, POINT_ID)).thenReturn(originPoint);
+        mockEmptyAstarAndInteractions();
+        RcsPoint via = createPoint(9003, "P_VIA", MAP_ID);
+        List<RcsPoint> firstLeg = List.of(originPoint, createPoint(9004, "P_A", MAP_ID), via);
+        List<RcsPoint> lastLeg = List.of(via, createPoint(9005, "P_B", MAP_ID), destinPoint);
+        RoutePresetPlan plan = new RoutePresetPlan("R1", null, List.of(
+                new RoutePresetPlan.Leg(null, originPoint, via, firstLeg, 20),
+                new RoutePresetPlan.Leg(null, via, destinPoint, lastLeg, 20)));
+        when(routePresetManager.getPlan(mockTask)).thenReturn(plan);
+
+        BidResult bidResult = new BidResult(mockAgv, mockTask, 0, null);
+        taskSectionManager.getNewTaskSection(bidResult);
+        taskSectionManager.removeTaskSections(AGV_ID);
+        taskSectionManager.getNewTaskSection(bidResult);
+        List<TaskPath> paths = taskSectionManager.getTaskSections(AGV_ID);
+
+        // 预设路线编译时已按静态代价规划，实时占用由下发时的交通审查处理
+        verify(rcsAstarSearch, never()).aStarSearch(anyString(), any(), any());
+        verify(rcsAstarSearch, never()).staticSearch(any(), any());
+        assertEquals(2, paths.size());
+        assertEquals(firstLeg, paths.get(0).getExpectRoutes());
+        assertEquals(lastLeg, paths.get(1).getExpectRoutes());
+        assertEquals(FinallyTaskEnum.NOT_FINAL.getCode(), paths.get(0).getFinallyTask(), "途经点所在的分段不是最终段");
+    }
+
     // =================================================================================================
     //                                  第三部分：电梯微观白盒断点续传测试
     // =================================================================================================
@@ -555,6 +625,7 @@ class TaskSectionManagerTest {
     private void mockEmptyAstarAndInteractions() {
         RouteResult routeResult = new RouteResult(true, 10, Arrays.asList(originPoint, destinPoint));
         lenient().when(rcsAstarSearch.aStarSearch(anyString(), any(), any())).thenReturn(routeResult);
+        lenient().when(rcsAstarSearch.staticSearch(any(), any())).thenReturn(routeResult);
         lenient().when(mapManager.getTargetBridgePoint(anyList())).thenReturn(Collections.emptyList());
         lenient().when(interactionYaml.getAirShowers()).thenReturn(Collections.emptyList());
     }
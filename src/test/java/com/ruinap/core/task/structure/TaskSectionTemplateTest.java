@@ -0,0 +1,143 @@
+package com.ruinap.core.task.structure;
+
+import com.ruinap.core.map.pojo.MapSnapshot;
+import com.ruinap.core.map.pojo.RcsPoint;
+import com.ruinap.core.task.domain.DockDevice;
+import com.ruinap.core.task.domain.TaskPath;
+import com.ruinap.infra.enums.task.DockTaskTypeEnum;
+import com.ruinap.infra.enums.task.FinallyTaskEnum;
+import com.ruinap.infra.enums.task.SubTaskTypeEnum;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TaskSectionTemplate 单元测试
+ * <p>
+ * 覆盖场景：
+ * 1. 实例化复制结构字段，运行期状态为初始值
+ * 2. 实例之间、实例与原型之间互不影响
+ * 3. 地图快照变化后模板失效
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-12 10:30
+ */
+class TaskSectionTemplateTest {
+
+    private static RcsPoint point(int id, String name) {
+        RcsPoint point = new RcsPoint();
+        point.setId(id);
+        point.setName(name);
+        point.setMapId(1);
+        return point;
+    }
+
+    private static List<TaskPath> prototypes() {
+        RcsPoint origin = point(1, "1-1");
+        RcsPoint entrance = point(2, "1-2");
+        RcsPoint exit = point(3, "1-3");
+        RcsPoint destin = point(4, "1-4");
+
+        TaskPath walk = new TaskPath();
+        walk.setAgvId("PROTOTYPE");
+        walk.setSubTaskType(SubTaskTypeEnum.DESTIN.code);
+        walk.setFinallyTask(FinallyTaskEnum.NOT_FINAL.getCode());
+        walk.setTaskOrigin(origin);
+        walk.setTaskDestin(entrance);
+        walk.setTaskAction(3);
+        walk.setTaskParameter(7);
+        walk.setExpectRoutes(new ArrayList<>(List.of(origin, entrance)));
+
+        TaskPath shower = new TaskPath();
+        shower.setSubTaskType(SubTaskTypeEnum.DESTIN.code);
+        shower.setFinallyTask(FinallyTaskEnum.DESTIN_FINAL.getCode());
+        shower.setTaskOrigin(entrance);
+        shower.setTaskDestin(destin);
+        DockDevice dockDevice = new DockDevice();
+        dockDevice.setEquipmentId("AS_01");
+        dockDevice.setDockType(DockTaskTypeEnum.AIRSHOWER.code);
+        dockDevice.setStartPoint(entrance);
+        dockDevice.setEndPoint(exit);
+        Map<String, RcsPoint> frontDoors = new HashMap<>();
+        frontDoors.put("front", entrance);
+        dockDevice.setFrontDoors(frontDoors);
+        shower.setDockDevice(dockDevice);
+        shower.setExpectRoutes(new ArrayList<>(List.of(entrance, exit, destin)));
+        return List.of(walk, shower);
+    }
+
+    @Test
+    @DisplayName("实例化：复制结构字段，AGV编号与运行期状态按新任务初始化")
+    void testInstantiate() {
+        List<TaskPath> prototypes = prototypes();
+        TaskSectionTemplate template = new TaskSectionTemplate(MapSnapshot.empty(), prototypes);
+        // 生成模板后修改原型不影响模板
+        prototypes.getFirst().setTaskAction(99);
+
+        List<TaskPath> paths = template.instantiate("AGV_001");
+        assertEquals(2, template.size());
+        assertEquals(2, paths.size());
+
+        TaskPath walk = paths.get(0);
+        assertEquals("AGV_001", walk.getAgvId());
+        assertEquals(SubTaskTypeEnum.DESTIN.code, walk.getSubTaskType());
+        assertEquals(FinallyTaskEnum.NOT_FINAL.getCode(), walk.getFinallyTask());
+        assertEquals(3, walk.getTaskAction());
+        assertEquals(7, walk.getTaskParameter());
+        assertEquals("1-1", walk.getTaskOrigin().getName());
+        assertEquals("1-2", walk.getTaskDestin().getName());
+        assertEquals(2, walk.getExpectRoutes().size());
+        assertNull(walk.getDockDevice());
+        assertEquals(0, walk.getSubTaskNo());
+        assertNull(walk.getTaskCode());
+
+        TaskPath shower = paths.get(1);
+        assertEquals(FinallyTaskEnum.DESTIN_FINAL.getCode(), shower.getFinallyTask());
+        assertEquals("AS_01", shower.getDockDevice().getEquipmentId());
+        assertEquals(DockTaskTypeEnum.AIRSHOWER.code, shower.getDockDevice().getDockType());
+        assertEquals("1-2", shower.getDockDevice().getFrontDoors().get("front").getName());
+        assertEquals(3, shower.getExpectRoutes().size());
+    }
+
+    @Test
+    @DisplayName("隔离：不同实例的分段、对接设备、预期路线互不影响")
+    void testIsolation() {
+        TaskSectionTemplate template = new TaskSectionTemplate(MapSnapshot.empty(), prototypes());
+        List<TaskPath> first = template.instantiate("AGV_001");
+        List<TaskPath> second = template.instantiate("AGV_002");
+
+        assertNotSame(first.get(1), second.get(1));
+        assertNotSame(first.get(1).getDockDevice(), second.get(1).getDockDevice());
+
+        first.get(1).getDockDevice().setDockState(2);
+        first.get(1).getExpectRoutes().clear();
+        first.get(1).getDockDevice().getFrontDoors().clear();
+        first.get(0).setTaskAction(5);
+
+        assertEquals(0, second.get(1).getDockDevice().getDockState());
+        assertEquals(3, second.get(1).getExpectRoutes().size());
+        assertEquals(1, second.get(1).getDockDevice().getFrontDoors().size());
+        assertEquals(3, second.get(0).getTaskAction());
+
+        List<TaskPath> third = template.instantiate("AGV_003");
+        assertEquals(3, third.get(1).getExpectRoutes().size());
+        assertEquals(0, third.get(1).getDockDevice().getDockState());
+    }
+
+    @Test
+    @DisplayName("失效：地图快照被替换后模板不再适用")
+    void testValidity() {
+        MapSnapshot snapshot = MapSnapshot.empty();
+        TaskSectionTemplate template = new TaskSectionTemplate(snapshot, prototypes());
+        assertTrue(template.isValid(snapshot));
+        assertFalse(template.isValid(MapSnapshot.empty()));
+        assertFalse(template.isValid(null));
+    }
+}
@@ -126,9 +126,13 @@ class CoreYamlTest {
         portMap.put("web_port", 8080);
         portMap.put("netty_websocket_port", 8081);
 
+        LinkedHashMap<String, Integer> algorithmMap = new LinkedHashMap<>();
+        algorithmMap.put("auction_deadline_ms", 500);
+
         // 配置 Mock 行为
         when(mockConfig.getRcsThreadPool()).thenReturn(threadPoolMap);
         when(mockConfig.getRcsPort()).thenReturn(portMap);
+        when(mockConfig.getAlgorithmCommon()).thenReturn(algorithmMap);
 
         // 必须让 initialize 成功才能测 getter
         when(mockEnv.bind(any(), any())).thenReturn(mockConfig);
@@ -140,6 +144,8 @@ class CoreYamlTest {
         assertEquals(500, coreYaml.getAlgoQueueCapacity());
         assertEquals(8080, coreYaml.getWebPort());
         assertEquals(8081, coreYaml.getNettyWebsocketPort());
+        assertEquals(500, coreYaml.getAlgorithmInt("auction_deadline_ms", 1000));
+        assertEquals(1000, coreYaml.getAlgorithmInt("auction_unknown_key", 1000), "未配置的算法参数应返回默认值");
 
         System.out.println("   [PASS] 读取配置值正确");
     }
@@ -174,6 +180,7 @@ class CoreYamlTest {
         ReflectUtil.setFieldValue(coreYaml, "config", null);
         assertEquals(expectedCore, coreYaml.getAlgoCorePoolSize());
         assertEquals(9092, coreYaml.getNettyMqttPort());
+        assertEquals(1000, coreYaml.getAlgorithmInt("auction_deadline_ms", 1000));
 
         System.out.println("   [PASS] 默认值机制生效");
     }
@@ -0,0 +1,301 @@
+package com.ruinap.infra.structure;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * FiFoConcurrentMap 单元测试
+ * <p>
+ * 覆盖场景：
+ * 1. FIFO 顺序、重复 put 不改变位置、compute 增删改
+ * 2. 容量上限淘汰最早插入的键
+ * 3. 多线程并发增删后链表与 Map 一致、无重复、各线程插入顺序保持
+ * 4. 10 万条目规模下的中间删除：按键比较次数断言 O(1)，耗时与 ConcurrentLinkedQueue 方案对比只做输出
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-09 10:00
+ */
+class FiFoConcurrentMapTest {
+
+    private static List<String> keys(FiFoConcurrentMap<String, Integer> map) {
+        return new ArrayList<>(map.getKeysInFifoOrder());
+    }
+
+    @Test
+    @DisplayName("FIFO 顺序：重复 put 只更新值，删除后重新插入排到队尾")
+    void testOrder() {
+        FiFoConcurrentMap<String, Integer> map = new FiFoConcurrentMap<>();
+        map.put("A", 1);
+        map.put("B", 2);
+        map.put("C", 3);
+        assertEquals(1, map.put("A", 10));
+        assertEquals(2, map.putIfAbsent("B", 20));
+        assertEquals(List.of("A", "B", "C"), keys(map));
+        assertEquals(List.of(10, 2, 3), map.values());
+
+        assertEquals(2, map.remove("B"));
+        assertNull(map.remove("B"));
+        map.put("B", 4);
+        assertEquals(List.of("A", "C", "B"), keys(map));
+
+        List<String> entries = new ArrayList<>();
+        map.entrySet().forEach(entry -> entries.add(entry.getKey() + "=" + entry.getValue()));
+        assertEquals(List.of("A=10", "C=3", "B=4"), entries);
+        assertEquals(Map.of("A", 10, "B", 4, "C", 3), map.getAll());
+        assertThrows(NullPointerException.class, () -> map.put("D", null));
+    }
+
+    @Test
+    @DisplayName("compute：返回 null 删除键，返回新值时保持位置")
+    void testCompute() {
+        FiFoConcurrentMap<String, Integer> map = new FiFoConcurrentMap<>();
+        assertNull(map.compute("A", (key, value) -> null));
+        assertEquals(0, map.size());
+
+        assertEquals(1, map.compute("A", (key, value) -> value == null ? 1 : value + 1));
+        map.put("B", 1);
+        assertEquals(2, map.compute("A", (key, value) -> value == null ? 1 : value + 1));
+        assertEquals(List.of("A", "B"), keys(map));
+
+        assertNull(map.compute("A", (key, value) -> null));
+        assertFalse(map.containsKey("A"));
+        assertEquals(List.of("B"), keys(map));
+    }
+
+    @Test
+    @DisplayName("容量上限：超出后淘汰最早插入的键")
+    void testEviction() {
+        FiFoConcurrentMap<String, Integer> map = new FiFoConcurrentMap<>(3);
+        for (int i = 0; i < 5; i++) {
+            map.put("K" + i, i);
+        }
+        assertEquals(3, map.size());
+        assertEquals(List.of("K2", "K3", "K4"), keys(map));
+
+        assertEquals(2, map.removeEldest());
+        assertEquals(List.of("K3", "K4"), keys(map));
+
+        // 遍历回调中删除元素不影响遍历
+        List<String> visited = new ArrayList<>();
+        map.forEach((key, value) -> {
+            visited.add(key);
+            map.remove("K4");
+        });
+        assertEquals(List.of("K3"), visited);
+        assertEquals(3, map.removeEldest());
+        assertNull(map.removeEldest());
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    @DisplayName("并发压力：多线程增删改与淘汰后链表与 Map 一致")
+    void testConcurrentStress() throws Exception {
+        FiFoConcurrentMap<String, Integer> map = new FiFoConcurrentMap<>();
+        int threads = 8;
+        int operations = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(thread);
+                    start.await();
+                    for (int i = 0; i < operations; i++) {
+                        // 一半的键在线程间共享，制造同键竞争
+                        String key = random.nextBoolean() ? "S" + random.nextInt(64) : "T" + thread + "-" + random.nextInt(256);
+                        switch (random.nextInt(6)) {
+                            case 0, 1 -> map.put(key, i);
+                            case 2 -> map.putIfAbsent(key, i);
+                            case 3 -> map.compute(key, (k, v) -> v == null ? Integer.valueOf(0) : (v % 3 == 0 ? null : Integer.valueOf(v + 1)));
+                            case 4 -> map.remove(key);
+                            default -> {
+                                if (random.nextInt(10) == 0) {
+                                    map.removeEldest();
+                                } else {
+                                    map.values();
+                                }
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<String> fifo = keys(map);
+        assertEquals(map.size(), fifo.size(), "链表长度与 Map 大小不一致");
+        assertEquals(fifo.size(), new HashSet<>(fifo).size(), "链表中存在重复键");
+        assertEquals(map.getAll().keySet(), new HashSet<>(fifo), "链表与 Map 的键不一致");
+    }
+
+    @Test
+    @DisplayName("并发压力：各线程自身的插入顺序在 FIFO 中保持")
+    void testConcurrentOrder() throws Exception {
+        FiFoConcurrentMap<String, Integer> map = new FiFoConcurrentMap<>();
+        int threads = 8;
+        int perThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        map.put("T" + thread + "-" + i, i);
+                        // 删除奇数键
+                        if (i % 2 == 1) {
+                            map.remove("T" + thread + "-" + i);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(threads * perThread / 2, map.size());
+        int[] last = new int[threads];
+        Arrays.fill(last, -1);
+        map.forEach((key, value) -> {
+            int thread = Integer.parseInt(key.substring(1, key.indexOf('-')));
+            assertEquals(0, value % 2);
+            assertTrue(value > last[thread], "线程 " + thread + " 的插入顺序被打乱");
+            last[thread] = value;
+        });
+    }
+
+    @Test
+    @DisplayName("性能：10 万条目下中间删除为 O(1)，不扫描队列")
+    void testBenchmark() {
+        int size = 100_000;
+        int removals = 2_000;
+        List<Integer> victims = new ArrayList<>();
+        Random random = new Random(20260309L);
+        for (int i = 0; i < removals; i++) {
+            victims.add(size / 4 + random.nextInt(size / 2));
+        }
+
+        // 预热
+        for (int i = 0; i < 3; i++) {
+            benchmarkMap(size, victims);
+            benchmarkBaseline(size, victims);
+        }
+        long mapNanos = benchmarkMap(size, victims);
+        long baselineNanos = benchmarkBaseline(size, victims);
+        System.out.printf("FiFoConcurrentMap: %d 条目删除 %d 个中间键耗时 %.2f ms，ConcurrentLinkedQueue 方案耗时 %.2f ms%n",
+                size, removals, mapNanos / 1e6, baselineNanos / 1e6);
+
+        // 耗时受机器负载影响，不做断言；以键比较次数验证删除不扫描队列
+        long mapEquals = countMapEquals(size, victims);
+        long baselineEquals = countBaselineEquals(size, victims);
+        System.out.printf("删除 %d 个中间键的键比较次数：FiFoConcurrentMap %d 次，ConcurrentLinkedQueue 方案 %d 次%n",
+                removals, mapEquals, baselineEquals);
+        assertTrue(mapEquals <= 2L * removals, "删除不应扫描队列，实际比较 " + mapEquals + " 次");
+        assertTrue(baselineEquals > (long) size / 4 * removals, "基准方案应逐个扫描队列");
+    }
+
+    /**
+     * 统计 equals 调用次数的键 (散列值互不相同)
+     */
+    private record CountingKey(int id, long[] counter) {
+        @Override
+        public boolean equals(Object o) {
+            counter[0]++;
+            return o instanceof CountingKey other && other.id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return Integer.hashCode(id);
+        }
+    }
+
+    private static long countMapEquals(int size, List<Integer> victims) {
+        long[] counter = new long[1];
+        FiFoConcurrentMap<CountingKey, Integer> map = new FiFoConcurrentMap<>();
+        for (int i = 0; i < size; i++) {
+            map.put(new CountingKey(i, counter), i);
+        }
+        counter[0] = 0;
+        for (Integer victim : victims) {
+            // 使用新的键实例，避免引用相等短路比较
+            map.remove(new CountingKey(victim, counter));
+        }
+        return counter[0];
+    }
+
+    private static long countBaselineEquals(int size, List<Integer> victims) {
+        long[] counter = new long[1];
+        Map<CountingKey, Integer> map = new ConcurrentHashMap<>();
+        Queue<CountingKey> queue = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < size; i++) {
+            CountingKey key = new CountingKey(i, counter);
+            map.put(key, i);
+            queue.offer(key);
+        }
+        counter[0] = 0;
+        for (Integer victim : victims) {
+            CountingKey key = new CountingKey(victim, counter);
+            queue.remove(key);
+            map.remove(key);
+        }
+        return counter[0];
+    }
+
+    private static long benchmarkMap(int size, List<Integer> victims) {
+        FiFoConcurrentMap<Integer, Integer> map = new FiFoConcurrentMap<>();
+        for (int i = 0; i < size; i++) {
+            map.put(i, i);
+        }
+        long start = System.nanoTime();
+        for (Integer victim : victims) {
+            map.remove(victim);
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * 原实现：ConcurrentHashMap + ConcurrentLinkedQueue，删除时线性扫描队列
+     */
+    private static long benchmarkBaseline(int size, List<Integer> victims) {
+        Map<Integer, Integer> map = new ConcurrentHashMap<>();
+        Queue<Integer> queue = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < size; i++) {
+            map.put(i, i);
+            queue.offer(i);
+        }
+        long start = System.nanoTime();
+        for (Integer victim : victims) {
+            queue.remove(victim);
+            map.remove(victim);
+        }
+        return System.nanoTime() - start;
+    }
+}
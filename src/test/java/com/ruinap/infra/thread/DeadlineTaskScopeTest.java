@@ -0,0 +1,110 @@
+package com.ruinap.infra.thread;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DeadlineTaskScope 单元测试
+ * <p>
+ * 覆盖场景：
+ * 1. 全部子任务在截止时间前完成
+ * 2. 截止时间到达后采纳部分结果，慢任务被中断
+ * 3. 子任务异常不影响其他结果
+ * 4. 作用域关闭后不能再启动子任务
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-11 11:00
+ */
+class DeadlineTaskScopeTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("全部完成：返回全部结果，未命中截止时间")
+    void testAllCompleted() throws InterruptedException {
+        try (DeadlineTaskScope<Integer> scope = DeadlineTaskScope.withTimeout(executor, 2, TimeUnit.SECONDS)) {
+            for (int i = 0; i < 10; i++) {
+                int value = i;
+                scope.fork(() -> value);
+            }
+            assertTrue(scope.joinUntilDeadline());
+            assertEquals(0, scope.timedOutCount());
+            assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), scope.results());
+        }
+    }
+
+    @Test
+    @DisplayName("截止时间：采纳已完成的结果，慢任务在关闭时被中断")
+    void testDeadline() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        long start = System.nanoTime();
+        Future<Integer> slow;
+        try (DeadlineTaskScope<Integer> scope = DeadlineTaskScope.withTimeout(executor, 200, TimeUnit.MILLISECONDS)) {
+            scope.fork(() -> 1);
+            slow = scope.fork(() -> {
+                // 模拟长耗时竞标，被中断后退出
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+                return 2;
+            });
+            scope.fork(() -> 3);
+
+            assertFalse(scope.joinUntilDeadline());
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(elapsedMs >= 150 && elapsedMs < 2000, "等待时间应受截止时间约束: " + elapsedMs);
+            assertEquals(1, scope.timedOutCount());
+            assertEquals(List.of(1, 3), scope.results());
+        }
+        assertTrue(interrupted.await(2, TimeUnit.SECONDS), "慢任务应被中断");
+        assertTrue(slow.isCancelled());
+    }
+
+    @Test
+    @DisplayName("子任务异常：不影响其他子任务的结果")
+    void testFailure() throws InterruptedException {
+        try (DeadlineTaskScope<String> scope = DeadlineTaskScope.withTimeout(executor, 2, TimeUnit.SECONDS)) {
+            scope.fork(() -> "A");
+            Future<String> failed = scope.fork(() -> {
+                throw new IllegalStateException("竞标异常");
+            });
+            scope.fork(() -> null);
+            assertTrue(scope.joinUntilDeadline());
+            assertEquals(Future.State.FAILED, failed.state());
+            assertEquals(List.of("A"), scope.results());
+        }
+    }
+
+    @Test
+    @DisplayName("生命周期：等待之后不能再启动子任务")
+    void testLifecycle() throws InterruptedException {
+        DeadlineTaskScope<Integer> scope = DeadlineTaskScope.withTimeout(executor, 1, TimeUnit.SECONDS);
+        scope.fork(() -> 1);
+        scope.joinUntilDeadline();
+        assertThrows(IllegalStateException.class, () -> scope.fork(() -> 2));
+        scope.close();
+        scope.close();
+        assertEquals(1, scope.forkedCount());
+    }
+}
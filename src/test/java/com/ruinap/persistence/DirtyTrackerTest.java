@@ -0,0 +1,164 @@
+package com.ruinap.persistence;
+
+import cn.hutool.db.Entity;
+import com.ruinap.persistence.gateway.WriteCallback;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DirtyTracker 单元测试
+ * <p>
+ * 覆盖场景：
+ * 1. 首次同步写入全部列，提交后无变化的行不产生脏列
+ * 2. 只有发生变化的列被挑出，未提交时下次重试
+ * 3. 日期与可变对象按内容比较，原地修改也能识别
+ * 4. 模拟 200 台 AGV 每次同步只有少量变化时的写入量
+ * 5. 写入中的行跳过，写入结果在 drain 时提交，未写入时解除写入中，已移除追踪的行迟到的结果被忽略
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-18 10:10
+ */
+class DirtyTrackerTest {
+
+    @Test
+    @DisplayName("首次全量: 提交后无变化的行不产生脏列")
+    void testFirstWrite() {
+        DirtyTracker tracker = new DirtyTracker();
+        Entity row = Entity.create().set("agv_state", 1).set("battery", 80);
+        Entity changes = tracker.diff("1", row);
+        assertEquals(2, changes.size());
+        tracker.commit("1", changes);
+        assertTrue(tracker.diff("1", Entity.create().set("agv_state", 1).set("battery", 80)).isEmpty());
+        assertEquals(1, tracker.size());
+    }
+
+    @Test
+    @DisplayName("列级变化: 只挑出变化的列，未提交时下次仍为脏列")
+    void testChangedColumns() {
+        DirtyTracker tracker = new DirtyTracker();
+        tracker.commit("1", Entity.create().set("agv_state", 1).set("battery", 80).set("point_id", 10));
+
+        Entity changes = tracker.diff("1", Entity.create().set("agv_state", 1).set("battery", 79).set("point_id", 10));
+        assertEquals(Set.of("battery"), changes.keySet());
+        // 写入失败未提交，下次同步仍然写入
+        assertEquals(Set.of("battery"), tracker.diff("1", Entity.create().set("battery", 79)).keySet());
+        tracker.commit("1", changes);
+        assertTrue(tracker.diff("1", Entity.create().set("battery", 79)).isEmpty());
+
+        // 新增的列视为脏列
+        assertEquals(Set.of("task_id"), tracker.diff("1", Entity.create().set("battery", 79).set("task_id", "T1")).keySet());
+        // 值变为 null 也需要写入
+        assertEquals(Set.of("point_id"), tracker.diff("1", Entity.create().set("point_id", null)).keySet());
+    }
+
+    @Test
+    @DisplayName("可比较值: 日期按时间戳比较，可变对象原地修改后仍能识别")
+    void testComparable() {
+        DirtyTracker tracker = new DirtyTracker();
+        List<String> suggestions = new ArrayList<>(List.of("a"));
+        tracker.commit("1", Entity.create().set("update_time", new Date(1000)).set("list", suggestions));
+
+        assertTrue(tracker.diff("1", Entity.create().set("update_time", new Date(1000)).set("list", suggestions)).isEmpty());
+        suggestions.add("b");
+        assertEquals(Set.of("list"), tracker.diff("1", Entity.create().set("list", suggestions)).keySet());
+        assertEquals(Set.of("update_time"), tracker.diff("1", Entity.create().set("update_time", new Date(2000))).keySet());
+
+        tracker.commit("2", Entity.create().set("x", 1));
+        tracker.retain(Set.of("2"));
+        assertEquals(1, tracker.size());
+        tracker.forget("2");
+        assertEquals(0, tracker.size());
+    }
+
+    @Test
+    @DisplayName("写入中: 写入结果在 drain 时提交，未写入时重试，移除追踪后迟到的结果被忽略")
+    void testInFlight() {
+        DirtyTracker tracker = new DirtyTracker();
+        Entity changes = tracker.diff("1", Entity.create().set("battery", 80));
+        WriteCallback first = tracker.submit("1");
+        assertTrue(tracker.isInFlight("1"));
+
+        // 写入结果在 drain 之前不生效
+        first.written(changes);
+        assertEquals(0, tracker.size());
+        List<String> written = new ArrayList<>();
+        tracker.drain((key, entity) -> written.add(key));
+        assertEquals(List.of("1"), written);
+        assertFalse(tracker.isInFlight("1"));
+        assertTrue(tracker.diff("1", Entity.create().set("battery", 80)).isEmpty());
+
+        // 未写入：解除写入中，不提交
+        tracker.submit("1").dropped();
+        tracker.drain();
+        assertFalse(tracker.isInFlight("1"));
+        assertEquals(Set.of("battery"), tracker.diff("1", Entity.create().set("battery", 79)).keySet());
+
+        // 移除追踪后迟到的结果被忽略，不会再次提交
+        WriteCallback late = tracker.submit("2");
+        tracker.forget("2");
+        late.written(Entity.create().set("battery", 50));
+        written.clear();
+        tracker.drain((key, entity) -> written.add(key));
+        assertTrue(written.isEmpty());
+        assertEquals(1, tracker.size());
+
+        // 同一行再次提交后，上一次提交迟到的结果不解除本次的写入中
+        WriteCallback stale = tracker.submit("3");
+        tracker.retain(Set.of("1"));
+        tracker.submit("3");
+        stale.dropped();
+        tracker.drain();
+        assertTrue(tracker.isInFlight("3"));
+    }
+
+    @Test
+    @DisplayName("模拟: 200 台 AGV 每次同步 10 台上报变化，写入行数与列数随变化量而非车队规模增长")
+    void testSimulation() {
+        int agvCount = 200;
+        int columns = 40;
+        int ticks = 100;
+        Random random = new Random(7);
+        DirtyTracker tracker = new DirtyTracker();
+        Map<String, Entity> fleet = new HashMap<>();
+        for (int i = 0; i < agvCount; i++) {
+            Entity row = Entity.create();
+            for (int c = 0; c < columns; c++) {
+                row.set("c" + c, 0);
+            }
+            fleet.put(String.valueOf(i), row);
+        }
+
+        long fullRows = 0, fullCells = 0, dirtyRows = 0, dirtyCells = 0;
+        for (int tick = 0; tick < ticks; tick++) {
+            if (tick > 0) {
+                for (int n = 0; n < 10; n++) {
+                    Entity row = fleet.get(String.valueOf(random.nextInt(agvCount)));
+                    // 位置、电量、状态等少数列变化
+                    for (int k = 0; k < 3; k++) {
+                        row.set("c" + random.nextInt(columns), tick);
+                    }
+                }
+            }
+            for (Map.Entry<String, Entity> entry : fleet.entrySet()) {
+                fullRows++;
+                fullCells += columns;
+                Entity changes = tracker.diff(entry.getKey(), entry.getValue());
+                if (!changes.isEmpty()) {
+                    dirtyRows++;
+                    dirtyCells += changes.size();
+                    tracker.commit(entry.getKey(), changes);
+                }
+            }
+        }
+        System.out.printf("全量写入: %d 行 %d 列, 脏列写入: %d 行 %d 列 (%.1f%%)%n",
+                fullRows, fullCells, dirtyRows, dirtyCells, dirtyCells * 100.0 / fullCells);
+        // 首次全量 + 之后每次最多 10 行
+        assertTrue(dirtyRows <= agvCount + (ticks - 1) * 10L);
+        assertTrue(dirtyCells < fullCells / 10);
+    }
+}
@@ -0,0 +1,283 @@
+package com.ruinap.persistence.executor;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JdbcExecutor 单元测试
+ * <p>
+ * 覆盖场景：
+ * 1. 虚拟线程的调用在平台线程上执行，平台线程与启动前的调用在当前线程执行
+ * 2. 数据库异常原样抛出，运行时异常原样抛出
+ * 3. 排队已满时异步提交立即拒绝，同步调用等待许可超时后抛出异常
+ * 4. 钉住检测：以 JFR jdk.VirtualThreadPinned 事件 (与 -Djdk.tracePinnedThreads 的检测点相同) 对比
+ * 直接在虚拟线程执行与经由执行器执行的钉住次数，并校验经由执行器的调用在 jdbc-N 平台线程上执行且并发数不超过线程数
+ * (载体线程占用率与控制循环延迟只输出，不断言)
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-22 11:00
+ */
+class JdbcExecutorTest {
+
+    private JdbcExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new JdbcExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 模拟驱动内部在 synchronized 中等待网络
+     */
+    private static Integer slowQuery(long millis) throws SQLException {
+        Object connection = new Object();
+        synchronized (connection) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException(e);
+            }
+        }
+        return 1;
+    }
+
+    private static <T> T inVirtualThread(JdbcExecutor.SqlCallable<T> callable) throws Exception {
+        AtomicReference<T> result = new AtomicReference<>();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread.ofVirtual().start(() -> {
+            try {
+                result.set(callable.call());
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        }).join();
+        if (error.get() instanceof Exception e) {
+            throw e;
+        }
+        return result.get();
+    }
+
+    @Test
+    @DisplayName("线程: 虚拟线程交给平台线程执行，平台线程与启动前直接执行")
+    void testThreadSelection() throws Exception {
+        // 启动前直接执行
+        assertTrue(inVirtualThread(() -> executor.call(() -> Thread.currentThread().isVirtual())));
+        assertEquals(1, executor.getInline());
+
+        executor.start(2, 8, 1_000);
+        String worker = inVirtualThread(() -> executor.call(() -> Thread.currentThread().getName()));
+        assertTrue(worker.startsWith("jdbc-"), worker);
+        // 平台线程直接执行
+        assertEquals(Thread.currentThread().getName(), executor.call(() -> Thread.currentThread().getName()));
+        // 执行器线程内的嵌套调用直接执行 (事务内使用同一个线程绑定的连接)
+        String nested = inVirtualThread(() -> executor.call(() -> {
+            String outer = Thread.currentThread().getName();
+            return outer.equals(executor.call(() -> Thread.currentThread().getName())) ? outer : null;
+        }));
+        assertNotNull(nested);
+        assertEquals(2, executor.getCompleted());
+    }
+
+    @Test
+    @DisplayName("异常: 数据库异常与运行时异常原样抛出")
+    void testExceptionPropagation() {
+        executor.start(2, 8, 1_000);
+        SQLException sqlException = new SQLException("bad sql");
+        SQLException thrown = assertThrows(SQLException.class, () -> inVirtualThread(() -> executor.call(() -> {
+            throw sqlException;
+        })));
+        assertSame(sqlException, thrown);
+        assertThrows(IllegalStateException.class, () -> inVirtualThread(() -> executor.call(() -> {
+            throw new IllegalStateException("bug");
+        })));
+        assertEquals(2, executor.getFailed());
+    }
+
+    @Test
+    @DisplayName("背压: 排队已满时异步提交拒绝，同步调用等待超时后抛出异常")
+    void testBackPressure() throws Exception {
+        executor.start(1, 1, 100);
+        CountDownLatch release = new CountDownLatch(1);
+        JdbcExecutor.SqlCallable<Integer> blocked = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new SQLException(e);
+            }
+            return 1;
+        };
+        CompletableFuture<Integer> running = executor.submit(blocked);
+        CompletableFuture<Integer> queued = executor.submit(blocked);
+        CompletableFuture<Integer> overflow = executor.submit(blocked);
+        ExecutionException rejected = assertThrows(ExecutionException.class, overflow::get);
+        assertInstanceOf(RejectedExecutionException.class, rejected.getCause());
+
+        // 许可已用完：同步调用等待超时后拒绝
+        SQLException timeout = assertThrows(SQLException.class, () -> inVirtualThread(() -> executor.call(blocked)));
+        assertTrue(timeout.getMessage().contains("未获得执行许可"), timeout.getMessage());
+        assertEquals(2, executor.getRejected());
+        // 只有获得许可的两个调用提交到线程池
+        assertEquals(2, executor.getSubmitted());
+
+        release.countDown();
+        assertEquals(1, running.get());
+        assertEquals(1, queued.get());
+        System.out.println(executor.stats());
+    }
+
+    /**
+     * 一轮负载的结果
+     *
+     * @param pinnedCount   钉住次数
+     * @param pinnedMs      钉住总时长
+     * @param utilization   钉住占载体线程总时间的比例
+     * @param maxTickLagMs  控制循环最大延迟
+     * @param workers       执行慢查询的线程名
+     * @param ranOnVirtual  是否有慢查询在虚拟线程上执行
+     * @param maxConcurrent 同时执行的慢查询最大数量
+     */
+    private record LoadResult(int pinnedCount, double pinnedMs, double utilization, double maxTickLagMs,
+                              Set<String> workers, boolean ranOnVirtual, int maxConcurrent) {
+    }
+
+    /**
+     * 在虚拟线程上并发执行慢查询，同时运行一个 5 毫秒周期的控制循环，记录钉住事件
+     *
+     * @param viaExecutor 是否经由执行器
+     */
+    private LoadResult runLoad(boolean viaExecutor) throws Exception {
+        int carriers = Integer.getInteger("jdk.virtualThreadScheduler.parallelism", Runtime.getRuntime().availableProcessors());
+        int clients = carriers * 2;
+        int queriesPerClient = 5;
+        long queryMs = 20;
+        long tickMs = 5;
+
+        Path file = Files.createTempFile("pinned", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+
+            CountDownLatch done = new CountDownLatch(clients);
+            double[] maxLag = new double[1];
+            Set<String> workers = ConcurrentHashMap.newKeySet();
+            AtomicBoolean ranOnVirtual = new AtomicBoolean();
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxConcurrent = new AtomicInteger();
+            JdbcExecutor.SqlCallable<Integer> query = () -> {
+                Thread current = Thread.currentThread();
+                workers.add(current.getName());
+                ranOnVirtual.compareAndSet(false, current.isVirtual());
+                maxConcurrent.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    return slowQuery(queryMs);
+                } finally {
+                    running.decrementAndGet();
+                }
+            };
+            Thread ticker = Thread.ofVirtual().start(() -> {
+                while (done.getCount() > 0) {
+                    long begin = System.nanoTime();
+                    try {
+                        Thread.sleep(tickMs);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    maxLag[0] = Math.max(maxLag[0], (System.nanoTime() - begin) / 1e6 - tickMs);
+                }
+            });
+
+            long begin = System.nanoTime();
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                threads.add(Thread.ofVirtual().start(() -> {
+                    try {
+                        for (int q = 0; q < queriesPerClient; q++) {
+                            if (viaExecutor) {
+                                executor.call(query);
+                            } else {
+                                query.call();
+                            }
+                        }
+                    } catch (SQLException e) {
+                        throw new RuntimeException(e);
+                    } finally {
+                        done.countDown();
+                    }
+                }));
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            ticker.join();
+            double wallMs = (System.nanoTime() - begin) / 1e6;
+
+            recording.stop();
+            recording.dump(file);
+            int count = 0;
+            double pinnedMs = 0;
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                if ("jdk.VirtualThreadPinned".equals(event.getEventType().getName())) {
+                    count++;
+                    pinnedMs += event.getDuration().toNanos() / 1e6;
+                }
+            }
+            return new LoadResult(count, pinnedMs, pinnedMs / (wallMs * carriers), maxLag[0], workers, ranOnVirtual.get(), maxConcurrent.get());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("钉住: 虚拟线程直接执行慢查询钉住载体线程，经由执行器后不再钉住")
+    void testPinning() throws Exception {
+        LoadResult before = runLoad(false);
+        executor.start(8, 32, 5_000);
+        LoadResult after = runLoad(true);
+
+        System.out.printf("直接执行：钉住 %d 次，共 %.0f ms，载体线程占用率 %.1f%%，控制循环最大延迟 %.1f ms%n",
+                before.pinnedCount(), before.pinnedMs(), before.utilization() * 100, before.maxTickLagMs());
+        System.out.printf("执行器：  钉住 %d 次，共 %.0f ms，载体线程占用率 %.1f%%，控制循环最大延迟 %.1f ms%n",
+                after.pinnedCount(), after.pinnedMs(), after.utilization() * 100, after.maxTickLagMs());
+        System.out.println(executor.stats());
+
+        assertTrue(before.pinnedCount() > 0, "检测器应能发现直接执行时的钉住");
+        assertEquals(0, after.pinnedCount(), "经由执行器后虚拟线程不应被钉住");
+        // 经由执行器的慢查询全部在 jdbc-N 平台线程上执行，同时执行的数量不超过线程数
+        assertFalse(after.workers().isEmpty());
+        for (String worker : after.workers()) {
+            assertTrue(worker.startsWith("jdbc-"), worker);
+        }
+        assertFalse(after.ranOnVirtual(), "慢查询不应在虚拟线程上执行");
+        assertTrue(after.maxConcurrent() <= 8, "同时执行的慢查询不应超过线程数，实际 " + after.maxConcurrent());
+    }
+}
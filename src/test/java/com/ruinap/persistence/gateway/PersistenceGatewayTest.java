@@ -0,0 +1,304 @@
+package com.ruinap.persistence.gateway;
+
+import cn.hutool.db.Db;
+import cn.hutool.db.Entity;
+import cn.hutool.db.ds.simple.SimpleDataSource;
+import com.ruinap.persistence.DirtyTracker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PersistenceGateway 单元测试 (H2 MySQL 模式)
+ * <p>
+ * 覆盖场景：
+ * 1. 同一行的更新合并为一条，列值取最新，回调收到合并后的列与主键，写入中的操作计入待写入
+ * 2. 数据库不可用时提交不阻塞，恢复后按提交顺序写入
+ * 3. 内存队列满后溢出到文件，恢复后先写队列再回放文件，整体保持顺序
+ * 4. 关闭时数据库不可用，剩余写入保存到溢出文件，重启后先于新写入回放
+ * 5. 数据库可用但单条数据无法写入时丢弃该条，不阻塞其他写入
+ * 6. 溢出的更新回放时执行写入回调，行不存在时执行未写入回调
+ * 7. 宕机期间按追踪器多次同步，写入中的行跳过，溢出文件中每行只有一条，恢复后提交追踪记录
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-21 15:20
+ */
+class PersistenceGatewayTest {
+
+    private Path dir;
+    private Db db;
+    private Db deadDb;
+    private final AtomicBoolean down = new AtomicBoolean(false);
+    private final Supplier<Db> dbSupplier = () -> down.get() ? deadDb : db;
+
+    @BeforeEach
+    void setUp() throws IOException, SQLException {
+        dir = Files.createTempDirectory("gateway-test");
+        down.set(false);
+        db = Db.use(new SimpleDataSource("jdbc:h2:mem:gateway_" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", ""));
+        // 不存在的服务端，连接立即失败，模拟数据库宕机
+        deadDb = Db.use(new SimpleDataSource("jdbc:h2:tcp://127.0.0.1:1/none", "sa", ""), "org.h2.Driver");
+        db.execute("CREATE TABLE rcs_agv (agv_id VARCHAR(32) PRIMARY KEY, agv_state INT, battery INT, point_id INT)");
+        db.execute("CREATE TABLE rcs_alarm (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(32) NOT NULL, code INT, state INT)");
+        for (int i = 1; i <= 3; i++) {
+            db.execute("INSERT INTO rcs_agv (agv_id, agv_state, battery, point_id) VALUES (?, 0, 100, 0)", "AGV-" + i);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private PersistenceGateway newGateway(int capacity) {
+        PersistenceGateway gateway = new PersistenceGateway();
+        gateway.configure(capacity, dir, 64L * 1024 * 1024);
+        gateway.open(dbSupplier);
+        return gateway;
+    }
+
+    private static void drain(PersistenceGateway gateway) throws IOException {
+        for (int i = 0; i < 1000; i++) {
+            Boolean result = gateway.writeOnce();
+            if (result == null) {
+                return;
+            }
+            assertTrue(result, "数据库可用时写入应成功");
+        }
+        fail("写入未在预期次数内完成");
+    }
+
+    private List<String> alarmNames() throws SQLException {
+        return db.query("SELECT name FROM rcs_alarm ORDER BY id").stream().map(e -> e.getStr("name")).toList();
+    }
+
+    @Test
+    @DisplayName("合并: 同一行的多次更新合并为一条，回调收到合并后的列与主键")
+    void testCoalesce() throws Exception {
+        PersistenceGateway gateway = newGateway(1000);
+        Map<String, Entity> committed = new HashMap<>();
+        AtomicBoolean drainedInCallback = new AtomicBoolean(true);
+        for (int i = 0; i < 300; i++) {
+            String agvId = "AGV-" + (i % 3 + 1);
+            Entity row = Entity.create().set("point_id", i);
+            if (i % 2 == 0) {
+                row.set("battery", 100 - i / 10);
+            }
+            gateway.update("rcs_agv", "agv_id", agvId, row, written -> {
+                committed.put(agvId, written);
+                drainedInCallback.set(gateway.isDrained());
+            });
+        }
+        assertEquals(3, gateway.getPending());
+        assertEquals(297, gateway.getCoalesced());
+
+        drain(gateway);
+        assertFalse(drainedInCallback.get(), "写入线程正在写入的操作应计入积压");
+        assertTrue(gateway.isDrained());
+        Entity agv3 = db.queryOne("SELECT * FROM rcs_agv WHERE agv_id = 'AGV-3'");
+        assertEquals(299, agv3.getInt("point_id"));
+        assertEquals(71, agv3.getInt("battery"));
+        assertEquals(3, committed.size());
+        assertEquals(299, committed.get("AGV-3").getInt("point_id"));
+        assertEquals("AGV-3", committed.get("AGV-3").getStr("agv_id"));
+    }
+
+    @Test
+    @DisplayName("宕机: 提交不阻塞，恢复后按提交顺序写入")
+    void testOutageAndRecovery() throws Exception {
+        PersistenceGateway gateway = newGateway(10_000);
+        down.set(true);
+
+        long begin = System.nanoTime();
+        int count = 5000;
+        for (int i = 0; i < count; i++) {
+            gateway.update("rcs_agv", "agv_id", "AGV-1", Entity.create().set("point_id", i), null);
+        }
+        gateway.insert("rcs_alarm", Entity.create().set("name", "AGV-1").set("code", 1).set("state", 0));
+        gateway.execute("UPDATE rcs_alarm SET state = 1 WHERE name = ? AND code = ? AND state = 0", "AGV-1", 1);
+        double perOpNs = (System.nanoTime() - begin) / (double) (count + 2);
+        System.out.printf("数据库不可用时提交 %d 条，平均 %.0f ns/条%n", count + 2, perOpNs);
+
+        assertFalse(gateway.writeOnce());
+        assertFalse(gateway.isDbAvailable());
+        assertEquals(3, gateway.getPending());
+        assertFalse(gateway.isDrained());
+
+        down.set(false);
+        drain(gateway);
+        assertTrue(gateway.isDrained());
+        assertTrue(gateway.isDbAvailable());
+        assertEquals(count - 1, db.queryOne("SELECT point_id FROM rcs_agv WHERE agv_id = 'AGV-1'").getInt("point_id"));
+        // 插入先于结束写入
+        assertEquals(1, db.queryOne("SELECT state FROM rcs_alarm WHERE name = 'AGV-1'").getInt("state"));
+        assertEquals(0, gateway.getPending());
+    }
+
+    @Test
+    @DisplayName("溢出: 队列满后写入溢出文件，恢复后先写队列再回放文件，保持顺序")
+    void testSpillAndReplay() throws Exception {
+        PersistenceGateway gateway = newGateway(10);
+        down.set(true);
+        for (int i = 0; i < 50; i++) {
+            gateway.insert("rcs_alarm", Entity.create().set("name", "A" + i).set("code", i).set("state", 0));
+        }
+        gateway.spillOverflow();
+        assertEquals(10, gateway.getPending());
+        assertEquals(40, gateway.getSpilled());
+        assertTrue(gateway.getSpillBytes() > 0);
+        assertFalse(gateway.writeOnce());
+
+        down.set(false);
+        drain(gateway);
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            expected.add("A" + i);
+        }
+        assertEquals(expected, alarmNames());
+        assertEquals(40, gateway.getReplayed());
+        assertEquals(0, gateway.getSpillBytes());
+
+        // 回放完毕后退出溢出模式，新的写入直接进入内存队列
+        gateway.insert("rcs_alarm", Entity.create().set("name", "A50").set("code", 50).set("state", 0));
+        assertEquals(1, gateway.getPending());
+        drain(gateway);
+        assertEquals(51, alarmNames().size());
+    }
+
+    @Test
+    @DisplayName("重启: 关闭时剩余写入保存到溢出文件，重启后先于新写入回放")
+    void testShutdownAndRestart() throws Exception {
+        PersistenceGateway gateway = new PersistenceGateway();
+        gateway.configure(5, dir, 64L * 1024 * 1024);
+        down.set(true);
+        gateway.start(dbSupplier, Thread.ofVirtual().factory());
+        for (int i = 0; i < 20; i++) {
+            gateway.insert("rcs_alarm", Entity.create().set("name", "A" + i).set("code", i).set("state", 0));
+        }
+        gateway.shutdown();
+        assertEquals(0, alarmNames().size());
+        // 关闭之后的写入直接追加到溢出文件
+        gateway.insert("rcs_alarm", Entity.create().set("name", "A20").set("code", 20).set("state", 0));
+
+        down.set(false);
+        PersistenceGateway restarted = new PersistenceGateway();
+        restarted.configure(5, dir, 64L * 1024 * 1024);
+        // 启动前提交的写入排在溢出文件之后
+        restarted.insert("rcs_alarm", Entity.create().set("name", "A21").set("code", 21).set("state", 0));
+        restarted.open(dbSupplier);
+        drain(restarted);
+        restarted.spillOverflow();
+        drain(restarted);
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 22; i++) {
+            expected.add("A" + i);
+        }
+        assertEquals(expected, alarmNames());
+    }
+
+    @Test
+    @DisplayName("坏数据: 数据库可用但单条无法写入时丢弃该条，其余正常写入")
+    void testPoisonOperationDropped() throws Exception {
+        PersistenceGateway gateway = newGateway(1000);
+        gateway.insert("rcs_alarm", Entity.create().set("name", "A0").set("code", 0).set("state", 0));
+        // name 不能为空
+        gateway.insert("rcs_alarm", Entity.create().set("code", 1).set("state", 0));
+        gateway.insert("rcs_alarm", Entity.create().set("name", "A2").set("code", 2).set("state", 0));
+        gateway.update("rcs_agv", "agv_id", "AGV-2", Entity.create().set("agv_state", 1), null);
+
+        drain(gateway);
+        assertEquals(List.of("A0", "A2"), alarmNames());
+        assertEquals(1, db.queryOne("SELECT agv_state FROM rcs_agv WHERE agv_id = 'AGV-2'").getInt("agv_state"));
+        assertEquals(1, gateway.getDropped());
+        assertTrue(gateway.isDbAvailable());
+    }
+
+    @Test
+    @DisplayName("回调: 溢出的更新回放时执行写入回调，行不存在时执行未写入回调")
+    void testSpilledCallback() throws Exception {
+        PersistenceGateway gateway = newGateway(1);
+        down.set(true);
+        List<String> results = new ArrayList<>();
+        gateway.insert("rcs_alarm", Entity.create().set("name", "A0").set("code", 0).set("state", 0));
+        gateway.update("rcs_agv", "agv_id", "AGV-1", Entity.create().set("point_id", 7), record(results, "AGV-1"));
+        gateway.update("rcs_agv", "agv_id", "AGV-9", Entity.create().set("point_id", 7), record(results, "AGV-9"));
+        gateway.spillOverflow();
+        assertEquals(2, gateway.getSpilled());
+        assertTrue(results.isEmpty());
+
+        down.set(false);
+        drain(gateway);
+        assertEquals(List.of("written AGV-1 7", "dropped AGV-9"), results);
+        assertEquals(2, gateway.getReplayed());
+    }
+
+    private static WriteCallback record(List<String> results, String agvId) {
+        return new WriteCallback() {
+            @Override
+            public void written(Entity written) {
+                results.add("written " + written.getStr("agv_id") + " " + written.getInt("point_id"));
+            }
+
+            @Override
+            public void dropped() {
+                results.add("dropped " + agvId);
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("宕机同步: 写入中的行跳过，溢出文件中每行只有一条，恢复后提交追踪记录")
+    void testOutageWithTracker() throws Exception {
+        PersistenceGateway gateway = newGateway(2);
+        DirtyTracker tracker = new DirtyTracker();
+        down.set(true);
+        int ticks = 50;
+        for (int tick = 0; tick < ticks; tick++) {
+            // 与 DbManager.syncDataToDb 相同的流程
+            tracker.drain();
+            for (int i = 1; i <= 3; i++) {
+                String agvId = "AGV-" + i;
+                if (tracker.isInFlight(agvId)) {
+                    continue;
+                }
+                Entity changes = tracker.diff(agvId, Entity.create().set("point_id", tick).set("battery", 90));
+                if (!changes.isEmpty()) {
+                    gateway.update("rcs_agv", "agv_id", agvId, changes, tracker.submit(agvId));
+                }
+            }
+            gateway.spillOverflow();
+            if (tick % 10 == 0) {
+                assertFalse(gateway.writeOnce());
+            }
+        }
+        // 队列 2 条，溢出文件 1 条，不随同步次数增长
+        assertEquals(2, gateway.getPending());
+        assertEquals(1, gateway.getSpilled());
+
+        down.set(false);
+        drain(gateway);
+        tracker.drain();
+        for (int i = 1; i <= 3; i++) {
+            assertFalse(tracker.isInFlight("AGV-" + i));
+            assertEquals(0, db.queryOne("SELECT point_id FROM rcs_agv WHERE agv_id = ?", "AGV-" + i).getInt("point_id"));
+        }
+        // 恢复后的下一次同步只写入宕机期间变化的列
+        assertEquals(Set.of("point_id"), tracker.diff("AGV-3", Entity.create().set("point_id", ticks - 1).set("battery", 90)).keySet());
+    }
+}
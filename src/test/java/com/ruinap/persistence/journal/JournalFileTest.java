@@ -0,0 +1,187 @@
+package com.ruinap.persistence.journal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JournalFile 单元测试
+ * <p>
+ * 覆盖场景：
+ * 1. 追加与回放，末尾残帧与校验失败的帧被截断，之后追加的记录可以正常回放
+ * 2. 压缩：快照 + 轮转后的日志回放顺序正确，压缩中途崩溃时旧日志仍参与回放
+ * 3. 不完整的快照整体丢弃
+ * 4. 单条追加耗时 (只输出，不断言)
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-19 15:30
+ */
+class JournalFileTest {
+
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("journal-test");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    @DisplayName("残帧: 写入中途崩溃的末尾记录与校验失败的记录被截断，之后追加的记录可回放")
+    void testTornTail() throws IOException {
+        JournalFile journal = new JournalFile(dir, "runtime");
+        journal.open();
+        journal.append(bytes("a"));
+        journal.append(bytes("b"));
+        journal.close();
+
+        // 模拟崩溃：末尾只写入了一半的帧
+        Path wal = dir.resolve("runtime.wal");
+        long validLength = Files.size(wal);
+        try (RandomAccessFile raf = new RandomAccessFile(wal.toFile(), "rw")) {
+            raf.seek(validLength);
+            raf.writeInt(100);
+            raf.writeInt(0);
+            raf.write(new byte[10]);
+        }
+
+        List<String> replayed = new ArrayList<>();
+        JournalFile.ReplayResult result = new JournalFile(dir, "runtime").replay(b -> replayed.add(string(b)));
+        assertEquals(List.of("a", "b"), replayed);
+        assertEquals(18, result.tornBytes());
+        assertEquals(validLength, Files.size(wal));
+
+        // 截断后追加的记录可以正常回放
+        JournalFile reopened = new JournalFile(dir, "runtime");
+        reopened.replay(b -> {
+        });
+        reopened.open();
+        reopened.append(bytes("c"));
+        reopened.close();
+
+        // 内容被破坏的帧 (校验失败) 之后的记录全部丢弃
+        try (RandomAccessFile raf = new RandomAccessFile(wal.toFile(), "rw")) {
+            raf.seek(validLength + JournalFile.HEADER_BYTES);
+            raf.write('x');
+        }
+        replayed.clear();
+        new JournalFile(dir, "runtime").replay(b -> replayed.add(string(b)));
+        assertEquals(List.of("a", "b"), replayed);
+    }
+
+    @Test
+    @DisplayName("压缩: 快照叠加新日志，压缩中途崩溃时旧日志参与回放，完成后旧日志被删除")
+    void testCompact() throws IOException {
+        JournalFile journal = new JournalFile(dir, "runtime");
+        journal.open();
+        journal.append(bytes("1"));
+        journal.append(bytes("2"));
+
+        // 轮转后、快照写入前崩溃
+        journal.rotate();
+        journal.append(bytes("3"));
+        journal.force();
+        List<String> replayed = new ArrayList<>();
+        new JournalFile(dir, "runtime").replay(b -> replayed.add(string(b)));
+        assertEquals(List.of("1", "2", "3"), replayed);
+
+        // 上一次压缩未完成时再次轮转，旧日志不会被覆盖
+        journal.rotate();
+        journal.append(bytes("4"));
+        replayed.clear();
+        new JournalFile(dir, "runtime").replay(b -> replayed.add(string(b)));
+        assertEquals(List.of("1", "2", "3", "4"), replayed);
+
+        // 完成压缩
+        journal.writeSnapshot(List.of(bytes("S1"), bytes("S2")));
+        journal.deleteRotated();
+        journal.append(bytes("5"));
+        journal.close();
+        assertFalse(Files.exists(dir.resolve("runtime.wal.old")));
+
+        replayed.clear();
+        JournalFile.ReplayResult result = new JournalFile(dir, "runtime").replay(b -> replayed.add(string(b)));
+        assertEquals(List.of("S1", "S2", "4", "5"), replayed);
+        assertEquals(2, result.snapshotRecords());
+        assertEquals(2, result.journalRecords());
+    }
+
+    @Test
+    @DisplayName("快照: 缺少结束帧的快照整体丢弃，只回放日志")
+    void testIncompleteSnapshot() throws IOException {
+        JournalFile journal = new JournalFile(dir, "runtime");
+        journal.writeSnapshot(List.of(bytes("S1"), bytes("S2")));
+        Path snapshot = dir.resolve("runtime.snap");
+        try (RandomAccessFile raf = new RandomAccessFile(snapshot.toFile(), "rw")) {
+            raf.setLength(raf.length() - JournalFile.HEADER_BYTES);
+        }
+        journal.open();
+        journal.append(bytes("a"));
+        journal.close();
+
+        List<String> replayed = new ArrayList<>();
+        JournalFile.ReplayResult result = new JournalFile(dir, "runtime").replay(b -> replayed.add(string(b)));
+        assertEquals(List.of("a"), replayed);
+        assertEquals(0, result.snapshotRecords());
+    }
+
+    @Test
+    @DisplayName("性能: 单条记录追加耗时 (写入页缓存，不落盘)")
+    void testAppendLatency() throws IOException {
+        JournalFile journal = new JournalFile(dir, "runtime");
+        journal.open();
+        // 与一条携带两段 100 点路线的任务路径记录大小相当
+        byte[] payload = new byte[2048];
+        for (int i = 0; i < 5_000; i++) {
+            journal.append(payload);
+        }
+        int rounds = 20_000;
+        long begin = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            journal.append(payload);
+        }
+        double avgMicros = (System.nanoTime() - begin) / 1000.0 / rounds;
+        journal.force();
+        journal.close();
+        System.out.printf("追加 %d 条 %d 字节记录，平均 %.2f µs/条%n", rounds, payload.length, avgMicros);
+
+        // 耗时只输出不断言 (受机器负载影响)，只校验记录全部可以回放
+        int[] replayed = {0};
+        new JournalFile(dir, "runtime").replay(b -> {
+            assertEquals(payload.length, b.remaining());
+            replayed[0]++;
+        });
+        assertEquals(5_000 + rounds, replayed[0]);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
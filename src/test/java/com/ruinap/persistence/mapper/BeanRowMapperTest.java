@@ -0,0 +1,142 @@
+package com.ruinap.persistence.mapper;
+
+import cn.hutool.db.Db;
+import cn.hutool.db.Entity;
+import cn.hutool.db.ds.simple.SimpleDataSource;
+import com.ruinap.core.equipment.pojo.RcsAgv;
+import com.ruinap.core.equipment.pojo.RcsChargePile;
+import com.ruinap.core.task.domain.RcsTask;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BeanRowMapper 单元测试
+ * <p>
+ * 覆盖场景：
+ * 1. 对象转行数据与 Entity.parse(bean, true, true) 一致 (别名、下划线、忽略 null)
+ * 2. 结果集映射与 Entity.toBean 一致，参数绑定可写回同样的数据
+ * 3. Record 映射
+ * 4. 10000 行读取：直接映射与 Entity + toBean 的耗时对比
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-19 11:00
+ */
+class BeanRowMapperTest {
+
+    /**
+     * 用可区分的值填充对象的 Integer、String、Date 字段
+     */
+    private static <T> T fill(T bean, int seed) throws IllegalAccessException {
+        int i = seed;
+        for (Class<?> c = bean.getClass(); c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers())) {
+                    continue;
+                }
+                field.setAccessible(true);
+                i++;
+                if (field.getType() == Integer.class) {
+                    field.set(bean, i);
+                } else if (field.getType() == String.class) {
+                    field.set(bean, "v" + i);
+                } else if (field.getType() == Date.class) {
+                    field.set(bean, new Date(1_700_000_000_000L + i * 1000L));
+                }
+            }
+        }
+        return bean;
+    }
+
+    @Test
+    @DisplayName("对象转行: 与 Entity.parse(bean, true, true) 的列与值一致")
+    void testToEntityParity() throws Exception {
+        for (Object bean : List.of(fill(new RcsAgv(), 0), fill(new RcsTask(), 100), fill(new RcsChargePile(), 200), new RcsTask())) {
+            @SuppressWarnings("unchecked")
+            BeanRowMapper<Object> mapper = (BeanRowMapper<Object>) BeanRowMapper.of(bean.getClass());
+            Map<String, Object> expected = new HashMap<>(Entity.parse(bean, true, true));
+            Map<String, Object> actual = new HashMap<>(mapper.toEntity(bean));
+            assertEquals(expected, actual, bean.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * 任务节点记录
+     */
+    public record LegRow(Integer id, String taskCode, Date createTime) {
+    }
+
+    @Test
+    @DisplayName("结果集映射: 与 toBean 一致，绑定参数写入后可原样读回，并支持 Record；10000 行耗时对比")
+    void testResultSetMapping() throws Exception {
+        Db db = Db.use(new SimpleDataSource("jdbc:h2:mem:mapper;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", ""));
+        BeanRowMapper<RcsTask> mapper = BeanRowMapper.of(RcsTask.class);
+        Map<String, Class<?>> types = new LinkedHashMap<>();
+        for (Field field : RcsTask.class.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                types.put(field.getName(), field.getType());
+            }
+        }
+        List<String> columns = mapper.columns();
+        StringJoiner ddl = new StringJoiner(", ", "CREATE TABLE rcs_task (", ")");
+        StringJoiner placeholders = new StringJoiner(", ");
+        for (String column : columns) {
+            Class<?> type = types.get(cn.hutool.core.util.StrUtil.toCamelCase(column));
+            ddl.add("`" + column + "` " + (type == Integer.class ? "INT" : type == Date.class ? "TIMESTAMP" : "VARCHAR(64)"));
+            placeholders.add("?");
+        }
+        db.execute(ddl.toString());
+
+        int rows = 10_000;
+        List<RcsTask> tasks = new ArrayList<>(rows);
+        List<Object[]> params = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            RcsTask task = fill(new RcsTask(), i * 100);
+            if (i % 10 == 0) {
+                // 部分列为 null
+                task.setEquipmentCode(null);
+                task.setFinishTime(null);
+            }
+            tasks.add(task);
+            params.add(mapper.bind(task, columns));
+        }
+        String columnList = String.join(", ", columns.stream().map(c -> "`" + c + "`").toList());
+        db.executeBatch("INSERT INTO rcs_task (" + columnList + ") VALUES (" + placeholders + ")", params);
+
+        String sql = "SELECT * FROM rcs_task ORDER BY id";
+        List<RcsTask> mapped = db.query(sql, mapper::mapAll);
+        List<RcsTask> converted = db.query(sql).stream().map(e -> e.toBean(RcsTask.class)).toList();
+        assertEquals(tasks, mapped);
+        assertEquals(converted, mapped);
+
+        // Record：列标签按下划线匹配组件
+        LegRow first = db.query("SELECT id, task_code, create_time FROM rcs_task ORDER BY id", BeanRowMapper.of(LegRow.class)::mapFirst);
+        assertEquals(new LegRow(tasks.getFirst().getId(), tasks.getFirst().getTaskCode(), tasks.getFirst().getCreateTime()), first);
+
+        // 预热后对比
+        for (int i = 0; i < 5; i++) {
+            db.query(sql, mapper::mapAll);
+            db.query(sql).forEach(e -> e.toBean(RcsTask.class));
+        }
+        int rounds = 10;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            db.query(sql, mapper::mapAll);
+        }
+        long direct = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            db.query(sql).forEach(e -> e.toBean(RcsTask.class));
+        }
+        long viaEntity = System.nanoTime() - start;
+        System.out.printf("读取 %d 行: 直接映射 %.1f ms, Entity + toBean %.1f ms (%.1fx)%n",
+                rows, direct / 1e6 / rounds, viaEntity / 1e6 / rounds, (double) viaEntity / direct);
+        db.execute("DROP TABLE rcs_task");
+    }
+}
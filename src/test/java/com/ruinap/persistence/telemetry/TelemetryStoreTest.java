@@ -0,0 +1,158 @@
+package com.ruinap.persistence.telemetry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TelemetryStore 单元测试
+ * <p>
+ * 覆盖场景：
+ * 1. 列式编码往返一致 (含未知值与负数坐标)，输出压缩率
+ * 2. 降采样：1 秒、1 分钟时间桶取最后值，速度与异常取最大值
+ * 3. 落盘后重新打开可按时间范围查询，末尾残帧不影响之后的写入
+ * 4. 按分层保留时长删除过期文件
+ * </p>
+ *
+ * @author qianye
+ * @create 2026-03-20 14:00
+ */
+class TelemetryStoreTest {
+
+    /**
+     * 2026-03-20 00:00:00 UTC，按小时对齐
+     */
+    private static final long BASE = 1_773_964_800_000L;
+
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("telemetry-test");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    @DisplayName("编码: 列式差值编码往返一致，输出每行字节数")
+    void testChunkRoundTrip() {
+        List<TelemetrySample> samples = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            // 5Hz 上报，沿 X 轴匀速行驶，电量缓慢下降
+            samples.add(new TelemetrySample(BASE + i * 200L + (i % 3), 1, 100 + i / 50, -5000 + i * 100, 2000, 90,
+                    80 - i / 200, 500, 1, i == 500 ? 2 : 0));
+        }
+        samples.add(new TelemetrySample(BASE + 300_000, TelemetrySample.UNKNOWN, TelemetrySample.UNKNOWN,
+                Integer.MAX_VALUE, Integer.MIN_VALUE, 0, 0, TelemetrySample.UNKNOWN, -1, 0));
+
+        byte[] encoded = TelemetryChunk.encode(samples);
+        assertEquals(samples, TelemetryChunk.decode(ByteBuffer.wrap(encoded)));
+        double perRow = (double) encoded.length / samples.size();
+        System.out.printf("编码 %d 行，共 %d 字节，平均 %.1f 字节/行 (定长存储 %d 字节/行)%n",
+                samples.size(), encoded.length, perRow, 8 + TelemetrySample.COLUMNS * 4);
+        assertTrue(perRow < 16);
+    }
+
+    @Test
+    @DisplayName("降采样: 1 秒与 1 分钟时间桶取最后值，速度与异常取桶内最大值")
+    void testDownsample() throws IOException {
+        TelemetryStore store = new TelemetryStore(dir);
+        // 3 分钟，每 200ms 一条，第 2 分钟第 10 秒出现一次急停与高速
+        for (int i = 0; i < 900; i++) {
+            long time = BASE + i * 200L;
+            boolean spike = i == 5 * 60 + 50;
+            store.append("AGV-1", new TelemetrySample(time, 1, i, i * 10, 0, 0, 90, spike ? 1500 : 500 + i % 5, 1, spike ? 1 : 0));
+        }
+        store.flush(BASE + 180_000);
+
+        List<TelemetrySample> seconds = store.query("AGV-1", TelemetryTier.SECOND, BASE, BASE + 180_000);
+        assertEquals(180, seconds.size());
+        TelemetrySample first = seconds.getFirst();
+        assertEquals(BASE, first.timeMs());
+        // 最后值：该秒最后一条 (i = 4)
+        assertEquals(4, first.pointId());
+        assertEquals(504, first.speed());
+        TelemetrySample spikeSecond = seconds.get(70);
+        assertEquals(1500, spikeSecond.speed());
+        assertEquals(1, spikeSecond.error());
+
+        List<TelemetrySample> minutes = store.query("AGV-1", TelemetryTier.MINUTE, BASE, BASE + 180_000);
+        assertEquals(3, minutes.size());
+        assertEquals(BASE + 60_000, minutes.get(1).timeMs());
+        assertEquals(599, minutes.get(1).pointId());
+        assertEquals(1500, minutes.get(1).speed());
+        assertEquals(1, minutes.get(1).error());
+        assertEquals(0, minutes.get(2).error());
+
+        List<TelemetrySample> raw = store.query("AGV-1", TelemetryTier.RAW, BASE + 1_000, BASE + 2_000);
+        assertEquals(5, raw.size());
+        assertEquals(5, raw.getFirst().pointId());
+    }
+
+    @Test
+    @DisplayName("持久化: 重新打开后按范围查询文件中的数据，末尾残帧被截断后可继续写入")
+    void testReopen() throws IOException {
+        TelemetryStore store = new TelemetryStore(dir);
+        for (int i = 0; i < 100; i++) {
+            store.append("AGV-1", new TelemetrySample(BASE + i * 100L, 1, i, 0, 0, 0, 90, 0, 1, 0));
+        }
+        // 原始层数据块超过保留时间后写入文件
+        assertTrue(store.flush(BASE + 60_000) > 0);
+        assertTrue(store.getWrittenBytes() > 0);
+
+        Path rawFile = dir.resolve("raw").resolve("AGV-1").resolve(BASE + ".tsc");
+        long validLength = Files.size(rawFile);
+        try (RandomAccessFile raf = new RandomAccessFile(rawFile.toFile(), "rw")) {
+            raf.seek(validLength);
+            raf.write(new byte[]{0, 0, 0, 50, 1, 2});
+        }
+
+        TelemetryStore reopened = new TelemetryStore(dir);
+        List<TelemetrySample> raw = reopened.query("AGV-1", TelemetryTier.RAW, BASE + 2_000, BASE + 3_000);
+        assertEquals(10, raw.size());
+        assertEquals(20, raw.getFirst().pointId());
+
+        reopened.append("AGV-1", new TelemetrySample(BASE + 20_000, 1, 500, 0, 0, 0, 90, 0, 1, 0));
+        reopened.flush(BASE + 120_000);
+        assertEquals(101, new TelemetryStore(dir).query("AGV-1", TelemetryTier.RAW, BASE, BASE + 60_000).size());
+    }
+
+    @Test
+    @DisplayName("保留: 按分层删除整个过期文件")
+    void testPurge() throws IOException {
+        TelemetryStore store = new TelemetryStore(dir);
+        // 原始层每个文件 10 分钟，写入 3 个文件
+        for (int i = 0; i < 3; i++) {
+            store.append("AGV-1", new TelemetrySample(BASE + i * 600_000L, 1, i, 0, 0, 0, 90, 0, 1, 0));
+        }
+        store.flush(BASE + 3_600_000);
+        assertEquals(3, store.query("AGV-1", TelemetryTier.RAW, BASE, BASE + 1_800_000).size());
+
+        // 保留 20 分钟：结束时间早于 00:10 的第一个文件过期
+        int deleted = store.purge(BASE + 1_800_000, Map.of(TelemetryTier.RAW, 1_200_000L));
+        assertEquals(1, deleted);
+        List<TelemetrySample> remain = store.query("AGV-1", TelemetryTier.RAW, BASE, BASE + 1_800_000);
+        assertEquals(List.of(1, 2), remain.stream().map(TelemetrySample::pointId).toList());
+        // 未配置的分层不删除
+        assertFalse(store.query("AGV-1", TelemetryTier.SECOND, BASE, BASE + 1_800_000).isEmpty());
+    }
+}